@@ -0,0 +1,122 @@
+package asl.sensor;
+
+import asl.sensor.output.CalResult;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Handle to a set of calibration jobs scheduled together by
+ * {@link CalProcessingServer#runBatch(List)}. Jobs are run concurrently on the server's worker
+ * pool, and can be retrieved in the order in which they finish with
+ * {@link #nextCompleted(long)}, or polled individually through the jobs themselves
+ * (see {@link CalJob#isDone()}). This is intended to let a Python client process results as they
+ * become available, rather than waiting on each calibration in turn.
+ */
+public final class CalBatch {
+
+  private final List<CalJob> jobs;
+  private final BlockingQueue<CalJob> completed;
+  private int retrieved;
+
+  /**
+   * Schedule each of the given jobs on the executor
+   *
+   * @param jobs Jobs to be run
+   * @param server Server to run the jobs' calibrations with
+   * @param executor Worker pool to run the jobs on
+   */
+  CalBatch(List<CalJob> jobs, CalProcessingServer server, ExecutorService executor) {
+    this.jobs = Collections.unmodifiableList(new ArrayList<>(jobs));
+    completed = new LinkedBlockingQueue<>();
+    retrieved = 0;
+    for (CalJob job : this.jobs) {
+      FutureTask<CalResult> task = new FutureTask<CalResult>(() -> job.run(server)) {
+        @Override
+        protected void done() {
+          completed.add(job);
+        }
+      };
+      job.setFuture(task);
+      executor.execute(task);
+    }
+  }
+
+  /**
+   * Get the jobs in this batch, in the order they were submitted
+   *
+   * @return Unmodifiable list of jobs
+   */
+  public List<CalJob> getJobs() {
+    return jobs;
+  }
+
+  /**
+   * Get the number of jobs in this batch
+   *
+   * @return Number of jobs
+   */
+  public int getJobCount() {
+    return jobs.size();
+  }
+
+  /**
+   * Get the number of jobs in this batch that have finished running (successfully or not)
+   *
+   * @return Number of finished jobs
+   */
+  public int getCompletedCount() {
+    int count = 0;
+    for (CalJob job : jobs) {
+      if (job.isDone()) {
+        ++count;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Check whether every job in this batch has finished running
+   *
+   * @return True if all jobs are done
+   */
+  public boolean isDone() {
+    return getCompletedCount() == jobs.size();
+  }
+
+  /**
+   * Get the next job to finish that has not already been returned by this method, waiting up to
+   * the given time for one to finish. Each job is returned exactly once, so calling this
+   * {@link #getJobCount()} times will return every job in the batch.
+   *
+   * @param timeoutMillis Time to wait for a job to finish, in milliseconds
+   * @return Next finished job, or null if none finished within the time limit or all jobs have
+   * already been returned
+   * @throws InterruptedException If interrupted while waiting
+   */
+  public synchronized CalJob nextCompleted(long timeoutMillis) throws InterruptedException {
+    if (retrieved == jobs.size()) {
+      return null;
+    }
+    CalJob job = completed.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+    if (job != null) {
+      ++retrieved;
+    }
+    return job;
+  }
+
+  /**
+   * Cancel all jobs in this batch that have not yet finished. Jobs that have not started are not
+   * run, and jobs already running are stopped at the next iteration of their solvers.
+   */
+  public void cancel() {
+    for (CalJob job : jobs) {
+      job.cancel();
+    }
+  }
+}
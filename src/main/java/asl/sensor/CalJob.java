@@ -0,0 +1,307 @@
+package asl.sensor;
+
+import asl.sensor.output.CalResult;
+import edu.iris.dmc.seedcodec.CodecException;
+import edu.sc.seis.seisFile.mseed.SeedFormatException;
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Descriptor of a single calibration to be run as part of a batch by
+ * {@link CalProcessingServer#runBatch(java.util.List)}. Jobs are created through the static
+ * factory methods here, which take the same parameters as the corresponding single-calibration
+ * methods of CalProcessingServer, along with an identifier used by the caller to match results to
+ * the calibrations that produced them (i.e., a station/channel name or database key).
+ *
+ * Once a job has been submitted as part of a batch, its state can be polled with
+ * {@link #isDone()} and its result retrieved with {@link #getResult()}; both of these are
+ * intended to be callable from a Python client via Py4J.
+ */
+public final class CalJob {
+
+  private final String jobId;
+  private final CalTask task;
+  private volatile Future<CalResult> future;
+
+  private CalJob(String jobId, CalTask task) {
+    this.jobId = jobId;
+    this.task = task;
+  }
+
+  /**
+   * Create a randomized calibration job over one day of data
+   *
+   * @param jobId Identifier for this job, used to match the job to its result
+   * @param calFileName Filename of calibration signal
+   * @param outFileName Filename of sensor output
+   * @param respName Filename of response to load in
+   * @param useEmbeddedResp True if response is an embedded response in program
+   * @param startDate ISO-861 formatted datetime string with timezone offset; start of data window
+   * @param endDate ISO-861 formatted datetime string with timezone offset; end of data window
+   * @param lowFreq True if a low-freq cal should be run
+   * @return Job to be submitted as part of a batch
+   * @see CalProcessingServer#runRand(String, String, String, boolean, String, String, boolean)
+   */
+  public static CalJob randomized(String jobId, String calFileName, String outFileName,
+      String respName, boolean useEmbeddedResp, String startDate, String endDate,
+      boolean lowFreq) {
+    return new CalJob(jobId, server -> server.runRand(calFileName, outFileName, respName,
+        useEmbeddedResp, startDate, endDate, lowFreq));
+  }
+
+  /**
+   * Create a randomized calibration job over data crossing a day boundary
+   *
+   * @param jobId Identifier for this job, used to match the job to its result
+   * @param calFileNameD1 Filename of calibration signal (day 1)
+   * @param calFileNameD2 Filename of calibration signal (day 2)
+   * @param outFileNameD1 Filename of sensor output (day 1)
+   * @param outFileNameD2 Filename of sensor output (day 2)
+   * @param respName Filename of response to load in
+   * @param useEmbeddedResp True if response is an embedded response in program
+   * @param startDate ISO-861 formatted datetime string with timezone offset; start of data window
+   * @param endDate ISO-861 formatted datetime string with timezone offset; end of data window
+   * @param lowFreq True if a low-freq cal should be run
+   * @return Job to be submitted as part of a batch
+   */
+  public static CalJob randomized(String jobId, String calFileNameD1, String calFileNameD2,
+      String outFileNameD1, String outFileNameD2, String respName, boolean useEmbeddedResp,
+      String startDate, String endDate, boolean lowFreq) {
+    return new CalJob(jobId, server -> server.runRand(calFileNameD1, calFileNameD2,
+        outFileNameD1, outFileNameD2, respName, useEmbeddedResp, startDate, endDate, lowFreq));
+  }
+
+  /**
+   * Create a step calibration job over one day of data
+   *
+   * @param jobId Identifier for this job, used to match the job to its result
+   * @param calFileName Filename of calibration signal
+   * @param outFileName Filename of sensor output
+   * @param respName Filename of response to load in
+   * @param useEmbeddedResp True if response is an embedded response in program
+   * @param startDate ISO-861 formatted datetime string with timezone offset; start of data window
+   * @param endDate ISO-861 formatted datetime string with timezone offset; end of data window
+   * @return Job to be submitted as part of a batch
+   */
+  public static CalJob step(String jobId, String calFileName, String outFileName,
+      String respName, boolean useEmbeddedResp, String startDate, String endDate) {
+    return new CalJob(jobId, server -> server.runStep(calFileName, outFileName, respName,
+        useEmbeddedResp, startDate, endDate));
+  }
+
+  /**
+   * Create a step calibration job over data crossing a day boundary
+   *
+   * @param jobId Identifier for this job, used to match the job to its result
+   * @param calFileNameD1 Filename of calibration signal (day 1)
+   * @param calFileNameD2 Filename of calibration signal (day 2)
+   * @param outFileNameD1 Filename of sensor output (day 1)
+   * @param outFileNameD2 Filename of sensor output (day 2)
+   * @param respName Filename of response to load in
+   * @param useEmbeddedResp True if response is an embedded response in program
+   * @param startDate ISO-861 formatted datetime string with timezone offset; start of data window
+   * @param endDate ISO-861 formatted datetime string with timezone offset; end of data window
+   * @return Job to be submitted as part of a batch
+   */
+  public static CalJob step(String jobId, String calFileNameD1, String calFileNameD2,
+      String outFileNameD1, String outFileNameD2, String respName, boolean useEmbeddedResp,
+      String startDate, String endDate) {
+    return new CalJob(jobId, server -> server.runStep(calFileNameD1, calFileNameD2,
+        outFileNameD1, outFileNameD2, respName, useEmbeddedResp, startDate, endDate));
+  }
+
+  /**
+   * Create a sine calibration job over one day of data
+   *
+   * @param jobId Identifier for this job, used to match the job to its result
+   * @param calFileName Filename of calibration signal
+   * @param outFileName Filename of sensor output
+   * @param startDate ISO-861 formatted datetime string with timezone offset; start of data window
+   * @param endDate ISO-861 formatted datetime string with timezone offset; end of data window
+   * @return Job to be submitted as part of a batch
+   */
+  public static CalJob sine(String jobId, String calFileName, String outFileName,
+      String startDate, String endDate) {
+    return new CalJob(jobId,
+        server -> server.runSine(calFileName, outFileName, startDate, endDate));
+  }
+
+  /**
+   * Create a sine calibration job over data crossing a day boundary
+   *
+   * @param jobId Identifier for this job, used to match the job to its result
+   * @param calFileNameD1 Filename of calibration signal (day 1)
+   * @param calFileNameD2 Filename of calibration signal (day 2)
+   * @param outFileNameD1 Filename of sensor output (day 1)
+   * @param outFileNameD2 Filename of sensor output (day 2)
+   * @param startDate ISO-861 formatted datetime string with timezone offset; start of data window
+   * @param endDate ISO-861 formatted datetime string with timezone offset; end of data window
+   * @return Job to be submitted as part of a batch
+   */
+  public static CalJob sine(String jobId, String calFileNameD1, String calFileNameD2,
+      String outFileNameD1, String outFileNameD2, String startDate, String endDate) {
+    return new CalJob(jobId, server -> server.runSine(calFileNameD1, calFileNameD2,
+        outFileNameD1, outFileNameD2, startDate, endDate));
+  }
+
+  /**
+   * Create a six-input relative gain job. Seed files, response names, and the embedded flags for
+   * each response are given as arrays in the order N1, E1, Z1, N2, E2, Z2.
+   *
+   * @param jobId Identifier for this job, used to match the job to its result
+   * @param seedFileNames File names of the six data inputs
+   * @param respNames Names of the six responses
+   * @param respsEmbedded True for each response that is an embedded resp file
+   * @param startDate ISO-861 formatted datetime string with timezone offset; start of data window
+   * @param endDate ISO-861 formatted datetime string with timezone offset; end of data window
+   * @param useFirstDataAsAngleRef True if N-E1 data will be used for rotation reference
+   * @param useFirstDataAsGainRef True if N-E-Z1 data will be used for gain reference
+   * @return Job to be submitted as part of a batch
+   * @see CalProcessingServer#runGain
+   */
+  public static CalJob gain(String jobId, String[] seedFileNames, String[] respNames,
+      boolean[] respsEmbedded, String startDate, String endDate, boolean useFirstDataAsAngleRef,
+      boolean useFirstDataAsGainRef) {
+    final String[] seeds = seedFileNames.clone();
+    final String[] resps = respNames.clone();
+    final boolean[] embeds = respsEmbedded.clone();
+    return new CalJob(jobId, server -> server.runGain(seeds[0], seeds[1], seeds[2], seeds[3],
+        seeds[4], seeds[5], resps[0], resps[1], resps[2], resps[3], resps[4], resps[5],
+        embeds[0], embeds[1], embeds[2], embeds[3], embeds[4], embeds[5], startDate, endDate,
+        useFirstDataAsAngleRef, useFirstDataAsGainRef));
+  }
+
+  /**
+   * Create a 10-volt test job. Unused inputs (second and third) may be blank, as with
+   * {@link CalProcessingServer#runVoltage}.
+   *
+   * @param jobId Identifier for this job, used to match the job to its result
+   * @param seedFileNames File names of the (up to three) data inputs
+   * @param respNames Names of the (up to three) responses
+   * @param respsEmbedded True for each response that is an embedded resp file
+   * @param startDate ISO-861 formatted datetime string with timezone offset; start of data window
+   * @param endDate ISO-861 formatted datetime string with timezone offset; end of data window
+   * @return Job to be submitted as part of a batch
+   */
+  public static CalJob voltage(String jobId, String[] seedFileNames, String[] respNames,
+      boolean[] respsEmbedded, String startDate, String endDate) {
+    final String[] seeds = seedFileNames.clone();
+    final String[] resps = respNames.clone();
+    final boolean[] embeds = respsEmbedded.clone();
+    return new CalJob(jobId, server -> server.runVoltage(seeds[0], seeds[1], seeds[2],
+        resps[0], resps[1], resps[2], embeds[0], embeds[1], embeds[2], startDate, endDate));
+  }
+
+  /**
+   * Get the identifier given to this job when it was created
+   *
+   * @return Job identifier
+   */
+  public String getJobId() {
+    return jobId;
+  }
+
+  /**
+   * Check whether this job has finished running (successfully or not). A job that has not been
+   * submitted as part of a batch is never done.
+   *
+   * @return True if the job has completed, failed, or been cancelled
+   */
+  public boolean isDone() {
+    return future != null && future.isDone();
+  }
+
+  /**
+   * Check whether this job has finished running without producing a result
+   *
+   * @return True if the job threw an exception or was cancelled
+   */
+  public boolean isFailed() {
+    return getErrorMessage() != null;
+  }
+
+  /**
+   * Get the description of the error that prevented this job from completing, if any.
+   * This does not wait for the job to finish.
+   *
+   * @return Error message, or null if the job is not done or completed successfully
+   */
+  public String getErrorMessage() {
+    if (!isDone()) {
+      return null;
+    }
+    try {
+      future.get();
+      return null;
+    } catch (CancellationException e) {
+      return "Job was cancelled";
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      return cause.getClass().getSimpleName() + ": " + cause.getMessage();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    }
+  }
+
+  /**
+   * Get the result of this job, waiting for it to complete if necessary
+   *
+   * @return Data from running the calibration
+   * @throws ExecutionException If the calibration threw an exception (which is the cause)
+   * @throws InterruptedException If interrupted while waiting for the job to complete
+   * @throws IllegalStateException If the job has not been submitted as part of a batch
+   */
+  public CalResult getResult() throws ExecutionException, InterruptedException {
+    if (future == null) {
+      throw new IllegalStateException("Job " + jobId + " has not been submitted");
+    }
+    return future.get();
+  }
+
+  /**
+   * Cancel this job. A job that has not yet started will not be run, and a job that is running
+   * has its experiment stopped at the next solver iteration.
+   *
+   * @return True if the job was cancelled
+   */
+  public boolean cancel() {
+    return future != null && future.cancel(true);
+  }
+
+  /**
+   * Run the calibration described by this job
+   *
+   * @param server Server instance to run the calibration with
+   * @return Data from running the calibration
+   */
+  CalResult run(CalProcessingServer server)
+      throws IOException, SeedFormatException, CodecException {
+    return task.run(server);
+  }
+
+  /**
+   * Associate this job with the handle of its scheduled execution
+   *
+   * @param future Handle to the result of the job
+   * @throws IllegalStateException If the job was already submitted
+   */
+  void setFuture(Future<CalResult> future) {
+    if (this.future != null) {
+      throw new IllegalStateException("Job " + jobId + " has already been submitted");
+    }
+    this.future = future;
+  }
+
+  /**
+   * Calibration to be run on a server, matching the signatures of CalProcessingServer's methods
+   */
+  @FunctionalInterface
+  private interface CalTask {
+
+    CalResult run(CalProcessingServer server)
+        throws IOException, SeedFormatException, CodecException;
+  }
+}
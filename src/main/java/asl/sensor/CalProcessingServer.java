@@ -1,10 +1,10 @@
 package asl.sensor;
 
+import static asl.sensor.output.ChartRenderer.fromTemplate;
 import static asl.utils.ReportingUtils.COLORS;
-import static asl.utils.ReportingUtils.chartsToImageList;
 import static asl.utils.ResponseUnits.enumerateAllResponseFilenames;
-import static asl.utils.TimeSeriesUtils.getFirstTimeSeries;
 
+import asl.sensor.experiment.CancellationToken;
 import asl.sensor.experiment.GainExperiment;
 import asl.sensor.experiment.GainSixExperiment;
 import asl.sensor.experiment.RandomizedExperiment;
@@ -12,8 +12,11 @@ import asl.sensor.experiment.SineExperiment;
 import asl.sensor.experiment.StepExperiment;
 import asl.sensor.experiment.VoltageExperiment;
 import asl.sensor.gui.ExperimentPanel;
+import asl.sensor.input.BulkSeedLoader;
 import asl.sensor.input.DataStore;
+import asl.sensor.input.DecodeCache;
 import asl.sensor.output.CalResult;
+import asl.sensor.output.ChartRenderer;
 import asl.utils.input.DataBlock;
 import asl.utils.input.InstrumentResponse;
 import edu.iris.dmc.seedcodec.CodecException;
@@ -21,24 +24,27 @@ import edu.sc.seis.seisFile.mseed.SeedFormatException;
 import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Font;
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.time.Instant;
+import java.text.DateFormat;
 import java.time.OffsetDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
 import java.util.List;
-import javax.imageio.ImageIO;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.commons.math3.complex.Complex;
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.JFreeChart;
 import org.jfree.chart.annotations.XYTitleAnnotation;
+import org.jfree.chart.axis.Axis;
 import org.jfree.chart.axis.DateAxis;
 import org.jfree.chart.axis.LogarithmicAxis;
 import org.jfree.chart.axis.NumberAxis;
 import org.jfree.chart.axis.ValueAxis;
 import org.jfree.chart.plot.Marker;
-import org.jfree.chart.plot.PlotOrientation;
 import org.jfree.chart.plot.ValueMarker;
 import org.jfree.chart.plot.XYPlot;
 import org.jfree.chart.renderer.xy.XYItemRenderer;
@@ -59,7 +65,97 @@ import py4j.Py4JNetworkException;
  */
 public class CalProcessingServer {
 
+  /**
+   * Bold version of the default axis label font, used for all chart axes
+   */
+  private static final Font BOLD_LABEL_FONT = Axis.DEFAULT_AXIS_LABEL_FONT.deriveFont(Font.BOLD);
+
+  /**
+   * Font of the inset listing gain statistics, slightly larger than the default title font
+   */
+  private static final Font GAIN_INSET_FONT =
+      TextTitle.DEFAULT_FONT.deriveFont(TextTitle.DEFAULT_FONT.getSize() + 2f);
+
+  // layouts of the charts produced for each experiment, built once and copied for each result
+  // (see ChartRenderer#fromTemplate); these are never modified after being built
+  private static final JFreeChart GAIN_TEMPLATE = createGainTemplate();
+  private static final JFreeChart SINE_TEMPLATE = createTemplate(
+      createDateAxis(null), new NumberAxis("Normalized calibration signals (counts)"));
+  private static final JFreeChart LINEARITY_TEMPLATE = createTemplate(
+      new NumberAxis("Value of sampled cal data (counts)"),
+      new NumberAxis("Value of sampled sensor output (counts)"));
+  private static final JFreeChart STEP_TEMPLATE = createTemplate(
+      createDateAxis("Time of sample (Julian date)"), new NumberAxis("Step counts"));
+  private static final JFreeChart STEP_AMPLITUDE_TEMPLATE = createTemplate(
+      new LogarithmicAxis("Frequency (f)"), new NumberAxis("RESP Amplitude [10 * log10(RESP(f))]"));
+  private static final JFreeChart STEP_PHASE_TEMPLATE = createTemplate(
+      new LogarithmicAxis("Frequency (f)"), new NumberAxis("RESP Phase (deg.)"));
+  private static final JFreeChart RAND_AMPLITUDE_TEMPLATE =
+      createRandTemplate("20 * log10( RESP(f) )", false, false);
+  private static final JFreeChart RAND_PHASE_TEMPLATE =
+      createRandTemplate("phi(RESP(f))", true, false);
+  private static final JFreeChart RAND_AMPLITUDE_ERROR_TEMPLATE =
+      createRandTemplate("Amplitude error (percentage)", true, true);
+  private static final JFreeChart RAND_PHASE_ERROR_TEMPLATE =
+      createRandTemplate("Phase error (degrees)", true, true);
+  private static final JFreeChart VOLTAGE_TEMPLATE = createVoltageTemplate();
+
+  /**
+   * Number of calibrations from a batch that may run at once
+   */
+  private final int batchWorkers;
+
+  /**
+   * Worker pool for batch calibrations, created when the first batch is submitted
+   */
+  private ExecutorService batchExecutor;
+
+  /**
+   * Decoded data and parsed responses shared between calibrations run by this server
+   */
+  private final DecodeCache decodeCache;
+
+  /**
+   * Draws and encodes result charts off of the thread running the calibration
+   */
+  private final ChartRenderer chartRenderer;
+
+  /**
+   * Time limit for the calculations of each calibration, in milliseconds (0 for no limit)
+   */
+  private volatile long jobTimeoutMillis;
+
   public CalProcessingServer() {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Create a server that runs up to the given number of calibrations from a batch at once
+   *
+   * @param batchWorkers Size of the worker pool used for batch calibrations
+   * @see #runBatch(List)
+   */
+  public CalProcessingServer(int batchWorkers) {
+    this(batchWorkers, Runtime.getRuntime().maxMemory() / 4);
+  }
+
+  /**
+   * Create a server that runs up to the given number of calibrations from a batch at once and
+   * keeps up to the given amount of decoded data in memory for reuse between calibrations
+   *
+   * @param batchWorkers Size of the worker pool used for batch calibrations
+   * @param decodeCacheBytes Memory budget for decoded data and responses, in bytes
+   * (0 to decode every file each time it is used)
+   * @see #runBatch(List)
+   * @see DecodeCache
+   */
+  public CalProcessingServer(int batchWorkers, long decodeCacheBytes) {
+    if (batchWorkers < 1) {
+      throw new IllegalArgumentException("Batch worker count must be positive: " + batchWorkers);
+    }
+    this.batchWorkers = batchWorkers;
+    decodeCache = new DecodeCache(decodeCacheBytes);
+    chartRenderer = new ChartRenderer();
   }
 
   /**
@@ -72,7 +168,18 @@ public class CalProcessingServer {
   }
 
   public static void main(String[] args) {
-    GatewayServer gatewayServer = new GatewayServer(new CalProcessingServer());
+    // optional first argument sets the number of calibrations a batch may run at once
+    // and optional second argument sets the decoded data cache size in megabytes
+    CalProcessingServer calServer;
+    if (args.length > 1) {
+      calServer = new CalProcessingServer(Integer.parseInt(args[0]),
+          Long.parseLong(args[1]) * 1024 * 1024);
+    } else if (args.length > 0) {
+      calServer = new CalProcessingServer(Integer.parseInt(args[0]));
+    } else {
+      calServer = new CalProcessingServer();
+    }
+    GatewayServer gatewayServer = new GatewayServer(calServer);
     try {
       gatewayServer.start();
     } catch (Py4JNetworkException e) {
@@ -81,6 +188,98 @@ public class CalProcessingServer {
     System.out.println("Gateway Server Started");
   }
 
+  /**
+   * Schedule a list of calibrations to be run concurrently on this server's worker pool.
+   * This returns immediately; results can be retrieved as each calibration finishes through the
+   * returned batch (see {@link CalBatch#nextCompleted(long)}) or by polling the jobs themselves.
+   * Each calibration loads its own data and runs its own experiment, so jobs share no state.
+   *
+   * @param jobs Descriptors of the calibrations to run (see the factory methods of CalJob)
+   * @return Handle to the scheduled jobs
+   */
+  public CalBatch runBatch(List<CalJob> jobs) {
+    return new CalBatch(jobs, this, getBatchExecutor());
+  }
+
+  /**
+   * Get the number of calibrations from a batch that may run at once
+   *
+   * @return Size of the batch worker pool
+   */
+  public int getBatchWorkers() {
+    return batchWorkers;
+  }
+
+  /**
+   * Stop accepting new batches and release the worker pool once any scheduled calibrations have
+   * finished. Batches submitted after this is called will use a new worker pool.
+   */
+  public synchronized void shutdownBatches() {
+    if (batchExecutor != null) {
+      batchExecutor.shutdown();
+      batchExecutor = null;
+    }
+  }
+
+  /**
+   * Set the time limit for the calculations of each calibration run by this server, whether run
+   * directly or as part of a batch. A calibration whose experiment is still running once this
+   * time has passed is stopped and fails with a CancellationException.
+   *
+   * @param timeoutMillis Time limit in milliseconds, or 0 for no limit
+   */
+  public void setJobTimeout(long timeoutMillis) {
+    if (timeoutMillis < 0) {
+      throw new IllegalArgumentException("Job timeout must not be negative: " + timeoutMillis);
+    }
+    jobTimeoutMillis = timeoutMillis;
+  }
+
+  /**
+   * Get the time limit for the calculations of each calibration run by this server
+   *
+   * @return Time limit in milliseconds, or 0 if there is no limit
+   */
+  public long getJobTimeout() {
+    return jobTimeoutMillis;
+  }
+
+  /**
+   * Discard all decoded data and parsed responses held for reuse between calibrations
+   */
+  public void clearDecodeCache() {
+    decodeCache.clear();
+  }
+
+  /**
+   * Get the worker pool for batch calibrations, creating it if necessary. Worker threads are
+   * daemons so that an idle pool does not keep the JVM alive.
+   *
+   * @return Worker pool
+   */
+  private synchronized ExecutorService getBatchExecutor() {
+    if (batchExecutor == null) {
+      AtomicInteger threadCount = new AtomicInteger(0);
+      batchExecutor = Executors.newFixedThreadPool(batchWorkers, runnable -> {
+        Thread thread = new Thread(runnable, "cal-batch-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    return batchExecutor;
+  }
+
+  /**
+   * Create the token used to stop a calibration's experiment, which is cancelled once the job
+   * timeout passes or when the thread running the calibration is interrupted (i.e., when a
+   * running batch job is cancelled)
+   *
+   * @return Cancellation token for an experiment about to be run on the current thread
+   */
+  private CancellationToken newCancellationToken() {
+    return CancellationToken.forCurrentThread(jobTimeoutMillis, TimeUnit.MILLISECONDS);
+  }
+
   /**
    * Acquire data and run a gain experiment over it. Angle and gain references can be set
    * independently using the command line parameters. Each RESP file can be set as embedded
@@ -136,13 +335,62 @@ public class CalProcessingServer {
 
     DataStore ds = new DataStore();
     for (int i = 0; i < seedFileNames.length; ++i) {
-      DataBlock db = getFirstTimeSeries(seedFileNames[i]);
+      DataBlock db = decodeCache.getFirstTimeSeries(seedFileNames[i]);
       ds.setBlock(i, db);
       InstrumentResponse ir;
       if (embedResps[i]) {
-        ir = InstrumentResponse.loadEmbeddedResponse(respFileNames[i]);
+        ir = decodeCache.getEmbeddedResponse(respFileNames[i]);
+      } else {
+        ir = decodeCache.getResponse(respFileNames[i]);
+      }
+      ds.setResponse(i, ir);
+    }
+    ds.trim(start, end);
+
+    return runExpGetDataGain(ds, useFirstDataAsAngleRef, useFirstDataAsGainRef);
+  }
+
+  /**
+   * Acquire data and run six-input gain calibration over it, loading the data for each input from
+   * a directory of miniSEED files (i.e., a station's day files covering the data window) rather
+   * than from explicitly named files. Files are decoded concurrently and each channel's data is
+   * stitched across files. Returns the experiment (all data kept locally to maintain thread
+   * safety)
+   *
+   * @param dataPath Directory or glob pattern (i.e., "/data/IU_ANMO/2018/*_BH?.seed") of the
+   * files holding the data
+   * @param channelNames Names (SNCL, such as "IU_ANMO_00_BH1") of the data to be used as N1, E1,
+   * Z1, N2, E2, and Z2 inputs, in that order
+   * @param respNames Names of the responses for each input, in the same order
+   * @param respsEmbedded True for each response that is an embedded resp file
+   * @param startDate ISO-861 formatted datetime string with timezone offset; start of data window
+   * @param endDate ISO-861 formatted datetime string with timezone offset; end of data window
+   * @param useFirstDataAsAngleRef True if N-E1 data will be used for rotation reference
+   * @param useFirstDataAsGainRef True if N-E-Z1 data will be used for rotation reference
+   * @return Data from running the experiment (plots and gain statistics)
+   * @throws IOException If a file in the directory cannot be read
+   * @throws SeedFormatException If a data file cannot be parsed as a seed file
+   * @throws CodecException If there is an issue with the compression of the seed files
+   * @throws IllegalArgumentException If a channel is not found in any of the files
+   */
+  public CalResult runGainFromDirectory(String dataPath, String[] channelNames,
+      String[] respNames, boolean[] respsEmbedded, String startDate, String endDate,
+      boolean useFirstDataAsAngleRef, boolean useFirstDataAsGainRef)
+      throws IOException, CodecException, SeedFormatException {
+    DateTimeFormatter dtf = DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+    OffsetDateTime startDateTime = OffsetDateTime.parse(startDate, dtf);
+    OffsetDateTime endDateTime = OffsetDateTime.parse(endDate, dtf);
+    long start = startDateTime.toInstant().toEpochMilli();
+    long end = endDateTime.toInstant().toEpochMilli();
+
+    DataStore ds = new DataStore();
+    loadFromDirectory(ds, dataPath, channelNames);
+    for (int i = 0; i < channelNames.length; ++i) {
+      InstrumentResponse ir;
+      if (respsEmbedded[i]) {
+        ir = decodeCache.getEmbeddedResponse(respNames[i]);
       } else {
-        ir = new InstrumentResponse(respFileNames[i]);
+        ir = decodeCache.getResponse(respNames[i]);
       }
       ds.setResponse(i, ir);
     }
@@ -151,6 +399,20 @@ public class CalProcessingServer {
     return runExpGetDataGain(ds, useFirstDataAsAngleRef, useFirstDataAsGainRef);
   }
 
+  /**
+   * Load the named channels from all the files in a directory (or matching a glob pattern) into
+   * the corresponding indices of a datastore. Each channel is decoded from only its own records
+   * in each file, and decoded channels go through the decode cache, so later calibrations over
+   * the same files do not decode them again.
+   */
+  private void loadFromDirectory(DataStore ds, String dataPath, String[] channelNames)
+      throws IOException, CodecException, SeedFormatException {
+    BulkSeedLoader loader = new BulkSeedLoader(ComputeExecutor.getInstance(),
+        decodeCache::getTimeSeries);
+    Map<String, DataBlock> blocks = loader.load(dataPath, Arrays.asList(channelNames));
+    ds.setBlocks(blocks, dataPath, channelNames, DataStore.FILE_COUNT);
+  }
+
   /**
    * Acquire data and run randomized calibration solver over it. Returns the experiment (all data
    * kept locally to maintain thread safety)
@@ -170,6 +432,30 @@ public class CalProcessingServer {
   public CalResult runRand(String calFileName, String outFileName,
       String respName, boolean useEmbeddedResp, String startDate, String endDate, boolean lowFreq)
       throws IOException, SeedFormatException, CodecException {
+    return runRand(calFileName, outFileName, respName, useEmbeddedResp, startDate, endDate,
+        lowFreq, false);
+  }
+
+  /**
+   * Acquire data and run randomized calibration solver over it. Returns the experiment (all data
+   * kept locally to maintain thread safety)
+   *
+   * @param calFileName Filename of calibration signal
+   * @param outFileName Filename of sensor output
+   * @param respName Filename of response to load in
+   * @param useEmbeddedResp True if response is an embedded response in program
+   * @param startDate ISO-861 formatted datetime string with timezone offset; start of data window
+   * @param endDate ISO-861 formatted datetime string with timezone offset; end of data window
+   * @param lowFreq True if a low-freq cal should be run
+   * @param parallelJacobian True if the solver should evaluate its Jacobian in parallel
+   * @return Data from running the experiment (plots and fit pole/zero values)
+   * @throws IOException If a string does not refer to a valid accessible file
+   * @throws SeedFormatException If a data file cannot be parsed as a seed file
+   * @throws CodecException If there is an issue with the compression of the seed files
+   */
+  public CalResult runRand(String calFileName, String outFileName,
+      String respName, boolean useEmbeddedResp, String startDate, String endDate, boolean lowFreq,
+      boolean parallelJacobian) throws IOException, SeedFormatException, CodecException {
     DateTimeFormatter dtf = DateTimeFormatter.ISO_OFFSET_DATE_TIME;
     OffsetDateTime startDateTime = OffsetDateTime.parse(startDate, dtf);
     OffsetDateTime endDateTime = OffsetDateTime.parse(endDate, dtf);
@@ -177,14 +463,13 @@ public class CalProcessingServer {
     long end = endDateTime.toInstant().toEpochMilli();
 
     DataStore ds = new DataStore();
-    DataBlock calBlock = getFirstTimeSeries(calFileName);
-    DataBlock outBlock = getFirstTimeSeries(outFileName);
+    DataBlock calBlock = decodeCache.getFirstTimeSeries(calFileName);
+    DataBlock outBlock = decodeCache.getFirstTimeSeries(outFileName);
     InstrumentResponse ir;
     if (useEmbeddedResp) {
-      ir = InstrumentResponse.loadEmbeddedResponse(respName);
+      ir = decodeCache.getEmbeddedResponse(respName);
     } else {
-      Instant epoch = InstrumentResponse.getRespFileClosestEpoch(respName, start, end);
-      ir = new InstrumentResponse(respName, epoch);
+      ir = decodeCache.getResponse(respName, start, end);
     }
 
     ds.setBlock(0, calBlock);
@@ -196,7 +481,7 @@ public class CalProcessingServer {
     ds.trimToCommonTime();
     ds.trim(start, end);
 
-    return runExpGetDataRand(ds, lowFreq);
+    return runExpGetDataRand(ds, lowFreq, parallelJacobian);
   }
 
   /**
@@ -221,6 +506,33 @@ public class CalProcessingServer {
       String outFileNameD1, String outFileNameD2, String respName, boolean useEmbeddedResp,
       String startDate, String endDate, boolean lowFreq)
       throws IOException, SeedFormatException, CodecException {
+    return runRand(calFileNameD1, calFileNameD2, outFileNameD1, outFileNameD2, respName,
+        useEmbeddedResp, startDate, endDate, lowFreq, false);
+  }
+
+  /**
+   * Acquire data and run randomized calibration solver over it. Used to handle calibrations that
+   * cross day boundaries. Returns the experiment (all data kept locally to maintain thread safety)
+   *
+   * @param calFileNameD1 Filename of calibration signal (day 1)
+   * @param calFileNameD2 Filename of calibration signal (day 2)
+   * @param outFileNameD1 Filename of sensor output (day 1)
+   * @param outFileNameD2 Filename of sensor output (day 2)
+   * @param respName Filename of response to load in
+   * @param useEmbeddedResp True if response is an embedded response in program
+   * @param startDate ISO-861 formatted datetime string with timezone offset; start of data window
+   * @param endDate ISO-861 formatted datetime string with timezone offset; end of data window
+   * @param lowFreq True if a low-freq cal should be run
+   * @param parallelJacobian True if the solver should evaluate its Jacobian in parallel
+   * @return Data from running the experiment (plots and fit pole/zero values)
+   * @throws IOException If a string does not refer to a valid accessible file
+   * @throws SeedFormatException If a data file cannot be parsed as a seed file
+   * @throws CodecException If there is an issue with the compression of the seed files
+   */
+  public CalResult runRand(String calFileNameD1, String calFileNameD2,
+      String outFileNameD1, String outFileNameD2, String respName, boolean useEmbeddedResp,
+      String startDate, String endDate, boolean lowFreq, boolean parallelJacobian)
+      throws IOException, SeedFormatException, CodecException {
     DateTimeFormatter dtf = DateTimeFormatter.ISO_OFFSET_DATE_TIME;
     OffsetDateTime startDateTime = OffsetDateTime.parse(startDate, dtf);
     OffsetDateTime endDateTime = OffsetDateTime.parse(endDate, dtf);
@@ -231,14 +543,13 @@ public class CalProcessingServer {
     DataStore ds = new DataStore();
     String[] calFileName = new String[]{calFileNameD1, calFileNameD2};
     String[] outFileName = new String[]{outFileNameD1, outFileNameD2};
-    DataBlock calBlock = getFirstTimeSeries(calFileName);
-    DataBlock outBlock = getFirstTimeSeries(outFileName);
+    DataBlock calBlock = decodeCache.getFirstTimeSeries(calFileName);
+    DataBlock outBlock = decodeCache.getFirstTimeSeries(outFileName);
     InstrumentResponse ir;
     if (useEmbeddedResp) {
-      ir = InstrumentResponse.loadEmbeddedResponse(respName);
+      ir = decodeCache.getEmbeddedResponse(respName);
     } else {
-      Instant epoch = InstrumentResponse.getRespFileClosestEpoch(respName, start, end);
-      ir = new InstrumentResponse(respName, epoch);
+      ir = decodeCache.getResponse(respName, start, end);
     }
 
     ds.setBlock(0, calBlock);
@@ -246,7 +557,7 @@ public class CalProcessingServer {
     ds.setResponse(1, ir);
     ds.trim(start, end);
 
-    return runExpGetDataRand(ds, lowFreq);
+    return runExpGetDataRand(ds, lowFreq, parallelJacobian);
   }
 
   /**
@@ -279,14 +590,13 @@ public class CalProcessingServer {
     DataStore ds = new DataStore();
     String[] calFileName = new String[]{calFileNameD1, calFileNameD2};
     String[] outFileName = new String[]{outFileNameD1, outFileNameD2};
-    DataBlock calBlock = getFirstTimeSeries(calFileName);
-    DataBlock outBlock = getFirstTimeSeries(outFileName);
+    DataBlock calBlock = decodeCache.getFirstTimeSeries(calFileName);
+    DataBlock outBlock = decodeCache.getFirstTimeSeries(outFileName);
     InstrumentResponse ir;
     if (useEmbeddedResp) {
-      ir = InstrumentResponse.loadEmbeddedResponse(respName);
+      ir = decodeCache.getEmbeddedResponse(respName);
     } else {
-      Instant epoch = InstrumentResponse.getRespFileClosestEpoch(respName, start, end);
-      ir = new InstrumentResponse(respName, epoch);
+      ir = decodeCache.getResponse(respName, start, end);
     }
 
     ds.setBlock(0, calBlock);
@@ -324,14 +634,13 @@ public class CalProcessingServer {
     long end = endDateTime.toInstant().toEpochMilli();
 
     DataStore ds = new DataStore();
-    DataBlock calBlock = getFirstTimeSeries(calFileName);
-    DataBlock outBlock = getFirstTimeSeries(outFileName);
+    DataBlock calBlock = decodeCache.getFirstTimeSeries(calFileName);
+    DataBlock outBlock = decodeCache.getFirstTimeSeries(outFileName);
     InstrumentResponse ir;
     if (useEmbeddedResp) {
-      ir = InstrumentResponse.loadEmbeddedResponse(respName);
+      ir = decodeCache.getEmbeddedResponse(respName);
     } else {
-      Instant epoch = InstrumentResponse.getRespFileClosestEpoch(respName, start, end);
-      ir = new InstrumentResponse(respName, epoch);
+      ir = decodeCache.getResponse(respName, start, end);
     }
 
     ds.setBlock(0, calBlock);
@@ -366,8 +675,8 @@ public class CalProcessingServer {
     long end = endDateTime.toInstant().toEpochMilli();
 
     DataStore ds = new DataStore();
-    DataBlock calBlock = getFirstTimeSeries(calFileName);
-    DataBlock outBlock = getFirstTimeSeries(outFileName);
+    DataBlock calBlock = decodeCache.getFirstTimeSeries(calFileName);
+    DataBlock outBlock = decodeCache.getFirstTimeSeries(outFileName);
 
     ds.setBlock(0, calBlock);
     ds.setBlock(1, outBlock);
@@ -404,8 +713,8 @@ public class CalProcessingServer {
     DataStore ds = new DataStore();
     String[] calFileName = new String[]{calFileNameD1, calFileNameD2};
     String[] outFileName = new String[]{outFileNameD1, outFileNameD2};
-    DataBlock calBlock = getFirstTimeSeries(calFileName);
-    DataBlock outBlock = getFirstTimeSeries(outFileName);
+    DataBlock calBlock = decodeCache.getFirstTimeSeries(calFileName);
+    DataBlock outBlock = decodeCache.getFirstTimeSeries(outFileName);
 
     ds.setBlock(0, calBlock);
     ds.setBlock(1, outBlock);
@@ -449,11 +758,11 @@ public class CalProcessingServer {
         continue;
       }
 
-      ds.setBlock(loadIndex, seeds[i]);
+      ds.setBlock(loadIndex, decodeCache.getTimeSeries(seeds[i], null), DataStore.FILE_COUNT);
       if (embeds[i]) {
-        ds.setResponse(loadIndex, InstrumentResponse.loadEmbeddedResponse(resps[i]));
+        ds.setResponse(loadIndex, decodeCache.getEmbeddedResponse(resps[i]));
       } else {
-        ds.setResponse(loadIndex, resps[i]);
+        ds.setResponse(loadIndex, decodeCache.getResponse(resps[i]));
       }
       ++loadIndex;
     }
@@ -489,7 +798,7 @@ public class CalProcessingServer {
     gainSix.setRangeForStatistics(GainExperiment.DEFAULT_LOW_BOUND,
         GainExperiment.DEFAULT_UP_BOUND);
 
-    gainSix.runExperimentOnData(ds);
+    gainSix.runExperimentOnData(ds, newCancellationToken());
 
     String[] dataStrings = gainSix.getDataStrings();
     double northAzimuth = gainSix.getNorthAzimuthDegrees();
@@ -508,15 +817,8 @@ public class CalProcessingServer {
       timeseries.addSeries(timeseriesIn.getSeries((gainRef + 1) % 2));
       timeseries.addSeries(timeseriesIn.getSeries("NLNM"));
 
-      charts[i] = ChartFactory.createXYLineChart(
-          "Gain Experiment -- " + orientation[i],
-          "", // this gets populated by the period axis below
-          "",
-          timeseries,
-          PlotOrientation.VERTICAL,
-          true, // include legend
-          false,
-          false);
+      charts[i] = fromTemplate(GAIN_TEMPLATE, "Gain Experiment -- " + orientation[i],
+          timeseries);
 
       // add vertical lines to plot over rage of data for statistics (3 to 9s by default)
       XYPlot plot = charts[i].getXYPlot();
@@ -528,59 +830,14 @@ public class CalProcessingServer {
       plot.addDomainMarker(endMarker);
 
       // by request, include results of calculations in chart inset
-      TextTitle result = new TextTitle();
-      Font font = result.getFont();
-      font = font.deriveFont(font.getSize() + 2f);
-      result.setFont(font);
+      TextTitle result = new TextTitle(dataStrings[i], GAIN_INSET_FONT);
       result.setBackgroundPaint(Color.WHITE);
-      result.setText(dataStrings[i]);
       XYTitleAnnotation title = new XYTitleAnnotation(0.98, 0.98, result,
           RectangleAnchor.TOP_RIGHT);
       plot.addAnnotation(title);
-
-      BasicStroke stroke;
-
-      // now, make everything thicker!
-      for (int seriesIndex = 0; seriesIndex < timeseriesIn.getSeriesCount(); ++seriesIndex) {
-        stroke = (BasicStroke) plot.getRenderer().getSeriesStroke(seriesIndex);
-        if (stroke == null) {
-          stroke = (BasicStroke) plot.getRenderer().getDefaultStroke();
-        }
-        float width = stroke.getLineWidth() + 2f;
-        int join = stroke.getLineJoin();
-        int cap = stroke.getEndCap();
-
-        stroke = new BasicStroke(width, cap, join, 10f);
-        plot.getRenderer().setSeriesStroke(seriesIndex, stroke);
-        plot.getRenderer().setSeriesPaint(seriesIndex, COLORS[seriesIndex % 3]);
-      }
-
-      LogarithmicAxis periodAxis = new LogarithmicAxis("Period (s)");
-      Font bold = periodAxis.getLabelFont().deriveFont(Font.BOLD);
-      periodAxis.setLabelFont(bold);
-      plot.setDomainAxis(periodAxis);
-      periodAxis.setAutoRangeIncludesZero(false);
-      NumberAxis rangeAxis = new NumberAxis("Power (rel. 1 (m/s^2)^2/Hz)");
-      rangeAxis.setAutoRangeIncludesZero(false);
-      rangeAxis.setLabelFont(bold);
-      plot.setRangeAxis(rangeAxis);
-
-      // ensure that NLNM lines are bolder, colored black
-      XYItemRenderer renderer = plot.getRenderer();
-      // series index 0 - ref data; series index 1 - other data; series index 2 - NLNM plot
-      stroke = (BasicStroke) plot.getRenderer().getDefaultStroke();
-      stroke = new BasicStroke(stroke.getLineWidth() * 2);
-      renderer.setSeriesStroke(2, stroke);
-      renderer.setSeriesPaint(2, new Color(0, 0, 0));
     }
 
-    BufferedImage[] images = chartsToImageList(1, 1280, 960, charts);
-    byte[][] pngByteArrays = new byte[images.length][];
-    for (int i = 0; i < images.length; ++i) {
-      ByteArrayOutputStream out = new ByteArrayOutputStream();
-      ImageIO.write(images[i], "png", out);
-      pngByteArrays[i] = out.toByteArray();
-    }
+    byte[][] pngByteArrays = chartRenderer.renderToPng(charts);
 
     return CalResult.buildSixGainData(refDataMatches, northAzimuth, eastAzimuth,
         statistics, pngByteArrays);
@@ -589,121 +846,49 @@ public class CalProcessingServer {
 
   private CalResult runExpGetDataSine(DataStore ds) throws IOException {
     SineExperiment sine = new SineExperiment();
-    sine.runExperimentOnData(ds);
+    sine.runExperimentOnData(ds, newCancellationToken());
     List<XYSeriesCollection> plots = sine.getData();
     double calAmplitude = sine.getCalAmplitude();
     double outAmplitude = sine.getOutAmplitude();
     double estFreq = sine.getEstSineFreq();
     double ratio = calAmplitude / outAmplitude;
 
-    DateAxis timeAxis = new DateAxis();
-    timeAxis.setDateFormatOverride(ExperimentPanel.DATE_TIME_FORMAT.get());
-    Font bold = timeAxis.getLabelFont().deriveFont(Font.BOLD);
-    timeAxis.setLabelFont(bold);
-
-    JFreeChart sineChart = ChartFactory.createXYLineChart(
-        "Sine Calibration",
-        "Time of sample (Julian date)",
-        "Normalized calibration signals (counts)",
-        plots.get(0));
-    sineChart.getXYPlot().setDomainAxis(timeAxis);
-
-    JFreeChart linearityChart = ChartFactory.createXYLineChart(
-        "Sine cal. Linearity",
-        "Value of sampled cal data (counts)",
-        "Value of sampled sensor output (counts)",
-        plots.get(1));
-
-    JFreeChart[] charts = {sineChart, linearityChart};
-
-    for (JFreeChart chart : charts) {
-      XYItemRenderer renderer = chart.getXYPlot().getRenderer();
-      for (int i = 0; i < chart.getXYPlot().getSeriesCount(); ++i) {
-        renderer.setSeriesPaint(i, COLORS[i % 3]);
-      }
-    }
+    JFreeChart sineChart = fromTemplate(SINE_TEMPLATE, "Sine Calibration", plots.get(0));
+    JFreeChart linearityChart =
+        fromTemplate(LINEARITY_TEMPLATE, "Sine cal. Linearity", plots.get(1));
 
-    BufferedImage[] images = chartsToImageList(1, 1280, 960, charts);
-    byte[][] pngByteArrays = new byte[images.length][];
-    for (int i = 0; i < images.length; ++i) {
-      ByteArrayOutputStream out = new ByteArrayOutputStream();
-      ImageIO.write(images[i], "png", out);
-      pngByteArrays[i] = out.toByteArray();
-    }
+    byte[][] pngByteArrays = chartRenderer.renderToPng(sineChart, linearityChart);
     return CalResult.buildSineCalData(pngByteArrays, calAmplitude, outAmplitude, estFreq, ratio);
   }
 
   private CalResult runExpGetDataStep(DataStore ds) throws IOException {
     StepExperiment step = new StepExperiment();
-    step.runExperimentOnData(ds);
+    step.runExperimentOnData(ds, newCancellationToken());
     double[] fitParams = step.getFitParams();
     double[] initParams = step.getInitParams();
     List<XYSeriesCollection> plots = step.getData();
     // order of plots -- step function, resp amplitudes, resp phases
 
-    NumberAxis stepAxis = new NumberAxis("Step counts");
-    DateAxis timeAxis = new DateAxis("Time of sample (Julian date)");
-    timeAxis.setDateFormatOverride(ExperimentPanel.DATE_TIME_FORMAT.get());
-    NumberAxis ampAxis = new NumberAxis("RESP Amplitude [10 * log10(RESP(f))]");
-    NumberAxis phaseAxis = new NumberAxis("RESP Phase (deg.)");
-    LogarithmicAxis freqAxis = new LogarithmicAxis("Frequency (f)");
-    Font bold = stepAxis.getLabelFont().deriveFont(Font.BOLD);
-    stepAxis.setLabelFont(bold);
-    timeAxis.setLabelFont(bold);
-    ampAxis.setLabelFont(bold);
-    phaseAxis.setLabelFont(bold);
-    freqAxis.setLabelFont(bold);
-
-    JFreeChart stepChart = ChartFactory.createXYLineChart(
-        "Step Calibration",
-        timeAxis.getLabel(),
-        stepAxis.getLabel(),
-        plots.get(0));
-    stepChart.getXYPlot().setDomainAxis(timeAxis);
-    stepChart.getXYPlot().setRangeAxis(stepAxis);
-
-    JFreeChart respAmpChart = ChartFactory.createXYLineChart(
-        "Step Calibration - Resp Amplitude Comparison",
-        freqAxis.getLabel(),
-        ampAxis.getLabel(),
-        plots.get(1));
-    respAmpChart.getXYPlot().setDomainAxis(freqAxis);
-    respAmpChart.getXYPlot().setRangeAxis(ampAxis);
-
-    JFreeChart respPhaseChart = ChartFactory.createXYLineChart(
-        "Step Calibration - Resp Phase Comparison",
-        freqAxis.getLabel(),
-        phaseAxis.getLabel(),
-        plots.get(2));
-    respPhaseChart.getXYPlot().setDomainAxis(freqAxis);
-    respPhaseChart.getXYPlot().setRangeAxis(phaseAxis);
-    JFreeChart[] charts = {stepChart, respAmpChart, respPhaseChart};
-
-    for (JFreeChart chart : charts) {
-      XYItemRenderer renderer = chart.getXYPlot().getRenderer();
-      for (int i = 0; i < chart.getXYPlot().getSeriesCount(); ++i) {
-        renderer.setSeriesPaint(i, COLORS[i % 3]);
-      }
-    }
+    JFreeChart stepChart = fromTemplate(STEP_TEMPLATE, "Step Calibration", plots.get(0));
+    JFreeChart respAmpChart = fromTemplate(STEP_AMPLITUDE_TEMPLATE,
+        "Step Calibration - Resp Amplitude Comparison", plots.get(1));
+    JFreeChart respPhaseChart = fromTemplate(STEP_PHASE_TEMPLATE,
+        "Step Calibration - Resp Phase Comparison", plots.get(2));
 
-    BufferedImage[] images = chartsToImageList(1, 1280, 960, charts);
-    byte[][] pngByteArrays = new byte[images.length][];
-    for (int i = 0; i < images.length; ++i) {
-      ByteArrayOutputStream out = new ByteArrayOutputStream();
-      ImageIO.write(images[i], "png", out);
-      pngByteArrays[i] = out.toByteArray();
-    }
+    byte[][] pngByteArrays =
+        chartRenderer.renderToPng(stepChart, respAmpChart, respPhaseChart);
 
     return CalResult.buildStepCalData(pngByteArrays, fitParams, initParams);
   }
 
-  private CalResult runExpGetDataRand(DataStore dataStore, boolean isLowFrequency)
-      throws IOException {
+  private CalResult runExpGetDataRand(DataStore dataStore, boolean isLowFrequency,
+      boolean parallelJacobian) throws IOException {
 
     RandomizedExperiment randomExperiment = new RandomizedExperiment();
 
     randomExperiment.setLowFrequencyCalibration(isLowFrequency);
-    randomExperiment.runExperimentOnData(dataStore);
+    randomExperiment.setParallelJacobian(parallelJacobian);
+    randomExperiment.runExperimentOnData(dataStore, newCancellationToken());
 
     Complex[] fitZerosComplex = randomExperiment.getFitResponse().getZeros()
         .toArray(new Complex[]{});
@@ -734,29 +919,6 @@ public class CalProcessingServer {
     }
 
     List<XYSeriesCollection> xySeriesCollections = randomExperiment.getData();
-    JFreeChart[] charts = new JFreeChart[xySeriesCollections.size()];
-
-    String xAxisTitle = "Frequency (Hz)";
-    String amplitudeAxisTitle = "20 * log10( RESP(f) )";
-    String phaseAxisTitle = "phi(RESP(f))";
-
-    ValueAxis xAxis = new LogarithmicAxis(xAxisTitle);
-    ValueAxis residualXAxis = new LogarithmicAxis(xAxisTitle);
-    NumberAxis amplitudeAxis = new NumberAxis(amplitudeAxisTitle);
-    amplitudeAxis.setAutoRange(true);
-    amplitudeAxis.setAutoRangeIncludesZero(false);
-    ValueAxis phaseAxis = new NumberAxis(phaseAxisTitle);
-    phaseAxis.setAutoRange(true);
-    ValueAxis residualPhaseAxis = new NumberAxis("Phase error (degrees)");
-    ValueAxis residualAmplitudeAxis = new NumberAxis("Amplitude error (percentage)");
-    Font bold = xAxis.getLabelFont().deriveFont(Font.BOLD);
-    xAxis.setLabelFont(bold);
-    amplitudeAxis.setLabelFont(bold);
-    phaseAxis.setLabelFont(bold);
-    residualXAxis.setLabelFont(bold);
-    residualPhaseAxis.setLabelFont(bold);
-    residualAmplitudeAxis.setLabelFont(bold);
-    XYPlot xyPlot;
 
     String title;
     if (isLowFrequency) {
@@ -765,71 +927,14 @@ public class CalProcessingServer {
       title = "High-freq random cal";
     }
 
-    charts[0] = ChartFactory.createXYLineChart(
-        title + " Amplitude",
-        xAxis.getLabel(),
-        amplitudeAxis.getLabel(),
-        xySeriesCollections.get(0),
-        PlotOrientation.VERTICAL,
-        true, // include legend
-        false,
-        false);
-    xyPlot = charts[0].getXYPlot();
-    xyPlot.setDomainAxis(xAxis);
-    xyPlot.setRangeAxis(amplitudeAxis);
-    for (int i = 0; i < xyPlot.getSeriesCount(); ++i) {
-      xyPlot.getRenderer().setSeriesPaint(i, COLORS[i]);
-    }
-    ExperimentPanel.invertSeriesRenderingOrder(charts[0]);
-
-    charts[1] = ChartFactory.createXYLineChart(
-        title + " Phase",
-        xAxis.getLabel(),
-        phaseAxis.getLabel(),
-        xySeriesCollections.get(1),
-        PlotOrientation.VERTICAL,
-        true, // include legend
-        false,
-        false);
-    xyPlot = charts[1].getXYPlot();
-    xyPlot.setDomainAxis(xAxis);
-    xyPlot.setRangeAxis(phaseAxis);
-    for (int i = 0; i < xyPlot.getSeriesCount(); ++i) {
-      xyPlot.getRenderer().setSeriesPaint(i, COLORS[i]);
-    }
-    ExperimentPanel.invertSeriesRenderingOrder(charts[1]);
-
-    charts[2] = ChartFactory.createXYLineChart(
-        title + " Amplitude Error",
-        residualXAxis.getLabel(),
-        residualAmplitudeAxis.getLabel(),
-        xySeriesCollections.get(2),
-        PlotOrientation.VERTICAL,
-        true, // include legend
-        false,
-        false);
-    xyPlot = charts[2].getXYPlot();
-    xyPlot.setDomainAxis(residualXAxis);
-    xyPlot.setRangeAxis(residualAmplitudeAxis);
-    xyPlot.getRenderer().setSeriesPaint(0, COLORS[0]);
-    xyPlot.getRenderer().setSeriesPaint(1, COLORS[2]);
-    ExperimentPanel.invertSeriesRenderingOrder(charts[2]);
-
-    charts[3] = ChartFactory.createXYLineChart(
-        title + "Phase Error",
-        residualXAxis.getLabel(),
-        residualPhaseAxis.getLabel(),
-        xySeriesCollections.get(3),
-        PlotOrientation.VERTICAL,
-        true, // include legend
-        false,
-        false);
-    xyPlot = charts[3].getXYPlot();
-    xyPlot.setDomainAxis(residualXAxis);
-    xyPlot.setRangeAxis(residualPhaseAxis);
-    xyPlot.getRenderer().setSeriesPaint(0, COLORS[0]);
-    xyPlot.getRenderer().setSeriesPaint(1, COLORS[2]);
-    ExperimentPanel.invertSeriesRenderingOrder(charts[3]);
+    JFreeChart[] charts = {
+        fromTemplate(RAND_AMPLITUDE_TEMPLATE, title + " Amplitude", xySeriesCollections.get(0)),
+        fromTemplate(RAND_PHASE_TEMPLATE, title + " Phase", xySeriesCollections.get(1)),
+        fromTemplate(RAND_AMPLITUDE_ERROR_TEMPLATE, title + " Amplitude Error",
+            xySeriesCollections.get(2)),
+        fromTemplate(RAND_PHASE_ERROR_TEMPLATE, title + "Phase Error",
+            xySeriesCollections.get(3))
+    };
 
     if (!isLowFrequency) {
       Marker maxFitMarker = new ValueMarker(randomExperiment.getMaxFitFrequency());
@@ -838,13 +943,7 @@ public class CalProcessingServer {
       charts[1].getXYPlot().addDomainMarker(maxFitMarker);
     }
 
-    BufferedImage[] images = chartsToImageList(1, 1280, 960, charts);
-    byte[][] pngByteArrays = new byte[images.length][];
-    for (int i = 0; i < images.length; ++i) {
-      ByteArrayOutputStream out = new ByteArrayOutputStream();
-      ImageIO.write(images[i], "png", out);
-      pngByteArrays[i] = out.toByteArray();
-    }
+    byte[][] pngByteArrays = chartRenderer.renderToPng(charts);
 
     return CalResult.buildRandomCalData(fitPoles, fitZeros, initialPoles, initialZeros,
         pngByteArrays);
@@ -853,28 +952,15 @@ public class CalProcessingServer {
 
   private CalResult runExpGetDataVolt(DataStore ds) throws IOException {
     VoltageExperiment voltage = new VoltageExperiment();
-    voltage.runExperimentOnData(ds);
+    voltage.runExperimentOnData(ds, newCancellationToken());
 
     XYSeriesCollection seriesCollection = voltage.getData().get(0);
-    JFreeChart chart = ChartFactory.createXYLineChart("Voltage Experiment",
-        "", "", seriesCollection);
-    String xAxisTitle = "Sample number";
-    String yAxisTitle = "Digital counts (abs. val.)";
-    NumberAxis xAxis = new NumberAxis(xAxisTitle);
-    Font bold = xAxis.getLabelFont();
-    bold = bold.deriveFont(Font.BOLD, bold.getSize() + 2);
-    xAxis.setLabelFont(bold);
-    NumberAxis yAxis = new NumberAxis(yAxisTitle);
-    yAxis.setAutoRangeIncludesZero(false);
-    yAxis.setLabelFont(bold);
+    JFreeChart chart = fromTemplate(VOLTAGE_TEMPLATE, "Voltage Experiment", seriesCollection);
     XYPlot xyPlot = chart.getXYPlot();
-    xyPlot.setRangeAxis(yAxis);
-    xyPlot.setDomainAxis(xAxis);
 
     double[] meanValues = voltage.getMeanLines();
 
     for (int i = 0; i < xyPlot.getSeriesCount(); ++i) {
-      xyPlot.getRenderer().setSeriesPaint(i, COLORS[i % 3]);
       Color lineColor = COLORS[i % 3].darker().darker();
       Marker meanMarker = new ValueMarker(meanValues[i]);
       meanMarker.setLabel("MEAN VALUE " + seriesCollection.getSeriesKey(i));
@@ -888,12 +974,108 @@ public class CalProcessingServer {
     double[] sensitivities = voltage.getAllSensitivities();
     double[] differences = voltage.getPercentDifferences();
 
-    BufferedImage image = chartsToImageList(1, 1280, 960, chart)[0];
-    ByteArrayOutputStream out = new ByteArrayOutputStream();
-    ImageIO.write(image, "png", out);
-    byte[] pngByteArray = out.toByteArray();
+    byte[] pngByteArray = chartRenderer.renderToPng(chart)[0];
 
     return CalResult.buildVoltageData(pngByteArray, gains, sensitivities, differences);
   }
 
+  /**
+   * Create a chart layout with the given axes, with the first three series drawn in the standard
+   * plot colors (no chart produced by the server plots more than three series)
+   *
+   * @param domainAxis Axis for the x-values of the plotted data
+   * @param rangeAxis Axis for the y-values of the plotted data
+   * @return Chart template
+   */
+  private static JFreeChart createTemplate(ValueAxis domainAxis, ValueAxis rangeAxis) {
+    domainAxis.setLabelFont(BOLD_LABEL_FONT);
+    rangeAxis.setLabelFont(BOLD_LABEL_FONT);
+    JFreeChart chart = ChartFactory.createXYLineChart("", domainAxis.getLabel(),
+        rangeAxis.getLabel(), null);
+    XYPlot plot = chart.getXYPlot();
+    plot.setDomainAxis(domainAxis);
+    plot.setRangeAxis(rangeAxis);
+    for (int i = 0; i < 3; ++i) {
+      plot.getRenderer().setSeriesPaint(i, COLORS[i]);
+    }
+    return chart;
+  }
+
+  /**
+   * Create a time axis labeled with the program's standard date format
+   *
+   * @param label Axis label, or null for no label
+   * @return Time axis
+   */
+  private static DateAxis createDateAxis(String label) {
+    DateAxis timeAxis = new DateAxis(label);
+    // templates are copied from multiple threads, so do not share the calling thread's format
+    timeAxis.setDateFormatOverride((DateFormat) ExperimentPanel.DATE_TIME_FORMAT.get().clone());
+    return timeAxis;
+  }
+
+  /**
+   * Create the layout of the gain experiment's charts, plotting the reference and compared
+   * PSDs and the NLNM over period
+   *
+   * @return Chart template
+   */
+  private static JFreeChart createGainTemplate() {
+    LogarithmicAxis periodAxis = new LogarithmicAxis("Period (s)");
+    periodAxis.setAutoRangeIncludesZero(false);
+    NumberAxis rangeAxis = new NumberAxis("Power (rel. 1 (m/s^2)^2/Hz)");
+    rangeAxis.setAutoRangeIncludesZero(false);
+    JFreeChart chart = createTemplate(periodAxis, rangeAxis);
+    XYItemRenderer renderer = chart.getXYPlot().getRenderer();
+
+    // now, make everything thicker!
+    // series index 0 - ref data; series index 1 - other data; series index 2 - NLNM plot
+    BasicStroke stroke = (BasicStroke) renderer.getDefaultStroke();
+    BasicStroke thickStroke = new BasicStroke(stroke.getLineWidth() + 2f, stroke.getEndCap(),
+        stroke.getLineJoin(), 10f);
+    renderer.setSeriesStroke(0, thickStroke);
+    renderer.setSeriesStroke(1, thickStroke);
+
+    // ensure that NLNM lines are bolder, colored black
+    renderer.setSeriesStroke(2, new BasicStroke(stroke.getLineWidth() * 2));
+    renderer.setSeriesPaint(2, new Color(0, 0, 0));
+    return chart;
+  }
+
+  /**
+   * Create the layout of one of the randomized calibration's charts, plotted over frequency
+   *
+   * @param rangeAxisTitle Label of the y-axis
+   * @param rangeIncludesZero True if the y-axis range should always include zero
+   * @param isErrorPlot True if the chart plots fit error rather than response curves
+   * @return Chart template
+   */
+  private static JFreeChart createRandTemplate(String rangeAxisTitle, boolean rangeIncludesZero,
+      boolean isErrorPlot) {
+    NumberAxis rangeAxis = new NumberAxis(rangeAxisTitle);
+    rangeAxis.setAutoRangeIncludesZero(rangeIncludesZero);
+    JFreeChart chart = createTemplate(new LogarithmicAxis("Frequency (Hz)"), rangeAxis);
+    if (isErrorPlot) {
+      chart.getXYPlot().getRenderer().setSeriesPaint(1, COLORS[2]);
+    }
+    ExperimentPanel.invertSeriesRenderingOrder(chart);
+    return chart;
+  }
+
+  /**
+   * Create the layout of the voltage experiment's chart of sample values
+   *
+   * @return Chart template
+   */
+  private static JFreeChart createVoltageTemplate() {
+    Font bold = BOLD_LABEL_FONT.deriveFont(BOLD_LABEL_FONT.getSize() + 2f);
+    NumberAxis xAxis = new NumberAxis("Sample number");
+    NumberAxis yAxis = new NumberAxis("Digital counts (abs. val.)");
+    yAxis.setAutoRangeIncludesZero(false);
+    JFreeChart chart = createTemplate(xAxis, yAxis);
+    xAxis.setLabelFont(bold);
+    yAxis.setLabelFont(bold);
+    return chart;
+  }
+
 }
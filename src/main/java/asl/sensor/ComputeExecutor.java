@@ -0,0 +1,159 @@
+package asl.sensor;
+
+import asl.sensor.input.Configuration;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Bounded pool on which all of the parallel calculations done by experiments are run, such as
+ * concurrent Jacobian evaluation, azimuth window fits, and spectra over multiple inputs.
+ * Using one pool (rather than the common fork-join pool or one pool per experiment) bounds the
+ * number of threads doing calculations at once regardless of how many experiments are running,
+ * whether from the GUI or from several clients of the calibration server.
+ *
+ * The shared instance takes its parallelism from the program configuration
+ * (Configuration.Compute.Parallelism in sensor-suite-config.xml); a value of zero or less uses
+ * one thread per available processor. Changes to the configuration take effect on restart.
+ *
+ * Each call is given a task name, which is appended to the names of the worker threads while they
+ * run that task, so that a thread dump or profiler shows which experiment work belongs to.
+ * Calls block until all their work is done. If the calling thread is interrupted while waiting
+ * (i.e., because a SwingWorker was cancelled), any parts of the work that have not yet started
+ * are skipped and the call throws a CancellationException.
+ */
+public final class ComputeExecutor {
+
+  private static ComputeExecutor instance;
+
+  private final ForkJoinPool pool;
+
+  /**
+   * Create an executor with its own pool of the given size
+   *
+   * @param parallelism Number of threads that may run calculations at once; zero or less uses
+   * one per available processor
+   */
+  public ComputeExecutor(int parallelism) {
+    if (parallelism < 1) {
+      parallelism = Runtime.getRuntime().availableProcessors();
+    }
+    pool = new ForkJoinPool(parallelism, forkJoinPool -> {
+      ForkJoinWorkerThread thread =
+          ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+      thread.setName("compute-" + thread.getPoolIndex());
+      thread.setDaemon(true);
+      return thread;
+    }, null, false);
+  }
+
+  /**
+   * Get the executor shared by all experiments, creating it with the configured parallelism if
+   * it does not yet exist
+   *
+   * @return Shared executor instance
+   */
+  public static synchronized ComputeExecutor getInstance() {
+    if (instance == null) {
+      instance = new ComputeExecutor(Configuration.getInstance().getComputeParallelism());
+    }
+    return instance;
+  }
+
+  /**
+   * Get the number of threads that may run calculations at once on this executor
+   *
+   * @return Parallelism level of the pool
+   */
+  public int getParallelism() {
+    return pool.getParallelism();
+  }
+
+  /**
+   * Run an action for each index in a range concurrently, waiting for all of them to finish.
+   * Actions must be independent of one another (i.e., each only writes to its own element of an
+   * output array).
+   *
+   * @param taskName Name of the work being done, used to label the threads doing it
+   * @param count Number of indices to run the action for (0 to count - 1)
+   * @param action Action to run for each index
+   * @throws CancellationException If interrupted while waiting for the actions to finish
+   */
+  public void forEach(String taskName, int count, IntConsumer action) {
+    run(taskName, cancelled -> IntStream.range(0, count).parallel().forEach(i -> {
+      if (!cancelled.get()) {
+        runNamed(taskName, () -> action.accept(i));
+      }
+    }));
+  }
+
+  /**
+   * Run an action for each element of a list concurrently, waiting for all of them to finish.
+   * Actions must be independent of one another.
+   *
+   * @param taskName Name of the work being done, used to label the threads doing it
+   * @param items Elements to run the action on
+   * @param action Action to run for each element
+   * @param <T> Type of the list elements
+   * @throws CancellationException If interrupted while waiting for the actions to finish
+   */
+  public <T> void forEach(String taskName, List<T> items, Consumer<? super T> action) {
+    forEach(taskName, items.size(), i -> action.accept(items.get(i)));
+  }
+
+  /**
+   * Run a parallel computation on the pool. Parallel streams started from within the pool's
+   * threads use the pool themselves, so when called from one of them (i.e., for nested parallel
+   * work such as spectra calculated within a concurrent per-axis noise calculation), the
+   * computation is run directly instead of being submitted and waited on.
+   */
+  private void run(String taskName, Consumer<AtomicBoolean> computation) {
+    AtomicBoolean cancelled = new AtomicBoolean(false);
+    if (ForkJoinTask.inForkJoinPool() && ForkJoinTask.getPool() == pool) {
+      computation.accept(cancelled);
+      return;
+    }
+
+    ForkJoinTask<?> task = pool.submit(() -> computation.accept(cancelled));
+    try {
+      task.get();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException(cause);
+    } catch (InterruptedException e) {
+      // work already in progress finishes, but nothing new is started
+      cancelled.set(true);
+      task.cancel(true);
+      Thread.currentThread().interrupt();
+      CancellationException cancellation = new CancellationException(taskName + " cancelled");
+      cancellation.initCause(e);
+      throw cancellation;
+    }
+  }
+
+  /**
+   * Run an action with the current thread's name labeled with the task it belongs to
+   */
+  private static void runNamed(String taskName, Runnable action) {
+    Thread thread = Thread.currentThread();
+    String originalName = thread.getName();
+    thread.setName(originalName + " (" + taskName + ")");
+    try {
+      action.run();
+    } finally {
+      thread.setName(originalName);
+    }
+  }
+}
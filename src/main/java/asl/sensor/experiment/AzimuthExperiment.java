@@ -6,8 +6,8 @@ import static asl.utils.NumericUtils.decimate;
 import static asl.utils.NumericUtils.demean;
 import static asl.utils.NumericUtils.detrend;
 import static asl.utils.TimeSeriesUtils.ONE_HZ_INTERVAL;
-import static asl.utils.TimeSeriesUtils.rotate;
 
+import asl.sensor.ComputeExecutor;
 import asl.sensor.input.DataStore;
 import asl.utils.input.DataBlock;
 import java.util.ArrayList;
@@ -16,6 +16,7 @@ import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.commons.math3.fitting.leastsquares.LeastSquaresBuilder;
 import org.apache.commons.math3.fitting.leastsquares.LeastSquaresOptimizer;
 import org.apache.commons.math3.fitting.leastsquares.LeastSquaresProblem;
@@ -24,7 +25,6 @@ import org.apache.commons.math3.fitting.leastsquares.MultivariateJacobianFunctio
 import org.apache.commons.math3.linear.MatrixUtils;
 import org.apache.commons.math3.linear.RealMatrix;
 import org.apache.commons.math3.linear.RealVector;
-import org.apache.commons.math3.stat.correlation.PearsonsCorrelation;
 import org.apache.commons.math3.util.Pair;
 import org.jfree.data.xy.XYSeries;
 import org.jfree.data.xy.XYSeriesCollection;
@@ -49,12 +49,32 @@ import org.jfree.data.xy.XYSeriesCollection;
  */
 public class AzimuthExperiment extends Experiment {
 
-  private double offset = 0.;
+  /**
+   * Length of each data window used in damped estimation (2000 seconds)
+   */
+  private static final long WINDOW_LENGTH = 2000L * ONE_HZ_INTERVAL;
+
+  /**
+   * Distance between the starts of consecutive data windows (500 seconds)
+   */
+  private static final long WINDOW_STEP = WINDOW_LENGTH / 4L;
+
+  /**
+   * Lower bound of bandpass filter applied to data (filter from 8 seconds interval)
+   */
+  private static final double LOW_CORNER = 1. / 8;
 
   /**
-   * Cache correlation estimates during windowing
+   * Upper bound of bandpass filter applied to data (up to 3 seconds interval)
    */
-  private double latestCorrelation = 0.;
+  private static final double HIGH_CORNER = 1. / 3;
+
+  /**
+   * Spacing of the angles (radians) evaluated in the coarse grid search for the initial estimate
+   */
+  private static final double COARSE_GRID_STEP = Math.toRadians(1.);
+
+  private double offset = 0.;
 
   /**
    * Angle offset radians
@@ -82,10 +102,20 @@ public class AzimuthExperiment extends Experiment {
    * True if there is enough points in range for estimation.
    */
   private boolean enoughPts;
+  /**
+   * True if data windows should be fit concurrently (see {@link #setParallelWindowing(boolean)})
+   */
+  private boolean parallelWindowing;
+  /**
+   * True if the initial estimate starts from a coarse grid search (see {@link #setCoarseToFine})
+   */
+  private boolean coarseToFine;
 
   public AzimuthExperiment() {
     super();
     simpleCalc = false;
+    parallelWindowing = false;
+    coarseToFine = false;
   }
 
   private String getAzimuthResults() {
@@ -165,8 +195,34 @@ public class AzimuthExperiment extends Experiment {
    */
   static double getAzimuth(double[] north, double[] east, double[] reference,
       long interval, long start, long end) {
+    return getAzimuth(north, east, reference, interval, start, end, false,
+        new CancellationToken());
+  }
+
+  /**
+   * Function used to get the orientation of inputted data
+   * (Specifically, aligns the second and third horiz. inputs with the first)
+   * with the option of starting the solver from a coarse grid search of the correlation over all
+   * angles, which avoids the 180-degree ambiguity of the default initial estimate.
+   *
+   * @param north Timeseries data from north-facing reference sensor
+   * @param east Timeseries data from east-facing reference sensor
+   * @param reference Timeseries data from test sensor (either north or east)
+   * @param interval Sampling interval of the data
+   * @param start Start time of data
+   * @param end End time of data
+   * @param coarseToFine True if the initial estimate should come from a coarse grid search
+   * @param cancellationToken Token of the calling experiment, used to stop the solver early
+   * @return double representing radian-unit rotation angle of data
+   * @see #setCoarseToFine(boolean)
+   */
+  static double getAzimuth(double[] north, double[] east, double[] reference,
+      long interval, long start, long end, boolean coarseToFine,
+      CancellationToken cancellationToken) {
     AzimuthExperiment azimuthExperiment = new AzimuthExperiment();
+    azimuthExperiment.setCancellationToken(cancellationToken);
     azimuthExperiment.setSimple(false); // don't do the faster angle calculation
+    azimuthExperiment.setCoarseToFine(coarseToFine);
     azimuthExperiment.alternateEntryPoint(north, east, reference, interval, start, end);
     return azimuthExperiment.getFitAngleRad();
   }
@@ -177,14 +233,18 @@ public class AzimuthExperiment extends Experiment {
       len = Math.min(len, timeseries.length);
     }
     for (int i = 0; i < toTrim.length; ++i) {
-      toTrim[i] = Arrays.copyOfRange(toTrim[i], 0, len);
+      // only copy the arrays that actually need to be shortened
+      if (toTrim[i].length != len) {
+        toTrim[i] = Arrays.copyOfRange(toTrim[i], 0, len);
+      }
     }
     return toTrim;
   }
 
   /**
    * Entry point for this experiment to simplify the execution.
-   * Callable from another experiment.
+   * Callable from another experiment. The coarse-to-fine and simple calculation options should be
+   * set before calling this method if they are desired.
    *
    * @param testNorth timeseries data from presumed north-facing test sensor
    * @param testEast timeseries data from presumed east-facing test sensor
@@ -276,12 +336,10 @@ public class AzimuthExperiment extends Experiment {
 
     // data will be downsampled to 1 if > 1Hz rate, else will keep sample rate from input
     double samplesPerSecond = Math.min(1., ONE_HZ_INTERVAL / (double)interval);
-    double low = 1. / 8; // filter from 8 seconds interval
-    double high = 1. / 3; // up to 3 seconds interval
     // bandpass filters of order 2 in the range specified above
-    initTestNorth = bandFilter(initTestNorth, samplesPerSecond, low, high, 2);
-    initTestEast = bandFilter(initTestEast, samplesPerSecond, low, high, 2);
-    initRefNorth = bandFilter(initRefNorth, samplesPerSecond, low, high, 2);
+    initTestNorth = bandFilter(initTestNorth, samplesPerSecond, LOW_CORNER, HIGH_CORNER, 2);
+    initTestEast = bandFilter(initTestEast, samplesPerSecond, LOW_CORNER, HIGH_CORNER, 2);
+    initRefNorth = bandFilter(initRefNorth, samplesPerSecond, LOW_CORNER, HIGH_CORNER, 2);
 
     // enforce length constraint -- all data must be the same length
     double[][] data = matchArrayLengths(initTestNorth, initTestEast, initRefNorth);
@@ -289,10 +347,15 @@ public class AzimuthExperiment extends Experiment {
     initTestEast = data[1];
     initRefNorth = data[2];
 
-    MultivariateJacobianFunction jacobian =
-        getJacobianFunction(initTestNorth, initTestEast, initRefNorth);
+    RotatedCorrelation fullKernel =
+        new RotatedCorrelation(initRefNorth, initTestNorth, initTestEast);
+    MultivariateJacobianFunction jacobian = cancellable(getJacobianFunction(fullKernel));
 
     double initAngle = 0.;
+    if (coarseToFine) {
+      fireStateChange("Scanning correlation over all angles for initial guess...");
+      initAngle = coarseAngleEstimate(fullKernel);
+    }
 
     LeastSquaresProblem findAngleY = new LeastSquaresBuilder().
         start(new double[]{initAngle}).
@@ -303,9 +366,7 @@ public class AzimuthExperiment extends Experiment {
         lazyEvaluation(false).
         build();
 
-    LeastSquaresOptimizer optimizer = new LevenbergMarquardtOptimizer().
-        withCostRelativeTolerance(1E-8).
-        withParameterRelativeTolerance(1E-5);
+    LeastSquaresOptimizer optimizer = getOptimizer();
 
     LeastSquaresOptimizer.Optimum optimumY = optimizer.optimize(findAngleY);
     RealVector angleVector = optimumY.getPoint();
@@ -335,44 +396,36 @@ public class AzimuthExperiment extends Experiment {
         new LinkedHashMap<>();
     List<Double> sortedCorrelation = new ArrayList<>();
 
-    // want (correlation-1+damping) to be as close to 0 as possible
-    RealVector target = MatrixUtils.createRealVector(new double[]{0});
-
     // the best correlation and azimuth angle producing that correlation
     // for the purpose of providing damped estimates
     // (improves susceptibility to noise)
     double bestCorr = jacobian.value(angleVector).getFirst().getEntry(0);
     double bestTheta = bestGuessAngle;
-    final long twoThouSecs = 2000L * ONE_HZ_INTERVAL;
-    // 1000 ms per second, range length
-    final long fiveHundredSecs = twoThouSecs / 4L; // distance between windows
-    int numWindows = (int) ((timeRange - twoThouSecs) / fiveHundredSecs);
+    int numWindows = (int) ((timeRange - WINDOW_LENGTH) / WINDOW_STEP);
+
+    if (parallelWindowing) {
+      fitWindowsConcurrently(initTestNorth, initTestEast, initRefNorth, interval,
+          samplesPerSecond, numWindows, bestCorr, bestTheta, angleCorrelationMap,
+          sortedCorrelation);
+      numWindows = 0; // skip the sequential fit below
+    }
+
+    // want (correlation-1+damping) to be as close to 0 as possible
+    RealVector target = MatrixUtils.createRealVector(new double[]{0});
+
     // look at 2000s windows, sliding over 500s of data at a time
     for (int i = 0; i < numWindows; ++i) {
+      checkCancelled();
       fireStateChange("Fitting angle over data in window " + (i + 1) + " of " + numWindows);
 
       // get start and end indices from given times
-      long wdStart = fiveHundredSecs * i; // start of 500s-sliding window
-      long wdEnd = wdStart + twoThouSecs; // end of window (2000s long)
-
-      int startIdx = (int) (wdStart / interval);
-      int endIdx = (int) (wdEnd / interval);
-
-      double[] testNorthWin = Arrays.copyOfRange(initTestNorth, startIdx, endIdx);
-      double[] testEastWin = Arrays.copyOfRange(initTestEast, startIdx, endIdx);
-      double[] refNorthWin = Arrays.copyOfRange(initRefNorth, startIdx, endIdx);
-
-      testNorthWin = detrend(testNorthWin);
-      testEastWin = detrend(testEastWin);
-      refNorthWin = detrend(refNorthWin);
+      long wdStart = WINDOW_STEP * i; // start of 500s-sliding window
 
-      // bandpass filters of order 2 again
-      testNorthWin = bandFilter(testNorthWin, samplesPerSecond, low, high, 2);
-      testEastWin = bandFilter(testEastWin, samplesPerSecond, low, high, 2);
-      refNorthWin = bandFilter(refNorthWin, samplesPerSecond, low, high, 2);
+      double[][] window = getWindow(initTestNorth, initTestEast, initRefNorth,
+          wdStart, interval, samplesPerSecond);
+      RotatedCorrelation kernel = new RotatedCorrelation(window[2], window[0], window[1]);
 
-      jacobian =
-          getDampedJacobianFunction(testNorthWin, testEastWin, refNorthWin, bestCorr, bestTheta);
+      jacobian = cancellable(getDampedJacobianFunction(kernel, bestCorr, bestTheta));
 
       LeastSquaresProblem findAngleWindow = new LeastSquaresBuilder().
           start(new double[]{bestTheta}).
@@ -386,14 +439,12 @@ public class AzimuthExperiment extends Experiment {
       optimumY = optimizer.optimize(findAngleWindow);
 
       RealVector angleVectorWindow = optimumY.getPoint();
-      findAngleWindow.evaluate(angleVectorWindow);
-      // call to evaluate at best-fit point gives corresponding latestCorrelation as side effect
       double currentWindowAngle = angleVectorWindow.getEntry(0);
+      // get the (undamped) correlation of the window data at the best-fit angle
+      double correlation = kernel.correlation(currentWindowAngle);
 
       currentWindowAngle = ((currentWindowAngle % TAU) + TAU) % TAU;
 
-      double correlation = latestCorrelation;
-
       if (correlation > bestCorr) {
         bestCorr = correlation;
         bestTheta = currentWindowAngle;
@@ -524,6 +575,180 @@ public class AzimuthExperiment extends Experiment {
     xySeriesData.add(new XYSeriesCollection(timeMapCorrelation));
   }
 
+  /**
+   * Fit the angle over each data window concurrently. This is done in two phases:
+   * first, the undamped best-fit angle and correlation of each window is found, independent of
+   * the other windows. Then each window is refit using the damped cost function, where the damping
+   * terms are the best correlation (and the angle producing it) over all the undamped estimates,
+   * rather than the best found over the preceding windows as in the sequential fit. This makes
+   * each window's damped estimate depend only on the data and not on the order in which windows
+   * are processed, so the result is deterministic regardless of how the work is scheduled. As the
+   * damping for early windows may be based on data that comes after them, results may differ
+   * slightly from those of the sequential fit.
+   * @param testNorth Filtered north-facing data to find azimuth of
+   * @param testEast Filtered east-facing data to find azimuth of
+   * @param refNorth Filtered north-facing data to use as reference
+   * @param interval Sampling interval of the data
+   * @param samplesPerSecond Sample rate of the data, used for filtering
+   * @param numWindows Number of windows to fit over the data
+   * @param initCorr Correlation of the initial (full-data) angle estimate
+   * @param initTheta Initial (full-data) angle estimate
+   * @param angleCorrelationMap Map of window start to its angle and correlation, to be populated
+   * @param sortedCorrelation List of window correlations, to be populated
+   */
+  private void fitWindowsConcurrently(final double[] testNorth, final double[] testEast,
+      final double[] refNorth, final long interval, final double samplesPerSecond,
+      final int numWindows, final double initCorr, final double initTheta,
+      Map<Long, Pair<Double, Double>> angleCorrelationMap, List<Double> sortedCorrelation) {
+
+    final double[] undampedAngles = new double[numWindows];
+    final double[] undampedCorrelations = new double[numWindows];
+    // each window's statistics are kept for its damped refit (the kernels are immutable)
+    final RotatedCorrelation[] kernels = new RotatedCorrelation[numWindows];
+    final AtomicInteger completed = new AtomicInteger(0);
+
+    ComputeExecutor.getInstance().forEach("Azimuth windows", numWindows, i -> {
+      checkCancelled();
+      double[][] window =
+          getWindow(testNorth, testEast, refNorth, WINDOW_STEP * i, interval, samplesPerSecond);
+      RotatedCorrelation kernel = new RotatedCorrelation(window[2], window[0], window[1]);
+      kernels[i] = kernel;
+      LeastSquaresProblem findAngleWindow = new LeastSquaresBuilder().
+          start(new double[]{initTheta}).
+          model(cancellable(getJacobianFunction(kernel))).
+          target(new double[]{1}).
+          maxEvaluations(Integer.MAX_VALUE).
+          maxIterations(Integer.MAX_VALUE).
+          lazyEvaluation(false).
+          build();
+      double windowAngle = getOptimizer().optimize(findAngleWindow).getPoint().getEntry(0);
+      undampedCorrelations[i] = kernel.correlation(windowAngle);
+      undampedAngles[i] = ((windowAngle % TAU) + TAU) % TAU;
+      reportWindowProgress("Estimating undamped angle over window ",
+          completed.incrementAndGet(), numWindows);
+    });
+
+    // damping terms come from the best of all the windows; ties go to the earliest window
+    double bestCorr = initCorr;
+    double bestTheta = initTheta;
+    for (int i = 0; i < numWindows; ++i) {
+      if (undampedCorrelations[i] > bestCorr) {
+        bestCorr = undampedCorrelations[i];
+        bestTheta = undampedAngles[i];
+      }
+    }
+    final double dampingCorr = bestCorr;
+    final double dampingTheta = bestTheta;
+
+    final double[] angles = new double[numWindows];
+    final double[] correlations = new double[numWindows];
+    completed.set(0);
+
+    ComputeExecutor.getInstance().forEach("Azimuth windows", numWindows, i -> {
+      checkCancelled();
+      RotatedCorrelation kernel = kernels[i];
+      LeastSquaresProblem findAngleWindow = new LeastSquaresBuilder().
+          start(new double[]{dampingTheta}).
+          model(cancellable(getDampedJacobianFunction(kernel, dampingCorr, dampingTheta))).
+          target(new double[]{0}).
+          maxEvaluations(Integer.MAX_VALUE).
+          maxIterations(Integer.MAX_VALUE).
+          lazyEvaluation(false).
+          build();
+      double windowAngle = getOptimizer().optimize(findAngleWindow).getPoint().getEntry(0);
+      correlations[i] = kernel.correlation(windowAngle);
+      angles[i] = ((windowAngle % TAU) + TAU) % TAU;
+      reportWindowProgress("Fitting damped angle over window ",
+          completed.incrementAndGet(), numWindows);
+    });
+
+    for (int i = 0; i < numWindows; ++i) {
+      angleCorrelationMap.put(WINDOW_STEP * i, new Pair<>(angles[i], correlations[i]));
+      sortedCorrelation.add(correlations[i]);
+    }
+  }
+
+  /**
+   * Report progress of the concurrent window fits. Synchronized so that status updates from
+   * multiple windows are not interleaved.
+   * @param message Description of the current phase of fitting
+   * @param completed Number of windows fit so far
+   * @param numWindows Total number of windows to fit
+   */
+  private synchronized void reportWindowProgress(String message, int completed, int numWindows) {
+    fireStateChange(message + completed + " of " + numWindows);
+  }
+
+  /**
+   * Find the angle of best correlation between reference and rotated test data from a grid of
+   * angles over the full circle. This is used as a starting point for the least-squares solver,
+   * so that it only needs to refine the result locally rather than searching from an arbitrary
+   * angle (where it may settle on a local maximum, such as the antipode of the actual angle).
+   * The scan reuses the correlation statistics already calculated for the solver, so it costs
+   * no further passes over the data.
+   *
+   * @param kernel Correlation of the filtered reference and test data
+   * @return Angle (radians) of the grid point with the highest correlation
+   */
+  static double coarseAngleEstimate(RotatedCorrelation kernel) {
+
+    double bestAngle = 0.;
+    double bestCorrelation = Double.NEGATIVE_INFINITY;
+    int gridPoints = (int) Math.round(TAU / COARSE_GRID_STEP);
+    for (int i = 0; i < gridPoints; ++i) {
+      double theta = i * COARSE_GRID_STEP;
+      double correlation = kernel.correlation(theta);
+      if (correlation > bestCorrelation) {
+        bestCorrelation = correlation;
+        bestAngle = theta;
+      }
+    }
+    return bestAngle;
+  }
+
+  /**
+   * Get the optimizer used to fit the angle over each window
+   * @return New optimizer instance with the tolerances used for azimuth estimation
+   */
+  private static LeastSquaresOptimizer getOptimizer() {
+    return new LevenbergMarquardtOptimizer().
+        withCostRelativeTolerance(1E-8).
+        withParameterRelativeTolerance(1E-5);
+  }
+
+  /**
+   * Extract a single 2000-second window from the data, detrended and bandpass filtered
+   * @param testNorth North-facing data to find azimuth of
+   * @param testEast East-facing data to find azimuth of
+   * @param refNorth North-facing data to use as reference
+   * @param windowStart Start of the window, as time (ms) since the start of the data
+   * @param interval Sampling interval of the data
+   * @param samplesPerSecond Sample rate of the data, used for filtering
+   * @return Array of the test north, test east, and reference north data in that window
+   */
+  private static double[][] getWindow(double[] testNorth, double[] testEast, double[] refNorth,
+      long windowStart, long interval, double samplesPerSecond) {
+    long windowEnd = windowStart + WINDOW_LENGTH; // end of window (2000s long)
+
+    int startIdx = (int) (windowStart / interval);
+    int endIdx = (int) (windowEnd / interval);
+
+    double[] testNorthWin = Arrays.copyOfRange(testNorth, startIdx, endIdx);
+    double[] testEastWin = Arrays.copyOfRange(testEast, startIdx, endIdx);
+    double[] refNorthWin = Arrays.copyOfRange(refNorth, startIdx, endIdx);
+
+    testNorthWin = detrend(testNorthWin);
+    testEastWin = detrend(testEastWin);
+    refNorthWin = detrend(refNorthWin);
+
+    // bandpass filters of order 2 again
+    testNorthWin = bandFilter(testNorthWin, samplesPerSecond, LOW_CORNER, HIGH_CORNER, 2);
+    testEastWin = bandFilter(testEastWin, samplesPerSecond, LOW_CORNER, HIGH_CORNER, 2);
+    refNorthWin = bandFilter(refNorthWin, samplesPerSecond, LOW_CORNER, HIGH_CORNER, 2);
+
+    return new double[][]{testNorthWin, testEastWin, refNorthWin};
+  }
+
   @Override
   public int blocksNeeded() {
     return 3;
@@ -543,27 +768,26 @@ public class AzimuthExperiment extends Experiment {
    * we use a different cost function for initial estimate since using the
    * squared correlation would make x, 180+x produce the same values
    *
+   * @param kernel Correlation statistics of the window's reference and test data
+   * @param cr Best correlation found so far, used for damping
+   * @param th Angle producing the best correlation found so far, used for damping
    * @return Jacobian Function
    */
-  private MultivariateJacobianFunction
-  getDampedJacobianFunction(double[] l1, double[] l2, double[] l3, double cr, double th) {
+  private static MultivariateJacobianFunction
+  getDampedJacobianFunction(RotatedCorrelation kernel, double cr, double th) {
 
     // make my func the j-func, I want that func-y stuff
 
     return new MultivariateJacobianFunction() {
 
-      final double[] finalTestNorth = l1;
-      final double[] finalTestEast = l2;
-      final double[] finalRefNorth = l3;
+      final RotatedCorrelation finalKernel = kernel;
       final double bestCorr = cr;
       final double bestTheta = th;
 
       @Override
       public Pair<RealVector, RealMatrix> value(final RealVector point) {
         return jacobian(point,
-            finalRefNorth,
-            finalTestNorth,
-            finalTestEast,
+            finalKernel,
             bestCorr,
             bestTheta);
       }
@@ -590,29 +814,22 @@ public class AzimuthExperiment extends Experiment {
 
   /**
    * Returns the jacobian function for initial estimate given input timeseries data.
-   * The timeseries are used as input to the rotation function.
-   * We take the inputs as fixed and rotate copies of the data to find the
-   * Jacobian of the data.
+   * The correlation statistics of the timeseries are taken as fixed and used to get the
+   * correlation of the reference and rotated test data (and its derivative) at any angle,
+   * without needing to rotate copies of the data.
    *
-   * @param l1 Data from the test sensor's north-facing component
-   * @param l2 Data from the test sensor's east-facing component
-   * @param l3 Data from the known north-facing sensor
+   * @param kernel Correlation statistics of the reference and test sensor data
    * @return jacobian function to fit an angle of max correlation of this data
    */
-  private MultivariateJacobianFunction
-  getJacobianFunction(double[] l1, double[] l2, double[] l3) {
+  private static MultivariateJacobianFunction
+  getJacobianFunction(RotatedCorrelation kernel) {
     return new MultivariateJacobianFunction() {
 
-      final double[] finalTestNorth = l1;
-      final double[] finalTestEast = l2;
-      final double[] finalRefNorth = l3;
+      final RotatedCorrelation finalKernel = kernel;
 
       @Override
       public Pair<RealVector, RealMatrix> value(final RealVector point) {
-        return jacobian(point,
-            finalRefNorth,
-            finalTestNorth,
-            finalTestEast);
+        return jacobian(point, finalKernel);
       }
     };
   }
@@ -672,28 +889,23 @@ public class AzimuthExperiment extends Experiment {
     return true;
   }
 
-  private Pair<RealVector, RealMatrix> jacobian(
+  /**
+   * Jacobian function for the initial (undamped) azimuth estimate, giving the correlation of the
+   * reference data with the test data rotated by the current angle.
+   *
+   * @param point Current angle
+   * @param kernel Correlation statistics of the reference and test data
+   * @return Correlation (RealVector) and its derivative (RealMatrix) at the current angle
+   */
+  private static Pair<RealVector, RealMatrix> jacobian(
       final RealVector point,
-      final double[] refNorth,
-      final double[] testNorth,
-      final double[] testEast) {
-
-    double diff = 1E-12;
+      final RotatedCorrelation kernel) {
 
     double theta = (point.getEntry(0));
-    double thetaDelta = theta + diff;
-
-    // angles of rotation are x, x+dx respectively
-    double[] testRotated =
-        rotate(testNorth, testEast, theta);
-    double[] rotatedDiff =
-        rotate(testNorth, testEast, thetaDelta);
 
-    PearsonsCorrelation pearsonsCorrelation = new PearsonsCorrelation();
-    double value = pearsonsCorrelation.correlation(refNorth, testRotated);
+    double value = kernel.correlation(theta);
     RealVector valueVec = MatrixUtils.createRealVector(new double[]{value});
-    double deltaY = pearsonsCorrelation.correlation(refNorth, rotatedDiff);
-    double change = (deltaY - value) / diff;
+    double change = kernel.derivative(theta);
     double[][] jacobianArray = new double[][]{{change}};
     RealMatrix jacobian = MatrixUtils.createRealMatrix(jacobianArray);
     return new Pair<>(valueVec, jacobian);
@@ -701,51 +913,34 @@ public class AzimuthExperiment extends Experiment {
   }
 
   /**
-   * Jacobian function for the azimuth solver. Takes in the directional
-   * signal components (DataBlocks) and the angle to evaluate at and produces
+   * Jacobian function for the azimuth solver. Takes in the correlation statistics of the
+   * directional signal components and the angle to evaluate at and produces
    * a damped cost function based on best correlation (and the angle producing it) from previous
    * data windows, each one fixed for a given window (not changing on recursive calls for the same
    * set of input data).
    *
    * @param point Current angle
-   * @param refNorth Reference sensor, facing north
-   * @param testNorth Test sensor, facing approximately north
-   * @param testEast Test sensor, facing approximately east and orthogonal to
-   * testNorth
+   * @param kernel Correlation statistics of the reference sensor (facing north) and the test
+   * sensor's north and east components
    * @param bestCorr Most recent best-result value for the correlation (from previous windows)
    * @param bestTheta Most recent best-result value for the correlation (from previous windows)
-   * @return Correlation (RealVector) and forward difference
-   * approximation of the Jacobian (RealMatrix) at the current angle
+   * @return Damped cost (RealVector) and its derivative (RealMatrix) at the current angle
    */
-  private Pair<RealVector, RealMatrix> jacobian(
+  private static Pair<RealVector, RealMatrix> jacobian(
       final RealVector point,
-      final double[] refNorth,
-      final double[] testNorth,
-      final double[] testEast,
+      final RotatedCorrelation kernel,
       final double bestCorr,
       final double bestTheta) {
 
-    double diff = 1E-12;
-
     double theta = (point.getEntry(0));
-    double thetaDelta = theta + diff;
-
-    // angles of rotation are x, x+dx respectively
-    double[] testRotated =
-        rotate(testNorth, testEast, theta);
-    double[] rotatedDiff =
-        rotate(testNorth, testEast, thetaDelta);
 
-    PearsonsCorrelation pearsonsCorrelation = new PearsonsCorrelation();
-    double value = pearsonsCorrelation.correlation(refNorth, testRotated);
-    latestCorrelation = value;
+    double correlation = kernel.correlation(theta);
     double damping = (bestCorr - 1) * (theta - bestTheta);
-    value = Math.pow(value - 1 + damping, 2);
+    double residual = correlation - 1 + damping;
+    double value = Math.pow(residual, 2);
     RealVector valueVec = MatrixUtils.createRealVector(new double[]{value});
-    double deltaY = pearsonsCorrelation.correlation(refNorth, rotatedDiff);
-    damping = (bestCorr - 1) * (thetaDelta - bestTheta);
-    deltaY = Math.pow(deltaY - 1 + damping, 2);
-    double change = (deltaY - value) / diff;
+    // chain rule on the squared residual; damping term is linear in theta
+    double change = 2 * residual * (kernel.derivative(theta) + (bestCorr - 1));
     double[][] jacobianArray = new double[][]{{change}};
     RealMatrix jacobian = MatrixUtils.createRealMatrix(jacobianArray);
     return new Pair<>(valueVec, jacobian);
@@ -766,6 +961,47 @@ public class AzimuthExperiment extends Experiment {
     simpleCalc = isSimple;
   }
 
+  /**
+   * Set whether data windows should be fit concurrently. When true, windows are fit in two
+   * phases (undamped estimates for all windows, then damped estimates using the best of those),
+   * which allows long data sets to use all available processors, but may produce slightly
+   * different results than the default sequential fit, where each window is damped by the best
+   * estimate of the windows preceding it.
+   * @param parallelWindowing True if windows should be fit concurrently
+   */
+  public void setParallelWindowing(boolean parallelWindowing) {
+    this.parallelWindowing = parallelWindowing;
+  }
+
+  /**
+   * Get whether data windows are fit concurrently
+   * @return True if windows are fit concurrently
+   */
+  public boolean isParallelWindowing() {
+    return parallelWindowing;
+  }
+
+  /**
+   * Set whether the initial angle estimate should start from a coarse grid search over all angles
+   * rather than from an angle of zero. The solver then only needs to refine
+   * the estimate locally at full resolution, which avoids settling on local maxima of the
+   * correlation and reduces the number of solver iterations. Default is false.
+   *
+   * @param coarseToFine True if a coarse grid search should be done before the initial fit
+   */
+  public void setCoarseToFine(boolean coarseToFine) {
+    this.coarseToFine = coarseToFine;
+  }
+
+  /**
+   * Get whether the initial angle estimate starts from a coarse grid search
+   *
+   * @return True if a coarse grid search is done before the initial fit
+   */
+  public boolean isCoarseToFine() {
+    return coarseToFine;
+  }
+
   /**
    * Used for test case verification.
    *
@@ -0,0 +1,97 @@
+package asl.sensor.experiment;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Signal used to stop an experiment that is already running, passed in through
+ * {@link Experiment#runExperimentOnData(asl.sensor.input.DataStore, CancellationToken)}.
+ * Experiments check the token between iterations of their solvers and data windows, including
+ * from the compute threads doing work for them, and stop by throwing a CancellationException
+ * once it has been cancelled.
+ *
+ * A token is cancelled when {@link #cancel()} is called, when its timeout (if any) has elapsed,
+ * or when the thread it was created for (if any) is interrupted. The last of these means that
+ * cancelling a SwingWorker with interruption (i.e., by starting a new experiment from the GUI)
+ * stops the experiment it was running. Once cancelled, a token stays cancelled.
+ */
+public final class CancellationToken {
+
+  private final Thread owner;
+  private final long deadline;
+  private final boolean hasDeadline;
+  private volatile String reason;
+
+  /**
+   * Create a token that is only cancelled by calling {@link #cancel()}
+   */
+  public CancellationToken() {
+    this(null, 0L);
+  }
+
+  private CancellationToken(Thread owner, long timeoutNanos) {
+    this.owner = owner;
+    hasDeadline = timeoutNanos > 0;
+    deadline = System.nanoTime() + timeoutNanos;
+    reason = null;
+  }
+
+  /**
+   * Create a token that is cancelled when the current thread is interrupted
+   *
+   * @return Token bound to the current thread
+   */
+  public static CancellationToken forCurrentThread() {
+    return new CancellationToken(Thread.currentThread(), 0L);
+  }
+
+  /**
+   * Create a token that is cancelled when the current thread is interrupted or when the given
+   * amount of time has passed, whichever comes first
+   *
+   * @param timeout Time allowed before the token is cancelled; zero or less for no limit
+   * @param unit Units of the timeout
+   * @return Token bound to the current thread with the given time limit
+   */
+  public static CancellationToken forCurrentThread(long timeout, TimeUnit unit) {
+    return new CancellationToken(Thread.currentThread(), unit.toNanos(timeout));
+  }
+
+  /**
+   * Cancel any work checking this token
+   */
+  public void cancel() {
+    if (reason == null) {
+      reason = "cancelled";
+    }
+  }
+
+  /**
+   * Check whether work checking this token should stop
+   *
+   * @return True if the token was cancelled, its thread interrupted, or its time limit passed
+   */
+  public boolean isCancelled() {
+    if (reason != null) {
+      return true;
+    }
+    if (owner != null && owner.isInterrupted()) {
+      reason = "interrupted";
+    } else if (hasDeadline && System.nanoTime() - deadline >= 0) {
+      reason = "timed out";
+    }
+    return reason != null;
+  }
+
+  /**
+   * Stop the current work if this token has been cancelled
+   *
+   * @throws CancellationException If the token was cancelled, its thread interrupted, or its
+   * time limit passed
+   */
+  public void throwIfCancelled() {
+    if (isCancelled()) {
+      throw new CancellationException("Experiment " + reason);
+    }
+  }
+}
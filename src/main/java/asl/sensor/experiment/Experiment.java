@@ -18,6 +18,7 @@ import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 import javax.swing.event.EventListenerList;
 import org.apache.commons.math3.complex.Complex;
+import org.apache.commons.math3.fitting.leastsquares.MultivariateJacobianFunction;
 import org.apache.commons.math3.util.Pair;
 import org.jfree.data.xy.XYSeries;
 import org.jfree.data.xy.XYSeriesCollection;
@@ -87,6 +88,7 @@ public abstract class Experiment {
   List<String> dataNames;
   private String status;
   private Map<String, List<Pair<Date, Date>>> gapRegions;
+  private volatile CancellationToken cancellationToken;
   /**
    * Initialize all fields common to experiment objects
    */
@@ -96,6 +98,7 @@ public abstract class Experiment {
     dataNames = new ArrayList<>();
     status = "";
     eventHelper = new EventListenerList();
+    cancellationToken = new CancellationToken();
   }
 
   /**
@@ -232,17 +235,20 @@ public abstract class Experiment {
     --idx;
     smoothedPSD[idx] = last7.divide(7);
 
+    // points are collected first so that period-space data is not inserted in descending order
+    SeriesBuilder powerPoints = new SeriesBuilder(powerSeries.getKey(), freqs.length);
     for (int j = 0; j < freqs.length; ++j) {
       if (1 / freqs[j] > MAX_PLOT_PERIOD) {
         continue;
       }
       double temp = 10 * Math.log10(smoothedPSD[j].abs());
       if (freqSpace) {
-        powerSeries.add(freqs[j], temp);
+        powerPoints.add(freqs[j], temp);
       } else {
-        powerSeries.add(1 / freqs[j], temp);
+        powerPoints.add(1 / freqs[j], temp);
       }
     }
+    powerPoints.addTo(powerSeries);
 
     xysc.addSeries(powerSeries);
   }
@@ -274,6 +280,50 @@ public abstract class Experiment {
    */
   public abstract int blocksNeeded();
 
+  /**
+   * Stop the running calculation if it has been cancelled. This should be called between
+   * iterations of any loop or solver that may run for a significant amount of time.
+   *
+   * @throws java.util.concurrent.CancellationException If the calculation has been cancelled
+   */
+  void checkCancelled() {
+    cancellationToken.throwIfCancelled();
+  }
+
+  /**
+   * Wrap a solver model so that the solver stops if the calculation is cancelled, checking the
+   * cancellation token each time the model is evaluated
+   *
+   * @param model Least-squares model function
+   * @return Model function that also checks for cancellation
+   */
+  MultivariateJacobianFunction cancellable(MultivariateJacobianFunction model) {
+    return point -> {
+      checkCancelled();
+      return model.value(point);
+    };
+  }
+
+  /**
+   * Get the token used to cancel the running calculation, which should also be passed to any
+   * experiments run as part of this one
+   *
+   * @return Cancellation token for the current calculation
+   */
+  CancellationToken getCancellationToken() {
+    return cancellationToken;
+  }
+
+  /**
+   * Set the token used to cancel the calculation, for experiments whose calculations are run as
+   * part of another experiment without going through runExperimentOnData
+   *
+   * @param cancellationToken Cancellation token of the calling experiment
+   */
+  void setCancellationToken(CancellationToken cancellationToken) {
+    this.cancellationToken = cancellationToken;
+  }
+
   /**
    * Update processing status and notify listeners of change
    * (Used to show messages displaying the progress of the function on the GUI)
@@ -380,11 +430,28 @@ public abstract class Experiment {
    * method which is different for each type of experiment)
    * This function specifically (rather than the backend implementation) is
    * where interval consistency is checked before doing calculations.
+   * The calculation can be stopped by interrupting the calling thread.
    *
    * @param dataStore Timeseries data to be processed
    */
   public void runExperimentOnData(final DataStore dataStore) {
+    runExperimentOnData(dataStore, CancellationToken.forCurrentThread());
+  }
+
+  /**
+   * Driver to do data processing on inputted data (calls a concrete backend
+   * method which is different for each type of experiment), which stops with a
+   * CancellationException once the given token is cancelled.
+   *
+   * @param dataStore Timeseries data to be processed
+   * @param cancellationToken Token used to stop the calculation before it completes
+   * @throws java.util.concurrent.CancellationException If the token is cancelled
+   */
+  public void runExperimentOnData(final DataStore dataStore,
+      final CancellationToken cancellationToken) {
 
+    this.cancellationToken = cancellationToken;
+    checkCancelled();
     fireStateChange("Beginning loading data...");
 
     dataNames = new ArrayList<>();
@@ -428,6 +495,7 @@ public abstract class Experiment {
 
     fireStateChange("Beginning calculations...");
 
+    checkCancelled();
     backend(dataStore);
 
     fireStateChange("Calculations done!");
@@ -3,6 +3,7 @@ package asl.sensor.experiment;
 import static asl.utils.NumericUtils.getFFTMean;
 import static asl.utils.NumericUtils.getFFTSDev;
 
+import asl.sensor.input.CrossSpectralMatrix;
 import asl.sensor.input.DataStore;
 import asl.utils.FFTResult;
 import asl.utils.input.InstrumentResponse;
@@ -129,12 +130,13 @@ public class GainExperiment extends Experiment {
     XYSeriesCollection xysc = new XYSeriesCollection();
     xysc.setAutoWidth(true);
 
+    fireStateChange("Getting PSDs...");
+    CrossSpectralMatrix spectralMatrix = dataStore.getSpectralMatrix(indices, maxLength, false);
     for (int i = 0; i < indices.length; ++i) {
-      fireStateChange("Getting PSD " + i + "...");
       int idx = indices[i];
       String name = "PSD " + dataStore.getBlock(idx).getName() + " [" + idx + "]";
       XYSeries xys = new XYSeries(name);
-      fftResults[i] = dataStore.getPSD(idx, maxLength);
+      fftResults[i] = spectralMatrix.getResult(i, i);
       Complex[] fft = fftResults[i].getFFT();
       double[] freqs = fftResults[i].getFreqs();
       // false, because we don't want to plot in frequency space
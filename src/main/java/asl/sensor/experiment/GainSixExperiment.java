@@ -3,12 +3,11 @@ package asl.sensor.experiment;
 import static asl.utils.TimeSeriesUtils.rotate;
 import static asl.utils.TimeSeriesUtils.rotateX;
 
+import asl.sensor.ComputeExecutor;
 import asl.sensor.input.DataStore;
 import asl.utils.TimeSeriesUtils;
 import asl.utils.input.DataBlock;
-import java.util.Arrays;
 import java.util.Collections;
-import java.util.stream.IntStream;
 import org.jfree.data.xy.XYSeries;
 
 /**
@@ -35,12 +34,14 @@ public class GainSixExperiment extends Experiment {
   // indexOfAngleRefData represents which set of data to use as fixed angle reference
   // this can be either 0 (first NEZ set) or 1 (second)
   private int indexOfGainRefData; // as above, but for which data to use as gain reference
+  private boolean coarseToFine; // whether orientation fits start from a coarse grid search
 
   public GainSixExperiment() {
     super();
 
     indexOfAngleRefData = 0; // default to first set of data
     indexOfGainRefData = 0;
+    coarseToFine = false;
 
     componentBackends = new GainExperiment[DIMENSIONS];
     for (int i = 0; i < componentBackends.length; i++) {
@@ -95,7 +96,7 @@ public class GainSixExperiment extends Experiment {
     for (int i = 0; i < DIMENSIONS; ++i) {
       stores[i] = new DataStore();
       for (int j = 0; j < 2; ++j) {
-        stores[i].setBlock(j, dataStore.getBlock(i + (j * DIMENSIONS)));
+        stores[i].setSharedBlock(j, dataStore, i + (j * DIMENSIONS));
         stores[i].setResponse(j, dataStore.getResponse(i + (j * DIMENSIONS)));
       }
     }
@@ -119,7 +120,8 @@ public class GainSixExperiment extends Experiment {
     // see also the rotation used in the 9-input self noise backend
     fireStateChange("Getting second north sensor orientation...");
     northAngle = -AzimuthExperiment.getAzimuth(northRefSensor, eastRefSensor,
-        northRotateSensor, interval, start, end);
+        northRotateSensor, interval, start, end, coarseToFine,
+        getCancellationToken());
 
     fireStateChange("Getting second east sensor orientation...");
     // direction north angle should be if north and east truly orthogonal
@@ -129,7 +131,8 @@ public class GainSixExperiment extends Experiment {
     // offset by 3Pi/2 is the same as offset Pi/2 (90 degrees) in other
     // rotation direction
     eastAngle = -AzimuthExperiment.getAzimuth(northRefSensor, eastRefSensor,
-        east2Sensor, interval, start, end) + (3 * Math.PI / 2);
+        east2Sensor, interval, start, end, coarseToFine,
+        getCancellationToken()) + (3 * Math.PI / 2);
 
     // now to rotate the data according to these angles
     fireStateChange("Rotating data...");
@@ -143,18 +146,19 @@ public class GainSixExperiment extends Experiment {
     // now get the datasets to plug into the datastore
     String[] direction = new String[]{"north", "east", "vertical"};
 
-    //for (int i = 0; i < DIMENSIONS; ++i) {
-    IntStream.range(0, DIMENSIONS).parallel().forEach(i -> {
-      fireStateChange("Running calculations on " + direction[i] + " components...");
-      componentBackends[i].runExperimentOnData(stores[i]);
+    ComputeExecutor.getInstance().forEach("Gain six axes", DIMENSIONS, i -> {
+      synchronized (this) {
+        fireStateChange("Running calculations on " + direction[i] + " components...");
+      }
+      componentBackends[i].runExperimentOnData(stores[i], getCancellationToken());
     });
 
     // each backend only has one plot's worth of data
     // but is formatted as a list of per-plot data, so we use addAll
     // also get the names of the data going in for use w/ PDF, metadata
-    Arrays.stream(componentBackends).parallel().forEachOrdered(
-        exp -> xySeriesData.addAll(exp.getData())
-    );
+    for (GainExperiment componentBackend : componentBackends) {
+      xySeriesData.addAll(componentBackend.getData());
+    }
 
     for (GainExperiment componentBackend : componentBackends) {
       dataNames.addAll(componentBackend.getInputNames());
@@ -176,6 +180,26 @@ public class GainSixExperiment extends Experiment {
     indexOfAngleRefData = 1;
   }
 
+  /**
+   * Set whether each orientation estimate should start from a coarse grid search over all angles
+   * rather than from an angle of zero. Default is false.
+   *
+   * @param coarseToFine True if a coarse grid search should be done before each orientation fit
+   * @see AzimuthExperiment#setCoarseToFine(boolean)
+   */
+  public void setCoarseToFine(boolean coarseToFine) {
+    this.coarseToFine = coarseToFine;
+  }
+
+  /**
+   * Get whether each orientation estimate starts from a coarse grid search
+   *
+   * @return True if a coarse grid search is done before each orientation fit
+   */
+  public boolean isCoarseToFine() {
+    return coarseToFine;
+  }
+
   @Override
   public int blocksNeeded() {
     return 6;
@@ -1,9 +1,9 @@
 package asl.sensor.experiment;
 
+import asl.sensor.input.CrossSpectralMatrix;
 import asl.sensor.input.DataStore;
 import asl.utils.FFTResult;
 import asl.utils.input.DataBlock;
-import asl.utils.input.InstrumentResponse;
 import java.util.Arrays;
 import org.apache.commons.math3.complex.Complex;
 import org.jfree.data.xy.XYSeries;
@@ -87,46 +87,30 @@ public class NoiseExperiment extends Experiment {
     }
 
     DataBlock[] dataIn = new DataBlock[respIndices.length];
-    InstrumentResponse[] responses = new InstrumentResponse[respIndices.length];
 
     for (int i = 0; i < respIndices.length; ++i) {
       dataIn[i] = dataStore.getBlock(respIndices[i]);
-      responses[i] = dataStore.getResponse(respIndices[i]);
     }
 
-    Complex[][] spectra = new Complex[DATA_NEEDED][];
-    double[] freqs = new double[]{}; // initialize to prevent later errors
+    // get the PSDs (pii terms) and cross-powers (pij terms for i!=j) of all the data together
+    // (these are cached by the datastore, so re-plotting the same data doesn't recalculate them)
+    fireStateChange("Getting PSDs and crosspowers of data...");
+    CrossSpectralMatrix spectralMatrix =
+        dataStore.getSpectralMatrix(respIndices, maxLength, true);
+    double[] freqs = spectralMatrix.getFreqs();
 
-    // gets the PSDs of each given index for given freqSpace
+    Complex[][] spectra = new Complex[DATA_NEEDED][];
     for (int i = 0; i < respIndices.length; ++i) {
       int idx = respIndices[i];
-      fireStateChange("Getting PSDs of data " + (idx + 1) + "...");
       String name = "PSD " + dataStore.getBlock(idx).getName() + " [" + idx + "]";
       XYSeries powerSeries = new XYSeries(name);
-      FFTResult psdCalc = dataStore.getPSD(idx, maxLength);
-      Complex[] fft = psdCalc.getFFT();
-      spectra[i] = fft;
-      freqs = psdCalc.getFreqs();
-      addToPlot(powerSeries, fft, freqs, freqSpace, xysc);
+      spectra[i] = spectralMatrix.getPower(i, i);
+      addToPlot(powerSeries, spectra[i], freqs, freqSpace, xysc);
     }
 
-    String getting = "Getting crosspower of series ";
-
-    // spectra[i] is crosspower pii, now to get pij terms for i!=j
-    fireStateChange(getting + "1 & 3");
-    FFTResult fft =
-        FFTResult.crossPower(dataIn[0], dataIn[2], responses[0], responses[2], maxLength);
-    Complex[] c13 = fft.getFFT();
-
-    fireStateChange(getting + "2 & 1");
-    fft =
-        FFTResult.crossPower(dataIn[1], dataIn[0], responses[1], responses[0], maxLength);
-    Complex[] c21 = fft.getFFT();
-
-    fireStateChange(getting + "2 & 3");
-    fft =
-        FFTResult.crossPower(dataIn[1], dataIn[2], responses[1], responses[2], maxLength);
-    Complex[] c23 = fft.getFFT();
+    Complex[] c13 = spectralMatrix.getPower(0, 2);
+    Complex[] c21 = spectralMatrix.getPower(1, 0);
+    Complex[] c23 = spectralMatrix.getPower(1, 2);
 
     // WIP: use PSD results to get noise at each point see spectra
     XYSeries[] noiseSeriesArr = new XYSeries[DATA_NEEDED];
@@ -3,9 +3,12 @@ package asl.sensor.experiment;
 import static asl.utils.TimeSeriesUtils.rotate;
 import static asl.utils.TimeSeriesUtils.rotateX;
 
+import asl.sensor.ComputeExecutor;
 import asl.sensor.input.DataStore;
 import asl.utils.input.DataBlock;
-import java.util.stream.IntStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import org.jfree.data.xy.XYSeriesCollection;
 
 /**
@@ -27,14 +30,19 @@ import org.jfree.data.xy.XYSeriesCollection;
 public class NoiseNineExperiment extends NoiseExperiment {
 
   private static final int DIMENSIONS = 3;
+
   private double[] northAngles, eastAngles;
   private int indexOfAngleRefData;
+  private ComputeExecutor executor;
+  private boolean coarseToFine;
 
   public NoiseNineExperiment() {
     super();
     // indices are fixed since we need all 9 data points here
     respIndices = new int[]{0, 1, 2, 3, 4, 5, 6, 7, 8};
     indexOfAngleRefData = 0;
+    coarseToFine = false;
+    executor = ComputeExecutor.getInstance();
   }
 
   /**
@@ -147,7 +155,7 @@ public class NoiseNineExperiment extends NoiseExperiment {
     for (int i = 0; i < DIMENSIONS; ++i) {
       stores[i] = new DataStore();
       for (int j = 0; j < 3; ++j) {
-        stores[i].setBlock(j, dataStore.getBlock(i + (j * DIMENSIONS)));
+        stores[i].setSharedBlock(j, dataStore, i + (j * DIMENSIONS));
         stores[i].setResponse(j, dataStore.getResponse(i + (j * DIMENSIONS)));
       }
     }
@@ -163,63 +171,113 @@ public class NoiseNineExperiment extends NoiseExperiment {
     double[] eastReference = eastRef.getData();
 
     // bound here is the number of unknown angles -- one is assumed to be fixed at N & E
-    // for (int i = 0; i < DATA_NEEDED; ++i) {
-    IntStream.range(0, DATA_NEEDED).parallel().forEach(i -> {
-      if (i == indexOfAngleRefData) {
-        // unable to rotate the reference -- fix it at 0
-        northAngles[i] = 0;
-        eastAngles[i] = 0;
-        return; // this should break out of the stream loop
+    // reference is unable to be rotated -- fix it at 0
+    northAngles[indexOfAngleRefData] = 0;
+    eastAngles[indexOfAngleRefData] = 0;
+    List<Integer> unknownSensors = new ArrayList<>();
+    for (int i = 0; i < DATA_NEEDED; ++i) {
+      if (i != indexOfAngleRefData) {
+        unknownSensors.add(i);
       }
-
-      fireStateChange("Getting orientation of data set "
-          + (i + 1) + "...");
-      DataBlock northRotate = stores[0].getBlock(i);
-      DataBlock eastRotate = stores[1].getBlock(i);
-      double[] northRotateData = northRotate.getData();
-      double[] eastRotateData = eastRotate.getData();
-
-      // angle is set negative because we are finding angle of reference input
-      // which is what northRotateData is here
-      fireStateChange("Getting north sensor " + (i + 1)
-          + " orientation...");
-      northAngles[i] = -AzimuthExperiment.getAzimuth(northReference, eastReference,
-          northRotateData, interval, start, end);
-
-      fireStateChange("Getting east sensor " + (i + 1)
-          + " orientation...");
-      // direction north angle should be if north and east truly orthogonal
-      // then east component is x component of rotation in that direction
-      // i.e., need to correct by 90 degrees to get rotation angle rather than
-      // azimuth of east sensor
-      // offset by 3Pi/2 is the same as offset Pi/2 (90 degrees) in other
-      // rotation direction
-      eastAngles[i] = -AzimuthExperiment.getAzimuth(northReference, eastReference,
-          eastRotateData, interval, start, end) + (3 * Math.PI / 2);
-
-      fireStateChange("Rotating data " + (i + 1) + "...");
-      DataBlock northUnknownRotate =
-          rotate(northRotate, eastRotate, northAngles[i]);
-      stores[0].setBlock(i, northUnknownRotate);
-      DataBlock eastUnknownRotate =
-          rotateX(northRotate, eastRotate, eastAngles[i]);
-      stores[1].setBlock(i, eastUnknownRotate);
-    });
+    }
+    // each task solves for and rotates the data of only its own sensor set
+    executor.forEach("Noise nine orientation", unknownSensors, i ->
+        orientSensor(stores, i, northReference, eastReference, interval, start, end));
 
     // set components into N,E,Z directional subcomponents
 
-    // get noise from each axis's data
-    NoiseExperiment noiseExp = new NoiseExperiment();
-    noiseExp.setFreqSpace(freqSpace);
+    // get noise from each axis's data; the axes are independent once rotated, so each gets its
+    // own experiment and they are run concurrently
     String[] directions = new String[]{"north", "east", "vertical"};
-    for (int i = 0; i < DIMENSIONS; ++i) {
-      String sb = "Calculating " + directions[i] + " noise components...";
-      fireStateChange(sb);
-      noiseExp.runExperimentOnData(stores[i]);
-      XYSeriesCollection xys = noiseExp.getData().get(0);
-      xySeriesData.add(xys);
+    XYSeriesCollection[] axisResults = new XYSeriesCollection[DIMENSIONS];
+    executor.forEach("Noise nine axes", DIMENSIONS, i -> {
+      reportProgress("Calculating " + directions[i] + " noise components...");
+      NoiseExperiment noiseExp = new NoiseExperiment();
+      noiseExp.setFreqSpace(freqSpace);
+      noiseExp.runExperimentOnData(stores[i], getCancellationToken());
+      axisResults[i] = noiseExp.getData().get(0);
+    });
+    // results are indexed by axis, so they are added to the plots in N, E, Z order
+    xySeriesData.addAll(Arrays.asList(axisResults));
+
+  }
+
+  /**
+   * Solve for the orientation of the north and east sensors of one of the unknown-orientation
+   * sensor sets, and replace their data with data rotated to the reference orientation
+   *
+   * @param stores Data separated by axis (north, east, vertical), each with one input per sensor
+   * @param i Index of the sensor set to orient
+   * @param northReference Data from the north component of the reference sensor
+   * @param eastReference Data from the east component of the reference sensor
+   * @param interval Sampling interval of the data
+   * @param start Start time of the data (epoch millis)
+   * @param end End time of the data (epoch millis)
+   */
+  private void orientSensor(DataStore[] stores, int i, double[] northReference,
+      double[] eastReference, long interval, long start, long end) {
+    reportProgress("Getting orientation of data set " + (i + 1) + "...");
+    DataBlock northRotate = stores[0].getBlock(i);
+    DataBlock eastRotate = stores[1].getBlock(i);
+    double[] northRotateData = northRotate.getData();
+    double[] eastRotateData = eastRotate.getData();
+
+    // angle is set negative because we are finding angle of reference input
+    // which is what northRotateData is here
+    reportProgress("Getting north sensor " + (i + 1) + " orientation...");
+    northAngles[i] = -AzimuthExperiment.getAzimuth(northReference, eastReference,
+        northRotateData, interval, start, end, coarseToFine,
+        getCancellationToken());
+
+    reportProgress("Getting east sensor " + (i + 1) + " orientation...");
+    // direction north angle should be if north and east truly orthogonal
+    // then east component is x component of rotation in that direction
+    // i.e., need to correct by 90 degrees to get rotation angle rather than
+    // azimuth of east sensor
+    // offset by 3Pi/2 is the same as offset Pi/2 (90 degrees) in other
+    // rotation direction
+    eastAngles[i] = -AzimuthExperiment.getAzimuth(northReference, eastReference,
+        eastRotateData, interval, start, end, coarseToFine,
+        getCancellationToken()) + (3 * Math.PI / 2);
+
+    reportProgress("Rotating data " + (i + 1) + "...");
+    DataBlock northUnknownRotate =
+        rotate(northRotate, eastRotate, northAngles[i]);
+    DataBlock eastUnknownRotate =
+        rotateX(northRotate, eastRotate, eastAngles[i]);
+    // each sensor set has its own index in the axis stores, but the stores themselves are shared
+    synchronized (stores) {
+      stores[0].setBlock(i, northUnknownRotate);
+      stores[1].setBlock(i, eastUnknownRotate);
     }
+  }
 
+  /**
+   * Update the status of this experiment from one of its concurrently running tasks
+   *
+   * @param message Status to report
+   */
+  private synchronized void reportProgress(String message) {
+    fireStateChange(message);
+  }
+
+  /**
+   * Set the executor used to solve for sensor orientations and to calculate the noise of each
+   * axis concurrently. By default this is the executor shared by all experiments.
+   *
+   * @param executor Executor to run this experiment's concurrent tasks on
+   */
+  public void setExecutor(ComputeExecutor executor) {
+    this.executor = executor;
+  }
+
+  /**
+   * Get the executor used to run this experiment's concurrent tasks
+   *
+   * @return Executor used for orientation and per-axis noise calculations
+   */
+  public ComputeExecutor getExecutor() {
+    return executor;
   }
 
   /**
@@ -243,6 +301,26 @@ public class NoiseNineExperiment extends NoiseExperiment {
     indexOfAngleRefData = 2;
   }
 
+  /**
+   * Set whether each orientation estimate should start from a coarse grid search over all angles
+   * rather than from an angle of zero. Default is false.
+   *
+   * @param coarseToFine True if a coarse grid search should be done before each orientation fit
+   * @see AzimuthExperiment#setCoarseToFine(boolean)
+   */
+  public void setCoarseToFine(boolean coarseToFine) {
+    this.coarseToFine = coarseToFine;
+  }
+
+  /**
+   * Get whether each orientation estimate starts from a coarse grid search
+   *
+   * @return True if a coarse grid search is done before each orientation fit
+   */
+  public boolean isCoarseToFine() {
+    return coarseToFine;
+  }
+
 
   @Override
   public int blocksNeeded() {
@@ -27,9 +27,11 @@ public class OrthogonalExperiment extends Experiment {
 
   private double[] diffs;
   private double angle;
+  private boolean coarseToFine;
 
   public OrthogonalExperiment() {
     super();
+    coarseToFine = false;
   }
 
   /**
@@ -119,7 +121,9 @@ public class OrthogonalExperiment extends Experiment {
     double[] testXArr = Arrays.copyOfRange(testLH2, 0, len);
 
     AzimuthExperiment azi = new AzimuthExperiment();
+    azi.setCancellationToken(getCancellationToken());
     azi.setSimple(false); // set to see if damped window estimates are hurting our results
+    azi.setCoarseToFine(coarseToFine);
     fireStateChange("Getting y (north sensor) angle");
     azi.alternateEntryPoint(refYArr, refXArr, testYArr, interval, start, end);
     double angleY = -azi.getFitAngle(); // degrees
@@ -185,6 +189,26 @@ public class OrthogonalExperiment extends Experiment {
     return angle;
   }
 
+  /**
+   * Set whether each orientation estimate should start from a coarse grid search over all angles
+   * rather than from an angle of zero. Default is false.
+   *
+   * @param coarseToFine True if a coarse grid search should be done before each orientation fit
+   * @see AzimuthExperiment#setCoarseToFine(boolean)
+   */
+  public void setCoarseToFine(boolean coarseToFine) {
+    this.coarseToFine = coarseToFine;
+  }
+
+  /**
+   * Get whether each orientation estimate starts from a coarse grid search
+   *
+   * @return True if a coarse grid search is done before each orientation fit
+   */
+  public boolean isCoarseToFine() {
+    return coarseToFine;
+  }
+
   /**
    * Returns the intermediate result of the calculation,
    * the azimuth angles of the unknown sensors
@@ -12,6 +12,7 @@ import static asl.utils.ReportingUtils.complexListToString;
 import static asl.utils.ReportingUtils.complexListToStringWithErrorTerms;
 import static asl.utils.TimeSeriesUtils.ONE_HZ_INTERVAL;
 
+import asl.sensor.ComputeExecutor;
 import asl.sensor.input.DataStore;
 import asl.utils.FFTResult;
 import asl.utils.input.DataBlock;
@@ -23,6 +24,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.commons.math3.complex.Complex;
 import org.apache.commons.math3.fitting.leastsquares.LeastSquaresBuilder;
 import org.apache.commons.math3.fitting.leastsquares.LeastSquaresOptimizer;
@@ -35,7 +37,6 @@ import org.apache.commons.math3.linear.MatrixUtils;
 import org.apache.commons.math3.linear.RealMatrix;
 import org.apache.commons.math3.linear.RealVector;
 import org.apache.commons.math3.util.Pair;
-import org.jfree.data.xy.XYSeries;
 import org.jfree.data.xy.XYSeriesCollection;
 
 /**
@@ -102,11 +103,15 @@ public class RandomizedExperiment extends Experiment {
   private double maxMagWeight, maxArgWeight; // max values of magnitude, phase
   private double nyquistMultiplier; // region up to nyquist to take for data
   private int numIterations; // how much the solver ran
+  private boolean parallelJacobian; // true if jacobian columns are evaluated concurrently
+  private boolean analyticJacobian; // true if jacobian is calculated from closed-form derivatives
 
   public RandomizedExperiment() {
     super();
     isCapacitive = false;
     isLowFrequencyCalibration = false;
+    parallelJacobian = false;
+    analyticJacobian = false;
     numIterations = 0;
     plotUsingHz = true;
     nyquistMultiplier = 0.8; // defaults to 0.8
@@ -243,6 +248,26 @@ public class RandomizedExperiment extends Experiment {
    */
   static Pair<RealVector, RealMatrix> jacobian(RealVector variables, double[] freqs,
       int numZeros, InstrumentResponse fitResponse, boolean isLowFreq) {
+    return jacobian(variables, freqs, numZeros, fitResponse, isLowFreq, false);
+  }
+
+  /**
+   * Function to run evaluation and backward difference for Jacobian
+   * approximation given a set of points to set as response, optionally evaluating each of the
+   * perturbed columns concurrently. Because each column is calculated independently of the others
+   * with the same operations in either case, the parallel result is identical to the serial one.
+   *
+   * @param variables Values to set the response's poles to
+   * @param freqs Set of frequencies to get the response curve over
+   * @param numZeros How many (paired) variables represent zeros (to determine first pole index)
+   * @param fitResponse Response to apply these variables to
+   * @param isLowFreq True if the calibration being fit to is low-frequency
+   * @param parallel True if the columns of the Jacobian should be evaluated concurrently
+   * @return RealVector with evaluation at current response value and
+   * RealMatrix with forward difference approximation of that response's Jacobian
+   */
+  static Pair<RealVector, RealMatrix> jacobian(RealVector variables, double[] freqs,
+      int numZeros, InstrumentResponse fitResponse, boolean isLowFreq, boolean parallel) {
     int numVars = variables.getDimension();
 
     double[] currentVars = new double[numVars];
@@ -255,38 +280,118 @@ public class RandomizedExperiment extends Experiment {
 
     double[][] jacobian = new double[mag.length][numVars];
     // now take the backward difference of each value
-    for (int i = 0; i < numVars; ++i) {
-
-      if (i % 2 == 1 && currentVars[i] == 0.) {
-        // imaginary value already zero, don't change this
-        // we assume that if an imaginary value is NOT zero, it's close enough
-        // to its correct value that it won't get turned down to zero
-        for (int j = 0; j < mag.length; ++j) {
-          jacobian[j][i] = 0.;
-        }
-        continue;
+    if (parallel && numVars > 1) {
+      // each task only writes to its own column of the matrix, so no synchronization is needed
+      ComputeExecutor.getInstance().forEach("Randomized cal Jacobian", numVars, i ->
+          fillJacobianColumn(jacobian, i, currentVars, mag, freqs, numZeros, fitResponse,
+              isLowFreq));
+    } else {
+      for (int i = 0; i < numVars; ++i) {
+        fillJacobianColumn(jacobian, i, currentVars, mag, freqs, numZeros, fitResponse,
+            isLowFreq);
       }
+    }
 
-      double[] changedVars = Arrays.copyOf(currentVars, currentVars.length);
+    RealVector result = MatrixUtils.createRealVector(mag);
+    RealMatrix jacobianMatrix = MatrixUtils.createRealMatrix(jacobian);
 
-      // forward difference approximation -- ulp here gives us the error between this variable
-      // and the smallest double larger than it. We multiply this by 100 to get the forward diff.
-      // so that the difference is small relative to the value of the variable but also able to
-      // give us a measurable change in the actual response curve function generated by it
-      // and unlike having a fixed decimal step above the variable this is able to function on
-      // floating-point numbers of arbitrary magnitude (useful for very high-freq poles in STS-6)
-      double diffX = 100 * Math.ulp(changedVars[i]);
-      changedVars[i] = changedVars[i] + diffX;
+    return new Pair<>(result, jacobianMatrix);
+  }
 
+  /**
+   * Calculate the Jacobian of the response curve with respect to the fit variables using the
+   * closed-form derivatives of the pole-zero expansion, rather than by forward difference.
+   * For a response H(s) = A0 * prod(s - z) / prod(s - p), the derivative of ln(H) with respect to
+   * a pole p is 1/(s - p), and with respect to a zero z is -1/(s - z). Variables with a nonzero
+   * imaginary component also set their complex conjugate, which contributes to the derivative
+   * as well. The real part of the derivative of ln(H) gives the change in amplitude (scaled here
+   * to dB) and the imaginary part gives the change in phase; the values of these derivatives at
+   * the normalization frequency are subtracted to match the scaling done in
+   * {@link #scaleValues(double[], double[], boolean)}.
+   *
+   * This needs only a single evaluation of the response and one pass over the frequencies,
+   * compared to an evaluation per variable for the forward-difference method. As with the
+   * rest of the program, pole and zero values are expected to be in units of rad/s.
+   * If the derivative cannot be evaluated for a variable (i.e., a frequency lies exactly on
+   * that variable's pole or zero) that column falls back to the forward-difference estimate.
+   *
+   * @param variables Values to set the response's poles to
+   * @param freqs Set of frequencies to get the response curve over
+   * @param numZeros How many (paired) variables represent zeros (to determine first pole index)
+   * @param fitResponse Response to apply these variables to
+   * @param isLowFreq True if the calibration being fit to is low-frequency
+   * @return RealVector with evaluation at current response value and
+   * RealMatrix with the analytic evaluation of that response's Jacobian
+   * @see #jacobian(RealVector, double[], int, InstrumentResponse, boolean)
+   */
+  static Pair<RealVector, RealMatrix> analyticJacobian(RealVector variables, double[] freqs,
+      int numZeros, InstrumentResponse fitResponse, boolean isLowFreq) {
+    int numVars = variables.getDimension();
+    double[] currentVars = variables.toArray();
 
-      double[] diffY =
-          evaluateResponse(changedVars, freqs, numZeros, fitResponse, isLowFreq);
+    double[] mag = evaluateResponse(currentVars, freqs, numZeros, fitResponse, isLowFreq);
 
-      for (int j = 0; j < diffY.length; ++j) {
-        jacobian[j][i] = diffY[j] - mag[j];
-        jacobian[j][i] /= diffX;
+    int normalIdx = FFTResult.getIndexOfFrequency(freqs,
+        getFrequencyForNormalization(isLowFreq));
+    // conversion of d(ln|H|) into d(20 * log10|H|)
+    final double dbScale = 20. / Math.log(10.);
+
+    // derivatives of ln(H) per frequency for each variable; real and imaginary parts
+    double[][] realDerivs = new double[numVars][freqs.length];
+    double[][] imagDerivs = new double[numVars][freqs.length];
+
+    for (int j = 0; j < freqs.length; ++j) {
+      double omega = TAU * freqs[j]; // s = i * omega
+      for (int i = 0; i < numVars; i += 2) {
+        double rootReal = currentVars[i];
+        double rootImag = currentVars[i + 1];
+        // pole terms are in the denominator, so d ln(H) / dp = +1/(s-p); zeros are the negative
+        double sign = (i >= numZeros) ? 1. : -1.;
+
+        // 1/(s - r) for r = a + ib, with s - r = -a + i(omega - b)
+        double x = -rootReal;
+        double y = omega - rootImag;
+        double denom = x * x + y * y;
+        double invReal = x / denom;
+        double invImag = -y / denom;
+
+        if (rootImag == 0.) {
+          realDerivs[i][j] = sign * invReal;
+          imagDerivs[i][j] = sign * invImag;
+          // imaginary value is held at zero, as in the forward-difference case
+          continue;
+        }
+
+        // conjugate term, 1/(s - conj(r)) with s - conj(r) = -a + i(omega + b)
+        double yConj = omega + rootImag;
+        double denomConj = x * x + yConj * yConj;
+        double invConjReal = x / denomConj;
+        double invConjImag = -yConj / denomConj;
+
+        // d/da: both the value and its conjugate move with the real component
+        realDerivs[i][j] = sign * (invReal + invConjReal);
+        imagDerivs[i][j] = sign * (invImag + invConjImag);
+        // d/db: i/(s-r) - i/(s-conj(r)); multiplying by i maps (re, im) to (-im, re)
+        realDerivs[i + 1][j] = sign * (-invImag + invConjImag);
+        imagDerivs[i + 1][j] = sign * (invReal - invConjReal);
       }
+    }
 
+    double[][] jacobian = new double[mag.length][numVars];
+    int argStart = freqs.length;
+    for (int i = 0; i < numVars; ++i) {
+      double realAtNormal = realDerivs[i][normalIdx];
+      double imagAtNormal = imagDerivs[i][normalIdx];
+      boolean isFinite = true;
+      for (int j = 0; j < freqs.length; ++j) {
+        jacobian[j][i] = dbScale * (realDerivs[i][j] - realAtNormal);
+        jacobian[argStart + j][i] = Math.toDegrees(imagDerivs[i][j] - imagAtNormal);
+        isFinite &= Double.isFinite(jacobian[j][i]) && Double.isFinite(jacobian[argStart + j][i]);
+      }
+      if (!isFinite) {
+        fillJacobianColumn(jacobian, i, currentVars, mag, freqs, numZeros, fitResponse,
+            isLowFreq);
+      }
     }
 
     RealVector result = MatrixUtils.createRealVector(mag);
@@ -295,6 +400,52 @@ public class RandomizedExperiment extends Experiment {
     return new Pair<>(result, jacobianMatrix);
   }
 
+  /**
+   * Populate a single column of the forward-difference Jacobian, corresponding to the change in
+   * the response curve produced by a small change in one of the fit variables.
+   * @param jacobian Matrix (indexed by curve point, then variable) to write the column into
+   * @param i Index of the variable being perturbed
+   * @param currentVars Current values of all fit variables (not modified)
+   * @param mag Evaluation of the response curve at the current variable values
+   * @param freqs Set of frequencies to get the response curve over
+   * @param numZeros How many (paired) variables represent zeros (to determine first pole index)
+   * @param fitResponse Response to apply these variables to
+   * @param isLowFreq True if the calibration being fit to is low-frequency
+   */
+  private static void fillJacobianColumn(double[][] jacobian, int i, double[] currentVars,
+      double[] mag, double[] freqs, int numZeros, InstrumentResponse fitResponse,
+      boolean isLowFreq) {
+
+    if (i % 2 == 1 && currentVars[i] == 0.) {
+      // imaginary value already zero, don't change this
+      // we assume that if an imaginary value is NOT zero, it's close enough
+      // to its correct value that it won't get turned down to zero
+      for (int j = 0; j < mag.length; ++j) {
+        jacobian[j][i] = 0.;
+      }
+      return;
+    }
+
+    double[] changedVars = Arrays.copyOf(currentVars, currentVars.length);
+
+    // forward difference approximation -- ulp here gives us the error between this variable
+    // and the smallest double larger than it. We multiply this by 100 to get the forward diff.
+    // so that the difference is small relative to the value of the variable but also able to
+    // give us a measurable change in the actual response curve function generated by it
+    // and unlike having a fixed decimal step above the variable this is able to function on
+    // floating-point numbers of arbitrary magnitude (useful for very high-freq poles in STS-6)
+    double diffX = 100 * Math.ulp(changedVars[i]);
+    changedVars[i] = changedVars[i] + diffX;
+
+    double[] diffY =
+        evaluateResponse(changedVars, freqs, numZeros, fitResponse, isLowFreq);
+
+    for (int j = 0; j < diffY.length; ++j) {
+      jacobian[j][i] = diffY[j] - mag[j];
+      jacobian[j][i] /= diffX;
+    }
+  }
+
   /**
    * Given a candidate value for error terms for a given variable in the best-fit response,
    * evaluate the response given that value and estimate the jacobian by forward-difference.
@@ -455,8 +606,9 @@ public class RandomizedExperiment extends Experiment {
     String name = sensorOut.getName();
     dataNames.add(name);
     dataNames.add(fitResponse.getName());
-    XYSeries calcMag = new XYSeries("Calc. resp. (" + name + ") magnitude");
-    XYSeries calcArg = new XYSeries("Calc. resp. (" + name + ") phase");
+    // plot points are collected first so that period-space data is not inserted in descending order
+    SeriesBuilder calcMag = new SeriesBuilder("Calc. resp. (" + name + ") magnitude", 0);
+    SeriesBuilder calcArg = new SeriesBuilder("Calc. resp. (" + name + ") phase", 0);
 
     InstrumentResponse initResponse = new InstrumentResponse(fitResponse);
     initialPoles = new ArrayList<>(fitResponse.getPoles());
@@ -661,12 +813,18 @@ public class RandomizedExperiment extends Experiment {
       final int numZerosSet = numZeros;
       final boolean isLowFrequency = isLowFrequencyCalibration;
       final InstrumentResponse fitSet = fitResponse;
+      final boolean parallel = parallelJacobian;
+      final boolean analytic = analyticJacobian;
 
       @Override
       public Pair<RealVector, RealMatrix> value(final RealVector point) {
+        checkCancelled();
         ++numIterations;
         fireStateChange("Fitting, iteration count " + numIterations);
-        return jacobian(point, freqsSet, numZerosSet, fitSet, isLowFrequency);
+        if (analytic) {
+          return analyticJacobian(point, freqsSet, numZerosSet, fitSet, isLowFrequency);
+        }
+        return jacobian(point, freqsSet, numZerosSet, fitSet, isLowFrequency, parallel);
       }
 
     };
@@ -686,11 +844,12 @@ public class RandomizedExperiment extends Experiment {
 
     // set up structures that will hold the initial and final response plots
     name = fitResponse.getName();
-    XYSeries initMag = new XYSeries("Initial param (" + name + ") magnitude");
-    XYSeries initArg = new XYSeries("Initial param (" + name + ") phase");
+    int plotSize = plottingFreqs.length;
+    SeriesBuilder initMag = new SeriesBuilder("Initial param (" + name + ") magnitude", plotSize);
+    SeriesBuilder initArg = new SeriesBuilder("Initial param (" + name + ") phase", plotSize);
 
-    XYSeries fitMag = new XYSeries("Fit resp. magnitude");
-    XYSeries fitArg = new XYSeries("Fit resp. phase");
+    SeriesBuilder fitMag = new SeriesBuilder("Fit resp. magnitude", plotSize);
+    SeriesBuilder fitArg = new SeriesBuilder("Fit resp. phase", plotSize);
 
     LeastSquaresProblem lsp = new LeastSquaresBuilder().
         start(initialGuess).
@@ -723,10 +882,11 @@ public class RandomizedExperiment extends Experiment {
     double[] fitParams = evaluation.getPoint().toArray();
     // get results from evaluating the function at the two points
 
-    XYSeries initResidMag = new XYSeries("Percent error of init. amplitude");
-    XYSeries initResidPhase = new XYSeries("Percent error of with init. phase");
-    XYSeries fitResidMag = new XYSeries("Percent error of fit amplitude");
-    XYSeries fitResidPhase = new XYSeries("Percent error of with fit phase");
+    SeriesBuilder initResidMag = new SeriesBuilder("Percent error of init. amplitude", plotSize);
+    SeriesBuilder initResidPhase =
+        new SeriesBuilder("Percent error of with init. phase", plotSize);
+    SeriesBuilder fitResidMag = new SeriesBuilder("Percent error of fit amplitude", plotSize);
+    SeriesBuilder fitResidPhase = new SeriesBuilder("Percent error of with fit phase", plotSize);
 
     fitResponse = fitResponse.buildResponseFromFitVector(
         fitParams, isLowFrequencyCalibration, numZeros);
@@ -743,7 +903,9 @@ public class RandomizedExperiment extends Experiment {
 
     fireStateChange("Getting extended resp curves for high-freq plots...");
     // we use the apply response method here to get the full range of plotted data, not just fit
-    Complex[] init = initResponse.applyResponseToInputUnscaled(plottingFreqs);
+    // the initial response is the one loaded, which is unchanged between runs over the same data
+    Complex[] init =
+        ResponseCurveCache.getInstance().applyResponseToInputUnscaled(initResponse, plottingFreqs);
     Complex[] fit = fitResponse.applyResponseToInputUnscaled(plottingFreqs);
     double[] initialValues = new double[plottingFreqs.length * 2];
     double[] fitValues = new double[plottingFreqs.length * 2];
@@ -813,36 +975,53 @@ public class RandomizedExperiment extends Experiment {
     }
 
     XYSeriesCollection xysc = new XYSeriesCollection();
-    xysc.addSeries(initMag);
-    xysc.addSeries(calcMag);
-    xysc.addSeries(fitMag);
+    xysc.addSeries(initMag.build());
+    xysc.addSeries(calcMag.build());
+    xysc.addSeries(fitMag.build());
     xySeriesData.add(xysc);
 
     xysc = new XYSeriesCollection();
-    xysc.addSeries(initArg);
-    xysc.addSeries(calcArg);
-    xysc.addSeries(fitArg);
+    xysc.addSeries(initArg.build());
+    xysc.addSeries(calcArg.build());
+    xysc.addSeries(fitArg.build());
     xySeriesData.add(xysc);
 
     xysc = new XYSeriesCollection();
-    xysc.addSeries(initResidMag);
-    xysc.addSeries(fitResidMag);
+    xysc.addSeries(initResidMag.build());
+    xysc.addSeries(fitResidMag.build());
     xySeriesData.add(xysc);
 
     xysc = new XYSeriesCollection();
-    xysc.addSeries(initResidPhase);
-    xysc.addSeries(fitResidPhase);
+    xysc.addSeries(initResidPhase.build());
+    xysc.addSeries(fitResidPhase.build());
     xySeriesData.add(xysc);
   }
 
+  /**
+   * Estimate the error of each fitted pole and zero by a jackknife over the frequencies in the
+   * octave around that term's corner frequency: the term is refit with each of those frequencies
+   * left out in turn, and the error is three times the standard deviation of those refits.
+   * All of the leave-one-out fits (across every term) are independent, so they are run as
+   * concurrent tasks; each term's fits are collected in frequency order so the resulting error
+   * values do not depend on the order in which the tasks finish.
+   * @param observedResult Observed response curve (amplitude then phase) being fit against
+   * @param numZeros How many (paired) variables represent zeros (to determine first pole index)
+   * @param fitParams Best-fit values of the variables from the main solver
+   */
   private void constructErrorTerms(double[] observedResult, int numZeros, double[] fitParams) {
     int currentZeroIndex = 0; // where zero under analysis lies in the response
     int currentPoleIndex = 0; // as above for pole
 
-    LeastSquaresOptimizer optimizer;
-    LeastSquaresOptimizer.Optimum optimum; // Get error analysis for each pole/zero value
+    int numTerms = fitParams.length / 2;
+    int[] responseIndices = new int[numTerms];
+    double[][] termFreqs = new double[numTerms][];
+    double[][] termObserved = new double[numTerms][];
+    Complex[][] bestFits = new Complex[numTerms][];
+    // flattened (term, left-out frequency) pairs to fit, so all fits can be run at once
+    List<int[]> fitTasks = new ArrayList<>();
 
     for (int i = 0; i < fitParams.length; i += 2) {
+      int term = i / 2;
       boolean pole = i >= numZeros;
       Complex fitTerm = new Complex(fitParams[i], fitParams[i+1]);
       double corner = fitTerm.abs() / TAU;
@@ -850,88 +1029,56 @@ public class RandomizedExperiment extends Experiment {
       int lowIndex = FFTResult.getIndexOfFrequency(freqs, corner / Math.sqrt(2.));
       int highIndex = FFTResult.getIndexOfFrequency(freqs, Math.sqrt(2.) * corner);
 
-      double[] errorTermFreqsFull = Arrays.copyOfRange(freqs, lowIndex, highIndex);
-      double[] observedMagnitudeFull = Arrays.copyOfRange(observedResult, lowIndex, highIndex);
-      final int index;
+      termFreqs[term] = Arrays.copyOfRange(freqs, lowIndex, highIndex);
+      termObserved[term] = Arrays.copyOfRange(observedResult, lowIndex, highIndex);
+      bestFits[term] = new Complex[termFreqs[term].length];
       // we keep track of count so that we can have a 1:1 mapping between error terms and
       // listed p/z values in the
 
       if (pole) {
-        index = currentPoleIndex++; // return before incrementing
+        responseIndices[term] = currentPoleIndex++; // return before incrementing
         // increment again to skip over complex conjugate for nonzero imaginary terms
         if (fitTerm.getImaginary() != 0) {
           ++currentPoleIndex;
         }
       } else {
-        index = currentZeroIndex++; // again, return before incrementing
+        responseIndices[term] = currentZeroIndex++; // again, return before incrementing
         if (fitTerm.getImaginary() != 0) {
           ++currentZeroIndex;
         }
       }
 
-      List<Complex> bestFits = new ArrayList<>();
-      optimizer = new LevenbergMarquardtOptimizer().
-          withCostRelativeTolerance(1E-5).
-          withOrthoTolerance(1E-25).
-          withParameterRelativeTolerance(1E-5);
+      for (int j = 0; j < termFreqs[term].length; ++j) {
+        fitTasks.add(new int[]{term, j});
+      }
+    }
 
-      for (int j = 0; j < errorTermFreqsFull.length; ++j) {
-        String message = "Estimating error for variable" + (i/2 + 1) +  " of " +
-            fitParams.length/2 + " using frequency range " + (j + 1) + " of " +
-            errorTermFreqsFull.length;
+    final int totalFits = fitTasks.size();
+    final AtomicInteger completedFits = new AtomicInteger(0);
+    final AtomicInteger errorIterations = new AtomicInteger(0);
+
+    ComputeExecutor.getInstance().forEach("Randomized cal error terms", fitTasks, task -> {
+      checkCancelled();
+      int term = task[0];
+      int j = task[1];
+      bestFits[term][j] = fitErrorTerm(termFreqs[term], termObserved[term], j,
+          fitParams[2 * term], fitParams[2 * term + 1], responseIndices[term],
+          2 * term >= numZeros, numZeros, errorIterations);
+      int completed = completedFits.incrementAndGet();
+      String message = "Estimating error terms, completed fit " + completed + " of " + totalFits;
+      synchronized (this) {
         fireStateChange(message);
+      }
+    });
 
-        // get all but one frequency (and corresponding magnitude) term
-        final double[] errorTermFreqs = new double[errorTermFreqsFull.length - 1];
-        System.arraycopy(errorTermFreqsFull, 0, errorTermFreqs, 0, j);
-        if (j + 1 < errorTermFreqsFull.length) {
-          System.arraycopy(errorTermFreqsFull, j + 1,
-              errorTermFreqs, j, errorTermFreqs.length - j);
-        }
-        final double[] observedMagnitude = new double[errorTermFreqsFull.length - 1];
-        System.arraycopy(observedMagnitudeFull, 0, observedMagnitude, 0, j);
-        if (j + 1 < observedMagnitudeFull.length) {
-          System.arraycopy(observedMagnitudeFull, j + 1,
-              observedMagnitude, j, observedMagnitude.length - j);
-        }
-
-        MultivariateJacobianFunction errorJacobian = new MultivariateJacobianFunction() {
-          final double[] freqsSet = errorTermFreqs;
-          final int variableIndex = index;
-          final boolean isLowFrequency = isLowFrequencyCalibration;
-          final InstrumentResponse fitSet = fitResponse;
-
-          @Override
-          public Pair<RealVector, RealMatrix> value(final RealVector point) {
-            ++numIterations;
-            fireStateChange("Fitting, iteration count " + numIterations);
-            return errorJacobian(point, freqsSet, variableIndex, fitSet, isLowFrequency, pole);
-          }
-        };
-
-        RealVector initialError = MatrixUtils.createRealVector(
-            new double[]{fitParams[i], fitParams[i+1]});
-        RealVector observed = MatrixUtils.createRealVector(observedMagnitude);
-
-        LeastSquaresProblem errorLsq = new LeastSquaresBuilder().
-            start(initialError).
-            target(observed).
-            model(errorJacobian).
-            parameterValidator(new PoleValidator(numZeros)).
-            lazyEvaluation(false).
-            maxEvaluations(Integer.MAX_VALUE).
-            maxIterations(Integer.MAX_VALUE).
-            build();
-
-        optimum = optimizer.optimize(errorLsq);
-        RealVector errorVector = optimum.getPoint();
-        Complex c = new Complex(errorVector.getEntry(0), errorVector.getEntry(1));
-        bestFits.add(c);
-      } // end loop over frequency range (error term estimation for a given point)
+    numIterations += errorIterations.get();
 
+    for (int i = 0; i < fitParams.length; i += 2) {
+      int term = i / 2;
+      boolean pole = i >= numZeros;
+      Complex fitTerm = new Complex(fitParams[i], fitParams[i+1]);
       // now that we have a list of best-fit p/z over range, we get the standard deviation
-      Complex threeSigma =
-          getComplexSDev(bestFits.toArray(new Complex[]{})).multiply(3);
+      Complex threeSigma = getComplexSDev(bestFits[term]).multiply(3);
 
       if (pole) {
         poleErrors.put(fitTerm, threeSigma);
@@ -947,6 +1094,76 @@ public class RandomizedExperiment extends Experiment {
     }
   }
 
+  /**
+   * Run a single leave-one-out fit of a pole or zero for error term estimation. This does not
+   * modify any experiment state and so may be run concurrently with other such fits.
+   * @param errorTermFreqsFull Frequencies in the octave around the term's corner frequency
+   * @param observedMagnitudeFull Observed response values at those frequencies
+   * @param j Index of the frequency (and corresponding value) to leave out of this fit
+   * @param initialReal Real component of the term's best-fit value, used as the initial guess
+   * @param initialImag Imaginary component of the term's best-fit value
+   * @param index Index of the term in the fit response's list of poles or zeros
+   * @param pole True if the term is a pole
+   * @param numZeros How many (paired) variables represent zeros (to determine first pole index)
+   * @param iterations Counter of solver evaluations, incremented for each evaluation made here
+   * @return Best-fit value of the term with the given frequency left out
+   */
+  private Complex fitErrorTerm(double[] errorTermFreqsFull, double[] observedMagnitudeFull, int j,
+      double initialReal, double initialImag, int index, boolean pole, int numZeros,
+      AtomicInteger iterations) {
+
+    // get all but one frequency (and corresponding magnitude) term
+    final double[] errorTermFreqs = new double[errorTermFreqsFull.length - 1];
+    System.arraycopy(errorTermFreqsFull, 0, errorTermFreqs, 0, j);
+    if (j + 1 < errorTermFreqsFull.length) {
+      System.arraycopy(errorTermFreqsFull, j + 1,
+          errorTermFreqs, j, errorTermFreqs.length - j);
+    }
+    final double[] observedMagnitude = new double[errorTermFreqsFull.length - 1];
+    System.arraycopy(observedMagnitudeFull, 0, observedMagnitude, 0, j);
+    if (j + 1 < observedMagnitudeFull.length) {
+      System.arraycopy(observedMagnitudeFull, j + 1,
+          observedMagnitude, j, observedMagnitude.length - j);
+    }
+
+    MultivariateJacobianFunction errorJacobian = new MultivariateJacobianFunction() {
+      final double[] freqsSet = errorTermFreqs;
+      final int variableIndex = index;
+      final boolean isLowFrequency = isLowFrequencyCalibration;
+      final InstrumentResponse fitSet = fitResponse;
+
+      @Override
+      public Pair<RealVector, RealMatrix> value(final RealVector point) {
+        checkCancelled();
+        iterations.incrementAndGet();
+        return errorJacobian(point, freqsSet, variableIndex, fitSet, isLowFrequency, pole);
+      }
+    };
+
+    RealVector initialError = MatrixUtils.createRealVector(
+        new double[]{initialReal, initialImag});
+    RealVector observed = MatrixUtils.createRealVector(observedMagnitude);
+
+    LeastSquaresOptimizer optimizer = new LevenbergMarquardtOptimizer().
+        withCostRelativeTolerance(1E-5).
+        withOrthoTolerance(1E-25).
+        withParameterRelativeTolerance(1E-5);
+
+    LeastSquaresProblem errorLsq = new LeastSquaresBuilder().
+        start(initialError).
+        target(observed).
+        model(errorJacobian).
+        parameterValidator(new PoleValidator(numZeros)).
+        lazyEvaluation(false).
+        maxEvaluations(Integer.MAX_VALUE).
+        maxIterations(Integer.MAX_VALUE).
+        build();
+
+    LeastSquaresOptimizer.Optimum optimum = optimizer.optimize(errorLsq);
+    RealVector errorVector = optimum.getPoint();
+    return new Complex(errorVector.getEntry(0), errorVector.getEntry(1));
+  }
+
   @Override
   public int blocksNeeded() {
     return 2;
@@ -1137,6 +1354,43 @@ public class RandomizedExperiment extends Experiment {
     this.isCapacitive = isCapacitive;
   }
 
+  /**
+   * Set whether the solver should evaluate the columns of its forward-difference Jacobian
+   * concurrently. This produces the same fit as the serial evaluation (default false), but
+   * can greatly reduce the time spent fitting responses with many poles and zeros.
+   * @param parallelJacobian True if the Jacobian should be evaluated in parallel
+   */
+  public void setParallelJacobian(boolean parallelJacobian) {
+    this.parallelJacobian = parallelJacobian;
+  }
+
+  /**
+   * Get whether the solver's Jacobian is to be evaluated in parallel
+   * @return True if the Jacobian columns are evaluated concurrently
+   */
+  public boolean isParallelJacobian() {
+    return parallelJacobian;
+  }
+
+  /**
+   * Set whether the solver should calculate its Jacobian from the closed-form derivatives of the
+   * response's pole-zero expansion instead of by forward difference (default false). This takes
+   * precedence over the parallel Jacobian setting, which only applies to the forward difference.
+   * @param analyticJacobian True if the Jacobian should be calculated analytically
+   * @see #analyticJacobian(RealVector, double[], int, InstrumentResponse, boolean)
+   */
+  public void setAnalyticJacobian(boolean analyticJacobian) {
+    this.analyticJacobian = analyticJacobian;
+  }
+
+  /**
+   * Get whether the solver's Jacobian is to be calculated analytically
+   * @return True if the Jacobian is calculated from closed-form derivatives
+   */
+  public boolean isAnalyticJacobian() {
+    return analyticJacobian;
+  }
+
   /**
    * Set the new peak multiplier for the data region under analysis.
    * This should be a positive value, and is bounded by 0.8 (@see NumericUtils.PEAK_MULTIPLIER)
@@ -0,0 +1,195 @@
+package asl.sensor.experiment;
+
+import asl.utils.input.InstrumentResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import org.apache.commons.math3.complex.Complex;
+
+/**
+ * Least-recently-used cache of response curves (the result of
+ * {@link InstrumentResponse#applyResponseToInput(double[])} and its unscaled variant), shared by
+ * all experiments. The response experiment evaluates each response over 100,000 frequencies every
+ * time it is run, and other experiments plot the same loaded responses over the same frequencies
+ * from one run to the next, so those evaluations only need to be done once.
+ *
+ * Curves are identified by the content of the response that produced them (its poles, zeros,
+ * gain stages, normalization, units and transfer function, but not its name) and by the
+ * frequencies they were evaluated over. A response that is modified, or a copy of it that is fit
+ * to new parameters, is therefore never served a stale curve. Frequency arrays are compared by
+ * identity first and then by value, and are held by reference rather than copied, so they must
+ * not be modified after being passed in. The cache is bounded by the total number of points held.
+ *
+ * Callers receive their own copy of each cached curve, so it is safe to modify the result.
+ */
+final class ResponseCurveCache {
+
+  /**
+   * Capacity of the shared cache in points (enough for the response experiment's three curves
+   * along with those of several other experiments)
+   */
+  static final int DEFAULT_CAPACITY = 1 << 20;
+
+  private static ResponseCurveCache instance;
+
+  private final int capacity;
+  private final LinkedHashMap<Key, Complex[]> curves;
+  private int size;
+
+  /**
+   * Create a cache holding up to the given number of points
+   *
+   * @param capacity Maximum total length of the cached curves
+   */
+  ResponseCurveCache(int capacity) {
+    this.capacity = capacity;
+    curves = new LinkedHashMap<>(16, 0.75f, true);
+    size = 0;
+  }
+
+  /**
+   * Get the cache shared by all experiments, creating it if it does not yet exist
+   *
+   * @return Shared cache instance
+   */
+  static synchronized ResponseCurveCache getInstance() {
+    if (instance == null) {
+      instance = new ResponseCurveCache(DEFAULT_CAPACITY);
+    }
+    return instance;
+  }
+
+  /**
+   * Get the response curve over the given frequencies, evaluating it only if it is not cached
+   *
+   * @param response Response to evaluate
+   * @param freqs Frequencies to evaluate the response at, which must not be modified afterward
+   * @return Copy of the result of {@link InstrumentResponse#applyResponseToInput(double[])}
+   */
+  Complex[] applyResponseToInput(InstrumentResponse response, double[] freqs) {
+    return getCurve(response, freqs, true);
+  }
+
+  /**
+   * Get the unscaled response curve over the given frequencies, evaluating it only if it is not
+   * cached
+   *
+   * @param response Response to evaluate
+   * @param freqs Frequencies to evaluate the response at, which must not be modified afterward
+   * @return Copy of the result of
+   * {@link InstrumentResponse#applyResponseToInputUnscaled(double[])}
+   */
+  Complex[] applyResponseToInputUnscaled(InstrumentResponse response, double[] freqs) {
+    return getCurve(response, freqs, false);
+  }
+
+  /**
+   * Get the number of points currently held
+   *
+   * @return Total length of the cached curves
+   */
+  synchronized int getSize() {
+    return size;
+  }
+
+  /**
+   * Remove all curves from the cache
+   */
+  synchronized void clear() {
+    curves.clear();
+    size = 0;
+  }
+
+  private Complex[] getCurve(InstrumentResponse response, double[] freqs, boolean scaled) {
+    Key key = new Key(response, freqs, scaled);
+    Complex[] curve;
+    synchronized (this) {
+      curve = curves.get(key);
+    }
+    if (curve == null) {
+      // evaluated outside of the lock; two threads may both evaluate a new curve at once,
+      // which gives the same result either way
+      curve = scaled ?
+          response.applyResponseToInput(freqs) : response.applyResponseToInputUnscaled(freqs);
+      put(key, curve);
+    }
+    return curve.clone();
+  }
+
+  private synchronized void put(Key key, Complex[] curve) {
+    if (curve.length > capacity) {
+      return;
+    }
+    Complex[] previous = curves.put(key, curve.clone());
+    if (previous != null) {
+      size -= previous.length;
+    }
+    size += curve.length;
+
+    Iterator<Map.Entry<Key, Complex[]>> eldest = curves.entrySet().iterator();
+    while (size > capacity && eldest.hasNext()) {
+      size -= eldest.next().getValue().length;
+      eldest.remove();
+    }
+  }
+
+  /**
+   * Content of a response (everything that affects its curve) and the frequencies it is
+   * evaluated over
+   */
+  private static final class Key {
+
+    private final List<Complex> poles, zeros;
+    private final double[] gain;
+    private final double normalization, normalizationFrequency;
+    private final InstrumentResponse.Unit units;
+    private final InstrumentResponse.TransferFunction transferFunction;
+    private final int numStages;
+    private final double[] freqs;
+    private final boolean scaled;
+    private final int hash;
+
+    Key(InstrumentResponse response, double[] freqs, boolean scaled) {
+      // copied, as the response may be modified after its curve is cached
+      poles = new ArrayList<>(response.getPoles());
+      zeros = new ArrayList<>(response.getZeros());
+      gain = response.getGain().clone();
+      normalization = response.getNormalization();
+      normalizationFrequency = response.getNormalizationFrequency();
+      units = response.getUnits();
+      transferFunction = response.getTransferFunction();
+      numStages = response.getNumStages();
+      this.freqs = freqs;
+      this.scaled = scaled;
+      hash = Objects.hash(poles, zeros, Arrays.hashCode(gain), normalization,
+          normalizationFrequency, units, transferFunction, numStages, Arrays.hashCode(freqs),
+          scaled);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (this == other) {
+        return true;
+      }
+      if (!(other instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) other;
+      return hash == key.hash && scaled == key.scaled && numStages == key.numStages &&
+          Double.compare(normalization, key.normalization) == 0 &&
+          Double.compare(normalizationFrequency, key.normalizationFrequency) == 0 &&
+          units == key.units && transferFunction == key.transferFunction &&
+          poles.equals(key.poles) && zeros.equals(key.zeros) && Arrays.equals(gain, key.gain) &&
+          (freqs == key.freqs || Arrays.equals(freqs, key.freqs));
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+}
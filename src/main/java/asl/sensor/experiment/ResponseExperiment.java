@@ -11,7 +11,6 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Set;
 import org.apache.commons.math3.complex.Complex;
-import org.jfree.data.xy.XYSeries;
 import org.jfree.data.xy.XYSeriesCollection;
 
 /**
@@ -28,6 +27,12 @@ public class ResponseExperiment extends Experiment {
   public static final String MAGNITUDE = "Amplitude";
   public static final String ARGUMENT = "Phase";
 
+  /**
+   * Frequencies response curves are plotted over. These are fixed, so they are only calculated
+   * once, and the curves for a given response are cached across runs (see ResponseCurveCache).
+   */
+  private static final double[] FREQUENCIES = getFrequencies();
+
   private boolean freqSpace; // choose between units of Hz or seconds (time between samples)
 
   private Set<InstrumentResponse> responses;
@@ -42,23 +47,7 @@ public class ResponseExperiment extends Experiment {
 
     responses = new HashSet<>();
 
-    double lowFreq = .0001;
-    double highFreq = 200;
-
-    int pointCount = 100000;
-    double linearChange = (highFreq - lowFreq) / pointCount;
-    // find logarithmic parameters for linear components
-    double b = Math.log10(lowFreq / highFreq) / (lowFreq - highFreq);
-    double a = lowFreq / Math.pow(10, b * lowFreq);
-
-    // hard-code length here because the limits of the calculated range are fixed
-    double[] freqArray = new double[pointCount];
-
-    double currentFreq = lowFreq;
-    for (int i = 0; i < freqArray.length; ++i) {
-      freqArray[i] = currentFreq;
-      currentFreq = a * Math.pow(10, b * (i * linearChange));
-    }
+    double[] freqArray = FREQUENCIES;
 
     // used to prevent issues with duplicate response plotting / XYSeries names
     Set<String> respNames = new HashSet<>();
@@ -82,11 +71,12 @@ public class ResponseExperiment extends Experiment {
         responses.add(instrumentResponse);
       }
 
-      Complex[] result = instrumentResponse.applyResponseToInput(freqArray);
+      Complex[] result =
+          ResponseCurveCache.getInstance().applyResponseToInput(instrumentResponse, freqArray);
 
       double phiPrev = 0; // use with unwrapping
-      XYSeries magnitude = new XYSeries(name);
-      XYSeries argument = new XYSeries(name);
+      SeriesBuilder magnitude = new SeriesBuilder(name, freqArray.length);
+      SeriesBuilder argument = new SeriesBuilder(name, freqArray.length);
       for (int i = 0; i < freqArray.length; ++i) {
         Complex tmp = result[i];
         double phi = atanc(tmp);
@@ -102,8 +92,8 @@ public class ResponseExperiment extends Experiment {
         argument.add(xVal, phi);
       }
 
-      mags.addSeries(magnitude);
-      args.addSeries(argument);
+      mags.addSeries(magnitude.build());
+      args.addSeries(argument.build());
 
     }
 
@@ -114,6 +104,27 @@ public class ResponseExperiment extends Experiment {
 
   }
 
+  private static double[] getFrequencies() {
+    double lowFreq = .0001;
+    double highFreq = 200;
+
+    int pointCount = 100000;
+    double linearChange = (highFreq - lowFreq) / pointCount;
+    // find logarithmic parameters for linear components
+    double b = Math.log10(lowFreq / highFreq) / (lowFreq - highFreq);
+    double a = lowFreq / Math.pow(10, b * lowFreq);
+
+    // hard-code length here because the limits of the calculated range are fixed
+    double[] freqArray = new double[pointCount];
+
+    double currentFreq = lowFreq;
+    for (int i = 0; i < freqArray.length; ++i) {
+      freqArray[i] = currentFreq;
+      currentFreq = a * Math.pow(10, b * (i * linearChange));
+    }
+    return freqArray;
+  }
+
   @Override
   public int blocksNeeded() {
     return 0;
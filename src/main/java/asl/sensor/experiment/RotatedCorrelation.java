@@ -0,0 +1,128 @@
+package asl.sensor.experiment;
+
+import static asl.utils.TimeSeriesUtils.rotate;
+
+/**
+ * Calculates the correlation between a reference timeseries and a pair of orthogonal (north and
+ * east) timeseries rotated by an arbitrary angle, without producing the rotated data.
+ * Since the rotated data is a linear combination of the north and east components
+ * (a * N + b * E, with a and b depending only on the angle), its covariance with the reference and
+ * its variance follow from the (co)variances of the input data. These are calculated once on
+ * construction, after which each evaluation of the correlation (or its derivative with respect to
+ * the angle) takes constant time and does not allocate memory, regardless of the length of data.
+ * This is used by the azimuth solver (and by extension the orthogonality, nine-input self-noise,
+ * and six-input gain experiments that use it to find sensor orientations), where the correlation
+ * is evaluated at many angles over the same data.
+ *
+ * The result is equivalent (up to rounding error) to the Pearson's correlation of the reference
+ * data with the result of {@link asl.utils.TimeSeriesUtils#rotate(double[], double[], double)}.
+ */
+final class RotatedCorrelation {
+
+  /**
+   * Sign of the east component's contribution to the rotated signal, relative to the sine of the
+   * angle. This is taken from the rotation function itself so that this class is guaranteed to
+   * use the same rotation convention.
+   */
+  private static final double EAST_SIGN =
+      Math.signum(rotate(new double[]{0.}, new double[]{1.}, Math.PI / 2)[0]);
+
+  private final double northVariance, eastVariance, northEastCovariance;
+  private final double refNorthCovariance, refEastCovariance;
+  private final double refDeviation;
+
+  /**
+   * Calculate the sufficient statistics for correlation of the given data.
+   * All data is expected to be the same length.
+   *
+   * @param refNorth Reference sensor data, facing north
+   * @param testNorth Test sensor data, facing approximately north
+   * @param testEast Test sensor data, facing approximately east and orthogonal to testNorth
+   */
+  RotatedCorrelation(double[] refNorth, double[] testNorth, double[] testEast) {
+    int length = refNorth.length;
+
+    double refMean = 0., northMean = 0., eastMean = 0.;
+    for (int i = 0; i < length; ++i) {
+      refMean += refNorth[i];
+      northMean += testNorth[i];
+      eastMean += testEast[i];
+    }
+    refMean /= length;
+    northMean /= length;
+    eastMean /= length;
+
+    // sums of products of the centered data; the 1/n normalization cancels out in correlation
+    double refRef = 0., northNorth = 0., eastEast = 0., northEast = 0.;
+    double refNorthSum = 0., refEastSum = 0.;
+    for (int i = 0; i < length; ++i) {
+      double ref = refNorth[i] - refMean;
+      double north = testNorth[i] - northMean;
+      double east = testEast[i] - eastMean;
+      refRef += ref * ref;
+      northNorth += north * north;
+      eastEast += east * east;
+      northEast += north * east;
+      refNorthSum += ref * north;
+      refEastSum += ref * east;
+    }
+
+    northVariance = northNorth;
+    eastVariance = eastEast;
+    northEastCovariance = northEast;
+    refNorthCovariance = refNorthSum;
+    refEastCovariance = refEastSum;
+    refDeviation = Math.sqrt(refRef);
+  }
+
+  /**
+   * Get the correlation of the reference data and the test data rotated by the given angle
+   *
+   * @param theta Angle of rotation (radians)
+   * @return Pearson's correlation of the reference and rotated data
+   */
+  double correlation(double theta) {
+    double northScale = Math.cos(theta);
+    double eastScale = EAST_SIGN * Math.sin(theta);
+    double covariance = northScale * refNorthCovariance + eastScale * refEastCovariance;
+    double variance = rotatedVariance(northScale, eastScale);
+    return covariance / (refDeviation * Math.sqrt(variance));
+  }
+
+  /**
+   * Get the derivative, with respect to the angle, of the correlation of the reference data and
+   * the test data rotated by the given angle
+   *
+   * @param theta Angle of rotation (radians)
+   * @return Derivative of {@link #correlation(double)} at the given angle
+   */
+  double derivative(double theta) {
+    double northScale = Math.cos(theta);
+    double eastScale = EAST_SIGN * Math.sin(theta);
+    // derivatives of the scale factors with respect to theta
+    double northScaleDelta = -Math.sin(theta);
+    double eastScaleDelta = EAST_SIGN * Math.cos(theta);
+
+    double covariance = northScale * refNorthCovariance + eastScale * refEastCovariance;
+    double covarianceDelta =
+        northScaleDelta * refNorthCovariance + eastScaleDelta * refEastCovariance;
+    double variance = rotatedVariance(northScale, eastScale);
+    double varianceDelta = 2 * (northScale * northScaleDelta * northVariance
+        + (northScaleDelta * eastScale + northScale * eastScaleDelta) * northEastCovariance
+        + eastScale * eastScaleDelta * eastVariance);
+
+    // quotient rule on covariance / sqrt(variance), with reference deviation as a constant
+    return (covarianceDelta * variance - covariance * varianceDelta / 2)
+        / (refDeviation * variance * Math.sqrt(variance));
+  }
+
+  /**
+   * Variance (unnormalized) of the rotated signal northScale * N + eastScale * E
+   */
+  private double rotatedVariance(double northScale, double eastScale) {
+    return northScale * northScale * northVariance
+        + 2 * northScale * eastScale * northEastCovariance
+        + eastScale * eastScale * eastVariance;
+  }
+
+}
@@ -0,0 +1,116 @@
+package asl.sensor.experiment;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import org.jfree.data.xy.XYSeries;
+
+/**
+ * Collects the points of a plot into primitive arrays and builds the (x-sorted) XYSeries for them
+ * all at once. Adding points to an XYSeries one at a time inserts each at its sorted position,
+ * which for data added in descending order of x (i.e., response curves and PSDs plotted in
+ * period space, where x is 1 / frequency) means inserting at the front of the series each time,
+ * taking time quadratic in the number of points. Here the points are put into ascending order
+ * first (reversing data that was added in descending order, sorting only if it was in neither),
+ * so that building the series appends every point to its end.
+ *
+ * Points with equal x values keep the order they were added in, as with XYSeries.
+ */
+final class SeriesBuilder {
+
+  private final Comparable<?> key;
+  private double[] xValues;
+  private double[] yValues;
+  private int size;
+  private boolean ascending, descending; // whether the x values added so far are in that order
+
+  /**
+   * Create a builder for a series
+   *
+   * @param key Name of the series
+   * @param expectedSize Number of points the series is expected to have
+   */
+  SeriesBuilder(Comparable<?> key, int expectedSize) {
+    this.key = key;
+    xValues = new double[Math.max(expectedSize, 1)];
+    yValues = new double[xValues.length];
+    size = 0;
+    ascending = true;
+    descending = true;
+  }
+
+  /**
+   * Add a point to the series
+   *
+   * @param x Domain value of the point
+   * @param y Range value of the point
+   */
+  void add(double x, double y) {
+    if (size == xValues.length) {
+      xValues = Arrays.copyOf(xValues, size * 2);
+      yValues = Arrays.copyOf(yValues, size * 2);
+    }
+    if (size > 0) {
+      double previous = xValues[size - 1];
+      ascending &= previous <= x;
+      descending &= previous >= x;
+    }
+    xValues[size] = x;
+    yValues[size] = y;
+    ++size;
+  }
+
+  /**
+   * @return Number of points added to the series
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Build the series from the points added so far
+   *
+   * @return Series of the points, sorted by x value
+   */
+  XYSeries build() {
+    XYSeries series = new XYSeries(key);
+    addTo(series);
+    return series;
+  }
+
+  /**
+   * Add the points added so far to an existing series, in ascending order of x value
+   *
+   * @param series Series to add the points to
+   */
+  void addTo(XYSeries series) {
+    if (ascending) {
+      for (int i = 0; i < size; ++i) {
+        series.add(xValues[i], yValues[i], false);
+      }
+    } else if (descending) {
+      // walk backwards over runs of equal x values, keeping each run in the order it was added
+      int runEnd = size - 1;
+      while (runEnd >= 0) {
+        int runStart = runEnd;
+        while (runStart > 0 && xValues[runStart - 1] == xValues[runEnd]) {
+          --runStart;
+        }
+        for (int i = runStart; i <= runEnd; ++i) {
+          series.add(xValues[i], yValues[i], false);
+        }
+        runEnd = runStart - 1;
+      }
+    } else {
+      // sort is stable, so points with equal x values stay in the order they were added
+      Integer[] order = new Integer[size];
+      for (int i = 0; i < size; ++i) {
+        order[i] = i;
+      }
+      Arrays.sort(order, Comparator.comparingDouble(i -> xValues[i]));
+      for (int i : order) {
+        series.add(xValues[i], yValues[i], false);
+      }
+    }
+    series.fireSeriesChanged();
+  }
+}
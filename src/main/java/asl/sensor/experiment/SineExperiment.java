@@ -75,8 +75,9 @@ public class SineExperiment extends Experiment {
     outSDev = 0.;
     peakPeakFreq = 0.;
 
-    double[] calTimeSeries = dataStore.getBlock(0).getData().clone();
-    double[] outTimeSeries = dataStore.getBlock(1).getData().clone();
+    // copied, as the data is demeaned below
+    double[] calTimeSeries = dataStore.getView(0).toArray();
+    double[] outTimeSeries = dataStore.getView(1).toArray();
 
     dataNames.add(dataStore.getBlock(0).getName());
     dataNames.add(dataStore.getBlock(1).getName());
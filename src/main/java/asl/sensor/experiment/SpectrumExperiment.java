@@ -1,7 +1,9 @@
 package asl.sensor.experiment;
 
+import asl.sensor.input.CrossSpectralMatrix;
 import asl.sensor.input.DataStore;
 import asl.utils.FFTResult;
+import org.jfree.data.xy.XYSeries;
 import org.jfree.data.xy.XYSeriesCollection;
 
 /**
@@ -79,9 +81,16 @@ public class SpectrumExperiment extends Experiment {
     fireStateChange("Getting PSDs of each series...");
 
     // gets the PSDs of each given index for given freqSpace
-    for (int index : respIndices) {
-      fireStateChange("Getting PSDs of data " + index + "...");
-      addToPlot(dataStore, freqSpace, index, plotTimeseries);
+    if (respIndices.length > 0) {
+      CrossSpectralMatrix spectralMatrix =
+          dataStore.getSpectralMatrix(respIndices, Integer.MAX_VALUE, false);
+      for (int i = 0; i < respIndices.length; ++i) {
+        int index = respIndices[i];
+        XYSeries powerSeries =
+            new XYSeries("PSD " + dataStore.getBlock(index).getName() + " [" + index + "]");
+        FFTResult psd = spectralMatrix.getResult(i, i);
+        addToPlot(powerSeries, psd.getFFT(), psd.getFreqs(), freqSpace, plotTimeseries);
+      }
     }
 
     plotTimeseries.addSeries(FFTResult.getLowNoiseModel(freqSpace));
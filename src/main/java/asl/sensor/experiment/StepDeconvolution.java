@@ -0,0 +1,291 @@
+package asl.sensor.experiment;
+
+import org.apache.commons.math3.complex.Complex;
+import org.apache.commons.math3.transform.DftNormalization;
+import org.apache.commons.math3.transform.FastFourierTransformer;
+import org.apache.commons.math3.transform.TransformType;
+
+/**
+ * Removes a two-pole response (given by its corner frequency and damping) from the FFT of a step
+ * calibration's sensor output and returns the result to time space. This is the core of each
+ * evaluation of the step experiment's fit, which for high sample-rate data covers FFTs of millions
+ * of points.
+ *
+ * The FFT is held as primitive arrays of real and imaginary parts, and the response, the
+ * deconvolved FFT, and its inverse are all calculated in scratch arrays owned by this object.
+ * Repeated evaluations therefore don't create any Complex objects or new arrays beyond the output
+ * the caller provides. Because of this, an instance must not be used by more than one thread at a
+ * time. The angular frequency of each point of the FFT (and its inverse) is calculated once on
+ * construction and shared by all evaluations, including the fit's Bode plots
+ * (see {@link #replacePoles(Complex[], Complex, Complex, Complex, Complex)}).
+ *
+ * The result is equivalent (up to rounding error) to applying
+ * {@link StepExperiment#setWaterLevel(Complex[])} to the response, multiplying it with the sensor
+ * FFT, and inverting that with {@link asl.utils.FFTResult#singleSidedInverseFFT(Complex[], int)}.
+ *
+ * The derivatives of the deconvolved timeseries with respect to the corner and damping can also be
+ * calculated in closed form. The inverse of the two-pole response is
+ * (s - p1) * (s - p2) / s = s + 2 * h * w0 + w0^2 / s, where s = i * w and w0 = 2 * pi * f,
+ * so its derivative with respect to h is 2 * w0 and with respect to f is
+ * 2 * pi * (2 * h + 2 * w0 / s); these are multiplied with the sensor FFT and inverted the same
+ * way as the deconvolution itself.
+ */
+final class StepDeconvolution {
+
+  /**
+   * Scale of the water level relative to the peak of the response (-600dB)
+   */
+  private static final double WATER_LEVEL = 1E-30;
+
+  /**
+   * Parameter to get the derivative with respect to: corner frequency
+   */
+  static final int CORNER = 0;
+  /**
+   * Parameter to get the derivative with respect to: damping
+   */
+  static final int DAMPING = 1;
+
+  private final double[] fftReal, fftImag; // single-sided FFT of the sensor output
+  private final double[] omega; // angular frequency of each point of the FFT
+  private final double[] inverseOmega; // inverse of angular frequency (except at zero frequency)
+  private final double[] magnitudes; // scratch space for magnitude of response at each frequency
+  private final double[][] transform; // scratch space for full two-sided FFT as {real, imag}
+
+  /**
+   * Create the deconvolution of a sensor's output
+   *
+   * @param sensorFFT Single-sided FFT of the sensor output; the full FFT it is taken from must
+   * have a power-of-two length (i.e., the single-sided length is a power of two plus one)
+   * @param freqs Frequencies of each point of the FFT
+   */
+  StepDeconvolution(Complex[] sensorFFT, double[] freqs) {
+    int length = sensorFFT.length;
+    fftReal = new double[length];
+    fftImag = new double[length];
+    omega = new double[length];
+    inverseOmega = new double[length];
+    for (int i = 0; i < length; ++i) {
+      fftReal[i] = sensorFFT[i].getReal();
+      fftImag[i] = sensorFFT[i].getImaginary();
+      omega[i] = 2 * Math.PI * freqs[i];
+      inverseOmega[i] = omega[i] == 0. ? 0. : 1. / omega[i];
+    }
+    magnitudes = new double[length];
+    int padding = (length - 1) * 2;
+    transform = new double[2][padding];
+  }
+
+  /**
+   * Create a deconvolution of the same sensor output as another, with its own scratch space so
+   * that the two can be evaluated on different threads at once
+   *
+   * @param source Deconvolution to share the sensor output with
+   */
+  StepDeconvolution(StepDeconvolution source) {
+    fftReal = source.fftReal;
+    fftImag = source.fftImag;
+    omega = source.omega;
+    inverseOmega = source.inverseOmega;
+    magnitudes = new double[source.magnitudes.length];
+    transform = new double[2][source.transform[0].length];
+  }
+
+  /**
+   * Deconvolve the response with the given corner and damping from the sensor output, writing
+   * part of the resulting timeseries to the output array. All scratch space is reused between
+   * calls.
+   *
+   * @param f Corner frequency of the response (Hz)
+   * @param h Damping of the response
+   * @param output Array to write the timeseries to, which is filled from its start
+   * @param offset Index in the timeseries of the first point to write
+   */
+  void deconvolve(double f, double h, double[] output, int offset) {
+    double[] real = transform[0];
+    double[] imag = transform[1];
+    int length = fftReal.length;
+    fillInverseResponse(f, h);
+
+    // deconvolving the response from the sensor output is multiplication by its inverse
+    for (int i = 0; i < length; ++i) {
+      double respReal = real[i];
+      double respImag = imag[i];
+      real[i] = fftReal[i] * respReal - fftImag[i] * respImag;
+      imag[i] = fftReal[i] * respImag + fftImag[i] * respReal;
+    }
+
+    int lastIdx = length - 1;
+    real[lastIdx] = abs(real[lastIdx], imag[lastIdx]);
+    imag[lastIdx] = 0.;
+
+    inverseTransform(output, offset);
+  }
+
+  /**
+   * Get the derivative of the deconvolved timeseries (as given by
+   * {@link #deconvolve(double, double, double[], int)}) with respect to the corner or damping.
+   * Frequencies where the response is below the water level are treated as having no
+   * derivative, as their (capped) inverse is independent of the parameters up to rounding.
+   *
+   * @param f Corner frequency of the response (Hz)
+   * @param h Damping of the response
+   * @param parameter Parameter to get the derivative with respect to, {@link #CORNER} or
+   * {@link #DAMPING}
+   * @param output Array to write the derivative to, which is filled from its start
+   * @param offset Index in the timeseries of the first point to write
+   */
+  void deconvolveDerivative(double f, double h, int parameter, double[] output, int offset) {
+    double[] real = transform[0];
+    double[] imag = transform[1];
+    int length = fftReal.length;
+    double omegaZero = 2 * Math.PI * f;
+    double scaleBy = fillInverseResponse(f, h);
+
+    double lastReal = 0.;
+    double lastImag = 0.;
+    for (int i = 0; i < length; ++i) {
+      double respReal = real[i];
+      double respImag = imag[i];
+
+      // derivative of the inverse response
+      double diffReal;
+      double diffImag;
+      if (i == 0 || magnitudes[i] < scaleBy) {
+        diffReal = 0.;
+        diffImag = 0.;
+      } else if (parameter == DAMPING) {
+        diffReal = 2 * omegaZero;
+        diffImag = 0.;
+      } else {
+        diffReal = 2 * Math.PI * 2 * h;
+        diffImag = -2 * Math.PI * 2 * omegaZero * inverseOmega[i];
+      }
+
+      if (i == length - 1) {
+        lastReal = fftReal[i] * respReal - fftImag[i] * respImag;
+        lastImag = fftReal[i] * respImag + fftImag[i] * respReal;
+      }
+      real[i] = fftReal[i] * diffReal - fftImag[i] * diffImag;
+      imag[i] = fftReal[i] * diffImag + fftImag[i] * diffReal;
+    }
+
+    // the deconvolution's last point is the magnitude of the product there,
+    // whose derivative is Re(conj(p) * dp) / |p|
+    int lastIdx = length - 1;
+    double lastAbs = abs(lastReal, lastImag);
+    if (lastAbs > 0.) {
+      real[lastIdx] = (lastReal * real[lastIdx] + lastImag * imag[lastIdx]) / lastAbs;
+    } else {
+      real[lastIdx] = 0.;
+    }
+    imag[lastIdx] = 0.;
+
+    inverseTransform(output, offset);
+  }
+
+  /**
+   * Get the response of a fit with the first two poles of a response replaced, given that
+   * response's curve over the frequencies of the FFT. Since only those poles differ, the new
+   * curve is the old one multiplied by (s - p1) * (s - p2) / ((s - q1) * (s - q2)), which is
+   * calculated from the cached angular frequencies rather than evaluating the full response again.
+   * Poles are expected to be in units of rad/s.
+   *
+   * @param curve Response curve over the FFT's frequencies (i.e., from
+   * {@link asl.utils.input.InstrumentResponse#applyResponseToInput(double[])})
+   * @param oldPole1 First pole of the response the curve was calculated from
+   * @param oldPole2 Second pole of the response the curve was calculated from
+   * @param newPole1 First pole of the fit response
+   * @param newPole2 Second pole of the fit response
+   * @return Response curve of the fit over the FFT's frequencies
+   */
+  Complex[] replacePoles(Complex[] curve, Complex oldPole1, Complex oldPole2, Complex newPole1,
+      Complex newPole2) {
+    Complex[] result = new Complex[curve.length];
+    for (int i = 0; i < curve.length; ++i) {
+      Complex s = new Complex(0., omega[i]);
+      Complex numerator = s.subtract(oldPole1).multiply(s.subtract(oldPole2));
+      Complex denominator = s.subtract(newPole1).multiply(s.subtract(newPole2));
+      result[i] = curve[i].multiply(numerator).divide(denominator);
+    }
+    return result;
+  }
+
+  /**
+   * Fill the positive-frequency half of the scratch space with the inverse of the two-pole
+   * response, with the water level applied, and the magnitudes array with the magnitude of the
+   * response itself. With s = i*w, the inverse of the response s / ((s - p1) * (s - p2)) is
+   * 2 * h * w0 + i * (w - w0^2 / w), so no division is needed beyond the cached 1 / w.
+   *
+   * @return Water level of the response
+   */
+  private double fillInverseResponse(double f, double h) {
+    double[] real = transform[0];
+    double[] imag = transform[1];
+    int length = fftReal.length;
+    double omegaZero = 2 * Math.PI * f;
+    double omegaZeroSquared = omegaZero * omegaZero;
+    double inverseReal = 2 * h * omegaZero;
+
+    // don't let denominator be zero
+    real[0] = 1.;
+    imag[0] = 0.;
+    magnitudes[0] = 1.;
+    double max = 1.;
+    double min = 1.;
+    for (int i = 1; i < length; ++i) {
+      real[i] = inverseReal;
+      imag[i] = omega[i] - omegaZeroSquared * inverseOmega[i];
+      double magnitude = 1. / abs(real[i], imag[i]);
+      magnitudes[i] = magnitude;
+      max = Math.max(max, magnitude);
+      min = Math.min(min, magnitude);
+    }
+
+    // scale up responses below the water level to it (see StepExperiment.setWaterLevel),
+    // which is only needed if any are below it
+    double scaleBy = max * WATER_LEVEL;
+    if (min < scaleBy) {
+      for (int i = 1; i < length; ++i) {
+        if (magnitudes[i] < scaleBy) {
+          real[i] *= magnitudes[i] / scaleBy;
+          imag[i] *= magnitudes[i] / scaleBy;
+        }
+      }
+    }
+    return scaleBy;
+  }
+
+  /**
+   * Fill in the negative frequencies of the scratch space with the conjugate of the positive
+   * ones, return the data to time space, and copy part of it to the output
+   */
+  private void inverseTransform(double[] output, int offset) {
+    double[] real = transform[0];
+    double[] imag = transform[1];
+    int padding = real.length;
+    for (int i = 1; i < padding / 2; ++i) {
+      real[padding - i] = real[i];
+      imag[padding - i] = -imag[i];
+    }
+
+    FastFourierTransformer.transformInPlace(transform, DftNormalization.STANDARD,
+        TransformType.INVERSE);
+    System.arraycopy(real, offset, output, 0, output.length);
+  }
+
+  /**
+   * Magnitude of a complex number, calculated as in {@link Complex#abs()} to avoid overflow
+   */
+  private static double abs(double real, double imag) {
+    if (Math.abs(real) < Math.abs(imag)) {
+      double q = real / imag;
+      return Math.abs(imag) * Math.sqrt(1 + q * q);
+    }
+    if (real == 0.) {
+      return Math.abs(imag);
+    }
+    double q = imag / real;
+    return Math.abs(real) * Math.sqrt(1 + q * q);
+  }
+}
@@ -10,6 +10,7 @@ import static asl.utils.NumericUtils.unwrap;
 import static org.apache.commons.math3.linear.MatrixUtils.createRealMatrix;
 import static org.apache.commons.math3.linear.MatrixUtils.createRealVector;
 
+import asl.sensor.ComputeExecutor;
 import asl.sensor.input.DataStore;
 import asl.utils.FFTResult;
 import asl.utils.input.DataBlock;
@@ -70,11 +71,16 @@ public class StepExperiment extends Experiment {
   private double initResid, fitResid; // residual values
   private int trimmedLength, cutAmount;
   private double[] freqs; // frequency (i.e., x-axis values) of step cal FFT series
-  private Complex[] sensorFFTSeries; // FFT of step cal from sensor
+  // remove response from FFT of step cal from sensor; one per concurrent Jacobian column
+  private StepDeconvolution[] deconvolutions;
   private int sensorOutIdx; // used to keep track of response location for report generation
+  private boolean parallelJacobian; // true if jacobian columns are evaluated concurrently
+  private boolean analyticJacobian; // true if jacobian is calculated from closed-form derivatives
 
   public StepExperiment() {
     super();
+    parallelJacobian = false;
+    analyticJacobian = false;
   }
 
   @Override
@@ -214,8 +220,7 @@ public class StepExperiment extends Experiment {
         FFTResult.
             singleSidedFilteredFFT(sensorOutput, needsFlip);
     // these values used in calculating the response deconvolution
-    sensorFFTSeries = sensorsFFT.getFFT();
-    freqs = sensorsFFT.getFreqs();
+    setSensorFFT(sensorsFFT.getFFT(), sensorsFFT.getFreqs(), cutAmount, trimmedLength);
     // calculate method applies the current f, h value to the FFT (removes response),
     // inverts the FFT back into time space, and then does additional filtering on the result
     // (i.e., lowpass, demean, normalize)
@@ -250,7 +255,7 @@ public class StepExperiment extends Experiment {
     LeastSquaresProblem lsp = new LeastSquaresBuilder().
         start(startVector).
         target(observedComponents).
-        model(this::jacobian).
+        model(cancellable(this::jacobian)).
         lazyEvaluation(false).
         maxEvaluations(Integer.MAX_VALUE).
         maxIterations(Integer.MAX_VALUE).
@@ -304,21 +309,19 @@ public class StepExperiment extends Experiment {
     Complex p2 = new Complex(hCorr, -1 * Math.sqrt(1 - Math.pow(hCorr, 2)));
     p2 = p2.multiply(-1 * TAU * fCorr);
 
-    InstrumentResponse fitResp = new InstrumentResponse(ir);
-    List<Complex> poles = fitResp.getPoles();
-    poles.set(0, p1);
-    poles.set(1, p2);
-    fitResp.setPoles(poles);
-    fitResp.setName(fitResp.getName() + " [FIT]");
+    String fitName = ir.getName() + " [FIT]";
 
     // go ahead and plot magnitude and phase of data
-    Complex[] inputCurve = ir.applyResponseToInput(freqs);
-    Complex[] fitCurve = fitResp.applyResponseToInput(freqs);
+    // the fit response only differs in its first two poles, so its curve is derived from the input
+    Complex[] inputCurve = ResponseCurveCache.getInstance().applyResponseToInput(ir, freqs);
+    List<Complex> inputPoles = ir.getPoles();
+    Complex[] fitCurve = deconvolutions[0].replacePoles(inputCurve, inputPoles.get(0),
+        inputPoles.get(1), p1, p2);
 
     XYSeries inMag = new XYSeries(ir.getName() + " " + " magnitude");
     XYSeries inPhase = new XYSeries(ir.getName() + " " + " phase");
-    XYSeries fitMag = new XYSeries(fitResp.getName() + " " + " magnitude");
-    XYSeries fitPhase = new XYSeries(fitResp.getName() + " " + " phase");
+    XYSeries fitMag = new XYSeries(fitName + " " + " magnitude");
+    XYSeries fitPhase = new XYSeries(fitName + " " + " phase");
 
     double phiPrevIn = .0;
     double phiPrevFit = .0;
@@ -367,6 +370,27 @@ public class StepExperiment extends Experiment {
     return 2;
   }
 
+  /**
+   * Set the sensor output FFT that the fit deconvolves its response from, along with the range
+   * of the inverted timeseries that is compared to the step calibration
+   *
+   * @param sensorFFT Single-sided FFT of the sensor output
+   * @param freqs Frequencies of each point of the FFT
+   * @param cutAmount Index of the first point of the inverted timeseries to use
+   * @param trimmedLength Number of points of the inverted timeseries to use
+   */
+  void setSensorFFT(Complex[] sensorFFT, double[] freqs, int cutAmount, int trimmedLength) {
+    this.freqs = freqs;
+    this.cutAmount = cutAmount;
+    this.trimmedLength = trimmedLength;
+    // the Jacobian evaluates the fit function and one column per parameter (corner, damping)
+    deconvolutions = new StepDeconvolution[parallelJacobian ? 3 : 1];
+    deconvolutions[0] = new StepDeconvolution(sensorFFT, freqs);
+    for (int i = 1; i < deconvolutions.length; ++i) {
+      deconvolutions[i] = new StepDeconvolution(deconvolutions[0]);
+    }
+  }
+
   /**
    * Does the deconvolution of the response calculated from the corner freq. (f)
    * and damping (h) parameters passed in
@@ -375,71 +399,26 @@ public class StepExperiment extends Experiment {
    * @return The timeseries resulting from deconvolution of the calculated
    * response from the sensor-input timeseries (done in frequency space)
    */
-  private double[] calculate(double[] params) {
-
-    // the original length of the timeseries data we've gotten the FFT of
-    int inverseTrim = trimmedLength + 2 * cutAmount;
-    // the upper bound on the returned data (trimmed length plus amount cut from start as offset)
-    int upperBound = trimmedLength + cutAmount;
-
-    // use these terms to calculate the poles
-    double f = params[0];
-    double h = params[1];
-
-    // term inside the square root in the calculations of p1, p2
-    // (h^2-1)
-    Complex tempResult = new Complex(Math.pow(h, 2) - 1);
-
-    double omega = 2 * Math.PI * f; // omega_0
-
-    // casting h as a complex number to enable these calculations
-    Complex hCast = new Complex(h);
-
-    // - (h + sqrt(h^2-1))
-    Complex pole1 = hCast.add(tempResult.sqrt()).multiply(-1);
-    pole1 = pole1.multiply(omega);
-    // cannot modify complex numbers "in-place"; they MUST be (re)assigned
-
-    // - (h - sqrt(h^2-1))
-    Complex pole2 = hCast.subtract(tempResult.sqrt()).multiply(-1);
-    pole2 = pole2.multiply(omega);
-
-    // calculate the FFT of the response
-    // recall that sensorFFTSeries is the FFT of the sensor output from the step signal
-    Complex[] respFFT = new Complex[sensorFFTSeries.length]; // array of resps
-    // don't let denominator be zero
-    respFFT[0] = Complex.ONE;
-    for (int i = 1; i < respFFT.length; ++i) {
-      // replaced freqs[i] with 2*pi*i*f
-      Complex factor = new Complex(0, 2 * Math.PI * freqs[i]);
-      // (2*pi*i*f - p1) * (2*pi*f*i - p2)
-      Complex denom = factor.subtract(pole1).multiply(factor.subtract(pole2));
-      respFFT[i] = factor.divide(denom);
-    }
-
-    // get water level for response curve (gets multiplicative inverse as well)
-    respFFT = setWaterLevel(respFFT);
-
-    // now that we have the response curve, we can remove it from the FFT of the sensor data
-    Complex[] toDeconvolve = new Complex[sensorFFTSeries.length];
-    // deconvolving response is dividing fft(signal) by fft(response)
-    // note that setting water level involves inverting the respFFT value, so we multiply here
-    for (int i = 0; i < sensorFFTSeries.length; ++i) {
-      toDeconvolve[i] = sensorFFTSeries[i].multiply(respFFT[i]);
-    }
-
-    int lastIdx = toDeconvolve.length - 1;
-    toDeconvolve[lastIdx] = new Complex(toDeconvolve[lastIdx].abs(), 0.);
-
-    // return data to time space
-    double[] returnValue = FFTResult.singleSidedInverseFFT(toDeconvolve, inverseTrim);
+  double[] calculate(double[] params) {
+    return calculate(deconvolutions[0], params[0], params[1]);
+  }
 
-    // trim data around areas with filter ringing and remove linear trend
-    int trimOffset = 0;
-    returnValue = Arrays.copyOfRange(returnValue, cutAmount + trimOffset, upperBound + trimOffset);
-    returnValue = detrendEnds(returnValue);
-    returnValue = normalize(returnValue);
+  /**
+   * Does the deconvolution of the response calculated from the given corner and damping using
+   * the scratch space of the given deconvolution, which must not be in use by another thread
+   */
+  private double[] calculate(StepDeconvolution deconvolution, double f, double h) {
+    return normalize(detrendEnds(deconvolveTrimmed(deconvolution, f, h)));
+  }
 
+  /**
+   * Deconvolves the response from the sensor output and trims the data around areas with filter
+   * ringing, before the linear trend is removed and the data is normalized.
+   * The deconvolution reuses its scratch space, so only the returned data is allocated here.
+   */
+  private double[] deconvolveTrimmed(StepDeconvolution deconvolution, double f, double h) {
+    double[] returnValue = new double[trimmedLength];
+    deconvolution.deconvolve(f, h, returnValue, cutAmount);
     return returnValue;
   }
 
@@ -479,29 +458,43 @@ public class StepExperiment extends Experiment {
 
   /**
    * Computes the forward change in value of the calculations for response
-   * formed from a given corner and damping value
+   * formed from a given corner and damping value, or the closed-form derivatives of it if the
+   * analytic Jacobian is enabled. If the parallel Jacobian is enabled, the evaluation at the
+   * point and each of the two derivative columns are calculated concurrently, each with its own
+   * deconvolution scratch space; the result is identical to the serial evaluation.
    *
    * @param variables Vector with the corner and damping values (in that order) from which the
    * derivatives are calculated
    * @return The result at the passed-in point plus the approximate derivative
    * of these points, as a vector and matrix respectively
    */
-  private Pair<RealVector, RealMatrix> jacobian(RealVector variables) {
-    // approximate through forward differences
-    double[][] jacobian = new double[trimmedLength][2];
-
+  Pair<RealVector, RealMatrix> jacobian(RealVector variables) {
     double f1 = variables.getEntry(0);
     double h1 = variables.getEntry(1);
-    double f2 = f1 + STEP_FACTOR;
-    double h2 = h1 + STEP_FACTOR;
 
-    double[] fInit = calculate(new double[]{f1, h1});
-    double[] diffOnF = calculate(new double[]{f2, h1});
-    double[] diffOnH = calculate(new double[]{f1, h2});
+    // evaluation at the point, then the columns for corner and damping
+    double[][] columns = new double[3][];
+    if (parallelJacobian && deconvolutions.length == columns.length) {
+      // each task only writes to its own column and uses its own scratch space
+      ComputeExecutor.getInstance().forEach("Step cal Jacobian", columns.length, i ->
+          columns[i] = evaluateJacobianColumn(deconvolutions[i], i, f1, h1));
+    } else {
+      for (int i = 0; i < columns.length; ++i) {
+        columns[i] = evaluateJacobianColumn(deconvolutions[0], i, f1, h1);
+      }
+    }
 
-    for (int i = 0; i < trimmedLength; ++i) {
-      jacobian[i][0] = (diffOnF[i] - fInit[i]) / STEP_FACTOR;
-      jacobian[i][1] = (diffOnH[i] - fInit[i]) / STEP_FACTOR;
+    double[][] jacobian = new double[trimmedLength][2];
+    double[] fInit;
+    if (analyticJacobian) {
+      fInit = chainNormalization(columns, jacobian);
+    } else {
+      // approximate through forward differences
+      fInit = columns[0];
+      for (int i = 0; i < trimmedLength; ++i) {
+        jacobian[i][0] = (columns[1][i] - fInit[i]) / STEP_FACTOR;
+        jacobian[i][1] = (columns[2][i] - fInit[i]) / STEP_FACTOR;
+      }
     }
 
     RealMatrix jMat = createRealMatrix(jacobian);
@@ -510,6 +503,110 @@ public class StepExperiment extends Experiment {
     return new Pair<>(fnc, jMat);
   }
 
+  /**
+   * Evaluate one column of the Jacobian: 0 is the function at the point, 1 and 2 are
+   * (respectively) the corner and damping columns. For the forward difference these are the
+   * function at the perturbed points; for the analytic Jacobian these are the timeseries before
+   * detrending and normalization and the derivatives of them.
+   */
+  private double[] evaluateJacobianColumn(StepDeconvolution deconvolution, int column,
+      double f1, double h1) {
+    if (analyticJacobian) {
+      if (column == 0) {
+        return deconvolveTrimmed(deconvolution, f1, h1);
+      }
+      double[] derivative = new double[trimmedLength];
+      int parameter = column == 1 ? StepDeconvolution.CORNER : StepDeconvolution.DAMPING;
+      deconvolution.deconvolveDerivative(f1, h1, parameter, derivative, cutAmount);
+      return derivative;
+    }
+    switch (column) {
+      case 1:
+        return calculate(deconvolution, f1 + STEP_FACTOR, h1);
+      case 2:
+        return calculate(deconvolution, f1, h1 + STEP_FACTOR);
+      default:
+        return calculate(deconvolution, f1, h1);
+    }
+  }
+
+  /**
+   * Apply the chain rule for the linear detrend and the normalization (which scales the data's
+   * range to [-1, 1]) to the analytic derivatives of the deconvolved timeseries
+   *
+   * @param columns Deconvolved timeseries and its derivatives with respect to corner and damping
+   * @param jacobian Matrix to fill with the derivatives of the normalized timeseries
+   * @return Normalized timeseries
+   */
+  private double[] chainNormalization(double[][] columns, double[][] jacobian) {
+    // the detrend is linear, so it applies to the derivatives directly
+    double[] detrended = detrendEnds(columns[0]);
+    double[][] derivatives = {detrendEnds(columns[1]), detrendEnds(columns[2])};
+
+    int minIdx = 0;
+    int maxIdx = 0;
+    for (int i = 1; i < detrended.length; ++i) {
+      if (detrended[i] < detrended[minIdx]) {
+        minIdx = i;
+      }
+      if (detrended[i] > detrended[maxIdx]) {
+        maxIdx = i;
+      }
+    }
+    double range = detrended[maxIdx] - detrended[minIdx];
+
+    // normalized = 2 * (x - min) / range - 1, so its derivative depends on that of the extremes
+    double[] normalized = normalize(detrended);
+    for (int j = 0; j < derivatives.length; ++j) {
+      double[] derivative = derivatives[j];
+      double minDiff = derivative[minIdx];
+      double rangeDiff = derivative[maxIdx] - minDiff;
+      for (int i = 0; i < trimmedLength; ++i) {
+        jacobian[i][j] =
+            (2 * (derivative[i] - minDiff) - (normalized[i] + 1) * rangeDiff) / range;
+      }
+    }
+    return normalized;
+  }
+
+  /**
+   * Set whether the solver should evaluate its Jacobian's columns concurrently, each with its own
+   * deconvolution scratch space. This produces the same fit as the serial evaluation (default
+   * false) but uses additional memory for the extra scratch space, which is the size of the
+   * data's FFT. Applies to both the forward-difference and analytic Jacobian, and takes effect
+   * the next time the experiment is run.
+   * @param parallelJacobian True if the Jacobian should be evaluated in parallel
+   */
+  public void setParallelJacobian(boolean parallelJacobian) {
+    this.parallelJacobian = parallelJacobian;
+  }
+
+  /**
+   * Get whether the solver's Jacobian is to be evaluated in parallel
+   * @return True if the Jacobian columns are evaluated concurrently
+   */
+  public boolean isParallelJacobian() {
+    return parallelJacobian;
+  }
+
+  /**
+   * Set whether the solver should calculate its Jacobian from the closed-form derivatives of the
+   * two-pole response with respect to corner and damping, instead of by forward difference
+   * (default false). This avoids the rounding error of the very small forward-difference step.
+   * @param analyticJacobian True if the Jacobian should be calculated analytically
+   */
+  public void setAnalyticJacobian(boolean analyticJacobian) {
+    this.analyticJacobian = analyticJacobian;
+  }
+
+  /**
+   * Get whether the solver's Jacobian is to be calculated analytically
+   * @return True if the Jacobian is calculated from closed-form derivatives
+   */
+  public boolean isAnalyticJacobian() {
+    return analyticJacobian;
+  }
+
   /**
    * NOTE: not used by corresponding panel, overrides with active indices
    * of components in the combo-box
@@ -0,0 +1,308 @@
+package asl.sensor.gui;
+
+import asl.sensor.input.SampleView;
+import asl.utils.input.DataBlock;
+import org.jfree.data.DomainInfo;
+import org.jfree.data.DomainOrder;
+import org.jfree.data.Range;
+import org.jfree.data.RangeInfo;
+import org.jfree.data.xy.AbstractXYDataset;
+
+/**
+ * Plottable timeseries data for the input panel charts, which holds the data as a primitive array
+ * and only exposes as many points as can actually be distinguished on screen. The visible part
+ * of the data is split into one bin per pixel of chart width, and only the minimum and maximum
+ * sample of each bin are plotted (in time order), so the drawn line covers the same envelope as
+ * one drawn through every sample. When the visible range changes (i.e., the chart is zoomed),
+ * {@link #setVisibleRange(double, double, int)} recalculates the points from the full data.
+ *
+ * This replaces building an XYSeries of every sample, which for a day of 100Hz data means
+ * millions of boxed points per chart that have to be sorted, stored, and drawn.
+ *
+ * The dataset can also be limited to a window of its data with {@link #setWindow(SampleView)},
+ * which is used when the input data is trimmed: the trimmed data is a view over the same samples
+ * (see DataStore.getView()), so the plot shows the trimmed range without the samples being read
+ * out of the data again.
+ *
+ * Domain values are sample times in epoch milliseconds, matching DataBlock.toXYSeries().
+ */
+class EnvelopeDataset extends AbstractXYDataset implements DomainInfo, RangeInfo {
+
+  private static final long serialVersionUID = 2390865424917418455L;
+
+  /**
+   * Number of bins used before the width of the chart is known
+   */
+  static final int DEFAULT_PIXEL_WIDTH = 2048;
+
+  private final SampleView samples;
+  private final String key;
+  private final double[] data;
+  private final long startTime;
+  private final long interval;
+
+  // window of the data that is plotted (inclusive indices) and its extreme values
+  private int windowFirst;
+  private int windowLast;
+  private double windowMin;
+  private double windowMax;
+
+  private double visibleLower;
+  private double visibleUpper;
+  private int pixelWidth;
+
+  private double[] xValues;
+  private double[] yValues;
+  private int itemCount;
+
+  /**
+   * Create a dataset plotting the current (trimmed) data of a block
+   *
+   * @param block Timeseries data to plot
+   */
+  EnvelopeDataset(DataBlock block) {
+    this(block, SampleView.of(block.getData()));
+  }
+
+  /**
+   * Create a dataset plotting samples already read from a block (see DataStore.getView())
+   *
+   * @param block Timeseries data to plot
+   * @param samples Current samples of the block, which are not copied
+   */
+  EnvelopeDataset(DataBlock block, SampleView samples) {
+    this(samples, block.getName(), block.getStartTime(), block.getInterval());
+  }
+
+  /**
+   * Create a dataset plotting evenly sampled data
+   *
+   * @param key Name of the series
+   * @param data Sample values, which are not copied and should not be modified after this
+   * @param startTime Time of the first sample (epoch milliseconds)
+   * @param interval Time between samples (milliseconds)
+   */
+  EnvelopeDataset(String key, double[] data, long startTime, long interval) {
+    this(SampleView.of(data), key, startTime, interval);
+  }
+
+  private EnvelopeDataset(SampleView samples, String key, long startTime, long interval) {
+    this.samples = samples;
+    this.key = key;
+    data = samples.asArray();
+    this.startTime = startTime;
+    this.interval = interval;
+
+    xValues = new double[0];
+    yValues = new double[0];
+    setWindowIndices(0, data.length - 1);
+    decimate(getDomainLowerBound(false), getDomainUpperBound(false), DEFAULT_PIXEL_WIDTH);
+  }
+
+  /**
+   * Limit the plotted data to a window of the full data, i.e., after the source data has been
+   * trimmed. The domain and range bounds of the dataset become those of the window, and listeners
+   * are notified of the change.
+   *
+   * @param window View of the samples to show, which must be within the samples plotted
+   * @return False (and the dataset is unchanged) if the window is not a view within the data
+   */
+  boolean setWindow(SampleView window) {
+    int first = window.indexIn(samples);
+    if (first < 0 || window.size() < 1) {
+      return false;
+    }
+    setWindowIndices(first, first + window.size() - 1);
+    decimate(getDomainLowerBound(false), getDomainUpperBound(false), pixelWidth);
+    fireDatasetChanged();
+    return true;
+  }
+
+  private void setWindowIndices(int first, int last) {
+    windowFirst = first;
+    windowLast = last;
+    double min = Double.POSITIVE_INFINITY;
+    double max = Double.NEGATIVE_INFINITY;
+    for (int i = first; i <= last; ++i) {
+      // comparisons with NaN are false, so missing values are skipped
+      if (data[i] < min) {
+        min = data[i];
+      }
+      if (data[i] > max) {
+        max = data[i];
+      }
+    }
+    windowMin = min;
+    windowMax = max;
+  }
+
+  /**
+   * Set the part of the data that is currently shown and the width it is drawn at, recalculating
+   * the plotted points if either has changed. Listeners (i.e., the chart's plot) are notified
+   * if the points are recalculated.
+   *
+   * @param lower Start of the visible time range (epoch milliseconds)
+   * @param upper End of the visible time range (epoch milliseconds)
+   * @param pixelWidth Width of the plot area in pixels; zero or less keeps the current width
+   */
+  void setVisibleRange(double lower, double upper, int pixelWidth) {
+    if (pixelWidth < 1) {
+      pixelWidth = this.pixelWidth;
+    }
+    if (lower == visibleLower && upper == visibleUpper && pixelWidth == this.pixelWidth) {
+      return;
+    }
+    decimate(lower, upper, pixelWidth);
+    fireDatasetChanged();
+  }
+
+  /**
+   * Fill the plotted points with the extremes of each bin of the visible range of data.
+   * One sample is included on either side of the visible range so that the plotted line runs
+   * to the edges of the chart.
+   */
+  private void decimate(double lower, double upper, int pixelWidth) {
+    visibleLower = lower;
+    visibleUpper = upper;
+    this.pixelWidth = pixelWidth;
+
+    if (windowLast < windowFirst) {
+      itemCount = 0;
+      return;
+    }
+    int first = (int) Math.max(windowFirst, Math.floor((lower - startTime) / interval) - 1);
+    int last = (int) Math.min(windowLast, Math.ceil((upper - startTime) / interval) + 1);
+    if (last < first) {
+      itemCount = 0;
+      return;
+    }
+    int count = last - first + 1;
+    int bins = Math.max(1, pixelWidth);
+
+    if (count <= 2 * bins) {
+      // already no more points than the envelope would have, so plot every sample
+      ensureCapacity(count);
+      for (int i = 0; i < count; ++i) {
+        xValues[i] = getSampleTime(first + i);
+        yValues[i] = data[first + i];
+      }
+      itemCount = count;
+      return;
+    }
+
+    ensureCapacity(2 * bins);
+    int item = 0;
+    for (int bin = 0; bin < bins; ++bin) {
+      // distribute samples as evenly as possible; every bin has at least two samples here
+      int binStart = first + (int) ((long) count * bin / bins);
+      int binEnd = first + (int) ((long) count * (bin + 1) / bins);
+      int minIndex = binStart;
+      int maxIndex = binStart;
+      for (int i = binStart + 1; i < binEnd; ++i) {
+        if (data[i] < data[minIndex]) {
+          minIndex = i;
+        } else if (data[i] > data[maxIndex]) {
+          maxIndex = i;
+        }
+      }
+      int firstIndex = Math.min(minIndex, maxIndex);
+      int secondIndex = Math.max(minIndex, maxIndex);
+      xValues[item] = getSampleTime(firstIndex);
+      yValues[item++] = data[firstIndex];
+      if (secondIndex != firstIndex) {
+        xValues[item] = getSampleTime(secondIndex);
+        yValues[item++] = data[secondIndex];
+      }
+    }
+    itemCount = item;
+  }
+
+  private void ensureCapacity(int size) {
+    if (xValues.length < size) {
+      xValues = new double[size];
+      yValues = new double[size];
+    }
+  }
+
+  private double getSampleTime(int index) {
+    return startTime + index * (double) interval;
+  }
+
+  @Override
+  public DomainOrder getDomainOrder() {
+    // points are always produced in time order, which lets the renderer skip offscreen points
+    return DomainOrder.ASCENDING;
+  }
+
+  @Override
+  public int getSeriesCount() {
+    return 1;
+  }
+
+  @Override
+  public Comparable<?> getSeriesKey(int series) {
+    return key;
+  }
+
+  @Override
+  public int getItemCount(int series) {
+    return itemCount;
+  }
+
+  @Override
+  public Number getX(int series, int item) {
+    return xValues[item];
+  }
+
+  @Override
+  public double getXValue(int series, int item) {
+    return xValues[item];
+  }
+
+  @Override
+  public Number getY(int series, int item) {
+    return yValues[item];
+  }
+
+  @Override
+  public double getYValue(int series, int item) {
+    return yValues[item];
+  }
+
+  @Override
+  public double getDomainLowerBound(boolean includeInterval) {
+    return getSampleTime(windowFirst);
+  }
+
+  @Override
+  public double getDomainUpperBound(boolean includeInterval) {
+    return getSampleTime(Math.max(windowFirst, windowLast));
+  }
+
+  @Override
+  public Range getDomainBounds(boolean includeInterval) {
+    if (windowLast < windowFirst) {
+      return null;
+    }
+    return new Range(getDomainLowerBound(includeInterval), getDomainUpperBound(includeInterval));
+  }
+
+  @Override
+  public double getRangeLowerBound(boolean includeInterval) {
+    return windowMin;
+  }
+
+  @Override
+  public double getRangeUpperBound(boolean includeInterval) {
+    return windowMax;
+  }
+
+  @Override
+  public Range getRangeBounds(boolean includeInterval) {
+    if (windowMin > windowMax) {
+      // no (non-NaN) data
+      return null;
+    }
+    return new Range(windowMin, windowMax);
+  }
+}
@@ -4,11 +4,11 @@ import static asl.utils.ReportingUtils.chartsToImage;
 import static asl.utils.ReportingUtils.chartsToImageList;
 import static asl.utils.ResponseUnits.getFilenameFromComponents;
 import static asl.utils.TimeSeriesUtils.getDataBlockFromFDSNQuery;
-import static asl.utils.TimeSeriesUtils.getMplexNameSet;
 
 import asl.sensor.input.Configuration;
 import asl.sensor.input.DataStore;
 import asl.sensor.input.DataStore.TimeRangeException;
+import asl.sensor.input.SeedFileIndex;
 import asl.utils.ResponseUnits.ResolutionType;
 import asl.utils.ResponseUnits.SensorType;
 import asl.utils.input.DataBlock;
@@ -39,7 +39,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TimeZone;
 import javax.imageio.ImageIO;
@@ -73,6 +75,7 @@ import org.jfree.chart.JFreeChart;
 import org.jfree.chart.annotations.XYTitleAnnotation;
 import org.jfree.chart.axis.DateAxis;
 import org.jfree.chart.axis.NumberAxis;
+import org.jfree.chart.axis.ValueAxis;
 import org.jfree.chart.plot.IntervalMarker;
 import org.jfree.chart.plot.Marker;
 import org.jfree.chart.plot.PlotOrientation;
@@ -80,8 +83,9 @@ import org.jfree.chart.plot.ValueMarker;
 import org.jfree.chart.plot.XYPlot;
 import org.jfree.chart.title.TextTitle;
 import org.jfree.chart.ui.RectangleAnchor;
+import org.jfree.data.Range;
+import org.jfree.data.general.DatasetUtils;
 import org.jfree.data.xy.XYDataset;
-import org.jfree.data.xy.XYSeries;
 import org.jfree.data.xy.XYSeriesCollection;
 
 
@@ -152,6 +156,25 @@ public class InputPanel
   private int lastRespIndex;
   private String saveDirectory = System.getProperty("user.home");
 
+  /**
+   * Number of SEED file indices kept, so that loading several channels from the same (or a
+   * recently used) multiplexed file does not have to read the file's headers again
+   */
+  private static final int SEED_INDEX_CAPACITY = 8;
+
+  /**
+   * Record indices of recently loaded SEED files, keyed by path, in least-recently-used order
+   */
+  private final Map<String, SeedFileIndex> seedIndices =
+      new LinkedHashMap<String, SeedFileIndex>(16, 0.75f, true) {
+        private static final long serialVersionUID = 5235806547512473457L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, SeedFileIndex> eldest) {
+          return size() > SEED_INDEX_CAPACITY;
+        }
+      };
+
   /**
    * Creates a new data panel -- instantiates each chart, to be populated with
    * data when a file is loaded in. Also creates a save button for writing all
@@ -543,7 +566,7 @@ public class InputPanel
         if (!dataStore.blockIsSet(i)) {
           continue;
         }
-        resetPlotZoom(i);
+        showTrimmedRange(i);
       }
 
       leftSlider.setValue(0);
@@ -893,13 +916,14 @@ public class InputPanel
         dataStore.setBlock(index, blockToLoad, activePlots);
         dataStore.untrim(activePlots);
 
-        XYSeries timeSeries = dataStore.getBlock(index).toXYSeries();
+        EnvelopeDataset timeSeries =
+            new EnvelopeDataset(dataStore.getBlock(index), dataStore.getView(index));
         String rateString = " (" + dataStore.getBlock(index).getSampleRate() + " Hz)";
         chart = ChartFactory.createXYLineChart(
-            timeSeries.getKey().toString() + rateString,
+            timeSeries.getSeriesKey(0).toString() + rateString,
             "Time",
             "Counts",
-            new XYSeriesCollection(timeSeries),
+            timeSeries,
             PlotOrientation.VERTICAL,
             false, false, false);
 
@@ -941,8 +965,15 @@ public class InputPanel
     fileChooser.setCurrentDirectory(new File(seedDirectory));
     fileChooser.resetChoosableFileFilters();
     fileChooser.setDialogTitle("Load SEED file...");
+    // several files (i.e., consecutive days) can be appended at once
+    fileChooser.setMultiSelectionEnabled(seed instanceof AppendingJButton);
     int returnVal = fileChooser.showOpenDialog(seed);
+    fileChooser.setMultiSelectionEnabled(false);
     if (returnVal == JFileChooser.APPROVE_OPTION) {
+      if (seed instanceof AppendingJButton && fileChooser.getSelectedFiles().length > 1) {
+        appendFiles(index, fileChooser.getSelectedFiles());
+        return;
+      }
       final File file = fileChooser.getSelectedFile();
       seedDirectory = file.getParent();
       String oldName = seedFileNames[index].getText();
@@ -950,8 +981,10 @@ public class InputPanel
       seedFileNames[index].setText("LOADING: " + file.getName());
       final String filePath = file.getAbsolutePath();
       String filterName;
+      final SeedFileIndex seedIndex;
       try {
-        Set<String> nameSet = seed.getFilenameSet(dataStore, index, filePath);
+        seedIndex = getSeedIndex(filePath);
+        Set<String> nameSet = seed.getFilenameSet(dataStore, index, seedIndex);
 
         if (nameSet.size() > 1) {
           // more than one series in the file? prompt user for it
@@ -1019,7 +1052,7 @@ public class InputPanel
         public Integer doInBackground() {
 
           try {
-            seed.loadInData(dataStore, index, filePath, immutableFilter, activePlots);
+            seed.loadInData(dataStore, index, seedIndex, immutableFilter, activePlots);
           } catch (SeedFormatException | CodecException |
               IOException | NumberFormatException e) {
             returnedErrMsg = "This file is either not a SEED file "
@@ -1036,13 +1069,14 @@ public class InputPanel
 
           dataStore.untrim(activePlots);
 
-          XYSeries timeSeries = dataStore.getBlock(index).toXYSeries();
+          EnvelopeDataset timeSeries =
+              new EnvelopeDataset(dataStore.getBlock(index), dataStore.getView(index));
           String rateString = " (" + dataStore.getBlock(index).getSampleRate() + " Hz)";
           chart = ChartFactory.createXYLineChart(
-              timeSeries.getKey().toString() + rateString,
+              timeSeries.getSeriesKey(0).toString() + rateString,
               "Time",
               "Counts",
-              new XYSeriesCollection(timeSeries),
+              timeSeries,
               PlotOrientation.VERTICAL,
               false, false, false);
 
@@ -1073,6 +1107,122 @@ public class InputPanel
     }
   }
 
+  /**
+   * Append data from several SEED files to the data at a specified index, in a background
+   * thread. The currently loaded channel's records from all of the files are decoded together
+   * into one block, which is appended to the data in one pass, after which the chart is rebuilt
+   * once.
+   *
+   * @param index Index into datastore/plots this data should be appended to
+   * @param files SEED files to append data from
+   */
+  private void appendFiles(final int index, final File[] files) {
+    seedDirectory = files[0].getParent();
+    final String oldName = seedFileNames[index].getText();
+    final String filterName = dataStore.getBlock(index).getName();
+    seedFileNames[index].setText("LOADING: " + files.length + " files");
+
+    SwingWorker<Integer, Void> worker = new SwingWorker<Integer, Void>() {
+
+      JFreeChart chart;
+      String failedFile = null;
+      boolean missingData = false;
+
+      @Override
+      public Integer doInBackground() {
+        List<SeedFileIndex> seedIndices = new ArrayList<>(files.length);
+        for (File file : files) {
+          failedFile = file.getName();
+          try {
+            SeedFileIndex seedIndex = getSeedIndex(file.getAbsolutePath());
+            if (!seedIndex.getNames().contains(filterName)) {
+              missingData = true;
+              return 1;
+            }
+            seedIndices.add(seedIndex);
+          } catch (SeedFormatException | IOException e) {
+            e.printStackTrace();
+            return 1;
+          }
+        }
+
+        failedFile = files.length + " files";
+        DataBlock appended;
+        try {
+          appended = SeedFileIndex.getTimeSeries(seedIndices, filterName);
+        } catch (SeedFormatException | CodecException |
+            IOException | NumberFormatException e) {
+          e.printStackTrace();
+          return 1;
+        }
+
+        try {
+          dataStore.appendBlock(index, appended, activePlots);
+        } catch (TimeRangeException | IllegalArgumentException e) {
+          e.printStackTrace();
+          return 1;
+        }
+        failedFile = null;
+
+        dataStore.untrim(activePlots);
+
+        EnvelopeDataset timeSeries =
+            new EnvelopeDataset(dataStore.getBlock(index), dataStore.getView(index));
+        String rateString = " (" + dataStore.getBlock(index).getSampleRate() + " Hz)";
+        chart = ChartFactory.createXYLineChart(
+            timeSeries.getSeriesKey(0).toString() + rateString,
+            "Time",
+            "Counts",
+            timeSeries,
+            PlotOrientation.VERTICAL,
+            false, false, false);
+
+        setPlotParameters((XYPlot) chart.getPlot(), index);
+
+        return 0;
+      }
+
+      @Override
+      public void done() {
+        if (failedFile != null) {
+          seedFileNames[index].setText(oldName);
+          if (missingData) {
+            seedAppendEmptyPopup(failedFile);
+          } else {
+            seedAppendErrorPopup(failedFile);
+          }
+          return;
+        }
+
+        processDataAfterLoad(index, chart);
+        seedFileNames[index].setText(files[files.length - 1].getName());
+        fireStateChanged();
+      }
+    };
+
+    worker.execute();
+  }
+
+  /**
+   * Get the record index of a SEED file, reading the file's headers if it has not been indexed
+   * recently or has changed since it was
+   *
+   * @param filePath Full path of the SEED file
+   * @return Index of the channels in the file
+   * @throws IOException If the file cannot be read
+   * @throws SeedFormatException If the file cannot be parsed as a SEED file
+   */
+  private SeedFileIndex getSeedIndex(String filePath) throws SeedFormatException, IOException {
+    synchronized (seedIndices) {
+      SeedFileIndex seedIndex = seedIndices.get(filePath);
+      if (seedIndex == null || !seedIndex.isCurrent()) {
+        seedIndex = SeedFileIndex.build(filePath);
+        seedIndices.put(filePath, seedIndex);
+      }
+      return seedIndex;
+    }
+  }
+
   private void setPlotParameters(XYPlot xyPlot, int index) {
     DateAxis dateAxis = new DateAxis();
     dateAxis.setLabel("UTC Time (Year.Day.Hour:Minute)");
@@ -1081,6 +1231,8 @@ public class InputPanel
     dateAxis.setLabelFont(bold);
     dateAxis.setDateFormatOverride(ExperimentPanel.DATE_TIME_FORMAT.get());
     xyPlot.setDomainAxis(dateAxis);
+    // plotted points only cover the visible range, so they are recalculated on each zoom
+    dateAxis.addChangeListener(event -> updateVisibleRange(xyPlot, index));
 
     NumberAxis numberAxis = new NumberAxis();
     numberAxis.setLabel("Counts");
@@ -1093,6 +1245,21 @@ public class InputPanel
     xyPlot.getRenderer().setSeriesPaint(0, defaultColor[colorIndex]);
   }
 
+  /**
+   * Recalculate the points plotted in a chart from the range of data it currently shows
+   *
+   * @param xyPlot Plot whose domain axis range has changed
+   * @param index Index of the chart's panel
+   */
+  private void updateVisibleRange(XYPlot xyPlot, int index) {
+    XYDataset dataset = xyPlot.getDataset();
+    if (dataset instanceof EnvelopeDataset) {
+      ValueAxis domainAxis = xyPlot.getDomainAxis();
+      ((EnvelopeDataset) dataset).setVisibleRange(domainAxis.getLowerBound(),
+          domainAxis.getUpperBound(), chartPanels[index].getWidth());
+    }
+  }
+
   private void processDataAfterLoad(int index, JFreeChart chart) {
     chartPanels[index].setChart(chart);
     chartPanels[index].repaint();
@@ -1287,9 +1454,7 @@ public class InputPanel
    */
   private void resetPlotZoom(int index) {
     XYPlot xyPlot = chartPanels[index].getChart().getXYPlot();
-    XYSeriesCollection timeSeries = new XYSeriesCollection();
-    timeSeries.addSeries(dataStore.getBlock(index).toXYSeries());
-    xyPlot.setDataset(timeSeries);
+    xyPlot.setDataset(new EnvelopeDataset(dataStore.getBlock(index), dataStore.getView(index)));
     xyPlot.getRenderer().setSeriesPaint(0,
         defaultColor[index % defaultColor.length]);
     xyPlot.getDomainAxis().setAutoRange(true);
@@ -1299,6 +1464,25 @@ public class InputPanel
     chartPanels[index].repaint();
   }
 
+  /**
+   * Show the current (trimmed) time range of the data at an index after zooming in or out. If the
+   * plotted samples already cover that range, the plot is limited to it without reading the
+   * samples out of the data again; otherwise the plot is rebuilt (see resetPlotZoom).
+   *
+   * @param index Index of the plot to update
+   */
+  private void showTrimmedRange(int index) {
+    XYPlot xyPlot = chartPanels[index].getChart().getXYPlot();
+    XYDataset dataset = xyPlot.getDataset();
+    if (dataset instanceof EnvelopeDataset
+        && ((EnvelopeDataset) dataset).setWindow(dataStore.getView(index))) {
+      xyPlot.getDomainAxis().setAutoRange(true);
+      chartPanels[index].repaint();
+      return;
+    }
+    resetPlotZoom(index);
+  }
+
   /**
    * Get a selected epoch from a multi-epoch response
    *
@@ -1406,10 +1590,13 @@ public class InputPanel
 
       List<Pair<Long, Long>> gaps = dataStore.getBlock(i).getGapBoundaries();
 
-      XYDataset data = xyPlot.getDataset();
-      XYSeriesCollection timeSeries = (XYSeriesCollection) data;
-      double min = timeSeries.getDomainLowerBound(false);
-      double max = timeSeries.getDomainUpperBound(false);
+      Range domain = DatasetUtils.findDomainBounds(xyPlot.getDataset());
+      if (domain == null) {
+        chartPanels[i].repaint();
+        continue;
+      }
+      double min = domain.getLowerBound();
+      double max = domain.getUpperBound();
 
       for (Pair<Long, Long> gapLocation : gaps) {
         double gapStart = gapLocation.getFirst().doubleValue();
@@ -1478,7 +1665,7 @@ public class InputPanel
     // reset plot zoom if data is still there; clear out stale data from conflicting time ranges
     for (int i = 0; i < activePlots; ++i) {
       if (dataStore.blockIsSet(i)) {
-        resetPlotZoom(i);
+        showTrimmedRange(i);
       } else {
         instantiateChart(i);
         seedFileNames[i].setText("NO FILE LOADED");
@@ -1533,7 +1720,7 @@ public class InputPanel
       if (!dataStore.blockIsSet(i)) {
         continue;
       }
-      resetPlotZoom(i);
+      showTrimmedRange(i);
 
     }
 
@@ -1678,11 +1865,11 @@ public class InputPanel
       super(text);
     }
 
-    protected abstract Set<String> getFilenameSet(DataStore ds, int index, String filePath)
-        throws SeedFormatException, IOException;
+    protected abstract Set<String> getFilenameSet(DataStore ds, int index,
+        SeedFileIndex seedIndex);
 
     protected abstract void loadInData(DataStore dataStore, int index,
-        String filePath, String fileFilter, int activePlots)
+        SeedFileIndex seedIndex, String fileFilter, int activePlots)
         throws SeedFormatException, CodecException, IOException, TimeRangeException;
   }
 
@@ -1695,16 +1882,15 @@ public class InputPanel
     }
 
     @Override
-    public Set<String> getFilenameSet(DataStore dataStore, int index, String filePath)
-        throws SeedFormatException, IOException {
-      return getMplexNameSet(filePath);
+    public Set<String> getFilenameSet(DataStore dataStore, int index, SeedFileIndex seedIndex) {
+      return seedIndex.getNames();
     }
 
     @Override
-    public void loadInData(DataStore dataStore, int index, String filePath,
+    public void loadInData(DataStore dataStore, int index, SeedFileIndex seedIndex,
         String fileFilter, int activePlots) throws SeedFormatException,
         CodecException, IOException, TimeRangeException {
-      dataStore.setBlock(index, filePath, fileFilter, activePlots);
+      dataStore.setBlock(index, seedIndex.getTimeSeries(fileFilter), activePlots);
     }
   }
 
@@ -1717,10 +1903,9 @@ public class InputPanel
     }
 
     @Override
-    public Set<String> getFilenameSet(DataStore dataStore, int index, String filePath)
-        throws SeedFormatException, IOException {
+    public Set<String> getFilenameSet(DataStore dataStore, int index, SeedFileIndex seedIndex) {
       String thisName = dataStore.getBlock(index).getName();
-      if (!getMplexNameSet(filePath).contains(thisName)) {
+      if (!seedIndex.getNames().contains(thisName)) {
         return new HashSet<>();
       }
       Set<String> returnSet = new HashSet<>();
@@ -1729,10 +1914,10 @@ public class InputPanel
     }
 
     @Override
-    public void loadInData(DataStore dataStore, int index, String filePath,
+    public void loadInData(DataStore dataStore, int index, SeedFileIndex seedIndex,
         String fileFilter, int activePlots)
         throws SeedFormatException, CodecException, IOException, TimeRangeException {
-      dataStore.appendBlock(index, filePath, fileFilter, activePlots);
+      dataStore.appendBlock(index, seedIndex.getTimeSeries(fileFilter), activePlots);
     }
   }
 
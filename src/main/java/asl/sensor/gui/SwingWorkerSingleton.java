@@ -49,6 +49,8 @@ public class SwingWorkerSingleton {
       // other panel was cancelled, and thus clear the chart / unset data
       if (!worker.isDone()) {
         try {
+          // interrupting the worker thread cancels the experiment it is running, which then
+          // stops within an iteration of its solver (see CancellationToken)
           worker.cancel(true); // cancel worker, set it to the new task
         } catch (CancellationException ignore) {
         }
@@ -75,6 +77,8 @@ public class SwingWorkerSingleton {
             // display the results of experiment in the panel
             epHandle.setDone();
           }
+        } catch (CancellationException ex) {
+          // this worker was replaced by a new one, whose panel is already showing its progress
         } catch (ExecutionException ex) {
           Throwable cause = ex.getCause();
           StringBuilder text = new StringBuilder();
@@ -0,0 +1,183 @@
+package asl.sensor.input;
+
+import asl.sensor.ComputeExecutor;
+import asl.utils.input.DataBlock;
+import edu.iris.dmc.seedcodec.CodecException;
+import edu.sc.seis.seisFile.mseed.SeedFormatException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Loads the data for a set of channels from every miniSEED file in a directory (or matching a
+ * glob pattern), such as a station's day files for the span of a calibration. The files are
+ * indexed concurrently on the shared {@link ComputeExecutor}, after which each channel's records
+ * from all of the files are decoded together into a single block, which keeps track of any gaps
+ * between files (see {@link SeedFileIndex#getTimeSeries(List, String)}). Channels are decoded
+ * concurrently with each other.
+ *
+ * Files in the directory that are not miniSEED (i.e., response files kept alongside the data) are
+ * skipped, as are files without data for any of the requested channels.
+ */
+public final class BulkSeedLoader {
+
+  /**
+   * Source of decoded data for one channel over a set of files
+   */
+  @FunctionalInterface
+  public interface Decoder {
+
+    /**
+     * Decode the data of one channel over a set of miniSEED files into a single block
+     *
+     * @param seedIndices Indices of the files' records
+     * @param name Channel name (SNCL) to load
+     * @return Decoded timeseries of the channel
+     */
+    DataBlock decode(List<SeedFileIndex> seedIndices, String name)
+        throws SeedFormatException, CodecException, IOException;
+  }
+
+  private final ComputeExecutor executor;
+  private final Decoder decoder;
+
+  /**
+   * Create a loader that decodes files directly on the shared compute executor
+   */
+  public BulkSeedLoader() {
+    this(ComputeExecutor.getInstance(), SeedFileIndex::getTimeSeries);
+  }
+
+  /**
+   * Create a loader that decodes files with the given decoder (i.e., one reading through a
+   * DecodeCache)
+   *
+   * @param executor Executor to index and decode files on
+   * @param decoder Source of decoded data for each channel over the files
+   */
+  public BulkSeedLoader(ComputeExecutor executor, Decoder decoder) {
+    this.executor = executor;
+    this.decoder = decoder;
+  }
+
+  /**
+   * Get the files a path refers to. A directory refers to each file in it; a path whose last
+   * element is a glob pattern (i.e., "/data/IU_ANMO/2018/*.seed") refers to each file in the
+   * parent directory matching that pattern; any other path refers only to itself.
+   *
+   * @param pathOrGlob Directory, glob pattern, or file
+   * @return Full paths of the matching files, sorted by name
+   * @throws IOException If the directory cannot be read
+   */
+  public static List<String> listFiles(String pathOrGlob) throws IOException {
+    int split = Math.max(pathOrGlob.lastIndexOf('/'), pathOrGlob.lastIndexOf(File.separatorChar));
+    String lastElement = pathOrGlob.substring(split + 1);
+
+    DirectoryStream<Path> stream;
+    if (lastElement.matches(".*[*?\\[{].*")) {
+      Path directory = Paths.get(split < 0 ? "." : pathOrGlob.substring(0, split + 1));
+      stream = Files.newDirectoryStream(directory, lastElement);
+    } else if (Files.isDirectory(Paths.get(pathOrGlob))) {
+      stream = Files.newDirectoryStream(Paths.get(pathOrGlob));
+    } else {
+      return Collections.singletonList(pathOrGlob);
+    }
+
+    List<String> files = new ArrayList<>();
+    try (DirectoryStream<Path> paths = stream) {
+      for (Path path : paths) {
+        if (Files.isRegularFile(path)) {
+          files.add(path.toString());
+        }
+      }
+    }
+    Collections.sort(files);
+    return files;
+  }
+
+  /**
+   * Load the data for each of the given channels from all of the files a path refers to
+   *
+   * @param pathOrGlob Directory, glob pattern, or file to load data from (see
+   * {@link #listFiles(String)})
+   * @param names Channel names (SNCL) to load
+   * @return Stitched data for each channel found, keyed by name, in the order the names were
+   * given; channels not found in any file are left out
+   * @throws IOException If a file cannot be read
+   * @throws SeedFormatException If a channel's data cannot be parsed
+   * @throws CodecException If there is an issue with the compression of the data
+   */
+  public Map<String, DataBlock> load(String pathOrGlob, List<String> names)
+      throws SeedFormatException, CodecException, IOException {
+    List<String> files = listFiles(pathOrGlob);
+
+    // index of each file, or null if it is not miniSEED, and any error reading each file
+    SeedFileIndex[] seedIndices = new SeedFileIndex[files.size()];
+    IOException[] readErrors = new IOException[files.size()];
+    executor.forEach("Bulk SEED index", files.size(), i -> {
+      try {
+        seedIndices[i] = SeedFileIndex.build(files.get(i));
+      } catch (SeedFormatException e) {
+        // not a miniSEED file
+      } catch (IOException e) {
+        readErrors[i] = e;
+      }
+    });
+    for (IOException error : readErrors) {
+      if (error != null) {
+        throw error;
+      }
+    }
+
+    // the files holding each channel, which are decoded together in one pass
+    List<List<SeedFileIndex>> channelIndices = new ArrayList<>(names.size());
+    for (String name : names) {
+      List<SeedFileIndex> withChannel = new ArrayList<>();
+      for (SeedFileIndex seedIndex : seedIndices) {
+        if (seedIndex != null && seedIndex.getRecordCount(name) > 0) {
+          withChannel.add(seedIndex);
+        }
+      }
+      channelIndices.add(withChannel);
+    }
+
+    DataBlock[] decoded = new DataBlock[names.size()];
+    Exception[] errors = new Exception[names.size()];
+    executor.forEach("Bulk SEED decode", names.size(), i -> {
+      if (channelIndices.get(i).isEmpty()) {
+        return;
+      }
+      try {
+        decoded[i] = decoder.decode(channelIndices.get(i), names.get(i));
+      } catch (SeedFormatException | CodecException | IOException e) {
+        errors[i] = e;
+      }
+    });
+
+    for (Exception error : errors) {
+      if (error instanceof SeedFormatException) {
+        throw (SeedFormatException) error;
+      } else if (error instanceof CodecException) {
+        throw (CodecException) error;
+      } else if (error instanceof IOException) {
+        throw (IOException) error;
+      }
+    }
+
+    Map<String, DataBlock> blocks = new LinkedHashMap<>();
+    for (int i = 0; i < names.size(); ++i) {
+      if (decoded[i] != null) {
+        blocks.put(names.get(i), decoded[i]);
+      }
+    }
+    return blocks;
+  }
+}
@@ -14,7 +14,8 @@ import org.apache.log4j.Logger;
  * the path of the FDSN data acquisition service,
  * the default location from which to load data and responses,
  * the default folder to which reports are outputted (i.e,. as PDF files),
- * and whether or not to use colorblind-friendly colors in result plots.
+ * whether or not to use colorblind-friendly colors in result plots,
+ * and the number of threads experiments may use for calculations.
  */
 public class Configuration {
 
@@ -37,6 +38,8 @@ public class Configuration {
   private String fdsnService = "fdsnws";
   private int fdsnPort = 80;
 
+  private int computeParallelism = 0;
+
   private Configuration(String configLocation) {
     logger.info("Attempting reading in config file from " + configLocation);
     try {
@@ -78,6 +81,8 @@ public class Configuration {
       lineWidthOffset =
           config.getInt("VisualOptions.LineThicknessIncrease", 2);
 
+      computeParallelism = config.getInt("Compute.Parallelism", 0);
+
       try {
         loadedConfigPath = config.getFile().getCanonicalPath();
         logger.info("Succesfully loaded in configuration: " + loadedConfigPath);
@@ -330,6 +335,27 @@ public class Configuration {
     fdsnPort = replacementPort;
   }
 
+  /**
+   * Gets the number of threads that experiments may use at once for calculations (see
+   * {@link asl.sensor.ComputeExecutor}). Zero or less (the default if not specified in the
+   * configuration file) means one thread per available processor.
+   *
+   * The property is defined from Configuration.Compute.Parallelism as an integer
+   * @return The configured calculation parallelism
+   */
+  public int getComputeParallelism() {
+    return computeParallelism;
+  }
+
+  /**
+   * Set the number of threads that experiments may use at once for calculations.
+   * This does not take effect until the program is restarted.
+   * @param replacement New parallelism, or zero to use one thread per available processor
+   */
+  public void setComputeParallelism(int replacement) {
+    computeParallelism = replacement;
+  }
+
   /**
    * Writes out the current configuration to file.
    * This is called when the configuration is saved via the GUI utils.
@@ -349,6 +375,7 @@ public class Configuration {
       config.setProperty("FDSNPaths.Port", fdsnPort);
       config.setProperty("VisualOptions.ColorblindFriendly", useColorblindColors);
       config.setProperty("VisualOptions.LineThicknessIncrease", lineWidthOffset);
+      config.setProperty("Compute.Parallelism", computeParallelism);
 
       config.save();
     } catch (ConfigurationException e) {
@@ -0,0 +1,188 @@
+package asl.sensor.input;
+
+import static asl.utils.NumericUtils.demean;
+import static asl.utils.NumericUtils.detrend;
+
+import asl.sensor.ComputeExecutor;
+import asl.utils.FFTResult;
+import asl.utils.TimeSeriesUtils;
+import asl.utils.input.InstrumentResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.commons.math3.complex.Complex;
+import org.apache.commons.math3.transform.DftNormalization;
+import org.apache.commons.math3.transform.FastFourierTransformer;
+import org.apache.commons.math3.transform.TransformType;
+
+/**
+ * Calculates the power spectra between each pair of a set of inputs with a single pass over
+ * their data. {@link FFTResult#crossPower} segments, detrends, tapers, and transforms both of its
+ * inputs each time it is called, so a full matrix over n inputs built from it takes n * (n + 1)
+ * FFTs of each segment (i.e., 12 per segment for the three inputs of a noise experiment). Here
+ * each segment of each input is prepared and transformed once, and the product X_i * conj(X_j)
+ * of every pair of transforms is accumulated from those, for n FFTs per segment.
+ *
+ * Segmentation, windowing, and normalization follow FFTResult.spectralCalc: segments are a
+ * quarter of the data long and start a quarter of that apart; each is detrended, demeaned, and
+ * cosine tapered before being zero-padded to a power of two; and the accumulated spectra are
+ * scaled by the sample period, padding, segment count, and taper power. The response of each
+ * input is then removed from each of its spectra as in crossPower, evaluating each response only
+ * once. Results therefore match crossPower up to rounding error.
+ *
+ * The inputs are transformed concurrently within each segment, and the pairs then accumulated
+ * concurrently. Only the transforms of the current segment are held, so memory use beyond the
+ * results is one padded segment per input.
+ */
+final class CrossSpectralEstimator {
+
+  /**
+   * Fraction of each end of a segment that is tapered (as in FFTResult)
+   */
+  private static final double TAPER_WIDTH = 0.10;
+
+  private CrossSpectralEstimator() {
+  }
+
+  /**
+   * Calculate the spectra of a set of inputs
+   *
+   * @param data Samples of each input; inputs shorter than the length are zero-padded to it
+   * @param responses Response of each input, which is removed from its spectra
+   * @param length Number of samples of each input to calculate spectra over
+   * @param interval Sample interval of the inputs
+   * @param includeCrossPowers True to calculate the cross-powers between each pair of inputs,
+   * false to only calculate the PSD of each input
+   * @return Spectra of the inputs; entry [i][j] with j > i is the cross-power of inputs i and j,
+   * entry [i][i] is the PSD of input i, and entries below the diagonal (and, without
+   * cross-powers, off of it) are null
+   */
+  static FFTResult[][] calculate(double[][] data, InstrumentResponse[] responses, int length,
+      long interval, boolean includeCrossPowers) {
+    final int count = data.length;
+    final List<int[]> pairs = new ArrayList<>();
+    for (int i = 0; i < count; ++i) {
+      pairs.add(new int[]{i, i});
+      if (includeCrossPowers) {
+        for (int j = i + 1; j < count; ++j) {
+          pairs.add(new int[]{i, j});
+        }
+      }
+    }
+
+    final int range = length / 4;
+    final int slider = Math.max(1, range / 4);
+    double period = 1.0 / TimeSeriesUtils.ONE_HZ_INTERVAL;
+    period *= interval;
+    int padding = 2;
+    while (padding < range) {
+      padding *= 2;
+    }
+    final int singleSide = padding / 2 + 1;
+
+    ComputeExecutor executor = ComputeExecutor.getInstance();
+    final double[][][] transforms = new double[count][2][padding];
+    final double[][] sumReal = new double[pairs.size()][singleSide];
+    final double[][] sumImag = new double[pairs.size()][singleSide];
+    final double[] taperPower = new double[count];
+    int segments = 0;
+    for (int start = 0; start + range <= length; start += slider) {
+      final int segmentStart = start;
+      executor.forEach("Cross-spectral segments", count, i -> taperPower[i] =
+          transformSegment(data[i], segmentStart, range, transforms[i]));
+      executor.forEach("Cross-spectral accumulation", pairs.size(), p -> {
+        double[][] first = transforms[pairs.get(p)[0]];
+        double[][] second = transforms[pairs.get(p)[1]];
+        accumulate(first[0], first[1], second[0], second[1], sumReal[p], sumImag[p]);
+      });
+      ++segments;
+    }
+
+    double[] freqs = new double[singleSide];
+    double deltaFreq = 1. / (padding * period);
+    for (int i = 0; i < singleSide; ++i) {
+      freqs[i] = i * deltaFreq;
+    }
+    Complex[][] responseCurves = new Complex[count][];
+    for (int i = 0; i < count; ++i) {
+      responseCurves[i] = responses[i].applyResponseToInput(freqs);
+    }
+
+    double psdNormalization = 2.0 * period / padding;
+    // every segment has the same length, so the power of the taper is the same for all of them
+    double windowCorrection = taperPower[0] / (double) range;
+    FFTResult[][] results = new FFTResult[count][count];
+    for (int p = 0; p < pairs.size(); ++p) {
+      Complex[] firstResponse = responseCurves[pairs.get(p)[0]];
+      Complex[] secondResponse = responseCurves[pairs.get(p)[1]];
+      Complex[] power = new Complex[singleSide];
+      for (int k = 0; k < singleSide; ++k) {
+        double real = sumReal[p][k] * psdNormalization / segments / windowCorrection;
+        double imag = sumImag[p][k] * psdNormalization / segments / windowCorrection;
+        Complex respMagnitude = firstResponse[k].multiply(secondResponse[k].conjugate());
+        if (respMagnitude.abs() == 0) {
+          respMagnitude = new Complex(Double.MIN_VALUE, 0);
+        }
+        power[k] = new Complex(real, imag).divide(respMagnitude);
+      }
+      results[pairs.get(p)[0]][pairs.get(p)[1]] = new FFTResult(power, freqs);
+    }
+    return results;
+  }
+
+  /**
+   * Detrend, demean, and taper a segment of data and write its FFT (zero-padded to the length of
+   * the given arrays) into them
+   *
+   * @param data Samples of an input
+   * @param start Index of the first sample in the segment
+   * @param range Number of samples in the segment
+   * @param transform Arrays of {real, imaginary} parts to write the FFT to
+   * @return Power of the taper applied to the segment
+   */
+  private static double transformSegment(double[] data, int start, int range,
+      double[][] transform) {
+    double[] segment = demean(detrend(Arrays.copyOfRange(data, start, start + range)));
+    double taperPower = cosineTaper(segment);
+    double[] real = transform[0];
+    double[] imag = transform[1];
+    System.arraycopy(segment, 0, real, 0, range);
+    Arrays.fill(real, range, real.length, 0.);
+    Arrays.fill(imag, 0.);
+    FastFourierTransformer.transformInPlace(transform, DftNormalization.STANDARD,
+        TransformType.FORWARD);
+    return taperPower;
+  }
+
+  /**
+   * Add the product of the first FFT with the conjugate of the second, over the non-negative
+   * frequencies, to the accumulated spectrum (computed as with Complex.multiply)
+   */
+  private static void accumulate(double[] firstReal, double[] firstImag, double[] secondReal,
+      double[] secondImag, double[] sumReal, double[] sumImag) {
+    for (int k = 0; k < sumReal.length; ++k) {
+      double conjugateImag = -secondImag[k];
+      sumReal[k] += firstReal[k] * secondReal[k] - firstImag[k] * conjugateImag;
+      sumImag[k] += firstReal[k] * conjugateImag + firstImag[k] * secondReal[k];
+    }
+  }
+
+  /**
+   * Apply a cosine taper to each end of a segment in place, as done before taking its FFT
+   *
+   * @param segment Data to taper
+   * @return Sum of the squares of the taper over the segment, used to correct for its power
+   */
+  private static double cosineTaper(double[] segment) {
+    double ramp = TAPER_WIDTH * segment.length;
+    double taperPower = 0.0;
+    for (int i = 0; i < ramp; ++i) {
+      double taper = 0.5 * (1.0 - Math.cos(i * Math.PI / ramp));
+      segment[i] *= taper;
+      segment[segment.length - i - 1] *= taper;
+      taperPower += 2.0 * taper * taper;
+    }
+    taperPower += segment.length - 2 * ramp;
+    return taperPower;
+  }
+}
@@ -0,0 +1,128 @@
+package asl.sensor.input;
+
+import asl.utils.FFTResult;
+import org.apache.commons.math3.complex.Complex;
+
+/**
+ * Power spectra between each pair of a set of inputs in a DataStore, produced by
+ * {@link DataStore#getSpectralMatrix(int[], int, boolean)}. Entry (i, j) is the cross-power of the
+ * ith and jth inputs in the set, so the diagonal holds the PSD of each input. The matrix is
+ * Hermitian: entry (j, i) is the complex conjugate of entry (i, j), so only one of each pair is
+ * ever calculated. This class only holds the results; they are calculated together by
+ * {@link CrossSpectralEstimator}, which transforms each segment of each input once and forms every
+ * entry from those transforms.
+ *
+ * Matrices can also be produced with only their diagonal (i.e., when an experiment only needs the
+ * PSDs of its inputs), in which case requesting a cross-power is an error.
+ */
+public final class CrossSpectralMatrix {
+
+  private final int[] indices;
+  private final FFTResult[][] entries;
+  private final boolean includesCrossPowers;
+
+  /**
+   * Create a matrix from the spectra calculated over a set of inputs
+   *
+   * @param indices DataStore indices of the inputs, in matrix order
+   * @param entries Spectra of each pair of inputs; only entries on or above the diagonal are
+   * read, and only the diagonal if cross-powers are not included
+   * @param includesCrossPowers True if the off-diagonal entries have been calculated
+   */
+  CrossSpectralMatrix(int[] indices, FFTResult[][] entries, boolean includesCrossPowers) {
+    this.indices = indices.clone();
+    this.includesCrossPowers = includesCrossPowers;
+    int size = indices.length;
+    this.entries = new FFTResult[size][size];
+    for (int i = 0; i < size; ++i) {
+      this.entries[i][i] = entries[i][i];
+      if (!includesCrossPowers) {
+        continue;
+      }
+      for (int j = i + 1; j < size; ++j) {
+        this.entries[i][j] = entries[i][j];
+        this.entries[j][i] = conjugate(entries[i][j]);
+      }
+    }
+  }
+
+  /**
+   * Get the complex conjugate of a cross-power result, which is the cross-power of the same two
+   * inputs taken in the opposite order
+   *
+   * @param crossPower Result of a cross-power calculation
+   * @return Cross-power with the order of its inputs reversed
+   */
+  static FFTResult conjugate(FFTResult crossPower) {
+    Complex[] power = crossPower.getFFT();
+    Complex[] conjugated = new Complex[power.length];
+    for (int i = 0; i < power.length; ++i) {
+      conjugated[i] = power[i].conjugate();
+    }
+    return new FFTResult(conjugated, crossPower.getFreqs());
+  }
+
+  /**
+   * Get the number of inputs the spectra were calculated over (the matrix dimension)
+   *
+   * @return Number of inputs
+   */
+  public int size() {
+    return indices.length;
+  }
+
+  /**
+   * Get the DataStore index of the input in the given row (or column) of this matrix
+   *
+   * @param i Row of the matrix
+   * @return Index of the corresponding data in the DataStore the matrix was calculated from
+   */
+  public int getIndex(int i) {
+    return indices[i];
+  }
+
+  /**
+   * Check whether the off-diagonal (cross-power) entries of this matrix were calculated
+   *
+   * @return True if cross-powers are available
+   */
+  public boolean includesCrossPowers() {
+    return includesCrossPowers;
+  }
+
+  /**
+   * Get the frequencies each spectrum in this matrix is evaluated at
+   *
+   * @return Frequencies of the first input's PSD (in Hz)
+   */
+  public double[] getFreqs() {
+    return entries[0][0].getFreqs();
+  }
+
+  /**
+   * Get the spectrum of a pair of inputs in this matrix
+   *
+   * @param i Row of the matrix (first input of the pair)
+   * @param j Column of the matrix (second input of the pair)
+   * @return PSD if i and j are equal, otherwise the cross-power of the ith and jth input
+   * @throws IllegalStateException If a cross-power is requested from a PSD-only matrix
+   */
+  public FFTResult getResult(int i, int j) {
+    if (i != j && !includesCrossPowers) {
+      throw new IllegalStateException("Cross-powers were not calculated for this matrix");
+    }
+    return entries[i][j];
+  }
+
+  /**
+   * Get the values of the spectrum of a pair of inputs in this matrix
+   *
+   * @param i Row of the matrix (first input of the pair)
+   * @param j Column of the matrix (second input of the pair)
+   * @return Complex spectrum values, matching the frequencies from {@link #getFreqs()}
+   * @throws IllegalStateException If a cross-power is requested from a PSD-only matrix
+   */
+  public Complex[] getPower(int i, int j) {
+    return getResult(i, j).getFFT();
+  }
+}
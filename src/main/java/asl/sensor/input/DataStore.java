@@ -5,6 +5,7 @@ import static asl.utils.TimeSeriesUtils.formatEpochMillis;
 import static asl.utils.TimeSeriesUtils.getMplexNameList;
 import static asl.utils.TimeSeriesUtils.getTimeSeries;
 
+import asl.sensor.ComputeExecutor;
 import asl.utils.FFTResult;
 import asl.utils.input.DataBlock;
 import asl.utils.input.InstrumentResponse;
@@ -12,6 +13,10 @@ import edu.iris.dmc.seedcodec.CodecException;
 import edu.sc.seis.seisFile.mseed.SeedFormatException;
 import java.io.IOException;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.commons.math3.util.Pair;
 
 /**
@@ -40,6 +45,12 @@ import org.apache.commons.math3.util.Pair;
  * to the same range and has the same sample rate, which is necessary for most
  * experiments.
  *
+ * PSDs and cross-powers calculated from this object are cached (see SpectrumCache) so that
+ * re-running an experiment over unchanged data does not repeat the FFT calculations. Each
+ * index holds a token that is replaced whenever the block or response at that index changes,
+ * so cached results can only be returned for the data they were calculated from. A token copied
+ * to another datastore is never used to evict results, as the other store may still hold it.
+ *
  * @author akearns
  */
 public class DataStore {
@@ -48,13 +59,36 @@ public class DataStore {
    * Defines the maximum number of plots to be shown
    */
   public final static int FILE_COUNT = 9;
+
+  /**
+   * Source of unique tokens identifying the state of a block/response pair
+   */
+  private static final AtomicLong TOKEN_SOURCE = new AtomicLong();
+
   private final DataBlock[] dataBlockArray;
   private final InstrumentResponse[] responses;
 
+  // used to identify the current data at each index for the purpose of caching spectra
+  private final long[] tokens;
+  // tokens that another datastore may also hold, whose cached spectra must not be evicted
+  private final boolean[] sharedTokens;
+  private final SpectrumCache spectra;
+  // identifies the spectra this object calculated, which are the only ones its trims prune
+  private final long storeId;
+
   // these are used to check to make sure data has been loaded
   private final boolean[] thisBlockIsSet;
   private final boolean[] thisResponseIsSet;
 
+  // blocks shared with another datastore, which are copied before being modified
+  private final boolean[] sharedBlocks;
+  // time ranges that shared blocks were trimmed to without being copied (see trimBlock)
+  private final boolean[] pendingTrims;
+  private final long[] trimStarts;
+  private final long[] trimEnds;
+  // samples read out of each block, which views of its current time range are taken from
+  private final CachedView[] views;
+
   /**
    * Instantiate the collections, including empty datasets to be sent to
    * charts for plotting (see DataPanel)
@@ -64,15 +98,31 @@ public class DataStore {
     responses = new InstrumentResponse[FILE_COUNT];
     thisBlockIsSet = new boolean[FILE_COUNT];
     thisResponseIsSet = new boolean[FILE_COUNT];
+    tokens = new long[FILE_COUNT];
+    sharedTokens = new boolean[FILE_COUNT];
+    spectra = new SpectrumCache();
+    storeId = TOKEN_SOURCE.incrementAndGet();
+    sharedBlocks = new boolean[FILE_COUNT];
+    pendingTrims = new boolean[FILE_COUNT];
+    trimStarts = new long[FILE_COUNT];
+    trimEnds = new long[FILE_COUNT];
+    views = new CachedView[FILE_COUNT];
     for (int i = 0; i < FILE_COUNT; ++i) {
       thisBlockIsSet[i] = false;
       thisResponseIsSet[i] = false;
+      tokens[i] = TOKEN_SOURCE.incrementAndGet();
     }
   }
 
 
   /**
-   * Create a copy of the current datastore
+   * Create a copy of the current datastore. The copy shares the spectrum cache of the original,
+   * so PSDs calculated over either of them can be reused until their data diverges. Changing the
+   * data in one of them gives it a new token without evicting the spectra the other still uses.
+   * The data blocks themselves are also shared rather than copied (which, for long multi-channel
+   * data, means not copying every sample each time an experiment is run over the data); a shared
+   * block is only copied when either datastore first resamples or appends to it, or needs the
+   * block itself after trimming it (see {@link #getBlock(int)}).
    *
    * @param ds datastore to copy
    */
@@ -81,11 +131,22 @@ public class DataStore {
     responses = new InstrumentResponse[FILE_COUNT];
     thisBlockIsSet = new boolean[FILE_COUNT];
     thisResponseIsSet = new boolean[FILE_COUNT];
+    tokens = ds.tokens.clone();
+    sharedTokens = new boolean[FILE_COUNT];
+    spectra = ds.spectra;
+    storeId = TOKEN_SOURCE.incrementAndGet();
+    sharedBlocks = new boolean[FILE_COUNT];
+    pendingTrims = new boolean[FILE_COUNT];
+    trimStarts = new long[FILE_COUNT];
+    trimEnds = new long[FILE_COUNT];
+    views = ds.views.clone();
     boolean[] setBlocks = ds.dataIsSet();
     boolean[] setResps = ds.responsesAreSet();
     for (int i = 0; i < FILE_COUNT; ++i) {
+      sharedTokens[i] = true;
+      ds.sharedTokens[i] = true;
       if (setBlocks[i]) {
-        dataBlockArray[i] = new DataBlock(ds.getBlock(i));
+        shareBlock(i, ds, i);
         thisBlockIsSet[i] = true;
       }
 
@@ -157,15 +218,162 @@ public class DataStore {
   }
 
   /**
-   * Return a single data block according to the passed index
+   * Return a single data block according to the passed index. If the data was trimmed while its
+   * block was shared with another datastore, the trim is applied to a copy of the block first
+   * (see {@link #trim(long, long, int)}); code that only needs the samples or time range of the
+   * data should use {@link #getView(int)}, {@link #getStartTime(int)} and
+   * {@link #getEndTime(int)} instead.
    *
    * @param idx Index of datablock, corresponding to data panel plot index
    * @return Timeseries data for corresponing plot
    */
   public DataBlock getBlock(int idx) {
+    if (pendingTrims[idx]) {
+      return getWritableBlock(idx);
+    }
     return dataBlockArray[idx];
   }
 
+  /**
+   * Get the start of the current (trimmed) time range of the data at an index
+   *
+   * @param idx Index of datablock, corresponding to data panel plot index
+   * @return Time of the first sample in the range (epoch milliseconds)
+   */
+  public long getStartTime(int idx) {
+    return pendingTrims[idx] ? trimStarts[idx] : dataBlockArray[idx].getStartTime();
+  }
+
+  /**
+   * Get the end of the current (trimmed) time range of the data at an index
+   *
+   * @param idx Index of datablock, corresponding to data panel plot index
+   * @return Time just after the last sample in the range (epoch milliseconds)
+   */
+  public long getEndTime(int idx) {
+    return pendingTrims[idx] ? trimEnds[idx] : dataBlockArray[idx].getEndTime();
+  }
+
+  /**
+   * Get the current (trimmed) samples of the data at an index as a read-only view. The samples
+   * are read out of the data block once, and trimming the data within that range only narrows
+   * the offset and length of the view over them, so repeated calls (i.e., from PSD calculations,
+   * experiments, and plots over the same or a narrower window) do not copy the samples again.
+   * Copies of this datastore share the samples as well. Code that modifies the samples must copy
+   * them first (see SampleView.toArray()).
+   *
+   * @param idx Index of datablock, corresponding to data panel plot index
+   * @return View of the samples of the data in its current time range
+   */
+  public SampleView getView(int idx) {
+    long start = getStartTime(idx);
+    long end = getEndTime(idx);
+    long interval = dataBlockArray[idx].getInterval();
+    CachedView cached = views[idx];
+    if (cached != null && cached.matches(tokens[idx], interval, start, end)) {
+      return cached.view;
+    }
+
+    if (cached == null || !cached.covers(tokens[idx], interval, start, end)) {
+      DataBlock block = dataBlockArray[idx];
+      if (start < block.getStartTime() || end > block.getEndTime()) {
+        // range was widened since the block was shared, so it has to be applied to a copy
+        block = getBlock(idx);
+      }
+      cached = new CachedView(tokens[idx], block);
+    }
+    cached = cached.window(start, end);
+    if (!pendingTrims[idx] && cached.view.size() != dataBlockArray[idx].size()) {
+      // the block's own trim doesn't line up with the samples read before; read them again
+      cached = new CachedView(tokens[idx], dataBlockArray[idx]);
+    }
+    views[idx] = cached;
+    return cached.view;
+  }
+
+  /**
+   * Place the data at an index of another datastore at an index of this one, sharing the block
+   * between the two until either of them modifies it (as with the copy constructor)
+   *
+   * @param idx Index to place the data into
+   * @param source Datastore to take the data from
+   * @param sourceIdx Index of the data in the source datastore
+   */
+  public void setSharedBlock(int idx, DataStore source, int sourceIdx) {
+    thisBlockIsSet[idx] = true;
+    shareBlock(idx, source, sourceIdx);
+    renewToken(idx);
+  }
+
+  /**
+   * Share the block at an index of another datastore, along with any trim of it not yet applied
+   *
+   * @param idx Index to place the block into
+   * @param source Datastore to take the block from
+   * @param sourceIdx Index of the block in the source datastore
+   */
+  private void shareBlock(int idx, DataStore source, int sourceIdx) {
+    synchronized (source) {
+      dataBlockArray[idx] = source.dataBlockArray[sourceIdx];
+      pendingTrims[idx] = source.pendingTrims[sourceIdx];
+      trimStarts[idx] = source.trimStarts[sourceIdx];
+      trimEnds[idx] = source.trimEnds[sourceIdx];
+      sharedBlocks[idx] = true;
+      source.sharedBlocks[sourceIdx] = true;
+    }
+  }
+
+  /**
+   * Get the block at an index in order to modify it, first copying it if it is shared with
+   * another datastore. Any trim of the shared block that was put off is applied to the copy.
+   *
+   * @param idx Index of the block to be modified
+   * @return Block at the index that is only referenced by this object
+   */
+  private synchronized DataBlock getWritableBlock(int idx) {
+    if (sharedBlocks[idx]) {
+      DataBlock copy = new DataBlock(dataBlockArray[idx]);
+      if (pendingTrims[idx]) {
+        if (trimStarts[idx] < copy.getStartTime() || trimEnds[idx] > copy.getEndTime()) {
+          copy.untrim();
+        }
+        copy.trim(trimStarts[idx], trimEnds[idx]);
+      }
+      dataBlockArray[idx] = copy;
+      pendingTrims[idx] = false;
+      sharedBlocks[idx] = false;
+    pendingTrims[idx] = false;
+    }
+    return dataBlockArray[idx];
+  }
+
+  /**
+   * Trim the block at an index to a time range. Nothing is done if the data is already at that
+   * range. A block shared with another datastore is not copied in order to be trimmed: the range
+   * is kept alongside the block, views of the data are narrowed to it (see getView), and it is
+   * only applied to a copy of the block if the block itself is requested (see getBlock).
+   *
+   * @param idx Index of the block to trim
+   * @param start Start of the new range (epoch milliseconds)
+   * @param end End of the new range (epoch milliseconds)
+   */
+  private void trimBlock(int idx, long start, long end) {
+    if (start == getStartTime(idx) && end == getEndTime(idx)) {
+      return;
+    }
+    DataBlock block = dataBlockArray[idx];
+    if (!sharedBlocks[idx]) {
+      block.trim(start, end);
+      return;
+    }
+    start = Math.max(start, block.getInitialStartTime());
+    end = Math.min(end, block.getInitialEndTime());
+    trimStarts[idx] = start;
+    trimEnds[idx] = end;
+    // a trim back to the shared block's own range doesn't need to be applied at all
+    pendingTrims[idx] = start != block.getStartTime() || end != block.getEndTime();
+  }
+
   public Pair<Long, Long> getCommonTime() {
     return getCommonTime(FILE_COUNT);
   }
@@ -206,10 +414,7 @@ public class DataStore {
    * double array of the frequencies
    */
   public FFTResult getPSD(int idx) {
-    double[] data = dataBlockArray[idx].getData();
-    long interval = dataBlockArray[idx].getInterval();
-    InstrumentResponse ir = responses[idx];
-    return FFTResult.crossPower(data, data, ir, ir, data.length, interval);
+    return getPSD(idx, getView(idx).size());
   }
 
   /**
@@ -228,10 +433,212 @@ public class DataStore {
    * double array of the frequencies
    */
   public FFTResult getPSD(int idx, int maxLength) {
-    double[] data = dataBlockArray[idx].getData();
-    long interval = dataBlockArray[idx].getInterval();
-    InstrumentResponse ir = responses[idx];
-    return FFTResult.crossPower(data, data, ir, ir, maxLength, interval);
+    SpectrumCache.Key key = getSpectrumKey(idx, idx, maxLength);
+    FFTResult psd = spectra.get(key);
+    if (psd == null) {
+      psd = calculateSpectra(new int[]{idx}, maxLength, false)[0][0];
+      spectra.put(key, psd, storeId);
+    }
+    return psd;
+  }
+
+  /**
+   * Gets the cross-power of the data at two indices in this object, using the responses at
+   * those indices. If this has already been calculated, this will return that. If not,
+   * it will calculate the result, store it, and then return that data.
+   * Note that the order of the indices matters: the cross-power of (i, j) is the complex
+   * conjugate of the cross-power of (j, i).
+   *
+   * @param firstIdx Index of the first set of data to get the cross-power of
+   * @param secondIdx Index of the second set of data to get the cross-power of
+   * @param maxLength Maximum number of points to calculate cross-power over
+   * @return Complex array of frequency values and a
+   * double array of the frequencies
+   */
+  public FFTResult getCrossPower(int firstIdx, int secondIdx, int maxLength) {
+    if (firstIdx == secondIdx) {
+      return getPSD(firstIdx, maxLength);
+    }
+    // the reverse order may have already been calculated, in which case just conjugate it
+    FFTResult crossPower = getCachedSpectrum(firstIdx, secondIdx, maxLength);
+    if (crossPower == null) {
+      crossPower = calculateSpectra(new int[]{firstIdx, secondIdx}, maxLength, true)[0][1];
+      spectra.put(getSpectrumKey(firstIdx, secondIdx, maxLength), crossPower, storeId);
+    }
+    return crossPower;
+  }
+
+  /**
+   * Gets the PSDs of a set of indices in this object and, optionally, the cross-powers between
+   * each pair of them, as a Hermitian matrix. As with {@link #getPSD(int, int)} and
+   * {@link #getCrossPower(int, int, int)}, results are cached and reused where possible.
+   *
+   * When cross-powers are included, any spectra not already cached are calculated together by
+   * {@link CrossSpectralEstimator}, which transforms each segment of each input once and forms
+   * every entry from those transforms, rather than transforming both inputs again for each entry.
+   * All entries are then calculated over the same number of points, the shortest of maxLength
+   * and the lengths of the inputs. When only PSDs are needed, each is calculated separately (and
+   * concurrently) over the shorter of maxLength and the length of its input.
+   *
+   * @param indices Indices of the data to get spectra of; row/column i of the matrix is the data
+   * at indices[i]
+   * @param maxLength Maximum number of points to calculate spectra over (data shorter than this
+   * uses its full length)
+   * @param includeCrossPowers True if the cross-powers between each pair of inputs are needed,
+   * false if only the PSD of each input is used
+   * @return Matrix of the spectra of each pair of inputs
+   */
+  public CrossSpectralMatrix getSpectralMatrix(int[] indices, int maxLength,
+      boolean includeCrossPowers) {
+    if (indices.length == 0) {
+      throw new IllegalArgumentException("At least one index is needed for a spectral matrix");
+    }
+    final int size = indices.length;
+    final FFTResult[][] entries = new FFTResult[size][size];
+
+    if (!includeCrossPowers) {
+      // each task only writes to its own entry of the matrix, so no synchronization is needed
+      ComputeExecutor.getInstance().forEach("Spectral matrix", size, i -> entries[i][i] =
+          getPSD(indices[i], Math.min(maxLength, getView(indices[i]).size())));
+      return new CrossSpectralMatrix(indices, entries, false);
+    }
+
+    int length = maxLength;
+    for (int index : indices) {
+      length = Math.min(length, getView(index).size());
+    }
+    boolean missing = false;
+    for (int i = 0; i < size; ++i) {
+      for (int j = i; j < size; ++j) {
+        entries[i][j] = getCachedSpectrum(indices[i], indices[j], length);
+        missing |= entries[i][j] == null;
+      }
+    }
+    if (missing) {
+      FFTResult[][] calculated = calculateSpectra(indices, length, true);
+      for (int i = 0; i < size; ++i) {
+        for (int j = i; j < size; ++j) {
+          if (entries[i][j] == null) {
+            entries[i][j] = calculated[i][j];
+            spectra.put(getSpectrumKey(indices[i], indices[j], length), entries[i][j], storeId);
+          }
+        }
+      }
+    }
+    return new CrossSpectralMatrix(indices, entries, true);
+  }
+
+  /**
+   * Look up a spectrum that has already been calculated, conjugating the cross-power of the
+   * reversed pair of indices if only that is present
+   *
+   * @param firstIdx Index of the first set of data in the spectrum
+   * @param secondIdx Index of the second set of data in the spectrum
+   * @param maxLength Number of points the spectrum is calculated over
+   * @return Cached spectrum, or null if it has not been calculated
+   */
+  private FFTResult getCachedSpectrum(int firstIdx, int secondIdx, int maxLength) {
+    FFTResult result = spectra.get(getSpectrumKey(firstIdx, secondIdx, maxLength));
+    if (result == null && firstIdx != secondIdx) {
+      FFTResult reversed = spectra.get(getSpectrumKey(secondIdx, firstIdx, maxLength));
+      if (reversed != null) {
+        result = CrossSpectralMatrix.conjugate(reversed);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Calculate the spectra of the data at a set of indices with their responses removed
+   *
+   * @param indices Indices of the data to calculate spectra of
+   * @param maxLength Number of points to calculate spectra over
+   * @param includeCrossPowers True to calculate cross-powers as well as PSDs
+   * @return Spectra as produced by {@link CrossSpectralEstimator#calculate}, in order of indices
+   */
+  private FFTResult[][] calculateSpectra(int[] indices, int maxLength,
+      boolean includeCrossPowers) {
+    double[][] data = new double[indices.length][];
+    InstrumentResponse[] inputResponses = new InstrumentResponse[indices.length];
+    for (int i = 0; i < indices.length; ++i) {
+      data[i] = getView(indices[i]).asArray();
+      inputResponses[i] = responses[indices[i]];
+    }
+    return CrossSpectralEstimator.calculate(data, inputResponses, maxLength,
+        dataBlockArray[indices[0]].getInterval(), includeCrossPowers);
+  }
+
+  /**
+   * Produce the key identifying a spectrum calculation over the current state of two indices
+   *
+   * @param firstIdx Index of the first set of data in the calculation
+   * @param secondIdx Index of the second set of data in the calculation
+   * @param maxLength Maximum number of points the calculation is done over
+   * @return Key to look up the calculation in the spectrum cache
+   */
+  private SpectrumCache.Key getSpectrumKey(int firstIdx, int secondIdx, int maxLength) {
+    return new SpectrumCache.Key(
+        tokens[firstIdx], getStartTime(firstIdx), getEndTime(firstIdx),
+        tokens[secondIdx], getStartTime(secondIdx), getEndTime(secondIdx),
+        dataBlockArray[firstIdx].getInterval(), maxLength);
+  }
+
+  /**
+   * Give the data at an index a new token, so that spectra calculated from its previous state
+   * are no longer used. Called whenever the block or response at that index is replaced or has
+   * its contents changed. Spectra for the previous token are evicted only if no other datastore
+   * may hold it.
+   *
+   * @param idx Index whose data has changed
+   */
+  private void renewToken(int idx) {
+    retireToken(idx);
+    tokens[idx] = TOKEN_SOURCE.incrementAndGet();
+  }
+
+  /**
+   * Give the data at an index the token for its previous state resampled to a new interval,
+   * called after its block is resampled. The same data resampled to the same interval always gets
+   * the same token (see SpectrumCache), so spectra over it are reused by later copies of the
+   * original datastore that resample it in turn.
+   *
+   * @param idx Index whose block was resampled
+   * @param interval Interval the block was resampled to
+   */
+  private void resampleToken(int idx, long interval) {
+    long resampled = spectra.getResampledToken(tokens[idx], interval,
+        TOKEN_SOURCE::incrementAndGet);
+    retireToken(idx);
+    tokens[idx] = resampled;
+    // any other copy resampling the same data gets this token as well
+    sharedTokens[idx] = true;
+  }
+
+  /**
+   * Evict the spectra calculated using the current token at an index, unless the token was
+   * copied to (or from) another datastore that may still use them
+   *
+   * @param idx Index whose token is about to be replaced
+   */
+  private void retireToken(int idx) {
+    if (!sharedTokens[idx]) {
+      spectra.invalidate(tokens[idx]);
+    }
+    sharedTokens[idx] = false;
+  }
+
+  /**
+   * Remove cached spectra this object calculated for any time window other than the current one
+   * of the first [limit] blocks, to be called after those blocks have been trimmed
+   *
+   * @param limit upper bound of blocks that were trimmed
+   */
+  private void pruneSpectra(int limit) {
+    for (int i = 0; i < limit; ++i) {
+      if (thisBlockIsSet[i]) {
+        spectra.prune(storeId, tokens[i], getStartTime(i), getEndTime(i));
+      }
+    }
   }
 
   /**
@@ -289,7 +696,7 @@ public class DataStore {
       if (thisBlockIsSet[i]) {
         ++count;
         if (count == x) {
-          return dataBlockArray[i];
+          return getBlock(i);
         }
       }
     }
@@ -331,13 +738,14 @@ public class DataStore {
     // first loop to get lowest-frequency data
     for (int i = 0; i < limit; ++i) {
       if (thisBlockIsSet[i]) {
-        interval = Math.max(interval, getBlock(i).getInterval());
+        interval = Math.max(interval, dataBlockArray[i].getInterval());
       }
     }
     // second loop to downsample
     for (int i = 0; i < limit; ++i) {
-      if (thisBlockIsSet[i] && getBlock(i).getInterval() != interval) {
-        getBlock(i).resample(interval);
+      if (thisBlockIsSet[i] && dataBlockArray[i].getInterval() != interval) {
+        getWritableBlock(i).resample(interval);
+        resampleToken(i, interval);
       }
     }
 
@@ -378,7 +786,10 @@ public class DataStore {
    */
   public void removeBlock(int idx) {
     dataBlockArray[idx] = null;
+    sharedBlocks[idx] = false;
+    pendingTrims[idx] = false;
     thisBlockIsSet[idx] = false;
+    renewToken(idx);
   }
 
   /**
@@ -391,12 +802,13 @@ public class DataStore {
     // make sure all data over range gets set to the same interval (and don't upsample)
     for (int i = 0; i < FILE_COUNT; ++i) {
       if (thisBlockIsSet[i]) {
-        newInterval = Math.max(newInterval, getBlock(i).getInitialInterval());
+        newInterval = Math.max(newInterval, dataBlockArray[i].getInitialInterval());
       }
     }
     for (int i = 0; i < FILE_COUNT; ++i) {
-      if (thisBlockIsSet[i] && getBlock(i).getInitialInterval() != newInterval) {
-        getBlock(i).resample(newInterval);
+      if (thisBlockIsSet[i] && dataBlockArray[i].getInitialInterval() != newInterval) {
+        getWritableBlock(i).resample(newInterval);
+        resampleToken(i, newInterval);
       }
     }
   }
@@ -433,40 +845,20 @@ public class DataStore {
   public void setBlock(int idx, DataBlock db) {
     thisBlockIsSet[idx] = true;
     dataBlockArray[idx] = db;
+    sharedBlocks[idx] = false;
+    pendingTrims[idx] = false;
+    renewToken(idx);
   }
 
   public void setBlock(int idx, DataBlock db, int activePlots) throws TimeRangeException {
 
     thisBlockIsSet[idx] = true;
     dataBlockArray[idx] = db;
+    sharedBlocks[idx] = false;
+    pendingTrims[idx] = false;
+    renewToken(idx);
 
-    synchronized (this) {
-      if (numberOfBlocksSet() > 1) {
-        // don't trim data here, that way we don't lose data
-        long start = dataBlockArray[idx].getStartTime();
-        long end = dataBlockArray[idx].getEndTime();
-
-        // there's clearly already another block loaded, let's make sure they
-        // actually have an intersecting time range
-        for (int i = 0; i < FILE_COUNT; ++i) {
-          if (i != idx && thisBlockIsSet[i]) {
-            // whole block either comes before or after the data set
-            if (end <= dataBlockArray[i].getInitialStartTime() ||
-                start >= dataBlockArray[i].getInitialEndTime()) {
-
-              if (i < activePlots) {
-                thisBlockIsSet[idx] = false;
-                dataBlockArray[idx] = null;
-                throw new TimeRangeException(i + 1);
-              } else {
-                // unload data that we aren't currently using
-                thisBlockIsSet[i] = false;
-              }
-            }
-          }
-        }
-      }
-    }
+    validateTimeRange(idx, activePlots);
   }
 
   /**
@@ -513,35 +905,57 @@ public class DataStore {
     DataBlock xy = getTimeSeries(filepath, nameFilter);
     thisBlockIsSet[idx] = true;
     dataBlockArray[idx] = xy;
+    sharedBlocks[idx] = false;
+    pendingTrims[idx] = false;
+    renewToken(idx);
 
-    synchronized (this) {
-      if (numberOfBlocksSet() > 1) {
-        // don't trim data here, that way we don't lose data
-        long start = dataBlockArray[idx].getStartTime();
-        long end = dataBlockArray[idx].getEndTime();
-
-        // there's clearly already another block loaded, let's make sure they
-        // actually have an intersecting time range
-        for (int i = 0; i < FILE_COUNT; ++i) {
-          if (i != idx && thisBlockIsSet[i]) {
-            // whole block either comes before or after the data set
-            if (end <= dataBlockArray[i].getInitialStartTime() ||
-                start >= dataBlockArray[i].getInitialEndTime()) {
-
-              if (i < activePlots) {
-                thisBlockIsSet[idx] = false;
-                dataBlockArray[idx] = null;
-                throw new TimeRangeException(i+1);
-              } else {
-                // unload data that we aren't currently using
-                thisBlockIsSet[i] = false;
-              }
-            }
-          }
-        }
+    validateTimeRange(idx, activePlots);
+  }
+
+  /**
+   * Loads in the data for several channels from all the miniSEED files in a directory or
+   * matching a glob pattern, decoding the files concurrently (see BulkSeedLoader). The data
+   * for the channel named at each index of nameFilters is stitched together from every file it
+   * appears in and placed at that index of this object.
+   *
+   * @param pathOrGlob Directory, glob pattern, or file to load data from
+   * @param nameFilters Station ID (SNCL) to load into each index; null entries are skipped
+   * @param activePlots Max index of active panel to check as active
+   * @throws IllegalArgumentException If a channel has no data in any of the files
+   */
+  public void setBlocks(String pathOrGlob, String[] nameFilters, int activePlots)
+      throws SeedFormatException, CodecException, IOException {
+    List<String> names = new ArrayList<>();
+    for (String nameFilter : nameFilters) {
+      if (nameFilter != null) {
+        names.add(nameFilter);
       }
     }
+    setBlocks(new BulkSeedLoader().load(pathOrGlob, names), pathOrGlob, nameFilters,
+        activePlots);
+  }
 
+  /**
+   * Place channels already loaded by a BulkSeedLoader at the indices they are named at
+   *
+   * @param blocks Loaded data for each channel, keyed by name
+   * @param pathOrGlob Location the data was loaded from, for error reporting
+   * @param nameFilters Station ID (SNCL) to place into each index; null entries are skipped
+   * @param activePlots Max index of active panel to check as active
+   * @throws IllegalArgumentException If a channel has no data in any of the files
+   */
+  public void setBlocks(Map<String, DataBlock> blocks, String pathOrGlob, String[] nameFilters,
+      int activePlots) {
+    for (int i = 0; i < nameFilters.length; ++i) {
+      if (nameFilters[i] != null && !blocks.containsKey(nameFilters[i])) {
+        throw new IllegalArgumentException("No data for " + nameFilters[i] + " in " + pathOrGlob);
+      }
+    }
+    for (int i = 0; i < nameFilters.length; ++i) {
+      if (nameFilters[i] != null) {
+        setBlock(i, blocks.get(nameFilters[i]), activePlots);
+      }
+    }
   }
 
   /**
@@ -553,6 +967,7 @@ public class DataStore {
   public void setResponse(int idx, InstrumentResponse ir) {
     responses[idx] = ir;
     thisResponseIsSet[idx] = true;
+    renewToken(idx);
   }
 
   /**
@@ -564,6 +979,7 @@ public class DataStore {
   public void setResponse(int idx, String filepath) throws IOException {
     responses[idx] = new InstrumentResponse(filepath);
     thisResponseIsSet[idx] = true;
+    renewToken(idx);
   }
 
   /**
@@ -592,6 +1008,8 @@ public class DataStore {
   /**
    * Trims all data blocks to be within a certain time range.
    * Used for getting a sub-range specified by sliding-bar window.
+   * Blocks already at that range are left alone, and blocks shared with another datastore are
+   * not copied to be trimmed; their views are narrowed to the new range instead (see getView).
    *
    * @param start Start time, relative to epoch (nanoseconds)
    * @param end End time, relative to epoch (nanoseconds)
@@ -604,16 +1022,18 @@ public class DataStore {
       if (!thisBlockIsSet[i]) {
         continue;
       }
-      DataBlock db = getBlock(i);
+      long blockStart = getStartTime(i);
+      long blockEnd = getEndTime(i);
 
-      if (end < db.getStartTime() || start > db.getEndTime()) {
+      if (end < blockStart || start > blockEnd) {
 
         String trimStartFormatted = formatEpochMillis(start);
         String trimEndFormatted = formatEpochMillis(end);
-        String blockStartFormatted = formatEpochMillis(db.getStartTime());
-        String blockEndFormatted = formatEpochMillis(db.getEndTime());
+        String blockStartFormatted = formatEpochMillis(blockStart);
+        String blockEndFormatted = formatEpochMillis(blockEnd);
 
-        String errMessage = "Trim range outside of valid data window for " + db.getName() + '\n'
+        String errMessage = "Trim range outside of valid data window for "
+            + dataBlockArray[i].getName() + '\n'
             + "Attempted to trim to range (" + trimStartFormatted
             + ", " + trimEndFormatted + ")\n"
             + "Data range is only from (" + blockStartFormatted
@@ -621,19 +1041,20 @@ public class DataStore {
         throw new IndexOutOfBoundsException(errMessage);
       }
 
-      if (start < db.getStartTime()) {
-        start = db.getStartTime();
+      if (start < blockStart) {
+        start = blockStart;
       }
-      if (end > db.getEndTime()) {
-        end = db.getEndTime();
+      if (end > blockEnd) {
+        end = blockEnd;
       }
     }
 
     for (int i = 0; i < FILE_COUNT; ++i) {
       if (thisBlockIsSet[i]) {
-        getBlock(i).trim(start, end);
+        trimBlock(i, start, end);
       }
     }
+    pruneSpectra(FILE_COUNT);
   }
 
   /**
@@ -662,28 +1083,27 @@ public class DataStore {
 
     // first pass to get the limits of the time data
     for (int i = 0; i < limit; ++i) {
-      DataBlock data = dataBlockArray[i];
       if (!thisBlockIsSet[i]) {
         continue;
       }
-      long start = data.getStartTime();
+      long start = getStartTime(i);
       if (start > lastStartTime) {
         lastStartTime = start;
       }
-      long end = data.getEndTime();
+      long end = getEndTime(i);
       if (end < firstEndTime) {
         firstEndTime = end;
       }
     }
 
-    // second pass to trim the data to the limits given
+    // second pass to trim the data to the limits given (data already at them is left alone)
     for (int i = 0; i < limit; ++i) {
       if (!thisBlockIsSet[i]) {
         continue;
       }
-      DataBlock data = dataBlockArray[i];
-      data.trim(lastStartTime, firstEndTime);
+      trimBlock(i, lastStartTime, firstEndTime);
     }
+    pruneSpectra(limit);
   }
 
   /**
@@ -715,10 +1135,15 @@ public class DataStore {
       if (!thisBlockIsSet[i]) {
         continue;
       }
-      DataBlock data = dataBlockArray[i];
-      data.untrim();
+      if (sharedBlocks[i]) {
+        DataBlock block = dataBlockArray[i];
+        trimBlock(i, block.getInitialStartTime(), block.getInitialEndTime());
+      } else {
+        dataBlockArray[i].untrim();
+      }
     }
     trimToCommonTime(limit);
+    pruneSpectra(limit);
   }
 
   public void appendBlock(int idx, DataBlock dataBlock, int activePlots) {
@@ -727,37 +1152,10 @@ public class DataStore {
       return;
     }
 
-    dataBlockArray[idx].appendTimeSeries(dataBlock);
-
-    synchronized (this) {
-      if (numberOfBlocksSet() > 1) {
-        // don't trim data here, that way we don't lose data
-        long start = dataBlockArray[idx].getStartTime();
-        long end = dataBlockArray[idx].getEndTime();
-
-        // there's clearly already another block loaded, let's make sure they
-        // actually have an intersecting time range
-        for (int i = 0; i < FILE_COUNT; ++i) {
-          if (i != idx && thisBlockIsSet[i]) {
-            // whole block either comes before or after the data set
-            // note that if data ends when another starts, then the data has no overlap --
-            // the end time is effectively when the next sample should start
-            if (end <= dataBlockArray[i].getInitialStartTime() ||
-                start >= dataBlockArray[i].getInitialEndTime()) {
-
-              if (i < activePlots) {
-                thisBlockIsSet[idx] = false;
-                dataBlockArray[idx] = null;
-                throw new TimeRangeException(i+1);
-              } else {
-                // unload data that we aren't currently using
-                thisBlockIsSet[i] = false;
-              }
-            }
-          }
-        }
-      }
-    }
+    getWritableBlock(idx).appendTimeSeries(dataBlock);
+    renewToken(idx);
+
+    validateTimeRange(idx, activePlots);
   }
 
   public void appendBlock(int idx, String filepath, String nameFilter, int activePlots)
@@ -769,39 +1167,153 @@ public class DataStore {
       return;
     }
 
-    dataBlockArray[idx].appendTimeSeries(filepath);
-
-    synchronized (this) {
-      if (numberOfBlocksSet() > 1) {
-        // don't trim data here, that way we don't lose data
-        long start = dataBlockArray[idx].getStartTime();
-        long end = dataBlockArray[idx].getEndTime();
-
-        // there's clearly already another block loaded, let's make sure they
-        // actually have an intersecting time range
-        for (int i = 0; i < FILE_COUNT; ++i) {
-          if (i != idx && thisBlockIsSet[i]) {
-            // whole block either comes before or after the data set
-            // note that if data ends when another starts, then the data has no overlap --
-            // the end time is effectively when the next sample should start
-            if (end <= dataBlockArray[i].getInitialStartTime() ||
-                start >= dataBlockArray[i].getInitialEndTime()) {
-
-              if (i < activePlots) {
-                thisBlockIsSet[idx] = false;
-                dataBlockArray[idx] = null;
-                throw new TimeRangeException(i+1);
-              } else {
-                // unload data that we aren't currently using
-                thisBlockIsSet[i] = false;
-              }
-            }
+    getWritableBlock(idx).appendTimeSeries(filepath);
+    renewToken(idx);
+
+    validateTimeRange(idx, activePlots);
+  }
+
+  /**
+   * Load a channel's data from a batch of miniSEED files (i.e., a directory of day files for one
+   * SNCL) and append it to the block at an index in one pass. The channel's records from all of
+   * the files are decoded together into a single block (see
+   * {@link SeedFileIndex#getTimeSeries(List, String)}), which keeps track of any gaps between the
+   * files, so the existing data is appended to (and the time range checked) only once rather than
+   * once per file.
+   *
+   * @param idx The plot (range 0 to FILE_COUNT) to append data to
+   * @param filepaths Full addresses of files to be loaded in
+   * @param nameFilter Station ID (SNCL) to load in from each file, or null to use the first in
+   * the first file
+   * @param activePlots Max index of active panel to check as active
+   * @throws IllegalArgumentException If the channel is not in one of the files
+   * @throws TimeRangeException If the result has no overlap with data in an active panel
+   */
+  public void appendBlocks(int idx, List<String> filepaths, String nameFilter, int activePlots)
+      throws SeedFormatException, CodecException, IOException {
+    if (filepaths.isEmpty()) {
+      return;
+    }
+    List<SeedFileIndex> seedIndices = new ArrayList<>(filepaths.size());
+    for (String filepath : filepaths) {
+      seedIndices.add(SeedFileIndex.build(filepath));
+    }
+    String name = (nameFilter == null) ? seedIndices.get(0).getNameList().get(0) : nameFilter;
+    DataBlock batch = SeedFileIndex.getTimeSeries(seedIndices, name);
+    if (!thisBlockIsSet[idx]) {
+      setBlock(idx, batch, activePlots);
+      return;
+    }
+    appendBlock(idx, batch, activePlots);
+  }
+
+  /**
+   * Check that the data at an index has some overlap with the other loaded data. Data that does
+   * not overlap it is unloaded if it is not in an active panel; otherwise the data at the index
+   * is unloaded and an exception is thrown.
+   *
+   * @param idx Index of data that was just set
+   * @param activePlots Max index of active panel to check as active
+   * @throws TimeRangeException If the data has no overlap with data in an active panel
+   */
+  private synchronized void validateTimeRange(int idx, int activePlots) {
+    if (numberOfBlocksSet() <= 1) {
+      return;
+    }
+    // don't trim data here, that way we don't lose data
+    long start = getStartTime(idx);
+    long end = getEndTime(idx);
+
+    // there's clearly already another block loaded, let's make sure they
+    // actually have an intersecting time range
+    for (int i = 0; i < FILE_COUNT; ++i) {
+      if (i != idx && thisBlockIsSet[i]) {
+        // whole block either comes before or after the data set
+        // note that if data ends when another starts, then the data has no overlap --
+        // the end time is effectively when the next sample should start
+        if (end <= dataBlockArray[i].getInitialStartTime() ||
+            start >= dataBlockArray[i].getInitialEndTime()) {
+
+          if (i < activePlots) {
+            thisBlockIsSet[idx] = false;
+            dataBlockArray[idx] = null;
+            sharedBlocks[idx] = false;
+            pendingTrims[idx] = false;
+            throw new TimeRangeException(i + 1);
+          } else {
+            // unload data that we aren't currently using
+            thisBlockIsSet[i] = false;
           }
         }
       }
     }
   }
 
+  /**
+   * Samples read out of a block, along with the state of the block they were read from, and a
+   * view of the window of them that the block's data is currently trimmed to
+   */
+  private static final class CachedView {
+
+    private final long token;
+    private final long interval;
+    private final long samplesStart;
+    private final SampleView samples;
+    private final long startTime;
+    private final long endTime;
+    private final SampleView view;
+
+    CachedView(long token, DataBlock block) {
+      this.token = token;
+      interval = block.getInterval();
+      samplesStart = block.getStartTime();
+      startTime = samplesStart;
+      endTime = block.getEndTime();
+      samples = SampleView.of(block.getData());
+      view = samples;
+    }
+
+    private CachedView(CachedView source, long startTime, long endTime) {
+      token = source.token;
+      interval = source.interval;
+      samplesStart = source.samplesStart;
+      samples = source.samples;
+      this.startTime = startTime;
+      this.endTime = endTime;
+      int first = getIndex(startTime);
+      int last = Math.min(samples.size(), getIndex(endTime));
+      view = samples.subView(first, Math.max(first, last));
+    }
+
+    private int getIndex(long time) {
+      return (int) ((time - samplesStart) / interval);
+    }
+
+    boolean matches(long currentToken, long currentInterval, long start, long end) {
+      return currentToken == token && currentInterval == interval && start == startTime
+          && end == endTime;
+    }
+
+    /**
+     * Check that the samples held are of the same data, and cover a time range
+     */
+    boolean covers(long currentToken, long currentInterval, long start, long end) {
+      return currentToken == token && currentInterval == interval && start >= samplesStart
+          && start <= end && getIndex(start) <= samples.size()
+          && end <= samplesStart + samples.size() * interval;
+    }
+
+    /**
+     * Get a view of a time range within the samples held (see covers)
+     */
+    CachedView window(long start, long end) {
+      if (start == startTime && end == endTime) {
+        return this;
+      }
+      return new CachedView(this, start, end);
+    }
+  }
+
   public class TimeRangeException extends RuntimeException {
 
     TimeRangeException(int input) {
@@ -0,0 +1,376 @@
+package asl.sensor.input;
+
+import static asl.utils.TimeSeriesUtils.getMplexNameList;
+
+import asl.utils.TimeSeriesUtils;
+import asl.utils.input.DataBlock;
+import asl.utils.input.InstrumentResponse;
+import edu.iris.dmc.seedcodec.CodecException;
+import edu.sc.seis.seisFile.mseed.SeedFormatException;
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Holds decoded miniSEED data and parsed instrument responses so that calibrations run one after
+ * another (or concurrently) over the same files do not need to decode them again. This is used by
+ * the calibration server, where consecutive jobs frequently share day files or responses.
+ *
+ * Entries are keyed on the canonical path of each file along with its modification time and size,
+ * so that a file that is replaced on disk is decoded again rather than served stale, and on the
+ * channel name filter or response epoch requested. Data is evicted in least-recently-used order
+ * once the estimated size of everything held exceeds the memory budget given on construction.
+ * If several threads request the same uncached entry at once, the file is only decoded once.
+ *
+ * Callers always receive their own copy of the cached data, so it is safe to trim or otherwise
+ * modify the result without affecting other jobs.
+ */
+public final class DecodeCache {
+
+  /**
+   * Rough estimate of the memory taken up by a parsed response, which is small compared to
+   * timeseries data but still counted against the budget
+   */
+  private static final long RESPONSE_SIZE_ESTIMATE = 4096;
+
+  /**
+   * Rough estimate of the memory taken up by the fields of a data block besides its samples
+   */
+  private static final long BLOCK_OVERHEAD_ESTIMATE = 256;
+
+  private final long memoryBudget;
+  private final Map<String, Entry> entries;
+  private final Map<String, FutureTask<Object>> inProgress;
+  private long memoryUsed;
+
+  /**
+   * Create a cache that will hold up to (approximately) the given number of bytes of data
+   *
+   * @param memoryBudget Maximum size of data to hold, in bytes; zero disables caching
+   */
+  public DecodeCache(long memoryBudget) {
+    if (memoryBudget < 0) {
+      throw new IllegalArgumentException("Memory budget must not be negative: " + memoryBudget);
+    }
+    this.memoryBudget = memoryBudget;
+    entries = new LinkedHashMap<>(16, 0.75f, true);
+    inProgress = new ConcurrentHashMap<>();
+    memoryUsed = 0;
+  }
+
+  /**
+   * Get the first timeseries in a miniSEED file (as with
+   * {@link asl.utils.TimeSeriesUtils#getFirstTimeSeries(String)})
+   *
+   * @param fileName Full path of the file to load
+   * @return Copy of the decoded data
+   * @throws IOException If the file cannot be read
+   * @throws SeedFormatException If the file cannot be parsed as a seed file
+   * @throws CodecException If there is an issue with the compression of the seed file
+   */
+  public DataBlock getFirstTimeSeries(String fileName)
+      throws SeedFormatException, CodecException, IOException {
+    String key = "first|" + fileStamp(fileName);
+    DataBlock block = (DataBlock) getOrLoad(key,
+        () -> TimeSeriesUtils.getFirstTimeSeries(fileName), DecodeCache::blockSize);
+    return new DataBlock(block);
+  }
+
+  /**
+   * Get the first timeseries over a set of consecutive miniSEED files (as with
+   * {@link asl.utils.TimeSeriesUtils#getFirstTimeSeries(String[])}), such as for calibrations
+   * that cross day boundaries
+   *
+   * @param fileNames Full paths of the files to load, in order
+   * @return Copy of the decoded data
+   * @throws IOException If a file cannot be read
+   * @throws SeedFormatException If a file cannot be parsed as a seed file
+   * @throws CodecException If there is an issue with the compression of a seed file
+   */
+  public DataBlock getFirstTimeSeries(String[] fileNames)
+      throws SeedFormatException, CodecException, IOException {
+    StringBuilder key = new StringBuilder("first");
+    for (String fileName : fileNames) {
+      key.append('|').append(fileStamp(fileName));
+    }
+    final String[] names = fileNames.clone();
+    DataBlock block = (DataBlock) getOrLoad(key.toString(),
+        () -> TimeSeriesUtils.getFirstTimeSeries(names), DecodeCache::blockSize);
+    return new DataBlock(block);
+  }
+
+  /**
+   * Get the timeseries matching a name filter from a (possibly multiplexed) miniSEED file
+   *
+   * @param fileName Full path of the file to load
+   * @param nameFilter Station ID (SNCL) to load, or null to use the first in the file (as with
+   * {@link DataStore#setBlock(int, String)})
+   * @return Copy of the decoded data
+   * @throws IOException If the file cannot be read
+   * @throws SeedFormatException If the file cannot be parsed as a seed file
+   * @throws CodecException If there is an issue with the compression of the seed file
+   */
+  public DataBlock getTimeSeries(String fileName, String nameFilter)
+      throws SeedFormatException, CodecException, IOException {
+    String key = "filter|" + fileStamp(fileName) + "|" + (nameFilter == null ? "" : nameFilter);
+    DataBlock block = (DataBlock) getOrLoad(key, () -> {
+      String filter = (nameFilter == null) ? getMplexNameList(fileName).get(0) : nameFilter;
+      return TimeSeriesUtils.getTimeSeries(fileName, filter);
+    }, DecodeCache::blockSize);
+    return new DataBlock(block);
+  }
+
+  /**
+   * Get the timeseries of one channel over a set of indexed (possibly multiplexed) miniSEED files.
+   * Only that channel's records are decoded, with those of all the files decoded together into a
+   * single block (see {@link SeedFileIndex#getTimeSeries(List, String)}), so loading several
+   * channels of the same files does not decode every file once per channel.
+   *
+   * @param seedIndices Indices of the files' records
+   * @param name Channel name (SNCL) to load
+   * @return Copy of the decoded data
+   * @throws IOException If a file cannot be read or has changed since it was indexed
+   * @throws SeedFormatException If the channel's records cannot be parsed
+   * @throws CodecException If there is an issue with the compression of the seed files
+   */
+  public DataBlock getTimeSeries(List<SeedFileIndex> seedIndices, String name)
+      throws SeedFormatException, CodecException, IOException {
+    StringBuilder key = new StringBuilder("channel");
+    for (SeedFileIndex seedIndex : seedIndices) {
+      key.append('|').append(fileStamp(seedIndex.getFilePath()));
+    }
+    key.append('|').append(name);
+    final List<SeedFileIndex> indices = new ArrayList<>(seedIndices);
+    DataBlock block = (DataBlock) getOrLoad(key.toString(),
+        () -> SeedFileIndex.getTimeSeries(indices, name), DecodeCache::blockSize);
+    return new DataBlock(block);
+  }
+
+  /**
+   * Get the response parsed from a RESP file
+   *
+   * @param fileName Full path of the RESP file
+   * @return Copy of the parsed response
+   * @throws IOException If the file cannot be read or parsed
+   */
+  public InstrumentResponse getResponse(String fileName) throws IOException {
+    String key = "resp|" + fileStamp(fileName);
+    InstrumentResponse response = (InstrumentResponse) getOrLoadResponse(key,
+        () -> new InstrumentResponse(fileName));
+    return new InstrumentResponse(response);
+  }
+
+  /**
+   * Get the response parsed from a RESP file, using the epoch in that file closest to the given
+   * time range (as with {@link InstrumentResponse#getRespFileClosestEpoch(String, long, long)})
+   *
+   * @param fileName Full path of the RESP file
+   * @param start Start of the time range of data the response will be applied to (epoch millis)
+   * @param end End of the time range of data the response will be applied to (epoch millis)
+   * @return Copy of the parsed response
+   * @throws IOException If the file cannot be read or parsed
+   */
+  public InstrumentResponse getResponse(String fileName, long start, long end)
+      throws IOException {
+    String stamp = fileStamp(fileName);
+    // the epoch lookup scans the file, so it is cached along with the response it selects
+    String epochKey = "epoch|" + stamp + "|" + start + "|" + end;
+    Instant epoch = (Instant) getOrLoadResponse(epochKey,
+        () -> InstrumentResponse.getRespFileClosestEpoch(fileName, start, end));
+    String key = "resp|" + stamp + "|" + epoch;
+    InstrumentResponse response = (InstrumentResponse) getOrLoadResponse(key,
+        () -> new InstrumentResponse(fileName, epoch));
+    return new InstrumentResponse(response);
+  }
+
+  /**
+   * Get a response embedded in the program's resources
+   *
+   * @param respName Name of the embedded response
+   * @return Copy of the parsed response
+   * @throws IOException If the response cannot be loaded or parsed
+   */
+  public InstrumentResponse getEmbeddedResponse(String respName) throws IOException {
+    String key = "embedded|" + respName;
+    InstrumentResponse response = (InstrumentResponse) getOrLoadResponse(key,
+        () -> InstrumentResponse.loadEmbeddedResponse(respName));
+    return new InstrumentResponse(response);
+  }
+
+  /**
+   * Get the maximum (estimated) size of data this cache will hold
+   *
+   * @return Memory budget in bytes
+   */
+  public long getMemoryBudget() {
+    return memoryBudget;
+  }
+
+  /**
+   * Get the estimated size of data currently held in this cache
+   *
+   * @return Memory used in bytes
+   */
+  public synchronized long getMemoryUsed() {
+    return memoryUsed;
+  }
+
+  /**
+   * Get the number of decoded files and parsed responses currently held in this cache
+   *
+   * @return Number of cached entries
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * Remove all data from this cache
+   */
+  public synchronized void clear() {
+    entries.clear();
+    memoryUsed = 0;
+  }
+
+  /**
+   * Get a value from the cache, loading it (once, regardless of how many threads request it)
+   * if it is not present.
+   */
+  private Object getOrLoad(String key, Loader loader, Sizer sizer)
+      throws SeedFormatException, CodecException, IOException {
+    synchronized (this) {
+      Entry entry = entries.get(key);
+      if (entry != null) {
+        return entry.value;
+      }
+    }
+
+    FutureTask<Object> newTask = new FutureTask<>(loader::load);
+    FutureTask<Object> task = inProgress.putIfAbsent(key, newTask);
+    boolean isLoader = (task == null);
+    if (isLoader) {
+      task = newTask;
+      task.run();
+    }
+
+    try {
+      Object value = task.get();
+      if (isLoader) {
+        store(key, value, sizer.sizeOf(value));
+      }
+      return value;
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      } else if (cause instanceof SeedFormatException) {
+        throw (SeedFormatException) cause;
+      } else if (cause instanceof CodecException) {
+        throw (CodecException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException(cause);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for " + key + " to load", e);
+    } finally {
+      if (isLoader) {
+        // only remove once stored, so that no other thread begins loading the same data again
+        inProgress.remove(key, newTask);
+      }
+    }
+  }
+
+  /**
+   * As {@link #getOrLoad(String, Loader, Sizer)} for values parsed from response files, which
+   * cannot produce seed-parsing errors.
+   */
+  private Object getOrLoadResponse(String key, Loader loader) throws IOException {
+    try {
+      return getOrLoad(key, loader, value -> RESPONSE_SIZE_ESTIMATE);
+    } catch (SeedFormatException | CodecException e) {
+      // response loading does not decode seed data, so this should not happen
+      throw new IOException(e);
+    }
+  }
+
+  /**
+   * Add a loaded value to the cache, evicting the least-recently-used entries if the budget is
+   * exceeded. Values larger than the whole budget are not cached.
+   */
+  private synchronized void store(String key, Object value, long size) {
+    if (size > memoryBudget) {
+      return;
+    }
+    Entry previous = entries.put(key, new Entry(value, size));
+    if (previous != null) {
+      memoryUsed -= previous.size;
+    }
+    memoryUsed += size;
+    Iterator<Entry> iterator = entries.values().iterator();
+    while (memoryUsed > memoryBudget && iterator.hasNext()) {
+      Entry eldest = iterator.next();
+      memoryUsed -= eldest.size;
+      iterator.remove();
+    }
+  }
+
+  /**
+   * Get a string identifying a file's current contents: its canonical path, last modification
+   * time, and size
+   */
+  private static String fileStamp(String fileName) throws IOException {
+    File file = new File(fileName);
+    return file.getCanonicalPath() + "|" + file.lastModified() + "|" + file.length();
+  }
+
+  /**
+   * Estimate the memory used by a data block, dominated by its sample data
+   */
+  private static long blockSize(Object block) {
+    return ((DataBlock) block).size() * (long) Double.BYTES + BLOCK_OVERHEAD_ESTIMATE;
+  }
+
+  /**
+   * Cached value along with its estimated size
+   */
+  private static final class Entry {
+
+    private final Object value;
+    private final long size;
+
+    private Entry(Object value, long size) {
+      this.value = value;
+      this.size = size;
+    }
+  }
+
+  /**
+   * Function to decode or parse a value on a cache miss
+   */
+  @FunctionalInterface
+  private interface Loader {
+
+    Object load() throws SeedFormatException, CodecException, IOException;
+  }
+
+  /**
+   * Function to estimate the memory used by a loaded value
+   */
+  @FunctionalInterface
+  private interface Sizer {
+
+    long sizeOf(Object value);
+  }
+}
@@ -0,0 +1,141 @@
+package asl.sensor.input;
+
+import java.util.Arrays;
+
+/**
+ * Read-only window (offset and length) over an array of timeseries samples. Views let the same
+ * samples be passed around and narrowed to sub-ranges (i.e., the trimmed window of a block's
+ * data) without copying them. Code that needs to modify the samples takes its own copy with
+ * {@link #toArray()}.
+ *
+ * The backing array is shared, not copied, so it must not be modified while views over it are
+ * in use.
+ */
+public final class SampleView {
+
+  private static final SampleView EMPTY = new SampleView(new double[0], 0, 0);
+
+  private final double[] data;
+  private final int offset;
+  private final int length;
+
+  // samples of a partial view, copied out the first time they are needed as an array
+  private volatile double[] contiguous;
+
+  private SampleView(double[] data, int offset, int length) {
+    this.data = data;
+    this.offset = offset;
+    this.length = length;
+  }
+
+  /**
+   * Create a view over all of an array
+   *
+   * @param data Samples to view, which are not copied
+   * @return View of the array
+   */
+  public static SampleView of(double[] data) {
+    return data.length == 0 ? EMPTY : new SampleView(data, 0, data.length);
+  }
+
+  /**
+   * Create a view over part of an array
+   *
+   * @param data Samples to view, which are not copied
+   * @param offset Index in the array of the first sample in the view
+   * @param length Number of samples in the view
+   * @return View of the range of the array
+   * @throws IndexOutOfBoundsException If the range is not within the array
+   */
+  public static SampleView of(double[] data, int offset, int length) {
+    if (offset < 0 || length < 0 || offset + length > data.length) {
+      throw new IndexOutOfBoundsException("Range [" + offset + ", " + (offset + length)
+          + ") is outside of array of length " + data.length);
+    }
+    return new SampleView(data, offset, length);
+  }
+
+  /**
+   * Get a sample in the view
+   *
+   * @param index Index of the sample relative to the start of the view
+   * @return Value of the sample
+   */
+  public double get(int index) {
+    if (index < 0 || index >= length) {
+      throw new IndexOutOfBoundsException("Index " + index + " outside of view of length "
+          + length);
+    }
+    return data[offset + index];
+  }
+
+  /**
+   * @return Number of samples in the view
+   */
+  public int size() {
+    return length;
+  }
+
+  /**
+   * Get a view of part of this view, sharing the same samples
+   *
+   * @param from Index of the first sample to include, relative to this view
+   * @param to Index after the last sample to include, relative to this view
+   * @return View of the given range
+   */
+  public SampleView subView(int from, int to) {
+    if (from < 0 || to > length || from > to) {
+      throw new IndexOutOfBoundsException("Range [" + from + ", " + to
+          + ") is outside of view of length " + length);
+    }
+    if (from == 0 && to == length) {
+      return this;
+    }
+    return new SampleView(data, offset + from, to - from);
+  }
+
+  /**
+   * Find where this view starts within another view of the same samples, i.e., to check whether
+   * a plot of a wider window already holds this one
+   *
+   * @param whole View that may contain this one
+   * @return Index in the other view of the first sample of this view, or -1 if the two views
+   * do not share a backing array or this view is not entirely within the other
+   */
+  public int indexIn(SampleView whole) {
+    if (whole.data != data || offset < whole.offset
+        || offset + length > whole.offset + whole.length) {
+      return -1;
+    }
+    return offset - whole.offset;
+  }
+
+  /**
+   * Copy the samples into a new array, which can be modified freely
+   *
+   * @return Copy of the samples in the view
+   */
+  public double[] toArray() {
+    return Arrays.copyOfRange(data, offset, offset + length);
+  }
+
+  /**
+   * Get the samples as an array for code that only reads them. If the view covers all of its
+   * backing array, that array is returned as is; otherwise the samples are copied once and the
+   * copy is returned on each call. Either way the result must not be modified.
+   *
+   * @return Array of the samples in the view
+   */
+  public double[] asArray() {
+    if (offset == 0 && length == data.length) {
+      return data;
+    }
+    double[] copy = contiguous;
+    if (copy == null) {
+      // a race here only means the samples may be copied more than once
+      copy = toArray();
+      contiguous = copy;
+    }
+    return copy;
+  }
+}
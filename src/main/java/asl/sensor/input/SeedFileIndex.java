@@ -0,0 +1,440 @@
+package asl.sensor.input;
+
+import asl.utils.TimeSeriesUtils;
+import asl.utils.input.DataBlock;
+import edu.iris.dmc.seedcodec.CodecException;
+import edu.sc.seis.seisFile.mseed.SeedFormatException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Index of the data records in a (possibly multiplexed) miniSEED file, built from a single pass
+ * over the record headers. For each channel (SNCL) in the file the index keeps the location and
+ * length of each of its records, so that listing the channels in the file and loading any one of
+ * them does not require parsing the whole file again. This is used by the input panel, where a
+ * multiplexed station file is first read to let the user choose a channel, and may then have
+ * several of its channels loaded into different panels.
+ *
+ * Only the fixed section of each record header (and blockette 1000, for the record length) is
+ * read while indexing; no data is decompressed. Loading a channel copies just that channel's
+ * records into a temporary single-channel file, which is then decoded as usual with
+ * {@link TimeSeriesUtils#getFirstTimeSeries(String)}. A channel spread over several files (such as
+ * a station's day files) is loaded the same way, with the records of all the files copied into
+ * one temporary file, so that its data is decoded into a single block at once.
+ *
+ * Each header is checked to be a valid miniSEED header before its values are used, so that a
+ * file which is not SEED data is rejected with a SeedFormatException rather than indexed as
+ * garbage. Control headers from full SEED volumes are skipped, using the record length given in
+ * the volume header.
+ *
+ * Channel names are formatted as in the rest of the program: network, station, location, and
+ * channel codes separated by underscores (i.e., "IU_ANMO_00_LHZ").
+ */
+public final class SeedFileIndex {
+
+  /**
+   * Length assumed for data records that do not specify their own length with blockette 1000,
+   * outside of a full SEED volume
+   */
+  static final int DEFAULT_RECORD_LENGTH = 4096;
+
+  /**
+   * Size of the fixed section of a data record header
+   */
+  private static final int FIXED_HEADER_LENGTH = 48;
+
+  /**
+   * Bytes read from the start of each record, enough to cover the fixed header and any
+   * blockettes that immediately follow it
+   */
+  private static final int HEADER_READ_LENGTH = 256;
+
+  private static final int BLOCKETTE_1000 = 1000;
+
+  /**
+   * Offset of the logical record length exponent in a volume header that starts with
+   * blockette 010 (following its type, length, and version fields)
+   */
+  private static final int VOLUME_RECORD_LENGTH_OFFSET = 8 + 3 + 4 + 4;
+
+  private final File file;
+  private final long lastModified;
+  private final long fileLength;
+  private final Map<String, RecordList> records;
+
+  private SeedFileIndex(File file, long lastModified, long fileLength,
+      Map<String, RecordList> records) {
+    this.file = file;
+    this.lastModified = lastModified;
+    this.fileLength = fileLength;
+    this.records = records;
+  }
+
+  /**
+   * Read the record headers of a miniSEED file to build an index of its channels
+   *
+   * @param filePath Full path of the file to index
+   * @return Index of the records of each channel in the file
+   * @throws IOException If the file cannot be read
+   * @throws SeedFormatException If the file does not contain valid miniSEED records
+   */
+  public static SeedFileIndex build(String filePath) throws SeedFormatException, IOException {
+    File file = new File(filePath);
+    long lastModified = file.lastModified();
+    Map<String, RecordList> records = new LinkedHashMap<>();
+
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      long fileLength = channel.size();
+      ByteBuffer header = ByteBuffer.allocate(HEADER_READ_LENGTH);
+      long offset = 0;
+      int volumeRecordLength = 0; // record length of a full SEED volume, once its header is read
+      while (offset + FIXED_HEADER_LENGTH <= fileLength) {
+        header.clear();
+        while (header.hasRemaining() && channel.read(header, offset + header.position()) > 0) {
+          // keep reading until the buffer is full or the end of the file is reached
+        }
+        header.flip();
+        int recordLength;
+        if (isDataRecord(header, offset)) {
+          recordLength = indexRecord(header, offset, records,
+              volumeRecordLength > 0 ? volumeRecordLength : DEFAULT_RECORD_LENGTH);
+        } else {
+          volumeRecordLength = getControlRecordLength(header, offset, volumeRecordLength);
+          recordLength = volumeRecordLength;
+        }
+        if (offset + recordLength > fileLength) {
+          // incomplete trailing record; the decoder cannot read it either
+          break;
+        }
+        offset += recordLength;
+      }
+      if (records.isEmpty()) {
+        throw new SeedFormatException("No miniSEED data records found in " + filePath);
+      }
+      return new SeedFileIndex(file, lastModified, fileLength, records);
+    }
+  }
+
+  /**
+   * Check the sequence number and type of the record whose header is in the given buffer
+   *
+   * @return True if the record is a data record, false if it is a control header
+   * @throws SeedFormatException If the header is not that of a SEED record
+   */
+  private static boolean isDataRecord(ByteBuffer header, long offset)
+      throws SeedFormatException {
+    for (int i = 0; i < 6; ++i) {
+      byte digit = header.get(i);
+      if ((digit < '0' || digit > '9') && digit != ' ') {
+        throw new SeedFormatException("Invalid sequence number in record at byte " + offset);
+      }
+    }
+    switch (header.get(6)) {
+      case 'D':
+      case 'R':
+      case 'Q':
+      case 'M':
+        return true;
+      case 'V':
+      case 'A':
+      case 'S':
+      case 'T':
+        // volume, abbreviation, station, or time span control header from full SEED
+        return false;
+      default:
+        throw new SeedFormatException("Invalid record type in record at byte " + offset);
+    }
+  }
+
+  /**
+   * Get the length of a full SEED control header record. All records in a volume have the
+   * length given by the volume header's blockette 010, which is read if this record is one.
+   *
+   * @param volumeRecordLength Record length of the volume, or 0 if not yet known
+   * @return Length of the record in bytes
+   * @throws SeedFormatException If the record length of the volume is not known
+   */
+  private static int getControlRecordLength(ByteBuffer header, long offset,
+      int volumeRecordLength) throws SeedFormatException {
+    if (header.get(6) == 'V' && getCode(header, 8, 3).equals("010")) {
+      String exponent = getCode(header, VOLUME_RECORD_LENGTH_OFFSET, 2);
+      try {
+        int parsed = Integer.parseInt(exponent);
+        if (parsed >= 8 && parsed <= 20) {
+          return 1 << parsed;
+        }
+      } catch (NumberFormatException e) {
+        // reported below
+      }
+      throw new SeedFormatException("Invalid volume record length exponent " + exponent
+          + " in record at byte " + offset);
+    }
+    if (volumeRecordLength == 0) {
+      throw new SeedFormatException("Control header without a volume header in record at byte "
+          + offset);
+    }
+    return volumeRecordLength;
+  }
+
+  /**
+   * Add the data record whose header is in the given buffer to the index, after checking that
+   * its codes and start time are valid
+   *
+   * @param defaultLength Length of the record if it has no blockette 1000
+   * @return Length of the record in bytes
+   * @throws SeedFormatException If the header is not that of a valid data record
+   */
+  private static int indexRecord(ByteBuffer header, long offset,
+      Map<String, RecordList> records, int defaultLength) throws SeedFormatException {
+    // station, location, channel, and network codes
+    for (int i = 8; i < 20; ++i) {
+      byte code = header.get(i);
+      if (code < ' ' || code > '~') {
+        throw new SeedFormatException("Invalid station or channel code in record at byte "
+            + offset);
+      }
+    }
+
+    // headers may be in either byte order; the year of the record start time tells us which
+    header.order(ByteOrder.BIG_ENDIAN);
+    if (!isValidYear(header.getShort(20) & 0xFFFF)) {
+      header.order(ByteOrder.LITTLE_ENDIAN);
+    }
+    if (!isValidStartTime(header)) {
+      throw new SeedFormatException("Invalid start time in record at byte " + offset);
+    }
+
+    int recordLength = defaultLength;
+    int blocketteCount = header.get(39) & 0xFF;
+    int blocketteOffset = header.getShort(46) & 0xFFFF;
+    for (int i = 0; i < blocketteCount && blocketteOffset >= FIXED_HEADER_LENGTH
+        && blocketteOffset + 8 <= header.limit(); ++i) {
+      int type = header.getShort(blocketteOffset) & 0xFFFF;
+      if (type == BLOCKETTE_1000) {
+        int exponent = header.get(blocketteOffset + 6);
+        if (exponent < 7 || exponent > 20) {
+          throw new SeedFormatException("Invalid record length exponent " + exponent
+              + " in record at byte " + offset);
+        }
+        recordLength = 1 << exponent;
+        break;
+      }
+      blocketteOffset = header.getShort(blocketteOffset + 2) & 0xFFFF;
+    }
+
+    String name = getCode(header, 18, 2) + "_" + getCode(header, 8, 5) + "_"
+        + getCode(header, 13, 2) + "_" + getCode(header, 15, 3);
+    records.computeIfAbsent(name, key -> new RecordList())
+        .add(offset, recordLength, getStartTime(header));
+    return recordLength;
+  }
+
+  private static boolean isValidYear(int year) {
+    return year >= 1900 && year <= 2500;
+  }
+
+  /**
+   * Check that each field of the BTIME structure in a record header is in range
+   *
+   * @return True if the start time is a valid date and time
+   */
+  private static boolean isValidStartTime(ByteBuffer header) {
+    int year = header.getShort(20) & 0xFFFF;
+    int dayOfYear = header.getShort(22) & 0xFFFF;
+    int hour = header.get(24) & 0xFF;
+    int minute = header.get(25) & 0xFF;
+    int second = header.get(26) & 0xFF; // may be 60 for a leap second
+    int tenThousandths = header.getShort(28) & 0xFFFF;
+    return isValidYear(year) && dayOfYear >= 1 && dayOfYear <= Year.of(year).length() &&
+        hour < 24 && minute < 60 && second <= 60 && tenThousandths < 10000;
+  }
+
+  /**
+   * Get the start time of the record whose (validated) header is in the given buffer
+   *
+   * @return Start time of the record in epoch milliseconds
+   */
+  private static long getStartTime(ByteBuffer header) {
+    LocalDate day = LocalDate.ofYearDay(header.getShort(20) & 0xFFFF, header.getShort(22) & 0xFFFF);
+    long seconds = day.toEpochDay() * 86400L + (header.get(24) & 0xFF) * 3600L
+        + (header.get(25) & 0xFF) * 60L + (header.get(26) & 0xFF);
+    return seconds * 1000L + (header.getShort(28) & 0xFFFF) / 10;
+  }
+
+  private static String getCode(ByteBuffer header, int start, int length) {
+    byte[] code = new byte[length];
+    for (int i = 0; i < length; ++i) {
+      code[i] = header.get(start + i);
+    }
+    return new String(code, StandardCharsets.US_ASCII).trim();
+  }
+
+  /**
+   * Get the path of the indexed file
+   *
+   * @return Full path of the file
+   */
+  public String getFilePath() {
+    return file.getPath();
+  }
+
+  /**
+   * Check that the indexed file has not been modified since the index was built
+   *
+   * @return True if the index still describes the file on disk
+   */
+  public boolean isCurrent() {
+    return file.lastModified() == lastModified && file.length() == fileLength;
+  }
+
+  /**
+   * Get the names of the channels in the file (as with
+   * {@link TimeSeriesUtils#getMplexNameSet(String)})
+   *
+   * @return Sorted set of channel names
+   */
+  public Set<String> getNames() {
+    return Collections.unmodifiableSet(new TreeSet<>(records.keySet()));
+  }
+
+  /**
+   * Get the names of the channels in the file in the order they first appear in it (as with
+   * {@link TimeSeriesUtils#getMplexNameList(String)})
+   *
+   * @return List of channel names
+   */
+  public List<String> getNameList() {
+    return Collections.unmodifiableList(new ArrayList<>(records.keySet()));
+  }
+
+  /**
+   * Get the number of data records in the file for a channel
+   *
+   * @param name Channel name
+   * @return Number of records, or 0 if the channel is not in the file
+   */
+  public int getRecordCount(String name) {
+    RecordList list = records.get(name);
+    return list == null ? 0 : list.size;
+  }
+
+  /**
+   * Decode the data of one channel in the file. Only that channel's records are read.
+   *
+   * @param name Channel name (SNCL) to load
+   * @return Decoded timeseries of the channel
+   * @throws IOException If the file cannot be read or has changed since it was indexed
+   * @throws SeedFormatException If the channel's records cannot be parsed
+   * @throws CodecException If there is an issue with the compression of the data
+   * @throws IllegalArgumentException If the channel is not in the file
+   */
+  public DataBlock getTimeSeries(String name)
+      throws SeedFormatException, CodecException, IOException {
+    return getTimeSeries(Collections.singletonList(this), name);
+  }
+
+  /**
+   * Decode the data of one channel over several files (i.e., a station's day files) into a single
+   * block. The channel's records from every file are copied, in order of the files' first record
+   * times, into one temporary file that is decoded once, so the block is built in a single pass
+   * and any gaps between the files are kept by the decoder as they would be within one file.
+   *
+   * @param seedIndices Indices of the files to load the channel from, in any order
+   * @param name Channel name (SNCL) to load
+   * @return Decoded timeseries of the channel over all of the files
+   * @throws IOException If a file cannot be read or has changed since it was indexed
+   * @throws SeedFormatException If the channel's records cannot be parsed
+   * @throws CodecException If there is an issue with the compression of the data
+   * @throws IllegalArgumentException If the channel is not in one of the files
+   */
+  public static DataBlock getTimeSeries(List<SeedFileIndex> seedIndices, String name)
+      throws SeedFormatException, CodecException, IOException {
+    List<SeedFileIndex> sorted = new ArrayList<>(seedIndices);
+    for (SeedFileIndex seedIndex : sorted) {
+      if (!seedIndex.records.containsKey(name)) {
+        throw new IllegalArgumentException("No data for " + name + " in "
+            + seedIndex.file.getPath());
+      }
+      if (!seedIndex.isCurrent()) {
+        throw new IOException("File has changed since it was indexed: "
+            + seedIndex.file.getPath());
+      }
+    }
+    sorted.sort(Comparator.comparingLong(seedIndex -> seedIndex.records.get(name).startTime));
+
+    Path extract = Files.createTempFile("sensor-suite-", ".seed");
+    try {
+      try (FileChannel out = FileChannel.open(extract, StandardOpenOption.WRITE)) {
+        for (SeedFileIndex seedIndex : sorted) {
+          seedIndex.copyRecords(seedIndex.records.get(name), out);
+        }
+      }
+      return TimeSeriesUtils.getFirstTimeSeries(extract.toString());
+    } finally {
+      Files.deleteIfExists(extract);
+    }
+  }
+
+  /**
+   * Copy the given records of the file to the end of an output channel
+   */
+  private void copyRecords(RecordList list, FileChannel out) throws IOException {
+    try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      int i = 0;
+      while (i < list.size) {
+        // copy each run of consecutive records in one transfer
+        long start = list.offsets[i];
+        long end = start + list.lengths[i];
+        ++i;
+        while (i < list.size && list.offsets[i] == end) {
+          end += list.lengths[i];
+          ++i;
+        }
+        long position = start;
+        while (position < end) {
+          position += in.transferTo(position, end - position, out);
+        }
+      }
+    }
+  }
+
+  /**
+   * Growable list of the locations and lengths of a channel's records
+   */
+  private static final class RecordList {
+
+    private long[] offsets = new long[64];
+    private int[] lengths = new int[64];
+    private int size = 0;
+    private long startTime = Long.MAX_VALUE;
+
+    void add(long offset, int length, long recordStart) {
+      if (size == offsets.length) {
+        offsets = Arrays.copyOf(offsets, size * 2);
+        lengths = Arrays.copyOf(lengths, size * 2);
+      }
+      offsets[size] = offset;
+      lengths[size] = length;
+      ++size;
+      startTime = Math.min(startTime, recordStart);
+    }
+  }
+}
@@ -0,0 +1,195 @@
+package asl.sensor.input;
+
+import asl.utils.FFTResult;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Memoizes power-spectral density and cross-power results produced from the data held in a
+ * DataStore. Each result is keyed on the state of the data it came from: a token identifying the
+ * block/response pair loaded at an index (which the owning DataStore replaces whenever either of
+ * them changes), the trimmed time window of that block, the sample interval, and the maximum
+ * length the calculation was allowed to use.
+ *
+ * Because trimming a block does not change its token, results for a previous trim window remain
+ * valid keys; a DataStore prunes the results it calculated itself when its window moves so that
+ * the cache does not hold onto spectra for ranges the user is no longer looking at.
+ *
+ * A single cache may be shared between a DataStore and the copies made of it (see
+ * {@link DataStore#DataStore(DataStore)}), since copies hold identical data under identical
+ * tokens until one of them is changed. All access is synchronized for that reason. Results are
+ * tagged with the store that calculated them, so that one store trimming its data does not prune
+ * results that another store (with a different window over the same data) may still use.
+ *
+ * Resampling is deterministic, so the cache also hands out the token for a block/response pair
+ * resampled to a given interval (see {@link #getResampledToken(long, long, LongSupplier)}).
+ * Copies that each resample the same data, i.e., every run of an experiment over inputs with
+ * mixed sample rates, then share the spectra calculated over the resampled data.
+ */
+final class SpectrumCache {
+
+  /**
+   * Upper bound on the number of spectra held at once. This is enough for the PSDs of every
+   * panel plus the cross-powers used by the nine-input experiments.
+   */
+  private static final int MAX_ENTRIES = DataStore.FILE_COUNT * 4;
+
+  private final Map<Key, Entry> cache;
+  // token of each block/response pair resampled to an interval, keyed on {token, interval}
+  private final Map<List<Long>, Long> resampledTokens;
+
+  SpectrumCache() {
+    cache = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+        return size() > MAX_ENTRIES;
+      }
+    };
+    resampledTokens = new LinkedHashMap<List<Long>, Long>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<List<Long>, Long> eldest) {
+        return size() > MAX_ENTRIES;
+      }
+    };
+  }
+
+  /**
+   * Get a previously calculated result for the given key
+   *
+   * @param key Key describing the data the spectrum is calculated over
+   * @return Cached result, or null if it has not been calculated (or has been evicted)
+   */
+  synchronized FFTResult get(Key key) {
+    Entry entry = cache.get(key);
+    return entry == null ? null : entry.result;
+  }
+
+  /**
+   * Store a calculated result
+   *
+   * @param key Key describing the data the spectrum is calculated over
+   * @param result The PSD or cross-power result for that data
+   * @param owner Identifier of the DataStore that calculated the result
+   */
+  synchronized void put(Key key, FFTResult result, long owner) {
+    cache.put(key, new Entry(result, owner));
+  }
+
+  /**
+   * Remove all results calculated using the data with the given token
+   *
+   * @param token Token of the block/response pair that is no longer valid
+   */
+  synchronized void invalidate(long token) {
+    cache.keySet().removeIf(key -> key.firstToken == token || key.secondToken == token);
+  }
+
+  /**
+   * Remove the results a store calculated using the data with the given token over any time
+   * window other than the one specified, used when that store has trimmed the data. Results
+   * calculated by other stores are kept, as their windows are not affected by the trim.
+   *
+   * @param owner Identifier of the DataStore that trimmed the data
+   * @param token Token of the block/response pair that was trimmed
+   * @param start New start time of the trimmed data (epoch millis)
+   * @param end New end time of the trimmed data (epoch millis)
+   */
+  synchronized void prune(long owner, long token, long start, long end) {
+    Iterator<Map.Entry<Key, Entry>> iterator = cache.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<Key, Entry> next = iterator.next();
+      Key key = next.getKey();
+      if (next.getValue().owner == owner &&
+          ((key.firstToken == token && (key.firstStart != start || key.firstEnd != end)) ||
+          (key.secondToken == token && (key.secondStart != start || key.secondEnd != end)))) {
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * Get the token identifying a block/response pair after its block is resampled to the given
+   * interval, creating one if that has not been done yet
+   *
+   * @param token Token of the block/response pair before resampling
+   * @param interval Sample interval the block is resampled to
+   * @param newToken Source of a new token, used if the resampled data has none yet
+   * @return Token of the resampled block/response pair
+   */
+  synchronized long getResampledToken(long token, long interval, LongSupplier newToken) {
+    return resampledTokens.computeIfAbsent(Arrays.asList(token, interval),
+        key -> newToken.getAsLong());
+  }
+
+  /**
+   * A calculated result and the store that calculated it
+   */
+  private static final class Entry {
+
+    private final FFTResult result;
+    private final long owner;
+
+    Entry(FFTResult result, long owner) {
+      this.result = result;
+      this.owner = owner;
+    }
+  }
+
+  /**
+   * Immutable description of the data a PSD or cross-power was calculated over. A PSD is the
+   * cross-power of a set of data with itself, so both halves of the key are then the same.
+   */
+  static final class Key {
+
+    private final long firstToken, secondToken;
+    private final long firstStart, firstEnd, secondStart, secondEnd;
+    private final long interval;
+    private final int maxLength;
+
+    Key(long firstToken, long firstStart, long firstEnd,
+        long secondToken, long secondStart, long secondEnd,
+        long interval, int maxLength) {
+      this.firstToken = firstToken;
+      this.firstStart = firstStart;
+      this.firstEnd = firstEnd;
+      this.secondToken = secondToken;
+      this.secondStart = secondStart;
+      this.secondEnd = secondEnd;
+      this.interval = interval;
+      this.maxLength = maxLength;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (this == other) {
+        return true;
+      }
+      if (!(other instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) other;
+      return firstToken == key.firstToken && secondToken == key.secondToken &&
+          firstStart == key.firstStart && firstEnd == key.firstEnd &&
+          secondStart == key.secondStart && secondEnd == key.secondEnd &&
+          interval == key.interval && maxLength == key.maxLength;
+    }
+
+    @Override
+    public int hashCode() {
+      long hash = firstToken;
+      hash = 31 * hash + secondToken;
+      hash = 31 * hash + firstStart;
+      hash = 31 * hash + firstEnd;
+      hash = 31 * hash + secondStart;
+      hash = 31 * hash + secondEnd;
+      hash = 31 * hash + interval;
+      hash = 31 * hash + maxLength;
+      return Long.hashCode(hash);
+    }
+  }
+
+}
@@ -0,0 +1,222 @@
+package asl.sensor.output;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.imageio.ImageIO;
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.LegendItemSource;
+import org.jfree.chart.title.LegendTitle;
+import org.jfree.data.xy.XYDataset;
+
+/**
+ * Headless conversion of charts into PNG images, used to produce the plots returned by the
+ * calibration server. Charts are drawn and encoded on this renderer's own worker threads rather
+ * than the thread that ran the solver, so that the charts for a result are produced in parallel.
+ * Each worker draws into an image buffer taken from a pool that is shared between calls, rather
+ * than allocating a new full-size image for every chart.
+ *
+ * Charts passed in must not be modified by the caller until their images have been produced.
+ * Because building a chart (axes, fonts, renderers and so on) is itself a noticeable cost, charts
+ * with a fixed layout can be created once as templates and copied for each result with
+ * {@link #fromTemplate(JFreeChart, String, XYDataset)}.
+ */
+public final class ChartRenderer {
+
+  /**
+   * Width of images produced by the calibration server
+   */
+  public static final int DEFAULT_WIDTH = 1280;
+
+  /**
+   * Height of images produced by the calibration server
+   */
+  public static final int DEFAULT_HEIGHT = 960;
+
+  private final int width;
+  private final int height;
+  private final BlockingQueue<BufferedImage> imagePool;
+  private final ExecutorService renderExecutor;
+
+  /**
+   * Create a renderer producing images of the server's default size, with a worker per processor
+   */
+  public ChartRenderer() {
+    this(DEFAULT_WIDTH, DEFAULT_HEIGHT, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Create a renderer producing images of the given size
+   *
+   * @param width Width of produced images in pixels
+   * @param height Height of produced images in pixels
+   * @param workers Number of charts that may be drawn and encoded at once
+   */
+  public ChartRenderer(int width, int height, int workers) {
+    if (width < 1 || height < 1) {
+      throw new IllegalArgumentException("Image size must be positive: " + width + "x" + height);
+    }
+    if (workers < 1) {
+      throw new IllegalArgumentException("Render worker count must be positive: " + workers);
+    }
+    this.width = width;
+    this.height = height;
+    // each worker only ever holds one buffer, so no more than that need be kept around
+    imagePool = new ArrayBlockingQueue<>(workers);
+    AtomicInteger threadCount = new AtomicInteger();
+    renderExecutor = Executors.newFixedThreadPool(workers, runnable -> {
+      Thread thread = new Thread(runnable, "chart-render-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Create a copy of a template chart to plot the given data. The copy has its own plot, axes
+   * and renderer, so these may be modified without affecting the template or any other copy of it.
+   * Markers should be added to each copy rather than to the template, as any markers already in a
+   * template's plot are held in lists shared with its copies.
+   *
+   * @param template Chart whose layout and styling is to be used
+   * @param title Title of the new chart
+   * @param dataset Data to be plotted in the new chart
+   * @return New chart with the template's layout plotting the given data
+   */
+  public static JFreeChart fromTemplate(JFreeChart template, String title, XYDataset dataset) {
+    JFreeChart chart;
+    try {
+      chart = (JFreeChart) template.clone();
+    } catch (CloneNotSupportedException e) {
+      // all the plot components used by the server's charts are cloneable
+      throw new IllegalArgumentException("Chart template cannot be copied", e);
+    }
+    chart.setTitle(title);
+    chart.getXYPlot().setDataset(dataset);
+    LegendTitle legend = chart.getLegend();
+    if (legend != null) {
+      // cloned legends still get their items from the template, not the new chart
+      legend.setSources(new LegendItemSource[]{chart.getXYPlot()});
+    }
+    return chart;
+  }
+
+  /**
+   * Get the width of the images produced by this renderer
+   *
+   * @return Image width in pixels
+   */
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * Get the height of the images produced by this renderer
+   *
+   * @return Image height in pixels
+   */
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * Schedule a chart to be drawn and encoded as a PNG image
+   *
+   * @param chart Chart to draw
+   * @return Handle to the bytes of the encoded image
+   */
+  public Future<byte[]> submit(JFreeChart chart) {
+    return renderExecutor.submit(() -> drawAndEncode(chart));
+  }
+
+  /**
+   * Draw and encode each of the given charts as PNG images, waiting for all of them to finish
+   *
+   * @param charts Charts to draw
+   * @return Bytes of each encoded image, in the same order as the charts
+   * @throws IOException If any image could not be encoded
+   */
+  public byte[][] renderToPng(JFreeChart... charts) throws IOException {
+    List<Future<byte[]>> futures = new ArrayList<>(charts.length);
+    for (JFreeChart chart : charts) {
+      futures.add(submit(chart));
+    }
+    byte[][] pngByteArrays = new byte[charts.length][];
+    try {
+      for (int i = 0; i < pngByteArrays.length; ++i) {
+        pngByteArrays[i] = futures.get(i).get();
+      }
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException(cause);
+    } catch (InterruptedException e) {
+      for (Future<byte[]> future : futures) {
+        future.cancel(false);
+      }
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while rendering charts", e);
+    }
+    return pngByteArrays;
+  }
+
+  /**
+   * Get the number of image buffers currently held for reuse
+   *
+   * @return Number of pooled buffers
+   */
+  public int getPooledImageCount() {
+    return imagePool.size();
+  }
+
+  /**
+   * Stop this renderer's worker threads once any charts already submitted are done
+   */
+  public void shutdown() {
+    renderExecutor.shutdown();
+  }
+
+  /**
+   * Draw a chart into a pooled image buffer and encode it, returning the buffer to the pool
+   * once the image has been written out
+   */
+  private byte[] drawAndEncode(JFreeChart chart) throws IOException {
+    BufferedImage image = imagePool.poll();
+    if (image == null) {
+      image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    }
+    try {
+      Graphics2D graphics = image.createGraphics();
+      try {
+        // charts with a transparent background would otherwise show the previous image
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, width, height);
+        chart.draw(graphics, new Rectangle2D.Double(0, 0, width, height));
+      } finally {
+        graphics.dispose();
+      }
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      ImageIO.write(image, "png", out);
+      return out.toByteArray();
+    } finally {
+      imagePool.offer(image);
+    }
+  }
+}
@@ -0,0 +1,67 @@
+package asl.sensor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class ComputeExecutorTest {
+
+  @Test
+  public void forEach_runsEveryIndexOnce() {
+    ComputeExecutor executor = new ComputeExecutor(3);
+    assertEquals(3, executor.getParallelism());
+    int[] counts = new int[100];
+    executor.forEach("test", counts.length, i -> counts[i]++);
+    for (int count : counts) {
+      assertEquals(1, count);
+    }
+  }
+
+  @Test
+  public void forEach_list_runsOnEveryElement() {
+    ComputeExecutor executor = new ComputeExecutor(2);
+    List<Integer> items = Arrays.asList(1, 2, 3, 4);
+    AtomicInteger sum = new AtomicInteger();
+    executor.forEach("test", items, sum::addAndGet);
+    assertEquals(10, sum.get());
+  }
+
+  @Test
+  public void forEach_nestedCall_completesOnSamePool() {
+    // pool of one thread would deadlock here if nested work were submitted and waited on
+    ComputeExecutor executor = new ComputeExecutor(1);
+    int[][] counts = new int[4][4];
+    executor.forEach("outer", counts.length, i ->
+        executor.forEach("inner", counts[i].length, j -> counts[i][j]++));
+    for (int[] row : counts) {
+      for (int count : row) {
+        assertEquals(1, count);
+      }
+    }
+  }
+
+  @Test
+  public void forEach_namesThreadsWithTask() {
+    ComputeExecutor executor = new ComputeExecutor(2);
+    String[] names = new String[8];
+    executor.forEach("Named task", names.length,
+        i -> names[i] = Thread.currentThread().getName());
+    for (String name : names) {
+      assertTrue(name, name.endsWith("(Named task)"));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void forEach_actionThrows_rethrowsToCaller() {
+    ComputeExecutor executor = new ComputeExecutor(2);
+    executor.forEach("test", 10, i -> {
+      if (i == 5) {
+        throw new IllegalArgumentException("bad index");
+      }
+    });
+  }
+}
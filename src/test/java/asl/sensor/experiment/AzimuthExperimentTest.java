@@ -183,6 +183,94 @@ public class AzimuthExperimentTest {
 
   }
 
+  @Test
+  public void getsCorrectAngleANMO_parallelWindowing() {
+
+    DataStore ds = new DataStore();
+
+    String dataFolder = folder + "azi-ANMO-test/";
+    String[] prefixes = new String[3];
+    prefixes[0] = "ANMO.00_LH1";
+    prefixes[1] = "ANMO.00_LH2";
+    prefixes[2] = "TST.00_LH1";
+    String extension = ".512.seed";
+
+    for (int i = 0; i < prefixes.length; ++i) {
+      String fName = dataFolder + prefixes[i] + extension;
+      try {
+        ds.setBlock(i, fName);
+      } catch (SeedFormatException | CodecException | IOException e) {
+        e.printStackTrace();
+        fail();
+      }
+    }
+
+    AzimuthExperiment azi = new AzimuthExperiment();
+    azi.setParallelWindowing(true);
+    assertTrue(azi.isParallelWindowing());
+
+    azi.runExperimentOnData(ds);
+    assertTrue(azi.hadEnoughPoints());
+    assertEquals(15.0, azi.getFitAngle(), 1.);
+    assertEquals(0.4, azi.getUncertainty(), 0.5);
+
+    // running again should give exactly the same result regardless of scheduling
+    double[] correlations = azi.getCorrelations().clone();
+    double angle = azi.getFitAngle();
+    azi.runExperimentOnData(ds);
+    assertEquals(angle, azi.getFitAngle(), 0.);
+    assertArrayEquals(correlations, azi.getCorrelations(), 0.);
+  }
+
+  @Test
+  public void coarseAngleEstimate_findsRotationOfSyntheticData() {
+    Random random = new Random(5L);
+    int length = 4000;
+    double[] testNorth = new double[length];
+    double[] testEast = new double[length];
+    for (int i = 0; i < length; ++i) {
+      testNorth[i] = random.nextGaussian();
+      testEast[i] = random.nextGaussian();
+    }
+    for (double degrees : new double[]{2., 90., 179., 200., 355.}) {
+      double[] refNorth = TimeSeriesUtils.rotate(testNorth, testEast, Math.toRadians(degrees));
+      RotatedCorrelation kernel = new RotatedCorrelation(refNorth, testNorth, testEast);
+      double estimate = Math.toDegrees(AzimuthExperiment.coarseAngleEstimate(kernel));
+      assertEquals(degrees, estimate, 1.);
+    }
+  }
+
+  @Test
+  public void getsCorrectAngleANMO_coarseToFine() {
+
+    DataStore ds = new DataStore();
+
+    String dataFolder = folder + "azi-ANMO-test/";
+    String[] prefixes = new String[3];
+    prefixes[0] = "ANMO.00_LH1";
+    prefixes[1] = "ANMO.00_LH2";
+    prefixes[2] = "TST.00_LH1";
+    String extension = ".512.seed";
+
+    for (int i = 0; i < prefixes.length; ++i) {
+      String fName = dataFolder + prefixes[i] + extension;
+      try {
+        ds.setBlock(i, fName);
+      } catch (SeedFormatException | CodecException | IOException e) {
+        e.printStackTrace();
+        fail();
+      }
+    }
+
+    AzimuthExperiment azi = new AzimuthExperiment();
+    azi.setCoarseToFine(true);
+    assertTrue(azi.isCoarseToFine());
+
+    azi.runExperimentOnData(ds);
+    assertEquals(15.0, azi.getFitAngle(), 1.);
+    assertEquals(0.4, azi.getUncertainty(), 0.5);
+  }
+
   @Test
   public void identifiesSprocketsAngle002Clean() {
     testsFromSprockets(2, getCleanData());
@@ -0,0 +1,49 @@
+package asl.sensor.experiment;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class CancellationTokenTest {
+
+  @Test
+  public void cancel_setsCancelled() {
+    CancellationToken token = new CancellationToken();
+    assertFalse(token.isCancelled());
+    token.cancel();
+    assertTrue(token.isCancelled());
+  }
+
+  @Test(expected = CancellationException.class)
+  public void throwIfCancelled_afterTimeout_throws() throws InterruptedException {
+    CancellationToken token = CancellationToken.forCurrentThread(1, TimeUnit.MILLISECONDS);
+    Thread.sleep(10);
+    token.throwIfCancelled();
+  }
+
+  @Test
+  public void forCurrentThread_noTimeout_neverTimesOut() throws InterruptedException {
+    CancellationToken token = CancellationToken.forCurrentThread(0, TimeUnit.MILLISECONDS);
+    Thread.sleep(10);
+    assertFalse(token.isCancelled());
+  }
+
+  @Test
+  public void forCurrentThread_interrupted_staysCancelled() throws InterruptedException {
+    CancellationToken[] token = new CancellationToken[1];
+    boolean[] cancelledWhileInterrupted = new boolean[1];
+    Thread thread = new Thread(() -> {
+      token[0] = CancellationToken.forCurrentThread();
+      Thread.currentThread().interrupt();
+      cancelledWhileInterrupted[0] = token[0].isCancelled();
+      Thread.interrupted(); // clear the interrupt; the token should still be cancelled
+    });
+    thread.start();
+    thread.join();
+    assertTrue(cancelledWhileInterrupted[0]);
+    assertTrue(token[0].isCancelled());
+  }
+}
@@ -5,12 +5,15 @@ import static asl.sensor.experiment.Experiment.DECIMAL_FORMAT;
 import static asl.sensor.gui.ExperimentPanel.DATE_TIME_FORMAT;
 import static asl.utils.TimeSeriesUtils.ONE_HZ_INTERVAL;
 import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
 import static junit.framework.TestCase.assertTrue;
+import static junit.framework.TestCase.fail;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertNull;
 
 import asl.sensor.input.DataStore;
 import asl.utils.input.DataBlock;
+import java.util.concurrent.CancellationException;
 import org.junit.Test;
 
 public class ExperimentTest {
@@ -71,6 +74,20 @@ public class ExperimentTest {
     assertTrue(experiment.getGapRegions().isEmpty());
   }
 
+  @Test
+  public void runExperimentOnData_cancelledToken_doesNotCallBackend() {
+    MockExperiment experiment = new MockExperiment();
+    CancellationToken token = new CancellationToken();
+    token.cancel();
+    try {
+      experiment.runExperimentOnData(null, token);
+      fail("Cancelled experiment should not complete");
+    } catch (CancellationException e) {
+      assertFalse(experiment.backendCalled);
+      assertEquals(0, experiment.numberOfChangesFired);
+    }
+  }
+
   @Test(expected = IndexOutOfBoundsException.class)
   public void runExperimentOnData_notEnoughData_throwsException() {
     MockExperiment experiment = new MockExperiment();
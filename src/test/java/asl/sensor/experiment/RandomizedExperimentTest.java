@@ -139,6 +139,66 @@ public class RandomizedExperimentTest {
     assertArrayEquals(testFirstJacobianAgainst, firstJacobian, 1E-3);
   }
 
+  @Test
+  public void jacobian_parallelEvaluation_matchesSerial() throws IOException {
+    String fname = folder + "resp-parse/TST5_response.txt";
+    InstrumentResponse ir = new InstrumentResponse(fname);
+    double[] freqs = new double[80];
+    for (int i = 0; i < freqs.length; ++i) {
+      freqs[i] = i;
+    }
+    final boolean lowFreq = false;
+    RealVector initialPoleGuess = ir.polesToVector(lowFreq, Double.MAX_VALUE);
+    RealVector initialZeroGuess = ir.zerosToVector(lowFreq, Double.MAX_VALUE);
+    int numZeros = initialZeroGuess.getDimension();
+    RealVector initialGuess = initialZeroGuess.append(initialPoleGuess);
+
+    Pair<RealVector, RealMatrix> serial =
+        RandomizedExperiment.jacobian(initialGuess, freqs, numZeros, ir, lowFreq, false);
+    Pair<RealVector, RealMatrix> parallel =
+        RandomizedExperiment.jacobian(initialGuess, freqs, numZeros, ir, lowFreq, true);
+
+    // results are expected to be identical, not just close
+    assertArrayEquals(serial.getFirst().toArray(), parallel.getFirst().toArray(), 0.);
+    double[][] serialJacobian = serial.getSecond().getData();
+    double[][] parallelJacobian = parallel.getSecond().getData();
+    for (int i = 0; i < serialJacobian.length; ++i) {
+      assertArrayEquals(serialJacobian[i], parallelJacobian[i], 0.);
+    }
+  }
+
+  @Test
+  public void analyticJacobian_matchesFiniteDifference() throws IOException {
+    String fname = folder + "resp-parse/TST5_response.txt";
+    InstrumentResponse ir = new InstrumentResponse(fname);
+    // avoid evaluating at 0 Hz, where the log-derivative of any zero at the origin is undefined
+    double[] freqs = new double[80];
+    for (int i = 0; i < freqs.length; ++i) {
+      freqs[i] = (i + 1) / 10.;
+    }
+    final boolean lowFreq = false;
+    RealVector initialPoleGuess = ir.polesToVector(lowFreq, Double.MAX_VALUE);
+    RealVector initialZeroGuess = ir.zerosToVector(lowFreq, Double.MAX_VALUE);
+    int numZeros = initialZeroGuess.getDimension();
+    RealVector initialGuess = initialZeroGuess.append(initialPoleGuess);
+
+    Pair<RealVector, RealMatrix> numeric =
+        RandomizedExperiment.jacobian(initialGuess, freqs, numZeros, ir, lowFreq);
+    Pair<RealVector, RealMatrix> analytic =
+        RandomizedExperiment.analyticJacobian(initialGuess, freqs, numZeros, ir, lowFreq);
+
+    assertArrayEquals(numeric.getFirst().toArray(), analytic.getFirst().toArray(), 0.);
+    RealMatrix numericJacobian = numeric.getSecond();
+    RealMatrix analyticJacobian = analytic.getSecond();
+    for (int i = 0; i < numericJacobian.getColumnDimension(); ++i) {
+      RealVector expected = numericJacobian.getColumnVector(i);
+      RealVector difference = analyticJacobian.getColumnVector(i).subtract(expected);
+      // forward difference is only accurate to within its step size, so compare column norms
+      double tolerance = Math.max(1E-2 * expected.getNorm(), 1E-6);
+      assertEquals("Mismatch in column " + i, 0., difference.getNorm(), tolerance);
+    }
+  }
+
   private DataStore setUpTest1() {
 
     String dataFolderName = folder + "random-high-32+70i/";
@@ -595,6 +655,60 @@ public class RandomizedExperimentTest {
 
   }
 
+  @Test
+  public void kievErrorTerms_unchangedByConcurrentEstimate() {
+    String respName = RESP_LOCATION + "RESP.IU.KIEV.00.BH1";
+    String dataFolderName = getSeedFolder("IU", "KIEV", "2018", "044");
+    String calName = dataFolderName + "_BC0.512.seed";
+    String sensOutName = dataFolderName + "00_BH1.512.seed";
+
+    DataStore ds = DataStoreUtils.createFromNames(respName, calName, sensOutName);
+
+    dataFolderName = getSeedFolder("IU", "KIEV", "2018", "045");
+    calName = dataFolderName + "_BC0.512.seed";
+    sensOutName = dataFolderName + "00_BH1.512.seed";
+
+    ds = DataStoreUtils.appendFromNames(ds, calName, sensOutName);
+
+    OffsetDateTime cCal = TestUtils.getStartCalendar(ds);
+    cCal = cCal.withHour(23).withMinute(37).withSecond(0).withNano(0);
+    long start = cCal.toInstant().toEpochMilli();
+
+    cCal = TestUtils.getEndCalendar(ds);
+    cCal = cCal.withHour(7).withMinute(37);
+    long end = cCal.toInstant().toEpochMilli();
+
+    ds.trim(start, end);
+
+    // error terms as estimated by the serial leave-one-out fits, to the precision reported
+    // in kievHasCorrectError
+    Complex baselinePoleError = new Complex(0.0010082633, 0.0059096432);
+
+    Map<Complex, Complex> previousErrors = null;
+    for (int run = 0; run < 2; ++run) {
+      RandomizedExperiment rCal = (RandomizedExperiment)
+          ExperimentFactory.RANDOMCAL.createExperiment();
+      rCal.setLowFrequencyCalibration(true);
+      rCal.runExperimentOnData(ds);
+
+      Map<Complex, Complex> poleErrors = rCal.getPoleErrors();
+      assertEquals(0, rCal.getZeroErrors().size());
+      assertEquals(2, poleErrors.size());
+      for (Complex pole : poleErrors.keySet()) {
+        Complex error = poleErrors.get(pole);
+        assertEquals(baselinePoleError.getReal(), error.getReal(), 1E-9);
+        assertEquals(baselinePoleError.getImaginary(), error.getImaginary(), 1E-9);
+        // conjugate pair shares one estimate
+        assertEquals(error, poleErrors.get(pole.conjugate()));
+      }
+      // fits finishing in a different order must not change the result
+      if (previousErrors != null) {
+        assertEquals(previousErrors, poleErrors);
+      }
+      previousErrors = poleErrors;
+    }
+  }
+
   @Test
   public void hasEnoughData_missingInputData() {
     String respName = RESP_LOCATION + "RESP.CU.BCIP.00.BHZ_2017_268";
@@ -0,0 +1,64 @@
+package asl.sensor.experiment;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+
+import asl.utils.input.InstrumentResponse;
+import java.io.IOException;
+import java.util.List;
+import org.apache.commons.math3.complex.Complex;
+import org.junit.Test;
+
+public class ResponseCurveCacheTest {
+
+  private static final double[] FREQS = {0.001, 0.01, 0.1, 1., 10.};
+
+  @Test
+  public void applyResponseToInput_sameResponse_evaluatedOnce() throws IOException {
+    ResponseCurveCache cache = new ResponseCurveCache(ResponseCurveCache.DEFAULT_CAPACITY);
+    InstrumentResponse response = InstrumentResponse.loadEmbeddedResponse("STS2gen3_Q330HR");
+
+    Complex[] first = cache.applyResponseToInput(response, FREQS);
+    assertArrayEquals(response.applyResponseToInput(FREQS), first);
+    assertEquals(FREQS.length, cache.getSize());
+
+    // an identical copy of the response over an identical grid uses the cached curve
+    Complex[] second =
+        cache.applyResponseToInput(new InstrumentResponse(response), FREQS.clone());
+    assertArrayEquals(first, second);
+    assertNotSame(first, second);
+    assertEquals(FREQS.length, cache.getSize());
+
+    // scaled and unscaled curves are cached separately
+    cache.applyResponseToInputUnscaled(response, FREQS);
+    assertEquals(2 * FREQS.length, cache.getSize());
+  }
+
+  @Test
+  public void applyResponseToInput_modifiedResponse_evaluatedAgain() throws IOException {
+    ResponseCurveCache cache = new ResponseCurveCache(ResponseCurveCache.DEFAULT_CAPACITY);
+    InstrumentResponse response = InstrumentResponse.loadEmbeddedResponse("STS2gen3_Q330HR");
+    Complex[] original = cache.applyResponseToInput(response, FREQS);
+
+    List<Complex> poles = response.getPoles();
+    poles.set(0, poles.get(0).multiply(2.));
+    response.setPoles(poles);
+    Complex[] modified = cache.applyResponseToInput(response, FREQS);
+    assertArrayEquals(response.applyResponseToInput(FREQS), modified);
+    assertNotEquals(original[0], modified[0]);
+    assertEquals(2 * FREQS.length, cache.getSize());
+  }
+
+  @Test
+  public void put_overCapacity_evictsLeastRecentlyUsed() throws IOException {
+    ResponseCurveCache cache = new ResponseCurveCache(2 * FREQS.length);
+    InstrumentResponse response = InstrumentResponse.loadEmbeddedResponse("STS2gen3_Q330HR");
+    double[] otherFreqs = {0.5, 5.};
+    cache.applyResponseToInput(response, FREQS);
+    cache.applyResponseToInputUnscaled(response, FREQS);
+    cache.applyResponseToInput(response, otherFreqs);
+    assertEquals(FREQS.length + otherFreqs.length, cache.getSize());
+  }
+}
@@ -0,0 +1,62 @@
+package asl.sensor.experiment;
+
+import static asl.utils.TimeSeriesUtils.rotate;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+import org.apache.commons.math3.stat.correlation.PearsonsCorrelation;
+import org.junit.Test;
+
+public class RotatedCorrelationTest {
+
+  private static final double[] ANGLES = {0., 0.4, Math.PI / 2, 2., Math.PI, 5.};
+
+  @Test
+  public void correlation_matchesRotatedPearsons() {
+    double[][] data = createData();
+    double[] refNorth = data[0];
+    double[] testNorth = data[1];
+    double[] testEast = data[2];
+    RotatedCorrelation kernel = new RotatedCorrelation(refNorth, testNorth, testEast);
+    PearsonsCorrelation pearsonsCorrelation = new PearsonsCorrelation();
+
+    for (double angle : ANGLES) {
+      double expected =
+          pearsonsCorrelation.correlation(refNorth, rotate(testNorth, testEast, angle));
+      assertEquals(expected, kernel.correlation(angle), 1E-12);
+    }
+  }
+
+  @Test
+  public void derivative_matchesCentralDifference() {
+    double[][] data = createData();
+    RotatedCorrelation kernel = new RotatedCorrelation(data[0], data[1], data[2]);
+    double step = 1E-6;
+
+    for (double angle : ANGLES) {
+      double expected =
+          (kernel.correlation(angle + step) - kernel.correlation(angle - step)) / (2 * step);
+      assertEquals(expected, kernel.derivative(angle), 1E-7);
+    }
+  }
+
+  /**
+   * Create a reference timeseries that is a noisy rotation of a pair of (correlated) test
+   * timeseries, offset from zero
+   */
+  private static double[][] createData() {
+    Random random = new Random(1L);
+    int length = 2000;
+    double[] testNorth = new double[length];
+    double[] testEast = new double[length];
+    for (int i = 0; i < length; ++i) {
+      testNorth[i] = random.nextGaussian();
+      testEast[i] = random.nextGaussian() + 0.3 * testNorth[i];
+    }
+    double[] refNorth = rotate(testNorth, testEast, 0.4);
+    for (int i = 0; i < length; ++i) {
+      refNorth[i] += 0.2 * random.nextGaussian() + 1.;
+    }
+    return new double[][]{refNorth, testNorth, testEast};
+  }
+}
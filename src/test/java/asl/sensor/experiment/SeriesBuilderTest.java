@@ -0,0 +1,70 @@
+package asl.sensor.experiment;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+import org.jfree.data.xy.XYSeries;
+import org.junit.Test;
+
+public class SeriesBuilderTest {
+
+  @Test
+  public void build_descendingWithDuplicates_matchesXYSeries() {
+    double[] x = {5., 4., 4., 4., 2., 1., 1.};
+    double[] y = {0., 1., 2., 3., 4., 5., 6.};
+    assertSeriesEqual(addIndividually(x, y), addAll(x, y).build());
+  }
+
+  @Test
+  public void build_unordered_matchesXYSeries() {
+    Random random = new Random(24);
+    double[] x = new double[1000];
+    double[] y = new double[x.length];
+    for (int i = 0; i < x.length; ++i) {
+      // include duplicate x values to check their order is kept
+      x[i] = random.nextInt(200);
+      y[i] = random.nextDouble();
+    }
+    assertSeriesEqual(addIndividually(x, y), addAll(x, y).build());
+  }
+
+  @Test
+  public void addTo_periodSpace_isAscending() {
+    SeriesBuilder builder = new SeriesBuilder("period", 0);
+    for (int i = 1; i <= 100000; ++i) {
+      builder.add(1. / i, i);
+    }
+    XYSeries series = new XYSeries("period");
+    builder.addTo(series);
+    assertEquals(100000, series.getItemCount());
+    assertEquals(1E-5, series.getMinX(), 0.);
+    assertEquals(100000., series.getY(0).doubleValue(), 0.);
+    assertEquals(1., series.getY(99999).doubleValue(), 0.);
+  }
+
+  private static XYSeries addIndividually(double[] x, double[] y) {
+    XYSeries series = new XYSeries("test");
+    for (int i = 0; i < x.length; ++i) {
+      series.add(x[i], y[i]);
+    }
+    return series;
+  }
+
+  private static SeriesBuilder addAll(double[] x, double[] y) {
+    SeriesBuilder builder = new SeriesBuilder("test", 2);
+    for (int i = 0; i < x.length; ++i) {
+      builder.add(x[i], y[i]);
+    }
+    assertEquals(x.length, builder.size());
+    return builder;
+  }
+
+  private static void assertSeriesEqual(XYSeries expected, XYSeries result) {
+    assertEquals(expected.getKey(), result.getKey());
+    assertEquals(expected.getItemCount(), result.getItemCount());
+    for (int i = 0; i < expected.getItemCount(); ++i) {
+      assertEquals(expected.getX(i).doubleValue(), result.getX(i).doubleValue(), 0.);
+      assertEquals(expected.getY(i).doubleValue(), result.getY(i).doubleValue(), 0.);
+    }
+  }
+}
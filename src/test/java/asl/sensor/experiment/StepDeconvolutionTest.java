@@ -0,0 +1,170 @@
+package asl.sensor.experiment;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import org.apache.commons.math3.complex.Complex;
+import org.apache.commons.math3.transform.DftNormalization;
+import org.apache.commons.math3.transform.FastFourierTransformer;
+import org.apache.commons.math3.transform.TransformType;
+import org.junit.Test;
+
+public class StepDeconvolutionTest {
+
+  private static final int PADDING = 1024;
+  private static final double SAMPLE_RATE = 20.;
+
+  @Test
+  public void deconvolve_matchesComplexCalculation() {
+    Complex[] sensorFFT = createFFT();
+    double[] freqs = createFreqs();
+    StepDeconvolution kernel = new StepDeconvolution(sensorFFT, freqs);
+
+    double[] result = new double[PADDING / 2];
+    kernel.deconvolve(0.05, 0.7, result, 100);
+    // the kernel fills in the inverse response directly rather than dividing by the response,
+    // so the two differ by rounding error
+    assertArrayEquals(deconvolve(sensorFFT, freqs, 0.05, 0.7, 100, result.length), result, 1E-12);
+  }
+
+  @Test
+  public void deconvolve_reusedScratchSpace_matchesNewKernel() {
+    Complex[] sensorFFT = createFFT();
+    double[] freqs = createFreqs();
+    StepDeconvolution kernel = new StepDeconvolution(sensorFFT, freqs);
+
+    double[] first = new double[PADDING / 2];
+    double[] second = new double[PADDING / 2];
+    kernel.deconvolve(1. / 360., 0.707, first, 0);
+    kernel.deconvolve(1. / 120., 1.2, second, 0);
+    double[] expected = new double[PADDING / 2];
+    new StepDeconvolution(sensorFFT, freqs).deconvolve(1. / 120., 1.2, expected, 0);
+    assertArrayEquals(expected, second, 0.);
+  }
+
+  @Test
+  public void copy_matchesSource() {
+    StepDeconvolution kernel = new StepDeconvolution(createFFT(), createFreqs());
+    StepDeconvolution copy = new StepDeconvolution(kernel);
+
+    double[] expected = new double[PADDING / 2];
+    double[] result = new double[PADDING / 2];
+    kernel.deconvolve(0.05, 0.7, expected, 0);
+    copy.deconvolve(0.05, 0.7, result, 0);
+    assertArrayEquals(expected, result, 0.);
+  }
+
+  @Test
+  public void deconvolveDerivative_matchesCentralDifference() {
+    StepDeconvolution kernel = new StepDeconvolution(createFFT(), createFreqs());
+    double f = 0.05;
+    double h = 0.7;
+    int length = PADDING / 2;
+
+    double[] plus = new double[length];
+    double[] minus = new double[length];
+    double[] derivative = new double[length];
+
+    double step = 1E-7;
+    kernel.deconvolve(f + step, h, plus, 0);
+    kernel.deconvolve(f - step, h, minus, 0);
+    kernel.deconvolveDerivative(f, h, StepDeconvolution.CORNER, derivative, 0);
+    assertArrayEquals(centralDifference(plus, minus, step), derivative, 1E-5);
+
+    kernel.deconvolve(f, h + step, plus, 0);
+    kernel.deconvolve(f, h - step, minus, 0);
+    kernel.deconvolveDerivative(f, h, StepDeconvolution.DAMPING, derivative, 0);
+    assertArrayEquals(centralDifference(plus, minus, step), derivative, 1E-5);
+  }
+
+  @Test
+  public void replacePoles_matchesNewResponse() {
+    double[] freqs = createFreqs();
+    StepDeconvolution kernel = new StepDeconvolution(createFFT(), freqs);
+    Complex oldPole1 = new Complex(-0.2, 0.2);
+    Complex oldPole2 = oldPole1.conjugate();
+    Complex newPole1 = new Complex(-0.25, 0.18);
+    Complex newPole2 = newPole1.conjugate();
+
+    Complex[] curve = new Complex[freqs.length];
+    for (int i = 0; i < freqs.length; ++i) {
+      curve[i] = twoPoleResponse(freqs[i], oldPole1, oldPole2);
+    }
+    Complex[] result = kernel.replacePoles(curve, oldPole1, oldPole2, newPole1, newPole2);
+    for (int i = 0; i < freqs.length; ++i) {
+      Complex expected = twoPoleResponse(freqs[i], newPole1, newPole2);
+      assertTrue(Complex.equals(expected, result[i], 1E-12 * expected.abs()));
+    }
+  }
+
+  private static Complex twoPoleResponse(double freq, Complex pole1, Complex pole2) {
+    Complex s = new Complex(0., 2 * Math.PI * freq);
+    return s.multiply(3.).divide(s.subtract(pole1).multiply(s.subtract(pole2)));
+  }
+
+  private static double[] centralDifference(double[] plus, double[] minus, double step) {
+    double[] difference = new double[plus.length];
+    for (int i = 0; i < difference.length; ++i) {
+      difference[i] = (plus[i] - minus[i]) / (2 * step);
+    }
+    return difference;
+  }
+
+  /**
+   * Reference implementation of the deconvolution using Complex objects
+   */
+  private static double[] deconvolve(Complex[] sensorFFT, double[] freqs, double f, double h,
+      int offset, int length) {
+    Complex tempResult = new Complex(Math.pow(h, 2) - 1);
+    double omega = 2 * Math.PI * f;
+    Complex hCast = new Complex(h);
+    Complex pole1 = hCast.add(tempResult.sqrt()).multiply(-1).multiply(omega);
+    Complex pole2 = hCast.subtract(tempResult.sqrt()).multiply(-1).multiply(omega);
+
+    Complex[] respFFT = new Complex[sensorFFT.length];
+    respFFT[0] = Complex.ONE;
+    for (int i = 1; i < respFFT.length; ++i) {
+      Complex factor = new Complex(0, 2 * Math.PI * freqs[i]);
+      Complex denom = factor.subtract(pole1).multiply(factor.subtract(pole2));
+      respFFT[i] = factor.divide(denom);
+    }
+    respFFT = StepExperiment.setWaterLevel(respFFT);
+
+    Complex[] padded = new Complex[PADDING];
+    for (int i = 0; i < sensorFFT.length; ++i) {
+      padded[i] = sensorFFT[i].multiply(respFFT[i]);
+    }
+    int lastIdx = sensorFFT.length - 1;
+    padded[lastIdx] = new Complex(padded[lastIdx].abs(), 0.);
+    for (int i = 1; i < PADDING / 2; ++i) {
+      padded[PADDING - i] = padded[i].conjugate();
+    }
+
+    Complex[] inverse = new FastFourierTransformer(DftNormalization.STANDARD)
+        .transform(padded, TransformType.INVERSE);
+    double[] result = new double[length];
+    for (int i = 0; i < length; ++i) {
+      result[i] = inverse[offset + i].getReal();
+    }
+    return result;
+  }
+
+  private static Complex[] createFFT() {
+    Random random = new Random(4);
+    Complex[] fft = new Complex[PADDING / 2 + 1];
+    fft[0] = new Complex(random.nextGaussian());
+    for (int i = 1; i < fft.length; ++i) {
+      fft[i] = new Complex(random.nextGaussian(), random.nextGaussian());
+    }
+    return fft;
+  }
+
+  private static double[] createFreqs() {
+    double[] freqs = new double[PADDING / 2 + 1];
+    for (int i = 0; i < freqs.length; ++i) {
+      freqs[i] = i * SAMPLE_RATE / PADDING;
+    }
+    return freqs;
+  }
+}
@@ -8,8 +8,16 @@ import asl.sensor.input.DataStore;
 import asl.sensor.test.TestUtils;
 import asl.utils.input.InstrumentResponse;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import org.apache.commons.math3.complex.Complex;
+import org.apache.commons.math3.linear.ArrayRealVector;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.apache.commons.math3.linear.RealVector;
+import org.apache.commons.math3.transform.DftNormalization;
+import org.apache.commons.math3.transform.FastFourierTransformer;
+import org.apache.commons.math3.transform.TransformType;
+import org.apache.commons.math3.util.Pair;
 import org.junit.Test;
 
 public class StepExperimentTest {
@@ -105,6 +113,51 @@ public class StepExperimentTest {
     assertEquals(0.715, fitParams[1], 0.005);
   }
 
+  @Test
+  public void analyticJacobian_matchesFiniteDifference() {
+    int padding = 1024;
+    double sps = 20.;
+    double[] signal = new double[padding];
+    for (int i = 0; i < signal.length; ++i) {
+      signal[i] = Math.tanh((i - padding / 4.) / sps) - 0.5 * Math.tanh((i - padding / 2.) / sps);
+    }
+    Complex[] fft = new FastFourierTransformer(DftNormalization.STANDARD)
+        .transform(signal, TransformType.FORWARD);
+    Complex[] sensorFFT = Arrays.copyOf(fft, padding / 2 + 1);
+    double[] freqs = new double[sensorFFT.length];
+    for (int i = 0; i < freqs.length; ++i) {
+      freqs[i] = i * sps / padding;
+    }
+
+    StepExperiment se = new StepExperiment();
+    se.setAnalyticJacobian(true);
+    se.setSensorFFT(sensorFFT, freqs, 50, 400);
+
+    double[][] points = {{0.05, 0.7}, {0.1, 0.5}, {1. / 30., 0.9}};
+    double step = 1E-7;
+    for (double[] point : points) {
+      Pair<RealVector, RealMatrix> analytic = se.jacobian(new ArrayRealVector(point));
+      assertArrayEquals(se.calculate(point), analytic.getFirst().toArray(), 0.);
+      RealMatrix jacobian = analytic.getSecond();
+      for (int j = 0; j < point.length; ++j) {
+        double[] plus = point.clone();
+        double[] minus = point.clone();
+        plus[j] += step;
+        minus[j] -= step;
+        double[] plusResult = se.calculate(plus);
+        double[] minusResult = se.calculate(minus);
+        double[] difference = new double[plusResult.length];
+        double scale = 0.;
+        for (int i = 0; i < difference.length; ++i) {
+          difference[i] = (plusResult[i] - minusResult[i]) / (2 * step);
+          scale = Math.max(scale, Math.abs(difference[i]));
+        }
+        assertTrue(scale > 0.);
+        assertArrayEquals(difference, jacobian.getColumn(j), 1E-5 * scale);
+      }
+    }
+  }
+
   @Test
   public void testWaterLevelCalc() {
     // water level calc intended to invert value unless it is 0, then set it to 0 instead
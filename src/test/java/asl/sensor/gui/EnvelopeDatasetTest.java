@@ -0,0 +1,91 @@
+package asl.sensor.gui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import asl.sensor.input.SampleView;
+import org.jfree.data.general.DatasetChangeListener;
+import org.junit.Test;
+
+public class EnvelopeDatasetTest {
+
+  @Test
+  public void shortData_plotsEverySample() {
+    double[] data = {3., 1., 4., 1., 5.};
+    EnvelopeDataset dataset = new EnvelopeDataset("short", data, 1000L, 10L);
+    assertEquals(data.length, dataset.getItemCount(0));
+    for (int i = 0; i < data.length; ++i) {
+      assertEquals(1000. + 10 * i, dataset.getXValue(0, i), 0.);
+      assertEquals(data[i], dataset.getYValue(0, i), 0.);
+    }
+    assertEquals(1., dataset.getRangeLowerBound(false), 0.);
+    assertEquals(5., dataset.getRangeUpperBound(false), 0.);
+    assertEquals(1040., dataset.getDomainUpperBound(false), 0.);
+  }
+
+  @Test
+  public void longData_keepsExtremesOfEachBin() {
+    int length = 1_000_000;
+    double[] data = new double[length];
+    for (int i = 0; i < length; ++i) {
+      data[i] = Math.sin(i / 1000.);
+    }
+    data[123_456] = 10.;
+    data[654_321] = -10.;
+    EnvelopeDataset dataset = new EnvelopeDataset("long", data, 0L, 10L);
+    dataset.setVisibleRange(0., 10. * (length - 1), 500);
+
+    assertTrue(dataset.getItemCount(0) <= 1000);
+    double max = Double.NEGATIVE_INFINITY;
+    double min = Double.POSITIVE_INFINITY;
+    double previousX = Double.NEGATIVE_INFINITY;
+    for (int i = 0; i < dataset.getItemCount(0); ++i) {
+      assertTrue(dataset.getXValue(0, i) > previousX);
+      previousX = dataset.getXValue(0, i);
+      max = Math.max(max, dataset.getYValue(0, i));
+      min = Math.min(min, dataset.getYValue(0, i));
+    }
+    assertEquals(10., max, 0.);
+    assertEquals(-10., min, 0.);
+  }
+
+  @Test
+  public void setVisibleRange_zoomedIn_plotsOnlyVisibleSamples() {
+    double[] data = new double[100_000];
+    for (int i = 0; i < data.length; ++i) {
+      data[i] = i;
+    }
+    EnvelopeDataset dataset = new EnvelopeDataset("zoom", data, 0L, 1L);
+    int[] changes = new int[1];
+    DatasetChangeListener listener = event -> changes[0]++;
+    dataset.addChangeListener(listener);
+
+    dataset.setVisibleRange(500., 599., 1000);
+    assertEquals(1, changes[0]);
+    // visible samples plus one on either side
+    assertEquals(102, dataset.getItemCount(0));
+    assertEquals(499., dataset.getXValue(0, 0), 0.);
+    assertEquals(600., dataset.getXValue(0, 101), 0.);
+
+    // unchanged range and width should not recalculate
+    dataset.setVisibleRange(500., 599., 1000);
+    assertEquals(1, changes[0]);
+  }
+
+  @Test
+  public void setWindow_limitsBoundsToWindow() {
+    double[] data = {3., 1., 4., 1., 5., 9., 2., 6.};
+    EnvelopeDataset dataset = new EnvelopeDataset("window", data, 1000L, 10L);
+    assertTrue(dataset.setWindow(SampleView.of(data, 1, 4)));
+    assertEquals(1010., dataset.getDomainLowerBound(false), 0.);
+    assertEquals(1040., dataset.getDomainUpperBound(false), 0.);
+    assertEquals(1., dataset.getRangeLowerBound(false), 0.);
+    assertEquals(5., dataset.getRangeUpperBound(false), 0.);
+    assertEquals(4, dataset.getItemCount(0));
+
+    // windows over other samples are rejected
+    assertFalse(dataset.setWindow(SampleView.of(data.clone(), 1, 4)));
+    assertEquals(1040., dataset.getDomainUpperBound(false), 0.);
+  }
+}
@@ -0,0 +1,129 @@
+package asl.sensor.input;
+
+import static asl.utils.TimeSeriesUtils.ONE_HZ_INTERVAL;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import asl.sensor.ComputeExecutor;
+import asl.utils.input.DataBlock;
+import edu.iris.dmc.seedcodec.CodecException;
+import edu.iris.dmc.seedcodec.Steim2;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.math3.util.Pair;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BulkSeedLoaderTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void listFiles_globPattern_matchesOnlyPattern() throws IOException {
+    folder.newFile("day1.seed");
+    folder.newFile("day2.seed");
+    folder.newFile("RESP.XX.TEST.00.LHZ");
+    String directory = folder.getRoot().getAbsolutePath();
+
+    assertEquals(3, BulkSeedLoader.listFiles(directory).size());
+    List<String> matched = BulkSeedLoader.listFiles(directory + File.separator + "*.seed");
+    assertEquals(Arrays.asList(
+        new File(directory, "day1.seed").getPath(), new File(directory, "day2.seed").getPath()),
+        matched);
+  }
+
+  @Test
+  public void load_directory_stitchesEachChannelAcrossFiles() throws Exception {
+    // second day is written first, so files are not in time order by name
+    writeFile("a.seed", 100);
+    writeFile("b.seed", 0);
+    try (FileOutputStream out = new FileOutputStream(folder.newFile("RESP.XX.TEST.00.LHZ"))) {
+      out.write("not a seed file".getBytes());
+    }
+
+    BulkSeedLoader loader = new BulkSeedLoader(new ComputeExecutor(2),
+        SeedFileIndex::getTimeSeries);
+    Map<String, DataBlock> blocks = loader.load(folder.getRoot().getAbsolutePath(),
+        Arrays.asList("XX_TEST_00_LHZ", "XX_TEST_00_LH1", "XX_TEST_00_LH2"));
+
+    assertFalse(blocks.containsKey("XX_TEST_00_LH2"));
+    DataBlock vertical = blocks.get("XX_TEST_00_LHZ");
+    double[] expected = new double[200];
+    for (int i = 0; i < expected.length; ++i) {
+      expected[i] = i;
+    }
+    assertArrayEquals(expected, vertical.getData(), 0.);
+    assertArrayEquals(expected, blocks.get("XX_TEST_00_LH1").getData(), 0.);
+  }
+
+  @Test
+  public void load_filesWithGap_keepsGapInSingleBlock() throws Exception {
+    writeFile("a.seed", 0);
+    writeFile("b.seed", 200);
+
+    Map<String, DataBlock> blocks = new BulkSeedLoader(new ComputeExecutor(2),
+        SeedFileIndex::getTimeSeries).load(folder.getRoot().getAbsolutePath(),
+        Collections.singletonList("XX_TEST_00_LHZ"));
+
+    DataBlock vertical = blocks.get("XX_TEST_00_LHZ");
+    long start = vertical.getStartTime();
+    assertEquals(start + 300 * ONE_HZ_INTERVAL, vertical.getEndTime());
+    List<Pair<Long, Long>> gaps = vertical.getGapBoundaries();
+    assertEquals(1, gaps.size());
+    assertEquals(start + 100 * ONE_HZ_INTERVAL, (long) gaps.get(0).getFirst());
+    assertEquals(start + 200 * ONE_HZ_INTERVAL, (long) gaps.get(0).getSecond());
+  }
+
+  /**
+   * Write LHZ and LH1 records starting at the given second, each holding its samples' index
+   */
+  private void writeFile(String name, int startSecond)
+      throws IOException, CodecException {
+    int[] samples = new int[100];
+    for (int i = 0; i < samples.length; ++i) {
+      samples[i] = startSecond + i;
+    }
+    try (FileOutputStream out = new FileOutputStream(folder.newFile(name))) {
+      out.write(createRecord("LHZ", startSecond, samples));
+      out.write(createRecord("LH1", startSecond, samples));
+    }
+  }
+
+  /**
+   * Create a 512-byte Steim2 record of 1Hz data for station XX_TEST_00 starting on 2018-001
+   */
+  private static byte[] createRecord(String channel, int startSecond, int[] samples)
+      throws CodecException, IOException {
+    ByteBuffer record = ByteBuffer.allocate(512);
+    record.put("000001D ".getBytes(StandardCharsets.US_ASCII));
+    record.put(("TEST 00" + channel + "XX").getBytes(StandardCharsets.US_ASCII));
+    record.putShort(20, (short) 2018); // start year
+    record.putShort(22, (short) 1); // start day
+    record.put(24, (byte) (startSecond / 3600));
+    record.put(25, (byte) (startSecond / 60 % 60));
+    record.put(26, (byte) (startSecond % 60));
+    record.putShort(30, (short) samples.length);
+    record.putShort(32, (short) 1); // 1Hz
+    record.putShort(34, (short) 1);
+    record.put(39, (byte) 1); // one blockette
+    record.putShort(44, (short) 64); // data offset
+    record.putShort(46, (short) 48); // first blockette
+    record.putShort(48, (short) 1000);
+    record.put(52, (byte) 11); // steim2
+    record.put(53, (byte) 1); // big-endian
+    record.put(54, (byte) 9); // 512 bytes
+    record.position(64);
+    record.put(Steim2.encode(samples, 7).getEncodedData());
+    return record.array();
+  }
+}
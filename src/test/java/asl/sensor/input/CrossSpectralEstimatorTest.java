@@ -0,0 +1,82 @@
+package asl.sensor.input;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import asl.sensor.test.TestUtils;
+import asl.utils.FFTResult;
+import asl.utils.TimeSeriesUtils;
+import asl.utils.input.DataBlock;
+import asl.utils.input.InstrumentResponse;
+import edu.iris.dmc.seedcodec.CodecException;
+import edu.sc.seis.seisFile.mseed.SeedFormatException;
+import java.io.IOException;
+import org.apache.commons.math3.complex.Complex;
+import org.junit.Test;
+
+public class CrossSpectralEstimatorTest {
+
+  private static final String FOLDER =
+      TestUtils.TEST_DATA_LOCATION + TestUtils.SUBPAGE + "noise-neg160db/";
+  private static final String[] FILES =
+      {"00_LH0.512.seed", "10_LH0.512.seed", "TST6.00_LH0.512.seed"};
+  private static final String RESP = TestUtils.RESP_LOCATION + "T-compact_Q330HR_BH_40";
+
+  @Test
+  public void calculate_noiseData_matchesCrossPower()
+      throws IOException, SeedFormatException, CodecException {
+    double[][] data = new double[FILES.length][];
+    InstrumentResponse[] responses = new InstrumentResponse[FILES.length];
+    int length = Integer.MAX_VALUE;
+    long interval = 0;
+    for (int i = 0; i < FILES.length; ++i) {
+      DataBlock block = TimeSeriesUtils.getFirstTimeSeries(FOLDER + FILES[i]);
+      data[i] = block.getData();
+      responses[i] = new InstrumentResponse(RESP);
+      length = Math.min(length, data[i].length);
+      interval = block.getInterval();
+    }
+
+    FFTResult[][] results =
+        CrossSpectralEstimator.calculate(data, responses, length, interval, true);
+    for (int i = 0; i < FILES.length; ++i) {
+      for (int j = 0; j < FILES.length; ++j) {
+        if (j < i) {
+          assertNull(results[i][j]);
+          continue;
+        }
+        FFTResult expected = FFTResult.crossPower(data[i], data[j], responses[i], responses[j],
+            length, interval);
+        assertSpectraEqual(expected, results[i][j]);
+      }
+    }
+  }
+
+  @Test
+  public void calculate_dataShorterThanLength_matchesZeroPaddedCrossPower()
+      throws IOException, SeedFormatException, CodecException {
+    double[] data = TimeSeriesUtils.getFirstTimeSeries(FOLDER + FILES[0]).getData();
+    long interval = TimeSeriesUtils.getFirstTimeSeries(FOLDER + FILES[0]).getInterval();
+    double[] shortData = new double[data.length / 2];
+    System.arraycopy(data, 0, shortData, 0, shortData.length);
+    InstrumentResponse response = new InstrumentResponse(RESP);
+
+    FFTResult[][] results = CrossSpectralEstimator.calculate(new double[][]{shortData},
+        new InstrumentResponse[]{response}, data.length, interval, false);
+    FFTResult expected =
+        FFTResult.crossPower(shortData, shortData, response, response, data.length, interval);
+    assertSpectraEqual(expected, results[0][0]);
+  }
+
+  private static void assertSpectraEqual(FFTResult expected, FFTResult actual) {
+    assertEquals(expected.size(), actual.size());
+    for (int k = 0; k < expected.size(); ++k) {
+      assertEquals(expected.getFreq(k), actual.getFreq(k), 1E-12);
+      Complex expectedValue = expected.getFFT(k);
+      Complex actualValue = actual.getFFT(k);
+      double tolerance = 1E-10 * expectedValue.abs();
+      assertEquals(expectedValue.getReal(), actualValue.getReal(), tolerance);
+      assertEquals(expectedValue.getImaginary(), actualValue.getImaginary(), tolerance);
+    }
+  }
+}
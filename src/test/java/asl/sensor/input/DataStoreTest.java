@@ -2,16 +2,23 @@ package asl.sensor.input;
 
 import static asl.sensor.test.TestUtils.RESP_LOCATION;
 import static asl.sensor.test.TestUtils.getSeedFolder;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import asl.sensor.gui.InputPanel;
 import asl.sensor.test.TestUtils;
+import asl.utils.FFTResult;
 import asl.utils.TimeSeriesUtils;
 import asl.utils.input.DataBlock;
+import asl.utils.input.InstrumentResponse;
 import java.time.OffsetDateTime;
+import java.util.Arrays;
+import org.apache.commons.math3.complex.Complex;
 import org.junit.Test;
 
 public class DataStoreTest {
@@ -243,4 +250,158 @@ public class DataStoreTest {
     assertFalse(dataStore.isAnythingSet());
   }
 
-}
\ No newline at end of file
+  @Test
+  public void getPSD_unchangedData_returnsCachedResult() throws Exception {
+    String respName = RESP_LOCATION + "RESP.CU.BCIP.00.BHZ_2017_268";
+    DataStore ds = createSineStore(respName);
+
+    FFTResult first = ds.getPSD(0);
+    assertSame(first, ds.getPSD(0));
+    // copies of the datastore share calculated results until their data changes
+    DataStore copy = new DataStore(ds);
+    assertSame(first, copy.getPSD(0));
+    assertSame(ds.getCrossPower(0, 1, 1000), copy.getCrossPower(0, 1, 1000));
+  }
+
+  @Test
+  public void getPSD_changedData_recalculatesResult() throws Exception {
+    String respName = RESP_LOCATION + "RESP.CU.BCIP.00.BHZ_2017_268";
+    DataStore ds = createSineStore(respName);
+
+    FFTResult first = ds.getPSD(0);
+    ds.setResponse(0, new InstrumentResponse(respName));
+    FFTResult second = ds.getPSD(0);
+    assertNotSame(first, second);
+
+    FFTResult crossPower = ds.getCrossPower(0, 1, 1000);
+    DataBlock block = ds.getBlock(0);
+    ds.trim(block.getStartTime(), block.getStartTime() + 1000 * 1000);
+    assertNotSame(second, ds.getPSD(0));
+    assertNotSame(crossPower, ds.getCrossPower(0, 1, 1000));
+  }
+
+  @Test
+  public void getPSD_copyChangesData_originalKeepsCachedResult() throws Exception {
+    String respName = RESP_LOCATION + "RESP.CU.BCIP.00.BHZ_2017_268";
+    DataStore ds = createSineStore(respName);
+
+    FFTResult psd = ds.getPSD(0);
+    FFTResult crossPower = ds.getCrossPower(0, 1, 1000);
+    DataStore copy = new DataStore(ds);
+    copy.setResponse(0, new InstrumentResponse(respName));
+    DataBlock block = copy.getBlock(1);
+    copy.trim(block.getStartTime(), block.getStartTime() + 1000 * 1000);
+    // neither the copy's new response nor its trim affect the original's data
+    assertSame(psd, ds.getPSD(0));
+    assertSame(crossPower, ds.getCrossPower(0, 1, 1000));
+  }
+
+  @Test
+  public void getPSD_copiesResampleSameData_shareResult() throws Exception {
+    String respName = RESP_LOCATION + "RESP.CU.BCIP.00.BHZ_2017_268";
+    long interval = TimeSeriesUtils.ONE_HZ_INTERVAL;
+    DataStore ds = createSineStore(respName);
+    double[] fast = new double[4000];
+    for (int i = 0; i < fast.length; ++i) {
+      fast[i] = Math.sin(i / 20.);
+    }
+    ds.setBlock(2, new DataBlock(fast, interval / 2, "fast", 0));
+    ds.setResponse(2, respName);
+
+    DataStore first = new DataStore(ds);
+    first.matchIntervals(3);
+    FFTResult psd = first.getPSD(2);
+    DataStore second = new DataStore(ds);
+    second.matchIntervals(3);
+    assertSame(psd, second.getPSD(2));
+  }
+
+  @Test
+  public void getSpectralMatrix_matchesCrossPowers_isHermitian() throws Exception {
+    String respName = RESP_LOCATION + "RESP.CU.BCIP.00.BHZ_2017_268";
+    DataStore ds = createSineStore(respName);
+
+    CrossSpectralMatrix matrix = ds.getSpectralMatrix(new int[]{0, 1}, 2000, true);
+    assertEquals(2, matrix.size());
+    assertSame(ds.getPSD(0, 2000), matrix.getResult(0, 0));
+    assertSame(ds.getPSD(1, 2000), matrix.getResult(1, 1));
+    assertSame(ds.getCrossPower(0, 1, 2000), matrix.getResult(0, 1));
+
+    Complex[] upper = matrix.getPower(0, 1);
+    Complex[] lower = matrix.getPower(1, 0);
+    Complex[] reversed = ds.getCrossPower(1, 0, 2000).getFFT();
+    assertEquals(upper.length, lower.length);
+    for (int i = 0; i < upper.length; ++i) {
+      assertEquals(upper[i].conjugate(), lower[i]);
+      assertEquals(lower[i], reversed[i]);
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void getSpectralMatrix_psdOnly_rejectsCrossPowers() throws Exception {
+    DataStore ds = createSineStore(RESP_LOCATION + "RESP.CU.BCIP.00.BHZ_2017_268");
+    CrossSpectralMatrix matrix = ds.getSpectralMatrix(new int[]{0, 1}, 2000, false);
+    assertSame(ds.getPSD(1), matrix.getResult(1, 1));
+    matrix.getResult(0, 1);
+  }
+
+  @Test
+  public void copy_sharesBlocksUntilModified() {
+    long interval = TimeSeriesUtils.ONE_HZ_INTERVAL;
+    DataStore ds = new DataStore();
+    ds.setBlock(0, new DataBlock(new double[]{1, 2, 3, 4}, interval, "test", 0));
+    SampleView view = ds.getView(0);
+    assertSame(view, ds.getView(0));
+    DataStore copy = new DataStore(ds);
+    assertSame(ds.getBlock(0), copy.getBlock(0));
+    assertSame(view, copy.getView(0));
+
+    // already at the common time range, so neither trimmed nor copied
+    copy.trimToCommonTime();
+    assertSame(ds.getBlock(0), copy.getBlock(0));
+    assertSame(view, copy.getView(0));
+  }
+
+  @Test
+  public void trim_sharedBlock_viewsSameSamplesUntilBlockNeeded() {
+    long interval = TimeSeriesUtils.ONE_HZ_INTERVAL;
+    DataStore ds = new DataStore();
+    DataBlock block = new DataBlock(new double[]{1, 2, 3, 4}, interval, "test", 0);
+    ds.setBlock(0, block);
+    SampleView view = ds.getView(0);
+    DataStore copy = new DataStore(ds);
+
+    copy.trim(interval, 3 * interval);
+    assertEquals(interval, copy.getStartTime(0));
+    assertEquals(3 * interval, copy.getEndTime(0));
+    SampleView trimmed = copy.getView(0);
+    assertEquals(1, trimmed.indexIn(view));
+    assertArrayEquals(new double[]{2, 3}, trimmed.toArray(), 0.);
+    // the original keeps its full range
+    assertEquals(4, ds.getView(0).size());
+
+    DataBlock trimmedBlock = copy.getBlock(0);
+    assertNotSame(block, trimmedBlock);
+    assertEquals(interval, trimmedBlock.getStartTime());
+    assertArrayEquals(trimmed.toArray(), trimmedBlock.getData(), 0.);
+    assertSame(block, ds.getBlock(0));
+    assertEquals(0, ds.getStartTime(0));
+  }
+
+  private static DataStore createSineStore(String respName) throws Exception {
+    long interval = TimeSeriesUtils.ONE_HZ_INTERVAL;
+    double[] sine = new double[2000];
+    double[] cosine = new double[2000];
+    for (int i = 0; i < sine.length; ++i) {
+      sine[i] = Math.sin(i / 10.);
+      cosine[i] = Math.cos(i / 10.);
+    }
+    DataStore ds = new DataStore();
+    ds.setBlock(0, new DataBlock(sine, interval, "sine", 0));
+    ds.setBlock(1, new DataBlock(cosine, interval, "cosine", 0));
+    ds.setResponse(0, respName);
+    ds.setResponse(1, respName);
+    return ds;
+  }
+
+}
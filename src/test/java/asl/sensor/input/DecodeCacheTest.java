@@ -0,0 +1,114 @@
+package asl.sensor.input;
+
+import static asl.sensor.test.TestUtils.RESP_LOCATION;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import asl.sensor.test.TestUtils;
+import asl.utils.TimeSeriesUtils;
+import asl.utils.input.DataBlock;
+import asl.utils.input.InstrumentResponse;
+import edu.iris.dmc.seedcodec.CodecException;
+import edu.sc.seis.seisFile.mseed.SeedFormatException;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+public class DecodeCacheTest {
+
+  private static final String folder = TestUtils.TEST_DATA_LOCATION + TestUtils.SUBPAGE;
+
+  @Test
+  public void getFirstTimeSeries_repeatedLoad_matchesDecodedData()
+      throws SeedFormatException, CodecException, IOException {
+    String fileName = folder + "kiev-step/_BC0.512.seed";
+    DecodeCache cache = new DecodeCache(Long.MAX_VALUE);
+
+    DataBlock expected = TimeSeriesUtils.getFirstTimeSeries(fileName);
+    DataBlock first = cache.getFirstTimeSeries(fileName);
+    assertEquals(1, cache.size());
+    DataBlock second = cache.getFirstTimeSeries(fileName);
+    assertEquals(1, cache.size());
+
+    assertNotSame(first, second);
+    assertEquals(expected.getStartTime(), second.getStartTime());
+    assertArrayEquals(expected.getData(), second.getData(), 0.);
+  }
+
+  @Test
+  public void getTimeSeries_indexedFile_matchesDecodedChannel()
+      throws SeedFormatException, CodecException, IOException {
+    String fileName = folder + "kiev-step/00_BHZ.512.seed";
+    DecodeCache cache = new DecodeCache(Long.MAX_VALUE);
+    List<SeedFileIndex> seedIndices = Collections.singletonList(SeedFileIndex.build(fileName));
+    String name = seedIndices.get(0).getNameList().get(0);
+
+    DataBlock expected = TimeSeriesUtils.getTimeSeries(fileName, name);
+    DataBlock first = cache.getTimeSeries(seedIndices, name);
+    DataBlock second = cache.getTimeSeries(seedIndices, name);
+    assertEquals(1, cache.size());
+
+    assertNotSame(first, second);
+    assertEquals(expected.getStartTime(), second.getStartTime());
+    assertArrayEquals(expected.getData(), second.getData(), 0.);
+  }
+
+  @Test
+  public void getFirstTimeSeries_trimCopy_doesNotAffectCache()
+      throws SeedFormatException, CodecException, IOException {
+    String fileName = folder + "kiev-step/_BC0.512.seed";
+    DecodeCache cache = new DecodeCache(Long.MAX_VALUE);
+
+    DataBlock first = cache.getFirstTimeSeries(fileName);
+    int fullSize = first.size();
+    long start = first.getStartTime();
+    first.trim(start, start + (first.getEndTime() - start) / 2);
+    assertNotEquals(fullSize, first.size());
+
+    DataBlock second = cache.getFirstTimeSeries(fileName);
+    assertEquals(fullSize, second.size());
+    assertEquals(start, second.getStartTime());
+  }
+
+  @Test
+  public void getFirstTimeSeries_overBudget_evictsLeastRecentlyUsed()
+      throws SeedFormatException, CodecException, IOException {
+    String calName = folder + "kiev-step/_BC0.512.seed";
+    String outName = folder + "kiev-step/00_BHZ.512.seed";
+    DecodeCache sizingCache = new DecodeCache(Long.MAX_VALUE);
+    sizingCache.getFirstTimeSeries(calName);
+    long calSize = sizingCache.getMemoryUsed();
+
+    // only enough room for (about) one of the two files
+    DecodeCache cache = new DecodeCache(calSize + calSize / 2);
+    cache.getFirstTimeSeries(calName);
+    cache.getFirstTimeSeries(outName);
+    assertTrue(cache.getMemoryUsed() <= cache.getMemoryBudget());
+    assertEquals(1, cache.size());
+  }
+
+  @Test
+  public void getResponse_repeatedLoad_returnsIndependentCopies() throws IOException {
+    String respName = RESP_LOCATION + "RESP.CU.BCIP.00.BHZ_2017_268";
+    DecodeCache cache = new DecodeCache(Long.MAX_VALUE);
+
+    InstrumentResponse first = cache.getResponse(respName);
+    InstrumentResponse second = cache.getResponse(respName);
+    assertEquals(1, cache.size());
+    assertNotSame(first, second);
+    assertEquals(new InstrumentResponse(respName).getPoles(), second.getPoles());
+  }
+
+  @Test
+  public void zeroBudget_cachesNothing() throws SeedFormatException, CodecException, IOException {
+    DecodeCache cache = new DecodeCache(0);
+    cache.getFirstTimeSeries(folder + "kiev-step/_BC0.512.seed");
+    cache.getResponse(RESP_LOCATION + "RESP.CU.BCIP.00.BHZ_2017_268");
+    assertEquals(0, cache.size());
+    assertEquals(0, cache.getMemoryUsed());
+  }
+}
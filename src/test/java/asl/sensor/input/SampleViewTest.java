@@ -0,0 +1,57 @@
+package asl.sensor.input;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class SampleViewTest {
+
+  @Test
+  public void get_readsBackingArray() {
+    double[] data = {0., 1., 2., 3.};
+    SampleView view = SampleView.of(data);
+    assertEquals(4, view.size());
+    assertEquals(2., view.get(2), 0.);
+    data[2] = 5.;
+    assertEquals(5., view.get(2), 0.);
+  }
+
+  @Test
+  public void asArray_returnsBackingArray() {
+    double[] data = {0., 1., 2.};
+    SampleView view = SampleView.of(data);
+    assertSame(data, view.asArray());
+    assertNotSame(data, view.toArray());
+    assertArrayEquals(data, view.toArray(), 0.);
+  }
+
+  @Test
+  public void subView_sharesSamplesAtOffset() {
+    double[] data = {0., 1., 2., 3., 4.};
+    SampleView whole = SampleView.of(data);
+    SampleView part = whole.subView(1, 4);
+    assertEquals(3, part.size());
+    assertEquals(1., part.get(0), 0.);
+    assertEquals(1, part.indexIn(whole));
+    assertEquals(1, part.subView(1, 2).indexIn(part));
+    assertEquals(-1, whole.indexIn(part));
+    assertEquals(-1, part.indexIn(SampleView.of(data.clone())));
+
+    double[] copy = part.asArray();
+    assertArrayEquals(new double[]{1., 2., 3.}, copy, 0.);
+    assertSame(copy, part.asArray());
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void of_rangeOutsideArray_throwsException() {
+    SampleView.of(new double[]{0., 1., 2.}, 2, 2);
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void get_outsideView_throwsException() {
+    SampleView.of(new double[]{0., 1., 2., 3.}).get(4);
+  }
+}
@@ -0,0 +1,149 @@
+package asl.sensor.input;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import edu.sc.seis.seisFile.mseed.SeedFormatException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SeedFileIndexTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void build_multiplexedFile_indexesEachChannel() throws IOException, SeedFormatException {
+    File file = folder.newFile("mplex.seed");
+    try (FileOutputStream out = new FileOutputStream(file)) {
+      out.write(createRecord("IU", "ANMO", "00", "LHZ", 9, ByteOrder.BIG_ENDIAN));
+      out.write(createRecord("IU", "ANMO", "00", "LH1", 9, ByteOrder.BIG_ENDIAN));
+      out.write(createRecord("IU", "ANMO", "00", "LHZ", 12, ByteOrder.BIG_ENDIAN));
+      out.write(createRecord("IU", "ANMO", "10", "LHZ", 9, ByteOrder.LITTLE_ENDIAN));
+    }
+
+    SeedFileIndex index = SeedFileIndex.build(file.getAbsolutePath());
+    assertEquals(Arrays.asList("IU_ANMO_00_LHZ", "IU_ANMO_00_LH1", "IU_ANMO_10_LHZ"),
+        index.getNameList());
+    assertTrue(index.getNames().contains("IU_ANMO_00_LH1"));
+    assertEquals(2, index.getRecordCount("IU_ANMO_00_LHZ"));
+    assertEquals(1, index.getRecordCount("IU_ANMO_10_LHZ"));
+    assertEquals(0, index.getRecordCount("IU_ANMO_00_BHZ"));
+    assertTrue(index.isCurrent());
+  }
+
+  @Test
+  public void isCurrent_fileModified_returnsFalse() throws IOException, SeedFormatException {
+    File file = folder.newFile("single.seed");
+    try (FileOutputStream out = new FileOutputStream(file)) {
+      out.write(createRecord("XX", "TEST", "", "BHZ", 9, ByteOrder.BIG_ENDIAN));
+    }
+    SeedFileIndex index = SeedFileIndex.build(file.getAbsolutePath());
+    assertEquals("XX_TEST__BHZ", index.getNameList().get(0));
+
+    try (FileOutputStream out = new FileOutputStream(file, true)) {
+      out.write(createRecord("XX", "TEST", "", "BHZ", 9, ByteOrder.BIG_ENDIAN));
+    }
+    assertFalse(index.isCurrent());
+  }
+
+  @Test(expected = SeedFormatException.class)
+  public void build_noDataRecords_throwsException() throws IOException, SeedFormatException {
+    File file = folder.newFile("empty.seed");
+    try (FileOutputStream out = new FileOutputStream(file)) {
+      out.write(new byte[64]);
+    }
+    SeedFileIndex.build(file.getAbsolutePath());
+  }
+
+  @Test(expected = SeedFormatException.class)
+  public void build_textFile_throwsException() throws IOException, SeedFormatException {
+    File file = folder.newFile("notes.txt");
+    try (FileOutputStream out = new FileOutputStream(file)) {
+      byte[] text = new byte[256];
+      Arrays.fill(text, (byte) 'x');
+      out.write(text);
+    }
+    SeedFileIndex.build(file.getAbsolutePath());
+  }
+
+  @Test(expected = SeedFormatException.class)
+  public void build_invalidStartDay_throwsException() throws IOException, SeedFormatException {
+    File file = folder.newFile("badtime.seed");
+    byte[] record = createRecord("XX", "TEST", "", "BHZ", 9, ByteOrder.BIG_ENDIAN);
+    ByteBuffer.wrap(record).putShort(22, (short) 400);
+    try (FileOutputStream out = new FileOutputStream(file)) {
+      out.write(record);
+    }
+    SeedFileIndex.build(file.getAbsolutePath());
+  }
+
+  @Test
+  public void build_fullSeedVolume_skipsControlHeaders() throws IOException, SeedFormatException {
+    File file = folder.newFile("volume.seed");
+    try (FileOutputStream out = new FileOutputStream(file)) {
+      out.write(createControlHeader('V', "010009502.409"));
+      out.write(createControlHeader('S', "050"));
+      out.write(createRecord("IU", "ANMO", "00", "LHZ", 9, ByteOrder.BIG_ENDIAN));
+      out.write(createRecord("IU", "ANMO", "00", "LHZ", 9, ByteOrder.BIG_ENDIAN));
+    }
+    SeedFileIndex index = SeedFileIndex.build(file.getAbsolutePath());
+    assertEquals(Arrays.asList("IU_ANMO_00_LHZ"), index.getNameList());
+    // both data records are only found if the control headers are skipped by their own length
+    assertEquals(2, index.getRecordCount("IU_ANMO_00_LHZ"));
+  }
+
+  /**
+   * Create a full SEED control header record of 512 bytes starting with the given blockette text
+   */
+  private static byte[] createControlHeader(char type, String blockettes) {
+    byte[] record = new byte[512];
+    Arrays.fill(record, (byte) ' ');
+    byte[] header = ("000001" + type + " " + blockettes).getBytes(StandardCharsets.US_ASCII);
+    System.arraycopy(header, 0, record, 0, header.length);
+    return record;
+  }
+
+  /**
+   * Create a data record with no samples, with the record length given by blockette 1000
+   */
+  private static byte[] createRecord(String network, String station, String location,
+      String channel, int lengthExponent, ByteOrder order) {
+    ByteBuffer record = ByteBuffer.allocate(1 << lengthExponent).order(order);
+    record.put("000001".getBytes(StandardCharsets.US_ASCII));
+    record.put((byte) 'D');
+    record.put((byte) ' ');
+    putCode(record, station, 5);
+    putCode(record, location, 2);
+    putCode(record, channel, 3);
+    putCode(record, network, 2);
+    record.putShort(20, (short) 2018); // start year
+    record.putShort(22, (short) 1); // start day
+    record.put(39, (byte) 1); // one blockette
+    record.putShort(44, (short) 64); // data offset
+    record.putShort(46, (short) 48); // first blockette
+    record.putShort(48, (short) 1000);
+    record.putShort(50, (short) 0); // no following blockette
+    record.put(52, (byte) 11); // steim2
+    record.put(53, (byte) 1);
+    record.put(54, (byte) lengthExponent);
+    return record.array();
+  }
+
+  private static void putCode(ByteBuffer record, String code, int length) {
+    StringBuilder padded = new StringBuilder(code);
+    while (padded.length() < length) {
+      padded.append(' ');
+    }
+    record.put(padded.toString().getBytes(StandardCharsets.US_ASCII));
+  }
+}
@@ -3,13 +3,23 @@ package asl.sensor.output;
 import static asl.sensor.test.TestUtils.RESP_LOCATION;
 import static asl.sensor.test.TestUtils.getSeedFolder;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
+import asl.sensor.CalBatch;
+import asl.sensor.CalJob;
 import asl.sensor.CalProcessingServer;
 import asl.sensor.test.TestUtils;
 import asl.utils.input.InstrumentResponse;
 import edu.iris.dmc.seedcodec.CodecException;
 import edu.sc.seis.seisFile.mseed.SeedFormatException;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
 import org.apache.commons.math3.complex.Complex;
 import org.junit.Test;
 
@@ -126,4 +136,47 @@ public class CalServerTest {
     assertEquals(0.02768, ratio, 1E-3);
     assertEquals(250, freq, 2.);
   }
+
+  @Test
+  public void testBatchResults() throws InterruptedException, ExecutionException {
+    String stepFolder = folder + "kiev-step/";
+    CalJob stepJob = CalJob.step("step", stepFolder + "_BC0.512.seed",
+        stepFolder + "00_BHZ.512.seed", "STS1T5_Q330HR", true,
+        "2018-02-07T15:25:00+00:00", "2018-02-07T16:00:00+00:00");
+    CalJob sineJob = CalJob.sine("sine", folder + "sine-test/" + "_BC0.512.seed",
+        folder + "sine-test/" + "00_BHZ.512.seed",
+        "2015-06-15T20:23:08+00:00", "2015-06-15T21:02:46+00:00");
+    CalJob badJob = CalJob.sine("missing", folder + "does-not-exist.seed",
+        folder + "does-not-exist.seed",
+        "2015-06-15T20:23:08+00:00", "2015-06-15T21:02:46+00:00");
+
+    CalProcessingServer server = new CalProcessingServer(2);
+    CalBatch batch = server.runBatch(Arrays.asList(stepJob, sineJob, badJob));
+    assertEquals(3, batch.getJobCount());
+
+    Set<String> finished = new HashSet<>();
+    for (int i = 0; i < batch.getJobCount(); ++i) {
+      CalJob job = batch.nextCompleted(600000);
+      assertNotNull(job);
+      assertTrue(job.isDone());
+      finished.add(job.getJobId());
+    }
+    assertEquals(new HashSet<>(Arrays.asList("step", "sine", "missing")), finished);
+    assertNull(batch.nextCompleted(0));
+    assertTrue(batch.isDone());
+    server.shutdownBatches();
+
+    // results should match those of running each calibration individually
+    assertFalse(stepJob.isFailed());
+    CalResult stepResult = stepJob.getResult();
+    assertEquals(366.97, 1. / stepResult.getNumerMap().get("Fit_corner")[0], 0.5);
+    assertEquals(0.7196, stepResult.getNumerMap().get("Fit_damping")[0], 0.0005);
+
+    assertFalse(sineJob.isFailed());
+    CalResult sineResult = sineJob.getResult();
+    assertEquals(0.02768, sineResult.getNumerMap().get("Calibration_to_output_ratio")[0], 1E-3);
+
+    assertTrue(badJob.isFailed());
+    assertNotNull(badJob.getErrorMessage());
+  }
 }
@@ -0,0 +1,65 @@
+package asl.sensor.output;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import javax.imageio.ImageIO;
+import org.jfree.chart.ChartFactory;
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.axis.LogarithmicAxis;
+import org.jfree.data.xy.XYSeries;
+import org.jfree.data.xy.XYSeriesCollection;
+import org.junit.Test;
+
+public class ChartRendererTest {
+
+  @Test
+  public void fromTemplate_copiesLayoutWithNewData() {
+    JFreeChart template = ChartFactory.createXYLineChart("", "", "", null);
+    template.getXYPlot().setDomainAxis(new LogarithmicAxis("Frequency (Hz)"));
+
+    JFreeChart chart = ChartRenderer.fromTemplate(template, "Copy", createData("Data", 1.));
+    assertNotSame(template.getXYPlot(), chart.getXYPlot());
+    assertTrue(chart.getXYPlot().getDomainAxis() instanceof LogarithmicAxis);
+    assertEquals("Copy", chart.getTitle().getText());
+    assertEquals(1, chart.getLegend().getSources()[0].getLegendItems().getItemCount());
+    // template itself should be left unchanged
+    assertNull(template.getXYPlot().getDataset());
+    assertEquals(0, template.getXYPlot().getLegendItems().getItemCount());
+  }
+
+  @Test
+  public void renderToPng_producesImagesOfRendererSize() throws IOException {
+    ChartRenderer renderer = new ChartRenderer(320, 240, 2);
+    JFreeChart[] charts = new JFreeChart[3];
+    for (int i = 0; i < charts.length; ++i) {
+      charts[i] = ChartFactory.createXYLineChart("Chart " + i, "x", "y",
+          createData("Series " + i, i + 1.));
+    }
+
+    byte[][] pngByteArrays = renderer.renderToPng(charts);
+    assertEquals(charts.length, pngByteArrays.length);
+    for (byte[] pngByteArray : pngByteArrays) {
+      BufferedImage image = ImageIO.read(new ByteArrayInputStream(pngByteArray));
+      assertEquals(320, image.getWidth());
+      assertEquals(240, image.getHeight());
+    }
+    // buffers are kept for reuse, but no more than one per worker
+    assertTrue(renderer.getPooledImageCount() > 0);
+    assertTrue(renderer.getPooledImageCount() <= 2);
+    renderer.shutdown();
+  }
+
+  private static XYSeriesCollection createData(String name, double scale) {
+    XYSeries series = new XYSeries(name);
+    for (int i = 1; i <= 100; ++i) {
+      series.add(i, scale * Math.sin(i / 10.));
+    }
+    return new XYSeriesCollection(series);
+  }
+}